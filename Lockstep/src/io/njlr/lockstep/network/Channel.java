@@ -1,5 +1,7 @@
 package io.njlr.lockstep.network;
 
+import java.util.Optional;
+
 import io.njlr.bytes.Bytes;
 
 /**
@@ -24,6 +26,20 @@ public interface Channel extends AutoCloseable {
 	 */
 	void send(final Bytes content);
 	
+	/**
+	 * Sends a header followed by content as one message. 
+	 * 
+	 * This lets a layer above add its own small header without copying the content; 
+	 * channels that can should pass the two parts down separately too. 
+	 * 
+	 * @param header The start of the message
+	 * @param content The rest of the message
+	 */
+	default void send(final Bytes header, final Bytes content) {
+		
+		send(Utils.concat(header, content));
+	}
+
 	/**
 	 * Gives the channel a message from the remote end-point to process. 
 	 * 
@@ -33,6 +49,16 @@ public interface Channel extends AutoCloseable {
 	 */
 	void handle(final Bytes content);
 	
+	/**
+	 * The channel's current round-trip time measurements, if it takes any. 
+	 * 
+	 * @return The current estimate, or empty if this channel does not measure round-trips
+	 */
+	default Optional<RoundTripEstimate> roundTripEstimate() {
+		
+		return Optional.empty();
+	}
+	
 	/* (non-Javadoc)
 	 * @see java.lang.AutoCloseable#close()
 	 */
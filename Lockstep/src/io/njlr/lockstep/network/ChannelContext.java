@@ -14,10 +14,36 @@ public interface ChannelContext {
 	 */
 	void sendMessage(final Bytes message);
 	
+	/**
+	 * Passes a header followed by a message to the layer below to send to the remote as one. 
+	 * 
+	 * The layer below may write the two parts out without joining them first. 
+	 * 
+	 * @param header The start of the message
+	 * @param message The rest of the message
+	 */
+	default void sendMessage(final Bytes header, final Bytes message) {
+		
+		sendMessage(Utils.concat(header, message));
+	}
+
 	/**
 	 * Passes a message to the layer above for processing. 
 	 * 
 	 * @param message The message to pass
 	 */
 	void takeMessage(final Bytes message);
+	
+	/**
+	 * The timing wheel that the channel should register its timers with. 
+	 * 
+	 * This is shared by all channels in a session, so tasks must be short and non-blocking. 
+	 * By default, the process-wide wheel is used. 
+	 * 
+	 * @return The shared timing wheel
+	 */
+	default HashedTimingWheel timingWheel() {
+		
+		return HashedTimingWheel.shared();
+	}
 }
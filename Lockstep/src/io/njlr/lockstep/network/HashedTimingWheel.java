@@ -0,0 +1,354 @@
+package io.njlr.lockstep.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+
+/**
+ * A hashed timing wheel for scheduling many short, cheap timers from a single thread.
+ *
+ * Time is divided into ticks; each tick hashes to a bucket holding an intrusive doubly-linked list
+ * of timeouts, so scheduling and cancelling are O(1). Timeouts further away than one revolution
+ * simply stay in their bucket until their tick comes around.
+ *
+ * Tasks are run on the wheel's thread and must not block.
+ *
+ * @see <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf">Hashed and Hierarchical Timing Wheels</a>
+ *
+ */
+public final class HashedTimingWheel extends AbstractExecutionThreadService {
+	
+	public static final long defaultTickDuration = TimeUnit.MILLISECONDS.toNanos(1);
+	public static final int defaultWheelSize = 512;
+	
+	private static final Logger logger = Logger.getLogger(HashedTimingWheel.class.getName());
+	
+	private final Object lock = new Object();
+	
+	private final long tickDuration;
+	private final int mask;
+	
+	// Sentinel heads of each bucket's list
+	private final Timeout[] buckets;
+	
+	private final long startTime;
+	
+	// Re-used between ticks to avoid allocating
+	private final List<Timeout> expired;
+	
+	private long processedTick;
+	
+	private volatile Thread thread;
+	
+	private volatile boolean keepRunning;
+	
+	// Whether the wheel's thread should keep the JVM alive
+	private final boolean isDaemon;
+	
+	private HashedTimingWheel(final long tickDuration, final TimeUnit unit, final int wheelSize, final boolean isDaemon) {
+		
+		super();
+		
+		Preconditions.checkArgument(tickDuration > 0);
+		Preconditions.checkNotNull(unit);
+		Preconditions.checkArgument(wheelSize > 0);
+		Preconditions.checkArgument(Integer.bitCount(wheelSize) == 1);
+		
+		this.tickDuration = unit.toNanos(tickDuration);
+		this.isDaemon = isDaemon;
+		
+		mask = wheelSize - 1;
+		
+		buckets = new Timeout[wheelSize];
+		
+		for (int i = 0; i < wheelSize; i++) {
+			
+			buckets[i] = new Timeout(this, null);
+			
+			buckets[i].previous = buckets[i];
+			buckets[i].next = buckets[i];
+		}
+		
+		startTime = System.nanoTime();
+		
+		expired = new ArrayList<>();
+		
+		processedTick = 0;
+	}
+
+	/**
+	 * Creates a new <code>HashedTimingWheel</code> instance.
+	 *
+	 * @param tickDuration The resolution of the wheel
+	 * @param unit The unit of tickDuration
+	 * @param wheelSize The number of buckets; must be a power of two
+	 */
+	public HashedTimingWheel(final long tickDuration, final TimeUnit unit, final int wheelSize) {
+		
+		this(tickDuration, unit, wheelSize, false);
+	}
+
+	public HashedTimingWheel() {
+		
+		this(defaultTickDuration, TimeUnit.NANOSECONDS, defaultWheelSize);
+	}
+
+	/**
+	 * A wheel shared by everything that has not been given one of its own, e.g. channels 
+	 * whose <code>ChannelContext</code> predates timing wheels. 
+	 * 
+	 * It is started on first use and runs on a daemon thread for the life of the JVM. 
+	 * 
+	 * @return The shared timing wheel
+	 */
+	public static HashedTimingWheel shared() {
+		
+		return SharedHolder.wheel;
+	}
+
+	/**
+	 * Creates a timeout for the given task without scheduling it.
+	 *
+	 * The returned handle can be (re)scheduled any number of times,
+	 * which avoids an allocation per timer.
+	 *
+	 * @param task The task to run on expiry
+	 * @return The new timeout
+	 */
+	public Timeout newTimeout(final Runnable task) {
+		
+		Preconditions.checkNotNull(task);
+		
+		return new Timeout(this, task);
+	}
+
+	/**
+	 * Schedules a task to run after the given delay.
+	 *
+	 * @param task The task to run
+	 * @param delay How long to wait
+	 * @param unit The unit of delay
+	 * @return A handle that can be used to cancel the task
+	 */
+	public Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+		
+		final Timeout timeout = newTimeout(task);
+		
+		timeout.schedule(delay, unit);
+		
+		return timeout;
+	}
+
+	@Override
+	protected void startUp() throws Exception {
+		
+		super.startUp();
+		
+		thread = Thread.currentThread();
+		
+		keepRunning = true;
+	}
+
+	@Override
+	protected void run() throws Exception {
+		
+		while (keepRunning) {
+			
+			final long currentTick = (System.nanoTime() - startTime) / tickDuration;
+			
+			synchronized (lock) {
+				
+				while (processedTick < currentTick) {
+					
+					processedTick++;
+					
+					final Timeout head = buckets[(int) (processedTick & mask)];
+					
+					Timeout i = head.next;
+					
+					while (i != head) {
+						
+						final Timeout next = i.next;
+						
+						if (i.deadline <= processedTick) {
+							
+							i.unlink();
+							
+							expired.add(i);
+						}
+						
+						i = next;
+					}
+				}
+			}
+			
+			// Run the tasks outside of the lock so that they may reschedule themselves
+			for (int i = 0; i < expired.size(); i++) {
+				
+				try {
+					
+					expired.get(i).task.run();
+				} catch (final Exception e) {
+					
+					logger.log(Level.WARNING, "Timeout task failed", e);
+				}
+			}
+			
+			expired.clear();
+			
+			final long nextTickTime = startTime + (currentTick + 1) * tickDuration;
+			
+			LockSupport.parkNanos(this, nextTickTime - System.nanoTime());
+		}
+	}
+
+	@Override
+	protected void triggerShutdown() {
+		
+		super.triggerShutdown();
+		
+		keepRunning = false;
+		
+		final Thread t = thread;
+		
+		if (t != null) {
+			
+			LockSupport.unpark(t);
+		}
+	}
+
+	@Override
+	protected Executor executor() {
+		
+		if (!isDaemon) {
+			
+			return super.executor();
+		}
+		
+		return (final Runnable command) -> {
+			
+			final Thread t = new Thread(command, serviceName());
+			
+			t.setDaemon(true);
+			t.start();
+		};
+	}
+
+	@Override
+	protected String serviceName() {
+		
+		return HashedTimingWheel.class.getSimpleName();
+	}
+
+	/**
+	 * A handle to a task in a <code>HashedTimingWheel</code>.
+	 *
+	 */
+	public static final class Timeout {
+		
+		private final HashedTimingWheel wheel;
+		private final Runnable task;
+		
+		private Timeout previous;
+		private Timeout next;
+		
+		private long deadline;
+		
+		private Timeout(final HashedTimingWheel wheel, final Runnable task) {
+			
+			super();
+			
+			this.wheel = wheel;
+			this.task = task;
+		}
+		
+		/**
+		 * Whether the task is waiting to run
+		 *
+		 * @return If the timeout is pending
+		 */
+		public boolean isPending() {
+			
+			synchronized (wheel.lock) {
+				
+				return next != null;
+			}
+		}
+		
+		/**
+		 * Schedules the task to run after the given delay, replacing any pending schedule.
+		 *
+		 * @param delay How long to wait
+		 * @param unit The unit of delay
+		 */
+		public void schedule(final long delay, final TimeUnit unit) {
+			
+			Preconditions.checkArgument(delay >= 0);
+			Preconditions.checkNotNull(unit);
+			
+			final long elapsed = System.nanoTime() - wheel.startTime + unit.toNanos(delay);
+			
+			synchronized (wheel.lock) {
+				
+				unlink();
+				
+				// Round up, so that a task never runs early
+				deadline = Math.max((elapsed + wheel.tickDuration - 1) / wheel.tickDuration, wheel.processedTick + 1);
+				
+				final Timeout head = wheel.buckets[(int) (deadline & wheel.mask)];
+				
+				previous = head.previous;
+				next = head;
+				
+				head.previous.next = this;
+				head.previous = this;
+			}
+		}
+		
+		/**
+		 * Cancels the task if it has not yet run.
+		 *
+		 * @return If the task was pending
+		 */
+		public boolean cancel() {
+			
+			synchronized (wheel.lock) {
+				
+				return unlink();
+			}
+		}
+		
+		private boolean unlink() {
+			
+			if (next == null) {
+				
+				return false;
+			}
+			
+			previous.next = next;
+			next.previous = previous;
+			
+			previous = null;
+			next = null;
+			
+			return true;
+		}
+	}
+
+	private static final class SharedHolder {
+		
+		private static final HashedTimingWheel wheel = new HashedTimingWheel(defaultTickDuration, TimeUnit.NANOSECONDS, defaultWheelSize, true);
+		
+		static {
+			
+			wheel.startAsync().awaitRunning();
+		}
+	}
+}
@@ -1,19 +1,31 @@
 package io.njlr.lockstep.network;
 
 import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Optional;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.primitives.UnsignedBytes;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesBuilder;
+import io.njlr.bytes.BytesReader;
 
 /**
  * An immutable representation of an <code>InetAddress</code> and a port.  
+ * 
+ * Addresses are ordered by host and then by port, so every peer sorts the same addresses the same way. 
  *
  */
-public final class NetworkAddress {
+public final class NetworkAddress implements Comparable<NetworkAddress> {
 	
 	private final InetAddress host;
 	private final int port;
 	
+	// Computed once, since addresses are looked up for every received datagram
+	private final int hashCode;
+	
 	/**
 	 * The host portion of the address
 	 * 
@@ -42,12 +54,14 @@ public final class NetworkAddress {
 		
 		this.host = host;
 		this.port = port;
+		
+		hashCode = mix(host.hashCode() * 31 + port);
 	}
 	
 	@Override
 	public int hashCode() {
 		
-		return host.hashCode() * port;
+		return hashCode;
 	}
 	
 	@Override
@@ -68,14 +82,104 @@ public final class NetworkAddress {
 		return false;
 	}
 	
+	@Override
+	public int compareTo(final NetworkAddress that) {
+		
+		final byte[] x = this.host.getAddress();
+		final byte[] y = that.host.getAddress();
+		
+		// IPv4 addresses come before IPv6 ones
+		if (x.length != y.length) {
+			
+			return Integer.compare(x.length, y.length);
+		}
+		
+		final int comparison = UnsignedBytes.lexicographicalComparator().compare(x, y);
+		
+		return (comparison != 0) ? comparison : Integer.compare(this.port, that.port);
+	}
+	
 	@Override
 	public String toString() {
 		
 		return MoreObjects.toStringHelper(this).addValue(host).addValue(port).toString();
 	}
 	
+	/**
+	 * Encodes the address as the length of the host address, the host address and the port. 
+	 * 
+	 * @return The encoded address
+	 */
+	public Bytes encode() {
+		
+		final byte[] address = host.getAddress();
+		
+		return new BytesBuilder(address.length + 5)
+				.append((byte) address.length)
+				.append(address)
+				.appendInt(port)
+				.toBytes();
+	}
+
 	public static NetworkAddress of(final InetAddress host, final int port) {
 		
 		return new NetworkAddress(host, port);
 	}
+
+	/**
+	 * Reads an address written by <code>encode</code>. 
+	 * 
+	 * @param reader The reader to take the address from
+	 * @return The address, or empty if it could not be decoded
+	 */
+	public static Optional<NetworkAddress> decode(final BytesReader reader) {
+		
+		if (reader.remaining() < 1) {
+			
+			return Optional.empty();
+		}
+		
+		final int length = reader.readByte();
+		
+		if (length <= 0 || reader.remaining() < length + 4) {
+			
+			return Optional.empty();
+		}
+		
+		final byte[] address = new byte[length];
+		
+		for (int i = 0; i < length; i++) {
+			
+			address[i] = reader.readByte();
+		}
+		
+		try {
+			
+			return Optional.of(new NetworkAddress(InetAddress.getByAddress(address), reader.readInt()));
+		} catch (final UnknownHostException e) {
+			
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Spreads the bits of a hash so that similar addresses (e.g. consecutive ports) land far apart. 
+	 * 
+	 * This is the finalization step of MurmurHash3. 
+	 * 
+	 * @param h The hash to mix
+	 * @return The mixed hash
+	 */
+	private static int mix(final int h) {
+		
+		int x = h;
+		
+		x ^= x >>> 16;
+		x *= 0x85EBCA6B;
+		x ^= x >>> 13;
+		x *= 0xC2B2AE35;
+		x ^= x >>> 16;
+		
+		return x;
+	}
 }
@@ -0,0 +1,100 @@
+package io.njlr.lockstep.network;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * A snapshot of the round-trip time measurements of a <code>Channel</code>.
+ *
+ * This class is immutable.
+ *
+ */
+public final class RoundTripEstimate {
+	
+	private final long smoothedRoundTripTime;
+	private final long roundTripTimeVariation;
+	private final long retransmissionTimeout;
+	
+	/**
+	 * The smoothed round-trip time
+	 *
+	 * @param unit The unit to express the result in
+	 * @return The smoothed round-trip time
+	 */
+	public long smoothedRoundTripTime(final TimeUnit unit) {
+		
+		return unit.convert(smoothedRoundTripTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * The mean deviation of the round-trip time
+	 *
+	 * @param unit The unit to express the result in
+	 * @return The round-trip time variation
+	 */
+	public long roundTripTimeVariation(final TimeUnit unit) {
+		
+		return unit.convert(roundTripTimeVariation, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * How long a packet is given to be acknowledged before it is first resent
+	 *
+	 * @param unit The unit to express the result in
+	 * @return The retransmission timeout
+	 */
+	public long retransmissionTimeout(final TimeUnit unit) {
+		
+		return unit.convert(retransmissionTimeout, TimeUnit.NANOSECONDS);
+	}
+
+	public RoundTripEstimate(final long smoothedRoundTripTime, final long roundTripTimeVariation, final long retransmissionTimeout) {
+		
+		super();
+		
+		Preconditions.checkArgument(smoothedRoundTripTime >= 0);
+		Preconditions.checkArgument(roundTripTimeVariation >= 0);
+		Preconditions.checkArgument(retransmissionTimeout > 0);
+		
+		this.smoothedRoundTripTime = smoothedRoundTripTime;
+		this.roundTripTimeVariation = roundTripTimeVariation;
+		this.retransmissionTimeout = retransmissionTimeout;
+	}
+
+	@Override
+	public int hashCode() {
+		
+		return Long.hashCode(smoothedRoundTripTime) * 11 + Long.hashCode(roundTripTimeVariation) * 17 + Long.hashCode(retransmissionTimeout) * 31;
+	}
+
+	@Override
+	public boolean equals(final Object that) {
+		
+		if (this == that) {
+			
+			return true;
+		}
+		
+		if (that instanceof RoundTripEstimate) {
+			
+			final RoundTripEstimate thatEstimate = (RoundTripEstimate) that;
+			
+			return ((this.smoothedRoundTripTime == thatEstimate.smoothedRoundTripTime) &&
+					(this.roundTripTimeVariation == thatEstimate.roundTripTimeVariation) &&
+					(this.retransmissionTimeout == thatEstimate.retransmissionTimeout));
+		}
+		
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		
+		return MoreObjects.toStringHelper(this)
+				.add("smoothedRoundTripTime", smoothedRoundTripTime)
+				.add("roundTripTimeVariation", roundTripTimeVariation)
+				.add("retransmissionTimeout", retransmissionTimeout).toString();
+	}
+}
@@ -0,0 +1,119 @@
+package io.njlr.lockstep.network;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Computes a retransmission timeout from round-trip time samples.
+ *
+ * Follows RFC 6298: a smoothed round-trip time and its mean deviation are maintained
+ * as exponentially weighted moving averages, and the timeout is derived from both.
+ *
+ * Callers are responsible for Karn's rule; that is, never sampling a packet that was retransmitted,
+ * since it is ambiguous which transmission the acknowledgement belongs to.
+ *
+ * This class is not thread-safe.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc6298">https://tools.ietf.org/html/rfc6298</a>
+ *
+ */
+public final class RoundTripEstimator {
+	
+	/**
+	 * The smallest timeout that will ever be used; keeps LAN timeouts from collapsing to zero.
+	 */
+	public static final long minimumTimeout = TimeUnit.MILLISECONDS.toNanos(2);
+	
+	/**
+	 * The largest timeout that will ever be used, including back-off.
+	 */
+	public static final long maximumTimeout = TimeUnit.SECONDS.toNanos(8);
+	
+	/**
+	 * The most times the timeout is doubled for one packet. 
+	 * 
+	 * Random loss, unlike congestion, does not go away by waiting longer; an unbounded back-off lets 
+	 * the occasional unlucky packet hold up everything behind it for seconds. 
+	 */
+	public static final int maximumBackOff = 3;
+	
+	private long smoothedRoundTripTime;
+	private long roundTripTimeVariation;
+	private long retransmissionTimeout;
+	
+	private boolean hasSample;
+	
+	/**
+	 * Creates a new <code>RoundTripEstimator</code> instance.
+	 *
+	 * @param initialTimeout The timeout to use until the first sample arrives
+	 * @param unit The unit of initialTimeout
+	 */
+	public RoundTripEstimator(final long initialTimeout, final TimeUnit unit) {
+		
+		super();
+		
+		Preconditions.checkArgument(initialTimeout > 0);
+		Preconditions.checkNotNull(unit);
+		
+		retransmissionTimeout = clamp(unit.toNanos(initialTimeout));
+		
+		hasSample = false;
+	}
+
+	/**
+	 * Incorporates a new round-trip time measurement.
+	 *
+	 * @param roundTripTime The measured round-trip time in nanoseconds
+	 */
+	public void sample(final long roundTripTime) {
+		
+		final long r = Math.max(roundTripTime, 0L);
+		
+		if (hasSample) {
+			
+			// RTTVAR <- 3/4 RTTVAR + 1/4 |SRTT - R'|; SRTT <- 7/8 SRTT + 1/8 R'
+			roundTripTimeVariation = roundTripTimeVariation - (roundTripTimeVariation >> 2) + (Math.abs(smoothedRoundTripTime - r) >> 2);
+			smoothedRoundTripTime = smoothedRoundTripTime - (smoothedRoundTripTime >> 3) + (r >> 3);
+		} else {
+			
+			smoothedRoundTripTime = r;
+			roundTripTimeVariation = r >> 1;
+			
+			hasSample = true;
+		}
+		
+		retransmissionTimeout = clamp(smoothedRoundTripTime + Math.max(minimumTimeout, roundTripTimeVariation << 2));
+	}
+
+	/**
+	 * The timeout for a packet that has already been retransmitted a number of times.
+	 *
+	 * The timeout doubles with each retransmission (exponential back-off), up to <code>maximumBackOff</code> times.
+	 *
+	 * @param retransmissions How many times the packet has been retransmitted
+	 * @return The timeout in nanoseconds
+	 */
+	public long retransmissionTimeout(final int retransmissions) {
+		
+		Preconditions.checkArgument(retransmissions >= 0);
+		
+		return clamp(retransmissionTimeout << Math.min(retransmissions, maximumBackOff));
+	}
+
+	/**
+	 * Takes a snapshot of the current estimates.
+	 *
+	 * @return The current estimate
+	 */
+	public RoundTripEstimate estimate() {
+		
+		return new RoundTripEstimate(smoothedRoundTripTime, roundTripTimeVariation, retransmissionTimeout);
+	}
+
+	private static long clamp(final long timeout) {
+		
+		return Math.max(minimumTimeout, Math.min(maximumTimeout, timeout));
+	}
+}
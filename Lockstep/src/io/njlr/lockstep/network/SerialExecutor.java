@@ -0,0 +1,129 @@
+package io.njlr.lockstep.network;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An <code>Executor</code> that runs its tasks one at a time, in submission order, on a shared pool.
+ *
+ * This is a mailbox: submitting only enqueues, and at most one drain of the queue is ever
+ * scheduled on the pool. Each drain runs a batch of tasks before yielding the pool thread,
+ * so that a busy lane cannot starve the others.
+ *
+ * If the pool rejects a drain, <code>execute</code> throws; tasks left over when the pool is shut down are dropped.
+ *
+ * This class is thread-safe.
+ *
+ */
+public final class SerialExecutor implements Executor {
+	
+	public static final int defaultBatchSize = 64;
+	
+	private static final Logger logger = Logger.getLogger(SerialExecutor.class.getName());
+	
+	private final Executor executor;
+	private final int batchSize;
+	
+	private final Queue<Runnable> tasks;
+	
+	// Whether a drain is scheduled or running
+	private final AtomicBoolean isScheduled;
+	
+	/**
+	 * Creates a new <code>SerialExecutor</code> instance.
+	 *
+	 * @param executor The pool to run drains on
+	 * @param batchSize The most tasks to run per drain
+	 */
+	public SerialExecutor(final Executor executor, final int batchSize) {
+		
+		super();
+		
+		Preconditions.checkNotNull(executor);
+		Preconditions.checkArgument(batchSize > 0);
+		
+		this.executor = executor;
+		this.batchSize = batchSize;
+		
+		tasks = new ConcurrentLinkedQueue<>();
+		
+		isScheduled = new AtomicBoolean(false);
+	}
+
+	public SerialExecutor(final Executor executor) {
+		
+		this(executor, defaultBatchSize);
+	}
+
+	@Override
+	public void execute(final Runnable task) {
+		
+		Preconditions.checkNotNull(task);
+		
+		tasks.add(task);
+		
+		schedule();
+	}
+
+	private void schedule() {
+		
+		if (isScheduled.compareAndSet(false, true)) {
+			
+			try {
+				
+				executor.execute(this::drain);
+			} catch (final RuntimeException e) {
+				
+				// e.g. the pool has been shut down
+				isScheduled.set(false);
+				
+				throw e;
+			}
+		}
+	}
+
+	private void drain() {
+		
+		for (int i = 0; i < batchSize; i++) {
+			
+			final Runnable task = tasks.poll();
+			
+			if (task == null) {
+				
+				break;
+			}
+			
+			try {
+				
+				task.run();
+			} catch (final Exception e) {
+				
+				logger.log(Level.WARNING, "Task failed", e);
+			}
+		}
+		
+		isScheduled.set(false);
+		
+		// A task may have arrived after the last poll but before the flag was cleared
+		if (!tasks.isEmpty()) {
+			
+			try {
+				
+				schedule();
+			} catch (final RejectedExecutionException e) {
+				
+				// The pool is shutting down, so nothing would ever run the rest
+				logger.log(Level.FINE, "Dropped " + tasks.size() + " tasks; the pool has been shut down", e);
+				
+				tasks.clear();
+			}
+		}
+	}
+}
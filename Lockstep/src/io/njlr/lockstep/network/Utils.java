@@ -49,4 +49,80 @@ public final class Utils {
 		
 		return StandardCharsets.UTF_8.decode(ByteBuffer.wrap(text.array())).toString();
 	}
+
+	/**
+	 * Reads a big-endian <code>short</code>, as written by <code>BytesBuilder.appendShort</code>.
+	 *
+	 * @param reader The reader to consume two bytes from
+	 * @return The decoded short
+	 */
+	public static short readShort(final BytesReader reader) {
+		
+		final int high = reader.readByte() & 0xFF;
+		final int low = reader.readByte() & 0xFF;
+		
+		return (short) ((high << 8) | low);
+	}
+
+	/**
+	 * Joins two <code>Bytes</code> end to end.
+	 *
+	 * <code>Bytes.concat</code> in bytes-1.0 does not produce the bytes of both operands, so use this instead.
+	 *
+	 * @param x The first part
+	 * @param y The second part
+	 * @return The joined bytes
+	 */
+	public static Bytes concat(final Bytes x, final Bytes y) {
+		
+		final byte[] joined = new byte[x.length() + y.length()];
+		
+		// Bytes.array() returns a copy, so read the bytes directly; 
+		// Bytes.of still copies the joined array, so each byte is copied twice in all
+		for (int i = 0; i < x.length(); i++) {
+			
+			joined[i] = x.get(i);
+		}
+		
+		for (int i = 0; i < y.length(); i++) {
+			
+			joined[x.length() + i] = y.get(i);
+		}
+		
+		return Bytes.of(joined);
+	}
+
+	/**
+	 * Writes a big-endian <code>int</code>, as read by <code>BytesReader.readInt</code>.
+	 *
+	 * @param data The array to write to
+	 * @param position Where in the array to write the four bytes
+	 * @param value The int to write
+	 * @return The position after the written bytes
+	 */
+	public static int writeInt(final byte[] data, final int position, final int value) {
+		
+		data[position] = (byte) (value >>> 24);
+		data[position + 1] = (byte) (value >>> 16);
+		data[position + 2] = (byte) (value >>> 8);
+		data[position + 3] = (byte) value;
+		
+		return position + 4;
+	}
+
+	/**
+	 * Writes a big-endian <code>short</code>, as read by <code>readShort</code>.
+	 *
+	 * @param data The array to write to
+	 * @param position Where in the array to write the two bytes
+	 * @param value The short to write
+	 * @return The position after the written bytes
+	 */
+	public static int writeShort(final byte[] data, final int position, final short value) {
+		
+		data[position] = (byte) (value >>> 8);
+		data[position + 1] = (byte) value;
+		
+		return position + 2;
+	}
 }
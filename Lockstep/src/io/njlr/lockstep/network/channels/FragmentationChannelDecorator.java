@@ -0,0 +1,385 @@
+package io.njlr.lockstep.network.channels;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesReader;
+import io.njlr.lockstep.network.Channel;
+import io.njlr.lockstep.network.ChannelContext;
+import io.njlr.lockstep.network.ChannelFactory;
+import io.njlr.lockstep.network.HashedTimingWheel;
+import io.njlr.lockstep.network.HashedTimingWheel.Timeout;
+import io.njlr.lockstep.network.RoundTripEstimate;
+import io.njlr.lockstep.network.Utils;
+import io.njlr.lockstep.network.sequence.Sequence16;
+
+/**
+ * A decorator for a Channel that splits large messages into fragments small enough for a single datagram.
+ *
+ * Messages that already fit are sent whole with a one byte header. Larger messages are sent as
+ * <code>[Fragment][message id (2 bytes)][index (2 bytes)][count (2 bytes)][data]</code> and reassembled
+ * on the other side.
+ *
+ * Reassembly memory is bounded; when it is exhausted the oldest incomplete messages are discarded,
+ * as are messages that remain incomplete for too long. Over a reliable channel neither should happen.
+ *
+ * Both end-points must use this decorator.
+ *
+ */
+public final class FragmentationChannelDecorator implements Channel {
+	
+	public static final byte Whole = 23;
+	public static final byte Fragment = 41;
+	
+	/**
+	 * The largest fragment (including its header) that will be passed to the wrapped channel.
+	 *
+	 * This leaves room for the wrapped channel's own header and the session framing.
+	 */
+	public static final int defaultFragmentSize = 1200;
+	
+	/**
+	 * The default bound (bytes) on the memory used for incomplete messages.
+	 */
+	public static final int defaultMaximumBufferedBytes = 1 << 20;
+	
+	/**
+	 * How long (ms), by default, an incomplete message is kept waiting for its remaining fragments.
+	 */
+	public static final int defaultReassemblyTimeout = 5000;
+	
+	private static final int fragmentHeaderSize = 7;
+	
+	private static final Bytes wholeHeader = Bytes.of(Whole);
+	
+	private final Object lock = new Object();
+	
+	private final ChannelContext context;
+	private final Channel channel;
+	
+	private final int fragmentSize;
+	private final int maximumBufferedBytes;
+	private final int reassemblyTimeout;
+	
+	// In order of arrival, so that the oldest can be evicted first
+	private final Map<Short, PartialMessage> partialMessages;
+	
+	private int bufferedBytes;
+	
+	private short nextMessageId;
+	
+	/**
+	 * Creates a new <code>FragmentationChannelDecorator</code> instance.
+	 *
+	 * @param context The context to create the <code>Channel</code> in
+	 * @param channelFactory The factory for the wrapped <code>Channel</code>, which carries the fragments
+	 * @param fragmentSize The largest fragment to pass to the wrapped channel
+	 * @param maximumBufferedBytes The most memory to use for incomplete messages
+	 * @param reassemblyTimeout How long (ms) to wait for the remainder of an incomplete message
+	 */
+	public FragmentationChannelDecorator(final ChannelContext context, final ChannelFactory channelFactory, final int fragmentSize, final int maximumBufferedBytes, final int reassemblyTimeout) {
+		
+		super();
+		
+		Preconditions.checkNotNull(context);
+		Preconditions.checkNotNull(channelFactory);
+		Preconditions.checkArgument(fragmentSize > fragmentHeaderSize);
+		Preconditions.checkArgument(maximumBufferedBytes > 0);
+		Preconditions.checkArgument(reassemblyTimeout > 0);
+		
+		this.context = context;
+		this.fragmentSize = fragmentSize;
+		this.maximumBufferedBytes = maximumBufferedBytes;
+		this.reassemblyTimeout = reassemblyTimeout;
+		
+		partialMessages = new LinkedHashMap<>();
+		
+		bufferedBytes = 0;
+		
+		nextMessageId = 0;
+		
+		// The wrapped channel sends straight down, but hands its messages to us rather than the layer above
+		channel = channelFactory.create(new ChannelContext() {
+			
+			@Override
+			public void sendMessage(final Bytes message) {
+				
+				context.sendMessage(message);
+			}
+			
+			@Override
+			public void sendMessage(final Bytes header, final Bytes message) {
+				
+				// Keep the parts apart, so that the wrapped channel's header is not joined to the content here
+				context.sendMessage(header, message);
+			}
+			
+			@Override
+			public void takeMessage(final Bytes message) {
+				
+				reassemble(message);
+			}
+			
+			@Override
+			public HashedTimingWheel timingWheel() {
+				
+				return context.timingWheel();
+			}
+		});
+	}
+
+	public FragmentationChannelDecorator(final ChannelContext context, final ChannelFactory channelFactory) {
+		
+		this(context, channelFactory, defaultFragmentSize, defaultMaximumBufferedBytes, defaultReassemblyTimeout);
+	}
+
+	@Override
+	public void send(final Bytes content) {
+		
+		if (content.length() + 1 <= fragmentSize) {
+			
+			// Leave the content as it is; the layers below write the header in front of it
+			channel.send(wholeHeader, content);
+			
+			return;
+		}
+		
+		final int dataSize = fragmentSize - fragmentHeaderSize;
+		final int count = (content.length() + dataSize - 1) / dataSize;
+		
+		Preconditions.checkArgument(count <= Short.MAX_VALUE, "Message is too large to fragment");
+		
+		final short messageId;
+		
+		synchronized (lock) {
+			
+			messageId = nextMessageId;
+			
+			nextMessageId = Sequence16.next(nextMessageId);
+		}
+		
+		final byte[] data = content.array();
+		
+		for (int i = 0; i < count; i++) {
+			
+			final int start = i * dataSize;
+			final int length = Math.min(dataSize, data.length - start);
+			
+			final byte[] fragment = new byte[fragmentHeaderSize + length];
+			
+			fragment[0] = Fragment;
+			fragment[1] = (byte) (messageId >>> 8);
+			fragment[2] = (byte) messageId;
+			fragment[3] = (byte) (i >>> 8);
+			fragment[4] = (byte) i;
+			fragment[5] = (byte) (count >>> 8);
+			fragment[6] = (byte) count;
+			
+			System.arraycopy(data, start, fragment, fragmentHeaderSize, length);
+			
+			channel.send(Bytes.of(fragment));
+		}
+	}
+
+	@Override
+	public void handle(final Bytes content) {
+		
+		channel.handle(content);
+	}
+
+	@Override
+	public Optional<RoundTripEstimate> roundTripEstimate() {
+		
+		return channel.roundTripEstimate();
+	}
+
+	@Override
+	public void close() {
+		
+		channel.close();
+		
+		synchronized (lock) {
+			
+			for (final PartialMessage i : partialMessages.values()) {
+				
+				i.timeout.cancel();
+			}
+			
+			partialMessages.clear();
+			
+			bufferedBytes = 0;
+		}
+	}
+
+	private void reassemble(final Bytes message) {
+		
+		if (message.length() == 0) {
+			
+			return;
+		}
+		
+		if (message.get(0) == Whole) {
+			
+			context.takeMessage(message.sub(1));
+			
+			return;
+		}
+		
+		if (message.get(0) != Fragment || message.length() < fragmentHeaderSize) {
+			
+			return;
+		}
+		
+		final BytesReader reader = message.read().skip(1);
+		
+		final short messageId = Utils.readShort(reader);
+		final int index = Utils.readShort(reader);
+		final int count = Utils.readShort(reader);
+		
+		if (count <= 0 || index < 0 || index >= count) {
+			
+			return;
+		}
+		
+		final Bytes data = reader.readRemaining();
+		
+		synchronized (lock) {
+			
+			PartialMessage partialMessage = partialMessages.get(messageId);
+			
+			if (partialMessage == null) {
+				
+				partialMessage = new PartialMessage(messageId, count);
+				
+				partialMessages.put(messageId, partialMessage);
+			}
+			
+			if (partialMessage.fragments.length != count || partialMessage.fragments[index] != null) {
+				
+				// A duplicate, or a fragment of an older message with a recycled id
+				return;
+			}
+			
+			// Make room by giving up on the oldest incomplete messages
+			final Iterator<PartialMessage> iterator = partialMessages.values().iterator();
+			
+			while (bufferedBytes + data.length() > maximumBufferedBytes && iterator.hasNext()) {
+				
+				final PartialMessage oldest = iterator.next();
+				
+				if (oldest != partialMessage) {
+					
+					iterator.remove();
+					
+					discard(oldest);
+				}
+			}
+			
+			if (bufferedBytes + data.length() > maximumBufferedBytes) {
+				
+				// Too large to ever reassemble
+				partialMessages.remove(messageId);
+				
+				discard(partialMessage);
+				
+				return;
+			}
+			
+			partialMessage.fragments[index] = data;
+			partialMessage.received++;
+			partialMessage.length += data.length();
+			
+			bufferedBytes += data.length();
+			
+			if (partialMessage.received == count) {
+				
+				partialMessages.remove(messageId);
+				
+				discard(partialMessage);
+				
+				final byte[] reassembled = new byte[partialMessage.length];
+				
+				int position = 0;
+				
+				for (final Bytes i : partialMessage.fragments) {
+					
+					System.arraycopy(i.array(), 0, reassembled, position, i.length());
+					
+					position += i.length();
+				}
+				
+				context.takeMessage(Bytes.of(reassembled));
+			} else if (!partialMessage.timeout.isPending()) {
+				
+				partialMessage.timeout.schedule(reassemblyTimeout, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	private void onTimeout(final PartialMessage partialMessage) {
+		
+		synchronized (lock) {
+			
+			// Only if it has not since been completed, evicted or replaced
+			if (partialMessages.get(partialMessage.messageId) == partialMessage) {
+				
+				partialMessages.remove(partialMessage.messageId);
+				
+				discard(partialMessage);
+			}
+		}
+	}
+
+	private void discard(final PartialMessage partialMessage) {
+		
+		partialMessage.timeout.cancel();
+		
+		bufferedBytes -= partialMessage.length;
+	}
+
+	/**
+	 * Static factory method to allow explicit referencing.
+	 *
+	 * @param channelFactory The factory for the wrapped <code>Channel</code>
+	 * @return A factory for FragmentationChannelDecorator instances
+	 */
+	public static ChannelFactory factory(final ChannelFactory channelFactory) {
+		
+		Preconditions.checkNotNull(channelFactory);
+		
+		return (final ChannelContext context) -> { return new FragmentationChannelDecorator(context, channelFactory); };
+	}
+
+	/**
+	 * The fragments of a message received so far.
+	 *
+	 */
+	private final class PartialMessage {
+		
+		private final short messageId;
+		private final Bytes[] fragments;
+		private final Timeout timeout;
+		
+		private int received;
+		private int length;
+		
+		public PartialMessage(final short messageId, final int count) {
+			
+			super();
+			
+			this.messageId = messageId;
+			
+			fragments = new Bytes[count];
+			timeout = context.timingWheel().newTimeout(() -> { onTimeout(this); });
+			
+			received = 0;
+			length = 0;
+		}
+	}
+}
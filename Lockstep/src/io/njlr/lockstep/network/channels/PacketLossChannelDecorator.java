@@ -1,11 +1,13 @@
 package io.njlr.lockstep.network.channels;
 
+import java.util.Optional;
 import java.util.Random;
 
 import com.google.common.base.Preconditions;
 
 import io.njlr.bytes.Bytes;
 import io.njlr.lockstep.network.Channel;
+import io.njlr.lockstep.network.RoundTripEstimate;
 
 /**
  * A decorator for a Channel used to simulate dropped packets at a framework level. 
@@ -48,6 +50,12 @@ public final class PacketLossChannelDecorator implements Channel {
 		channel.send(content);
 	}
 
+	@Override
+	public void send(final Bytes header, final Bytes content) {
+		
+		channel.send(header, content);
+	}
+
 	@Override
 	public void handle(final Bytes content) {
 		
@@ -57,6 +65,12 @@ public final class PacketLossChannelDecorator implements Channel {
 		}
 	}
 
+	@Override
+	public Optional<RoundTripEstimate> roundTripEstimate() {
+		
+		return channel.roundTripEstimate();
+	}
+
 	@Override
 	public void close() {
 		
@@ -0,0 +1,176 @@
+package io.njlr.lockstep.network.channels;
+
+import java.util.Optional;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.lockstep.network.Channel;
+import io.njlr.lockstep.network.ChannelContext;
+import io.njlr.lockstep.network.ChannelFactory;
+import io.njlr.lockstep.network.RoundTripEstimate;
+
+/**
+ * A reliable-ordered <code>Channel</code> implementation using Selective Repeat ARQ.
+ *
+ * Unlike <code>StopAndWaitChannel</code>, several packets may be in-flight at once.
+ * Acknowledgements carry the next expected sequence number plus a bitfield of the
+ * packets buffered after it, so only the packets that were actually lost are resent.
+ *
+ * Both end-points must use the same window size.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Selective_Repeat_ARQ">https://en.wikipedia.org/wiki/Selective_Repeat_ARQ</a>
+ *
+ */
+public final class SelectiveRepeatChannel implements Channel {
+	
+	public static final byte Ack = 17;
+	public static final byte Data = 61;
+	public static final byte Close = 97;
+	
+	/**
+	 * The largest supported window; limited by the width of the acknowledgement bitfield.
+	 */
+	public static final int maximumWindowSize = 32;
+	
+	public static final int defaultWindowSize = 32;
+	/**
+	 * The retransmission timeout (ms) used until the first round-trip time sample arrives.
+	 */
+	public static final int defaultTimeout = 1000;
+	
+	private final Object lock = new Object();
+	
+	private final ChannelContext context;
+	
+	private final SelectiveRepeatSender sender;
+	private final SelectiveRepeatReceiver receiver;
+	
+	private volatile boolean isClosed;
+	
+	/**
+	 * Creates a new <code>SelectiveRepeatChannel</code> instance.
+	 *
+	 * @param context The context to create the <code>Channel</code> in
+	 * @param windowSize The maximum number of unacknowledged packets
+	 * @param timeout The initial retransmission timeout in milliseconds
+	 */
+	public SelectiveRepeatChannel(final ChannelContext context, final int windowSize, final int timeout) {
+		
+		super();
+		
+		Preconditions.checkNotNull(context);
+		
+		this.context = context;
+		
+		sender = new SelectiveRepeatSender(this.context, windowSize, timeout);
+		receiver = new SelectiveRepeatReceiver(this.context, windowSize);
+		
+		isClosed = false;
+	}
+
+	public SelectiveRepeatChannel(final ChannelContext context) {
+		
+		this(context, defaultWindowSize, defaultTimeout);
+	}
+
+	@Override
+	public void send(final Bytes message) {
+		
+		synchronized (lock) {
+			
+			if (isClosed) {
+				
+				return;
+			}
+			
+			sender.send(Bytes.empty, message);
+		}
+	}
+
+	@Override
+	public void send(final Bytes header, final Bytes content) {
+		
+		synchronized (lock) {
+			
+			if (isClosed) {
+				
+				return;
+			}
+			
+			sender.send(header, content);
+		}
+	}
+
+	@Override
+	public void handle(final Bytes content) {
+		
+		synchronized (lock) {
+			
+			if (isClosed) {
+				
+				return;
+			}
+			
+			if (content.get(0) == SelectiveRepeatChannel.Close) {
+				
+				// The remote has gone away; there is no point telling it so
+				isClosed = true;
+				
+				sender.close();
+			} else {
+				
+				sender.handle(content);
+				receiver.handle(content);
+			}
+		}
+	}
+
+	@Override
+	public Optional<RoundTripEstimate> roundTripEstimate() {
+		
+		return Optional.of(sender.roundTripEstimate());
+	}
+
+	@Override
+	public void close() {
+		
+		synchronized (lock) {
+			
+			if (!isClosed) {
+				
+				isClosed = true;
+				
+				// Best-effort; the remote will otherwise keep retransmitting into the void
+				context.sendMessage(Bytes.of(Close));
+				
+				sender.close();
+			}
+		}
+	}
+
+	/**
+	 * Static factory method to allow explicit referencing.
+	 *
+	 * @param context The context to create the <code>Channel</code> in
+	 * @return A new SelectiveRepeatChannel instance
+	 */
+	public static SelectiveRepeatChannel create(final ChannelContext context) {
+		
+		return new SelectiveRepeatChannel(context);
+	}
+
+	/**
+	 * Creates a <code>ChannelFactory</code> for channels with the given window size.
+	 *
+	 * @param windowSize The maximum number of unacknowledged packets
+	 * @return A factory for SelectiveRepeatChannel instances
+	 */
+	public static ChannelFactory factory(final int windowSize) {
+		
+		Preconditions.checkArgument(windowSize > 0);
+		Preconditions.checkArgument(windowSize <= maximumWindowSize);
+		
+		return (final ChannelContext context) -> { return new SelectiveRepeatChannel(context, windowSize, defaultTimeout); };
+	}
+}
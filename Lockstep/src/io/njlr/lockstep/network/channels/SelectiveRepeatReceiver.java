@@ -0,0 +1,110 @@
+package io.njlr.lockstep.network.channels;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesBuilder;
+import io.njlr.bytes.BytesReader;
+import io.njlr.lockstep.network.ChannelContext;
+import io.njlr.lockstep.network.Utils;
+import io.njlr.lockstep.network.sequence.Sequence16;
+
+/**
+ * The "receiver" part of the <code>SelectiveRepeatChannel</code>
+ *
+ * Packets that arrive ahead of a gap are buffered and delivered in order once the gap is filled.
+ *
+ */
+public final class SelectiveRepeatReceiver {
+	
+	private final Object lock = new Object();
+	
+	private final ChannelContext context;
+	private final int windowSize;
+	
+	// Circular buffer of out-of-order packets; slot "head" holds sequence number "base"
+	private final Bytes[] window;
+	
+	private int head;
+	
+	private short base;
+	
+	public SelectiveRepeatReceiver(final ChannelContext context, final int windowSize) {
+		
+		super();
+		
+		Preconditions.checkNotNull(context);
+		Preconditions.checkArgument(windowSize > 0);
+		Preconditions.checkArgument(windowSize <= SelectiveRepeatChannel.maximumWindowSize);
+		
+		this.context = context;
+		this.windowSize = windowSize;
+		
+		window = new Bytes[windowSize];
+		
+		head = 0;
+		
+		base = 0;
+	}
+
+	public void handle(final Bytes message) {
+		
+		if (message.get(0) == SelectiveRepeatChannel.Data) {
+			
+			synchronized (lock) {
+				
+				final BytesReader reader = message.read().skip(1);
+				
+				final short receivedSequenceNumber = Utils.readShort(reader);
+				
+				final int offset = (short) (receivedSequenceNumber - base);
+				
+				if (offset >= 0 && offset < windowSize) {
+					
+					final int slot = (head + offset) % windowSize;
+					
+					if (window[slot] == null) {
+						
+						window[slot] = reader.readRemaining();
+					}
+					
+					// Deliver everything that is now contiguous
+					while (window[head] != null) {
+						
+						context.takeMessage(window[head]);
+						
+						window[head] = null;
+						
+						head = (head + 1) % windowSize;
+						
+						base = Sequence16.next(base);
+					}
+				}
+				
+				// Duplicates and out-of-window packets are acknowledged too, in case an earlier ACK was lost
+				sendAck();
+			}
+		}
+	}
+
+	private void sendAck() {
+		
+		int bitfield = 0;
+		
+		for (int i = 1; i < windowSize && i <= Integer.SIZE; i++) {
+			
+			if (window[(head + i) % windowSize] != null) {
+				
+				bitfield |= 1 << (i - 1);
+			}
+		}
+		
+		final Bytes ack = new BytesBuilder(7)
+				.append(SelectiveRepeatChannel.Ack)
+				.appendShort(base)
+				.appendInt(bitfield)
+				.toBytes();
+		
+		context.sendMessage(ack);
+	}
+}
@@ -0,0 +1,288 @@
+package io.njlr.lockstep.network.channels;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesReader;
+import io.njlr.lockstep.network.ChannelContext;
+import io.njlr.lockstep.network.HashedTimingWheel.Timeout;
+import io.njlr.lockstep.network.RoundTripEstimate;
+import io.njlr.lockstep.network.RoundTripEstimator;
+import io.njlr.lockstep.network.Utils;
+import io.njlr.lockstep.network.sequence.Sequence16;
+
+/**
+ * The "sender" part of the <code>SelectiveRepeatChannel</code>
+ *
+ * Up to <code>windowSize</code> packets may be in-flight at once; each is retransmitted
+ * independently until it is acknowledged.
+ *
+ */
+public final class SelectiveRepeatSender implements AutoCloseable {
+	
+	private final Object lock = new Object();
+	
+	private final ChannelContext context;
+	private final int windowSize;
+	private final RoundTripEstimator estimator;
+	
+	// Headers and contents, in pairs
+	private final Queue<Bytes> messagesToSend;
+	
+	// Circular buffers over the in-flight packets; slot "head" holds sequence number "base"
+	private final Bytes[] headers;
+	private final Bytes[] window;
+	private final Timeout[] timeouts;
+	private final long[] sentAt;
+	private final int[] retransmissions;
+	
+	private int head;
+	private int inFlight;
+	
+	private short base;
+	
+	private boolean isClosed;
+	
+	public SelectiveRepeatSender(final ChannelContext context, final int windowSize, final int timeout) {
+		
+		super();
+		
+		Preconditions.checkNotNull(context);
+		Preconditions.checkArgument(windowSize > 0);
+		Preconditions.checkArgument(windowSize <= SelectiveRepeatChannel.maximumWindowSize);
+		Preconditions.checkArgument(timeout > 0);
+		
+		this.context = context;
+		this.windowSize = windowSize;
+		
+		estimator = new RoundTripEstimator(timeout, TimeUnit.MILLISECONDS);
+		
+		messagesToSend = new LinkedList<>();
+		
+		headers = new Bytes[windowSize];
+		window = new Bytes[windowSize];
+		timeouts = new Timeout[windowSize];
+		sentAt = new long[windowSize];
+		retransmissions = new int[windowSize];
+		
+		head = 0;
+		inFlight = 0;
+		
+		base = 0;
+		
+		// One re-usable timer per slot, registered with the session's timing wheel
+		for (int i = 0; i < windowSize; i++) {
+			
+			final int slot = i;
+			
+			timeouts[i] = context.timingWheel().newTimeout(() -> { onTimeout(slot); });
+		}
+		
+		isClosed = false;
+	}
+
+	public void handle(final Bytes message) {
+		
+		if (message.get(0) == SelectiveRepeatChannel.Ack) {
+			
+			synchronized (lock) {
+				
+				final BytesReader reader = message.read().skip(1);
+				
+				final short ackedBase = Utils.readShort(reader);
+				final int bitfield = reader.readInt();
+				
+				final long now = System.nanoTime();
+				
+				// The most recent first-time transmission gives the freshest sample
+				long roundTripTime = Long.MAX_VALUE;
+				
+				// Everything before the receiver's base has been delivered
+				final int cumulative = offset(ackedBase);
+				
+				if (cumulative > 0 && cumulative <= inFlight) {
+					
+					for (int i = 0; i < cumulative; i++) {
+						
+						roundTripTime = Math.min(roundTripTime, acknowledge(i, now));
+					}
+				}
+				
+				// ... and the bitfield marks packets buffered beyond it
+				for (int i = 0; i < Integer.SIZE; i++) {
+					
+					if ((bitfield & (1 << i)) != 0) {
+						
+						final int offset = offset(Sequence16.add(ackedBase, (short) (i + 1)));
+						
+						if (offset >= 0 && offset < inFlight) {
+							
+							roundTripTime = Math.min(roundTripTime, acknowledge(offset, now));
+						}
+					}
+				}
+				
+				if (roundTripTime != Long.MAX_VALUE) {
+					
+					estimator.sample(roundTripTime);
+				}
+				
+				// Slide the window past the acknowledged prefix
+				while (inFlight > 0 && window[head] == null) {
+					
+					head = (head + 1) % windowSize;
+					inFlight--;
+					
+					base = Sequence16.next(base);
+				}
+				
+				fillWindow();
+			}
+		}
+	}
+
+	/**
+	 * Queues a message for sending. 
+	 * 
+	 * The header and content are kept apart, so that the content is never copied before it is written out. 
+	 * 
+	 * @param header The start of the message, from the layer above
+	 * @param message The rest of the message
+	 */
+	public void send(final Bytes header, final Bytes message) {
+		
+		synchronized (lock) {
+			
+			messagesToSend.add(header);
+			messagesToSend.add(message);
+			
+			fillWindow();
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the round-trip time measurements. 
+	 * 
+	 * @return The current estimate
+	 */
+	public RoundTripEstimate roundTripEstimate() {
+		
+		synchronized (lock) {
+			
+			return estimator.estimate();
+		}
+	}
+
+	public void close() {
+		
+		synchronized (lock) {
+			
+			isClosed = true;
+			
+			for (int i = 0; i < windowSize; i++) {
+				
+				timeouts[i].cancel();
+			}
+		}
+	}
+
+	private void fillWindow() {
+		
+		while (inFlight < windowSize && !messagesToSend.isEmpty()) {
+			
+			final int slot = (head + inFlight) % windowSize;
+			
+			headers[slot] = messagesToSend.remove();
+			window[slot] = messagesToSend.remove();
+			retransmissions[slot] = 0;
+			
+			inFlight++;
+			
+			sendPacket(slot);
+		}
+	}
+
+	/**
+	 * Marks the packet at the given offset as acknowledged. 
+	 * 
+	 * @param offset The offset of the packet in the window
+	 * @param now The time of acknowledgement
+	 * @return The round-trip time of the packet, or Long.MAX_VALUE if it should not be sampled
+	 */
+	private long acknowledge(final int offset, final long now) {
+		
+		final int slot = (head + offset) % windowSize;
+		
+		if (window[slot] == null) {
+			
+			return Long.MAX_VALUE;
+		}
+		
+		timeouts[slot].cancel();
+		
+		headers[slot] = null;
+		window[slot] = null;
+		
+		// Karn's rule: an ACK for a retransmitted packet is ambiguous
+		return (retransmissions[slot] == 0) ? now - sentAt[slot] : Long.MAX_VALUE;
+	}
+
+	private void sendPacket(final int slot) {
+		
+		synchronized (lock) {
+			
+			final int offset = (slot - head + windowSize) % windowSize;
+			
+			final short sequenceNumber = Sequence16.add(base, (short) offset);
+			
+			// Only the headers are joined; the content goes down untouched
+			final byte[] header = new byte[3 + headers[slot].length()];
+			
+			header[0] = SelectiveRepeatChannel.Data;
+			header[1] = (byte) (sequenceNumber >>> 8);
+			header[2] = (byte) sequenceNumber;
+			
+			for (int i = 0; i < headers[slot].length(); i++) {
+				
+				header[3 + i] = headers[slot].get(i);
+			}
+			
+			sentAt[slot] = System.nanoTime();
+			
+			context.sendMessage(Bytes.of(header), window[slot]);
+			
+			timeouts[slot].schedule(estimator.retransmissionTimeout(retransmissions[slot]), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void onTimeout(final int slot) {
+		
+		synchronized (lock) {
+			
+			// The slot may have been acknowledged (and even re-used) since the timer fired
+			if (isClosed || window[slot] == null || timeouts[slot].isPending()) {
+				
+				return;
+			}
+			
+			retransmissions[slot]++;
+			
+			sendPacket(slot);
+		}
+	}
+
+	/**
+	 * The distance of a sequence number from the start of the window.
+	 *
+	 * @param sequenceNumber The sequence number to locate
+	 * @return The (possibly negative) offset
+	 */
+	private int offset(final short sequenceNumber) {
+		
+		return (short) (sequenceNumber - base);
+	}
+}
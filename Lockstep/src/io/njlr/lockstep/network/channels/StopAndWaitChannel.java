@@ -1,8 +1,11 @@
 package io.njlr.lockstep.network.channels;
 
+import java.util.Optional;
+
 import io.njlr.bytes.Bytes;
 import io.njlr.lockstep.network.Channel;
 import io.njlr.lockstep.network.ChannelContext;
+import io.njlr.lockstep.network.RoundTripEstimate;
 
 /**
  * A reliable-ordered <code>Channel</code> implementation using Stop-and-Wait ARQ. 
@@ -47,7 +50,21 @@ public final class StopAndWaitChannel implements Channel {
 				return;
 			}
 			
-			sender.send(message);
+			sender.send(Bytes.empty, message);
+		}
+	}
+
+	@Override
+	public void send(final Bytes header, final Bytes content) {
+		
+		synchronized (lock) {
+			
+			if (isClosed) {
+				
+				return;
+			}
+			
+			sender.send(header, content);
 		}
 	}
 
@@ -72,6 +89,12 @@ public final class StopAndWaitChannel implements Channel {
 		}
 	}
 
+	@Override
+	public Optional<RoundTripEstimate> roundTripEstimate() {
+		
+		return Optional.of(sender.roundTripEstimate());
+	}
+
 	@Override
 	public void close() {
 		
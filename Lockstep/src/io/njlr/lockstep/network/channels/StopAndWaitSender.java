@@ -1,17 +1,17 @@
 package io.njlr.lockstep.network.channels;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Queue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Preconditions;
 
 import io.njlr.bytes.Bytes;
-import io.njlr.bytes.BytesBuilder;
 import io.njlr.lockstep.network.ChannelContext;
+import io.njlr.lockstep.network.HashedTimingWheel.Timeout;
+import io.njlr.lockstep.network.RoundTripEstimate;
+import io.njlr.lockstep.network.RoundTripEstimator;
 import io.njlr.lockstep.network.sequence.Sequence8;
 
 /**
@@ -23,13 +23,17 @@ public final class StopAndWaitSender implements AutoCloseable {
 	private final Object lock = new Object();
 	
 	private final ChannelContext context;
-	private final int timeout;
+	private final RoundTripEstimator estimator;
 	
+	// Headers and contents, in pairs
 	private final Queue<Bytes> messagesToSend;	
-	private final ScheduledExecutorService scheduler;
+	private final Timeout timer;
 	
 	private volatile byte sequenceNumber;
-	private volatile ScheduledFuture<?> future;
+	private volatile boolean isClosed;
+	
+	private long sentAt;
+	private int retransmissions;
 	
 	public StopAndWaitSender(final ChannelContext context, final int timeout) {
 		
@@ -40,11 +44,13 @@ public final class StopAndWaitSender implements AutoCloseable {
 		
 		this.context = context;
 		
-		this.timeout = timeout; 
+		estimator = new RoundTripEstimator(timeout, TimeUnit.MILLISECONDS);
 		
 		messagesToSend = new LinkedList<>();
 		
-		scheduler = Executors.newSingleThreadScheduledExecutor();
+		timer = context.timingWheel().newTimeout(this::onTimeout);
+		
+		isClosed = false;
 	}
 
 	public void handle(final Bytes message) {
@@ -57,12 +63,19 @@ public final class StopAndWaitSender implements AutoCloseable {
 				
 				if (ackedSequenceNumber == sequenceNumber) {
 					
-					sequenceNumber = Sequence8.next(sequenceNumber);
+					// Karn's rule: an ACK for a retransmitted packet is ambiguous
+					if (retransmissions == 0) {
+						
+						estimator.sample(System.nanoTime() - sentAt);
+					}
+					
+					retransmissions = 0;
 					
-					future.cancel(false);
+					sequenceNumber = Sequence8.next(sequenceNumber);
 					
-					future = null;
+					timer.cancel();
 					
+					messagesToSend.remove();
 					messagesToSend.remove();
 					
 					if (!messagesToSend.isEmpty()) {
@@ -76,10 +89,24 @@ public final class StopAndWaitSender implements AutoCloseable {
 	
 	public void send(final Bytes message) {
 		
+		send(Bytes.empty, message);
+	}
+
+	/**
+	 * Queues a header followed by content to be sent as one message. 
+	 * 
+	 * The header and content are kept apart, so that the content is never copied before it is written out. 
+	 * 
+	 * @param header The start of the message, from the layer above
+	 * @param message The rest of the message
+	 */
+	public void send(final Bytes header, final Bytes message) {
+		
 		synchronized (lock) {
 			
 			final boolean wasEmpty = messagesToSend.isEmpty();
 			
+			messagesToSend.add(header);
 			messagesToSend.add(message);
 			
 			if (wasEmpty) {
@@ -89,18 +116,26 @@ public final class StopAndWaitSender implements AutoCloseable {
 		}
 	}
 	
+	/**
+	 * Takes a snapshot of the round-trip time measurements. 
+	 * 
+	 * @return The current estimate
+	 */
+	public RoundTripEstimate roundTripEstimate() {
+		
+		synchronized (lock) {
+			
+			return estimator.estimate();
+		}
+	}
+
 	public void close() {
 		
 		synchronized (lock) {
 			
-			if (future != null) {
-				
-				future.cancel(false);
-				
-				future = null;
-			}
+			isClosed = true;
 			
-			scheduler.shutdown();
+			timer.cancel();
 		}
 	}
 	
@@ -108,21 +143,40 @@ public final class StopAndWaitSender implements AutoCloseable {
 		
 		synchronized (lock) {
 			
-			final Bytes sequencedMessage = new BytesBuilder()
-					.append(StopAndWaitChannel.Data)
-					.append(sequenceNumber)
-					.append(messagesToSend.peek())
-					.toBytes();
+			final Iterator<Bytes> message = messagesToSend.iterator();
 			
-			context.sendMessage(sequencedMessage);
+			final Bytes upperHeader = message.next();
 			
-			future = scheduler.schedule(this::onTimeout, timeout, TimeUnit.MILLISECONDS);
+			// Only the headers are joined; the content goes down untouched
+			final byte[] header = new byte[2 + upperHeader.length()];
+			
+			header[0] = StopAndWaitChannel.Data;
+			header[1] = sequenceNumber;
+			
+			for (int i = 0; i < upperHeader.length(); i++) {
+				
+				header[2 + i] = upperHeader.get(i);
+			}
+			
+			sentAt = System.nanoTime();
+			
+			context.sendMessage(Bytes.of(header), message.next());
+			
+			timer.schedule(estimator.retransmissionTimeout(retransmissions), TimeUnit.NANOSECONDS);
 		}
 	}
 	
 	private void onTimeout() {
 		
 		synchronized (lock) {
+			
+			// The packet may have been acknowledged since the timer fired
+			if (isClosed || messagesToSend.isEmpty() || timer.isPending()) {
+				
+				return;
+			}
+			
+			retransmissions++;
 		
 			sendCurrentPacket();
 		}
@@ -43,6 +43,20 @@ public final class UnreliableUnorderedChannel implements Channel {
 		}
 	}
 	
+	@Override
+	public void send(final Bytes header, final Bytes content) {
+		
+		synchronized (lock) {
+			
+			if (isClosed) {
+				
+				return;
+			}
+			
+			context.sendMessage(header, content);
+		}
+	}
+
 	@Override
 	public void handle(final Bytes content) {
 		
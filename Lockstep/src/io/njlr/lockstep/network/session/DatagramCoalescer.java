@@ -0,0 +1,181 @@
+package io.njlr.lockstep.network.session;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.lockstep.network.HashedTimingWheel;
+import io.njlr.lockstep.network.HashedTimingWheel.Timeout;
+import io.njlr.lockstep.network.NetworkAddress;
+
+/**
+ * Packs the messages sent to one remote address into as few datagrams as possible.
+ *
+ * Each message becomes a frame of <code>[channel code][length (2 bytes)][content]</code>;
+ * frames accumulate until the datagram is full, <code>flush</code> is called, or the
+ * coalescing delay elapses, whichever comes first.
+ *
+ * A frame must fit in a datagram on its own; larger messages must be split up by a
+ * <code>FragmentationChannelDecorator</code> above.
+ *
+ * This class is thread-safe.
+ *
+ */
+public final class DatagramCoalescer {
+	
+	/**
+	 * The number of bytes each frame adds to a message.
+	 */
+	public static final int frameHeaderSize = 3;
+	
+	private final Object lock = new Object();
+	
+	private final NetworkAddress remoteAddress;
+	private final DatagramSink sink;
+	private final long coalescingDelay;
+	
+	private final byte[] buffer;
+	private final Timeout flushTimeout;
+	
+	private int position;
+	
+	/**
+	 * Creates a new <code>DatagramCoalescer</code> instance.
+	 *
+	 * @param remoteAddress The address that all datagrams are sent to
+	 * @param sink Where finished datagrams are written
+	 * @param maximumPacketSize The largest datagram to produce
+	 * @param timingWheel The timing wheel used for delayed flushes
+	 * @param coalescingDelay How long (ns) a frame may wait for company; zero sends every frame immediately
+	 */
+	public DatagramCoalescer(final NetworkAddress remoteAddress, final DatagramSink sink, final int maximumPacketSize, final HashedTimingWheel timingWheel, final long coalescingDelay) {
+		
+		super();
+		
+		Preconditions.checkNotNull(remoteAddress);
+		Preconditions.checkNotNull(sink);
+		Preconditions.checkArgument(maximumPacketSize > frameHeaderSize);
+		Preconditions.checkNotNull(timingWheel);
+		Preconditions.checkArgument(coalescingDelay >= 0);
+		
+		this.remoteAddress = remoteAddress;
+		this.sink = sink;
+		this.coalescingDelay = coalescingDelay;
+		
+		buffer = new byte[maximumPacketSize];
+		flushTimeout = timingWheel.newTimeout(this::flush);
+		
+		position = 0;
+	}
+
+	/**
+	 * Appends a message to the pending datagram, sending it first if there is no room.
+	 *
+	 * @param channelCode The channel code of the message
+	 * @param content The message
+	 * @throws IllegalArgumentException If the message does not fit in a datagram
+	 */
+	public void append(final byte channelCode, final Bytes content) {
+		
+		append(channelCode, Bytes.empty, content);
+	}
+
+	/**
+	 * Appends a message, given in two parts, to the pending datagram, sending it first if there is no room.
+	 *
+	 * The parts are written straight into the datagram, one after the other.
+	 *
+	 * @param channelCode The channel code of the message
+	 * @param header The start of the message
+	 * @param content The rest of the message
+	 * @throws IllegalArgumentException If the message does not fit in a datagram
+	 */
+	public void append(final byte channelCode, final Bytes header, final Bytes content) {
+		
+		final int length = header.length() + content.length();
+		
+		final int frameSize = frameHeaderSize + length;
+		
+		// The receiver would truncate it, and a reliable channel would then resend it forever
+		Preconditions.checkArgument(frameSize <= buffer.length, 
+				"A %s byte message does not fit in a datagram; it must be fragmented", length);
+		
+		synchronized (lock) {
+			
+			if (position + frameSize > buffer.length) {
+				
+				flush();
+			}
+			
+			position = writeFrame(buffer, position, channelCode, header, content);
+			
+			if (coalescingDelay == 0) {
+				
+				flush();
+			} else if (!flushTimeout.isPending()) {
+				
+				flushTimeout.schedule(coalescingDelay, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Sends the pending datagram, if any, immediately.
+	 */
+	public void flush() {
+		
+		synchronized (lock) {
+			
+			flushTimeout.cancel();
+			
+			if (position > 0) {
+				
+				sink.send(remoteAddress, buffer, position);
+				
+				position = 0;
+			}
+		}
+	}
+
+	private static int writeFrame(final byte[] destination, final int offset, final byte channelCode, final Bytes header, final Bytes content) {
+		
+		final int length = header.length() + content.length();
+		
+		destination[offset] = channelCode;
+		destination[offset + 1] = (byte) (length >>> 8);
+		destination[offset + 2] = (byte) length;
+		
+		final int contentOffset = offset + frameHeaderSize + header.length();
+		
+		// Byte-wise to avoid the defensive copy made by Bytes.array()
+		for (int i = 0; i < header.length(); i++) {
+			
+			destination[offset + frameHeaderSize + i] = header.get(i);
+		}
+		
+		for (int i = 0; i < content.length(); i++) {
+			
+			destination[contentOffset + i] = content.get(i);
+		}
+		
+		return offset + frameHeaderSize + length;
+	}
+
+	/**
+	 * Something that datagrams can be written to.
+	 *
+	 */
+	@FunctionalInterface
+	public interface DatagramSink {
+		
+		/**
+		 * Sends a datagram. The data is only borrowed for the duration of the call.
+		 *
+		 * @param remoteAddress The destination
+		 * @param data The buffer holding the datagram
+		 * @param length The number of bytes of data to send
+		 */
+		void send(final NetworkAddress remoteAddress, final byte[] data, final int length);
+	}
+}
@@ -0,0 +1,99 @@
+package io.njlr.lockstep.network.session;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.lockstep.network.NetworkAddress;
+
+/**
+ * A <code>DatagramTransport</code> using a blocking <code>java.net.DatagramSocket</code>.
+ *
+ * A blocking receive cannot be interrupted, so it times out periodically to notice a <code>wakeup</code>.
+ *
+ */
+public final class DatagramSocketTransport implements DatagramTransport {
+	
+	/**
+	 * How long (ms) a receive may block before checking for a wake-up.
+	 */
+	private static final int receiveTimeout = 100;
+	
+	private final int port;
+	
+	private final DatagramPacket packet;
+	
+	private volatile DatagramSocket socket;
+	
+	/**
+	 * Creates a new <code>DatagramSocketTransport</code> instance.
+	 *
+	 * @param port The port to bind to
+	 * @param maximumPacketSize The largest datagram that can be received
+	 */
+	public DatagramSocketTransport(final int port, final int maximumPacketSize) {
+		
+		super();
+		
+		Preconditions.checkArgument(port >= 0);
+		Preconditions.checkArgument(port <= 65535);
+		Preconditions.checkArgument(maximumPacketSize > 0);
+		
+		this.port = port;
+		
+		packet = new DatagramPacket(new byte[maximumPacketSize], maximumPacketSize);
+	}
+
+	@Override
+	public void open() throws IOException {
+		
+		socket = new DatagramSocket(port);
+		
+		socket.setSoTimeout(receiveTimeout);
+	}
+
+	@Override
+	public void send(final NetworkAddress remoteAddress, final byte[] data, final int length) throws IOException {
+		
+		socket.send(new DatagramPacket(data, length, remoteAddress.host(), remoteAddress.port()));
+	}
+
+	@Override
+	public void receive(final DatagramHandler handler) throws IOException {
+		
+		// Reset to the full buffer; a previous receive shrinks it
+		packet.setLength(packet.getData().length);
+		
+		try {
+			
+			socket.receive(packet);
+		} catch (final SocketTimeoutException e) {
+			
+			return;
+		}
+		
+		handler.handle(
+				(InetSocketAddress) packet.getSocketAddress(),
+				ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength()).slice());
+	}
+
+	@Override
+	public void wakeup() {
+		
+		// The receive timeout takes care of it
+	}
+
+	@Override
+	public void close() {
+		
+		if (socket != null) {
+			
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package io.njlr.lockstep.network.session;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+import io.njlr.lockstep.network.NetworkAddress;
+
+/**
+ * The datagram socket underneath a <code>NetworkSession</code>.
+ *
+ * Sending may happen from any thread; receiving only ever happens from the session's thread.
+ *
+ */
+public interface DatagramTransport extends AutoCloseable {
+	
+	/**
+	 * Binds the transport to its local port.
+	 *
+	 * @throws IOException If the port could not be bound
+	 */
+	void open() throws IOException;
+	
+	/**
+	 * Sends a datagram. The data is only borrowed for the duration of the call.
+	 *
+	 * @param remoteAddress The destination
+	 * @param data The buffer holding the datagram
+	 * @param length The number of bytes of data to send
+	 * @throws IOException If the datagram could not be sent
+	 */
+	void send(final NetworkAddress remoteAddress, final byte[] data, final int length) throws IOException;
+	
+	/**
+	 * Waits for datagrams to arrive and passes every one that is available to the handler.
+	 *
+	 * May return without receiving anything, e.g. after a call to <code>wakeup</code>.
+	 *
+	 * @param handler The callback for each datagram
+	 * @throws IOException If receiving failed
+	 */
+	void receive(final DatagramHandler handler) throws IOException;
+	
+	/**
+	 * How many datagrams have been dropped before reaching the network, e.g. because the socket's 
+	 * send buffer was full. To the remote, these look like packet loss. 
+	 * 
+	 * @return The number of datagrams dropped
+	 */
+	default long droppedCount() {
+		
+		return 0L;
+	}
+
+	/**
+	 * Causes a blocked call to <code>receive</code> to return soon.
+	 */
+	void wakeup();
+	
+	/* (non-Javadoc)
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	void close();
+	
+	/**
+	 * A callback for received datagrams.
+	 *
+	 */
+	@FunctionalInterface
+	interface DatagramHandler {
+		
+		/**
+		 * Handles a received datagram.
+		 *
+		 * The buffer is only valid for the duration of the call; its remaining bytes are exactly the datagram.
+		 *
+		 * @param source The sender of the datagram
+		 * @param datagram The contents of the datagram
+		 */
+		void handle(final InetSocketAddress source, final ByteBuffer datagram);
+	}
+}
@@ -1,14 +1,15 @@
 package io.njlr.lockstep.network.session;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -17,36 +18,59 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 
 import io.njlr.bytes.Bytes;
-import io.njlr.bytes.BytesBuilder;
 import io.njlr.lockstep.network.Channel;
 import io.njlr.lockstep.network.ChannelContext;
 import io.njlr.lockstep.network.ChannelFactory;
 import io.njlr.lockstep.network.ChannelListener;
+import io.njlr.lockstep.network.HashedTimingWheel;
 import io.njlr.lockstep.network.NetworkAddress;
+import io.njlr.lockstep.network.RoundTripEstimate;
+import io.njlr.lockstep.network.SerialExecutor;
 
 /**
  * NetworkSession is a layer on top of NetworkService that handles the concepts of peers and channels. 
  * 
  * Each channel is assigned a byte identifier to allow different concurrent transports with a peer. 
+ * 
+ * Messages to the same peer are coalesced into shared datagrams; see <code>DatagramCoalescer</code>. 
+ * 
+ * The socket itself is provided by a <code>DatagramTransport</code>; by default a <code>NioDatagramTransport</code>. 
  *
  */
 public final class NetworkSession extends AbstractExecutionThreadService {
 	
-	private static final int maximumPacketSize = 1400;
+	public static final int maximumPacketSize = 1400;
+	
+	/**
+	 * How long a message may be held back, by default, in the hope of sharing its datagram. 
+	 */
+	public static final long defaultCoalescingDelay = TimeUnit.MILLISECONDS.toNanos(1);
+	
+	/**
+	 * The size of the callback pool when none is given. 
+	 */
+	public static final int defaultThreadCount = Math.max(2, Runtime.getRuntime().availableProcessors());
 	
 	private static final Logger logger = Logger.getLogger(NetworkSession.class.getName());
 	
+	// Serializes connect and shutdown; sending and receiving never take it
 	private final Object lock = new Object();
 	
-	private final int port;
+	private final DatagramTransport transport;
+	private final long coalescingDelay;
 	
-	private final Map<ChannelBinding, Channel> bindings;
+	private final RoutingTable routingTable;
 	private final ExecutorService executorService;
-	
-	private volatile DatagramSocket socket;
+	private final HashedTimingWheel timingWheel;
 	
 	private volatile boolean keepRunning;
 	
+	// Guarded by lock; once set, no new bindings are made
+	private boolean isShutDown;
+	
+	// Whether the transport can be written to; bindings may be used before it is opened
+	private volatile boolean isOpen;
+	
 	/**
 	 * Gets a snapshot of the currently connected peers. 
 	 * 
@@ -54,10 +78,7 @@ public final class NetworkSession extends AbstractExecutionThreadService {
 	 */
 	public Set<NetworkAddress> peers() {
 		
-		synchronized (lock) {
-			
-			return bindings.keySet().stream().map(x -> x.remoteAddress()).collect(Collectors.toSet());
-		}
+		return routingTable.bindings().stream().map(x -> x.remoteAddress()).collect(Collectors.toSet());
 	}
 	
 	/**
@@ -67,10 +88,7 @@ public final class NetworkSession extends AbstractExecutionThreadService {
 	 */
 	public Set<ChannelBinding> bindings() {
 		
-		synchronized (lock) {
-
-			return ImmutableSet.copyOf(bindings.keySet());
-		}
+		return ImmutableSet.copyOf(routingTable.bindings());
 	}
 	
 	/**
@@ -80,34 +98,49 @@ public final class NetworkSession extends AbstractExecutionThreadService {
 	 */
 	public Set<Channel> channels() {
 		
-		synchronized (lock) {
-
-			return ImmutableSet.copyOf(bindings.values());
-		}
+		return ImmutableSet.copyOf(routingTable.channels());
 	}
 	
 	/**
 	 * Creates a new <code>NetworkSession</code> instance. 
 	 * 
-	 * @param port The port to bind to
+	 * @param transport The transport to send and receive datagrams with. This is automatically closed with the service. 
 	 * @param executorService The <code>ExecutorService</code> used for callbacks etc. This is automatically shutdown with the service. 
+	 *        Each binding processes its messages in order, one at a time, on a serial lane over this pool. 
+	 * @param coalescingDelay How long a message may wait for others to the same peer before being sent; zero disables coalescing
+	 * @param unit The unit of coalescingDelay
 	 */
-	public NetworkSession(final int port, final ExecutorService executorService) {
+	public NetworkSession(final DatagramTransport transport, final ExecutorService executorService, final long coalescingDelay, final TimeUnit unit) {
 		
 		super();
 		
-		Preconditions.checkArgument(port >= 0);
-		Preconditions.checkArgument(port <= 65535);
+		Preconditions.checkNotNull(transport);
+		Preconditions.checkNotNull(executorService);
+		Preconditions.checkArgument(coalescingDelay >= 0);
+		Preconditions.checkNotNull(unit);
 		
-		this.port = port;
+		this.transport = transport;
 		this.executorService = executorService;
+		this.coalescingDelay = unit.toNanos(coalescingDelay);
+		
+		timingWheel = new HashedTimingWheel();
+		
+		routingTable = new RoutingTable();
+	}
+
+	public NetworkSession(final int port, final ExecutorService executorService, final long coalescingDelay, final TimeUnit unit) {
 		
-		bindings = new HashMap<>();
+		this(new NioDatagramTransport(port, maximumPacketSize), executorService, coalescingDelay, unit);
+	}
+
+	public NetworkSession(final int port, final ExecutorService executorService) {
+		
+		this(port, executorService, defaultCoalescingDelay, TimeUnit.NANOSECONDS);
 	}
 	
 	public NetworkSession(final int port) {
 		
-		this(port, Executors.newCachedThreadPool());
+		this(port, Executors.newFixedThreadPool(defaultThreadCount));
 	}
 	
 	@Override
@@ -117,17 +150,25 @@ public final class NetworkSession extends AbstractExecutionThreadService {
 		
 		logger.info("Starting... ");
 		
+		// All channel timers share this one thread
+		timingWheel.startAsync().awaitRunning();
+		
 		synchronized (lock) {
 			
 			keepRunning = true;
 			
-			socket = new DatagramSocket(port);
+			transport.open();
+			
+			isOpen = true;
 		}
 	}
 	
 	/**
 	 * Opens a new connection on the given binding.  
 	 * 
+	 * This may be called before the session is started, but anything sent before it is running is dropped; 
+	 * reliable channels will resend it. Once the session is shutting down this does nothing. 
+	 * 
 	 * @param binding The binding to use; must not be already taken
 	 * @param channelFactory The factory to use in creating the <code>Channel</code>
 	 * @param listener Message callback for receiving messages. Must be thread-safe. 
@@ -138,41 +179,51 @@ public final class NetworkSession extends AbstractExecutionThreadService {
 		Preconditions.checkNotNull(channelFactory);
 		Preconditions.checkNotNull(listener);
 		
-		final Channel channel = channelFactory.create(
-				new ChannelContext() {
-					
-					@Override
-					public void sendMessage(final Bytes content) {
-						
-						final Bytes message = new BytesBuilder(content.length() + 1).append(binding.channelCode()).append(content).toBytes();
-						
-						try {
-							
-							socket.send(new DatagramPacket(message.array(), message.length(), binding.remoteAddress().host(), binding.remoteAddress().port()));
-						} catch (final IOException e) {
-							
-							logger.warning(e.getMessage());
-						}
-					}
-					
-					@Override
-					public void takeMessage(final Bytes message) {
-						
-						executorService.submit(() -> { listener.handle(message); });
-					}
-				});
+		// Everything to do with this binding, in both directions, happens in order on this lane
+		final SerialExecutor lane = new SerialExecutor(executorService);
 		
+		// The channel is created and bound under the same lock as the check, so shutDown always closes it
 		synchronized (lock) {
 			
-			if (!keepRunning) {
+			if (isShutDown) {
 				
 				return;
 			}
 			
-			// Prevent "re-bindings" from occurring
-			Preconditions.checkState(!bindings.containsKey(binding));
+			// All bindings to the same peer share a route, and so a coalescer
+			final RoutingTable.PeerRoute peer = routingTable.addPeer(
+					binding.remoteAddress(), 
+					x -> new DatagramCoalescer(x, this::transmit, maximumPacketSize, timingWheel, coalescingDelay));
+			
+			final Channel channel = channelFactory.create(
+					new ChannelContext() {
+						
+						@Override
+						public void sendMessage(final Bytes content) {
+							
+							peer.coalescer().append(binding.channelCode(), content);
+						}
+						
+						@Override
+						public void sendMessage(final Bytes header, final Bytes content) {
+							
+							peer.coalescer().append(binding.channelCode(), header, content);
+						}
+						
+						@Override
+						public void takeMessage(final Bytes message) {
+							
+							lane.execute(() -> { listener.handle(message); });
+						}
+						
+						@Override
+						public HashedTimingWheel timingWheel() {
+							
+							return timingWheel;
+						}
+					});
 			
-			bindings.put(binding, channel);
+			peer.bind(binding.channelCode(), channel, lane);
 		}
 	}
 	
@@ -181,6 +232,8 @@ public final class NetworkSession extends AbstractExecutionThreadService {
 	 * 
 	 * The delivery guarantees will depend on the <code>Channel</code>. 
 	 * 
+	 * This takes no session-wide lock, so a slow send on one channel does not hold up the others. 
+	 * 
 	 * @param binding The binding to send on
 	 * @param message The message to send
 	 */
@@ -189,58 +242,144 @@ public final class NetworkSession extends AbstractExecutionThreadService {
 		Preconditions.checkNotNull(binding);
 		Preconditions.checkNotNull(message);
 		
-		synchronized (lock) {
+		final Channel channel = routingTable.channel(binding);
+		
+		if (channel == null) {
+			
+			// e.g. the session is shutting down
+			logger.warning("No binding found for " + binding);
 			
-			bindings.get(binding).send(message);
+			return;
 		}
+		
+		channel.send(message);
+	}
+
+	/**
+	 * Gets the round-trip time measurements of the <code>Channel</code> with the given binding. 
+	 * 
+	 * @param binding The binding to query
+	 * @return The current estimate, or empty if there is no such binding or its channel does not measure round-trips
+	 */
+	public Optional<RoundTripEstimate> roundTripEstimate(final ChannelBinding binding) {
+		
+		Preconditions.checkNotNull(binding);
+		
+		final Channel channel = routingTable.channel(binding);
+		
+		return (channel == null) ? Optional.empty() : channel.roundTripEstimate();
 	}
 	
+	/**
+	 * How many datagrams the transport has dropped before they reached the network. 
+	 * 
+	 * @return The number of datagrams dropped
+	 */
+	public long droppedCount() {
+		
+		return transport.droppedCount();
+	}
+
+	/**
+	 * Sends any messages that are waiting to be coalesced immediately. 
+	 * 
+	 * Call this after a burst of sends (e.g. at the end of a tick) to avoid waiting for the coalescing delay. 
+	 */
+	public void flush() {
+		
+		for (final RoutingTable.PeerRoute peer : routingTable.peers()) {
+			
+			peer.coalescer().flush();
+		}
+	}
+
 	@Override
 	protected void run() throws Exception {
 		
-		final DatagramPacket packet = new DatagramPacket(new byte[maximumPacketSize], maximumPacketSize);
-		
 		while (keepRunning) { 
 			
-			socket.receive(packet);
+			transport.receive(this::onDatagram);
+		}
+	}
+
+	/**
+	 * Splits a received datagram back into its frames and passes each to its channel. 
+	 * 
+	 * @param source The sender of the datagram
+	 * @param datagram The datagram; only valid for the duration of the call
+	 */
+	private void onDatagram(final InetSocketAddress source, final ByteBuffer datagram) {
+		
+		logger.finest("Received " + datagram.remaining() + " bytes from " + source);
+		
+		final RoutingTable.PeerRoute peer = routingTable.peer(NetworkAddress.of(source.getAddress(), source.getPort()));
+		
+		if (peer == null) {
+			
+			logger.warning("No binding found for " + source);
+			
+			return;
+		}
+		
+		while (datagram.remaining() >= DatagramCoalescer.frameHeaderSize) {
 			
-			logger.finest("Received " + packet);
+			final byte channelCode = datagram.get();
+			final int length = datagram.getShort() & 0xFFFF;
 			
-			synchronized (lock) {
+			if (length > datagram.remaining()) {
 				
-				// Find out which binding the message is for
-				Channel channel = null;
+				logger.warning("Truncated frame from " + source);
 				
-				for (final Entry<ChannelBinding, Channel> i : bindings.entrySet()) {
-					
-					boolean isMatch = (
-							(i.getKey().remoteAddress().host().equals(packet.getAddress())) && 
-							(i.getKey().remoteAddress().port() == packet.getPort()) && 
-							(i.getKey().channelCode() == packet.getData()[0]));
-					
-					if (isMatch) {
-						
-						channel = i.getValue();
-						
-						break;
-					}
-				}
+				return;
+			}
+			
+			// Strip off the framing; downstream handlers should be unaware of it. 
+			// Each frame is copied twice: out of the shared buffer, then again by the Bytes constructor, 
+			// which always takes its own copy. 
+			final byte[] content = new byte[length];
+			
+			datagram.get(content);
+			
+			final Bytes message = new Bytes(content);
+			
+			// Find out which binding the message is for
+			final Channel channel = peer.channel(channelCode);
+			
+			if (channel == null) {
+				
+				logger.warning("No binding found for channel " + channelCode + " from " + source);
+			} else {
 				
-				if (channel == null) {
-					
-					logger.warning("No binding found for " + packet);
-				} else {
-					
-					final Channel c = channel;
-					// Strip off the "split" byte; downstream handlers should be unaware of it
-					final Bytes d = Bytes.of(packet.getData()).sub(1); 
-					
-					executorService.submit(() -> { c.handle(d); });
-				}
+				peer.lane(channelCode).execute(() -> { channel.handle(message); });
 			}
 		}
 	}
 	
+	/**
+	 * Writes a finished datagram to the transport. 
+	 * 
+	 * @param remoteAddress The destination
+	 * @param data The datagram
+	 * @param length The length of the datagram
+	 */
+	private void transmit(final NetworkAddress remoteAddress, final byte[] data, final int length) {
+		
+		if (!isOpen) {
+			
+			logger.fine("Dropped a datagram to " + remoteAddress + "; the transport is not open");
+			
+			return;
+		}
+		
+		try {
+			
+			transport.send(remoteAddress, data, length);
+		} catch (final IOException e) {
+			
+			logger.warning(e.getMessage());
+		}
+	}
+
 	@Override
 	protected void triggerShutdown() {
 		
@@ -249,7 +388,11 @@ public final class NetworkSession extends AbstractExecutionThreadService {
 		synchronized (lock) {
 		
 			keepRunning = false;
+			
+			isShutDown = true;
 		}
+		
+		transport.wakeup();
 	}
 	
 	@Override
@@ -257,18 +400,36 @@ public final class NetworkSession extends AbstractExecutionThreadService {
 		
 		super.shutDown();
 		
+		final List<Channel> channels;
+		final List<RoutingTable.PeerRoute> peers;
+		
+		// No new bindings can be made once isShutDown is set, so the table can be emptied here 
+		// and the I/O done outside of the lock
 		synchronized (lock) {
 			
-			socket.close();
+			channels = routingTable.channels();
+			peers = new ArrayList<>(routingTable.peers());
 			
-			executorService.shutdown();
+			routingTable.clear();
+		}
+		
+		for (final Channel channel : channels) {
 			
-			for (final Channel channel : bindings.values()) {
-				
-				channel.close();
-			}
+			channel.close();
+		}
+		
+		// Give any farewell messages a chance to leave
+		for (final RoutingTable.PeerRoute peer : peers) {
 			
-			bindings.clear();
+			peer.coalescer().flush();
 		}
+		
+		isOpen = false;
+		
+		transport.close();
+		
+		executorService.shutdown();
+		
+		timingWheel.stopAsync().awaitTerminated();
 	}
 }
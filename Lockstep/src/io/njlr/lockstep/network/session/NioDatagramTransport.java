@@ -0,0 +1,230 @@
+package io.njlr.lockstep.network.session;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.lockstep.network.NetworkAddress;
+
+/**
+ * A <code>DatagramTransport</code> using a non-blocking <code>java.nio.channels.DatagramChannel</code>.
+ *
+ * Datagrams are received into a single direct buffer, which is lent to the handler rather than copied 
+ * into an array per datagram; every datagram that is waiting is drained before selecting again. Sends go through a small pool of direct buffers,
+ * which saves the channel from copying heap arrays into a temporary direct buffer of its own.
+ *
+ * Sends never block: a datagram that the socket's send buffer has no room for is dropped and counted,
+ * which reliable channels recover from like any other loss.
+ *
+ */
+public final class NioDatagramTransport implements DatagramTransport {
+	
+	private static final Logger logger = Logger.getLogger(NioDatagramTransport.class.getName());
+	
+	private static final int maximumPooledBuffers = 16;
+	
+	private final Object lock = new Object();
+	
+	private final int port;
+	private final int maximumPacketSize;
+	
+	// Only touched by the receiving thread
+	private final ByteBuffer receiveBuffer;
+	
+	private final Deque<ByteBuffer> sendBuffers;
+	
+	private final AtomicLong droppedCount;
+	
+	// Whether the last send was dropped, so that only the start and end of a run of drops are logged
+	private volatile boolean isDropping;
+	
+	private volatile DatagramChannel channel;
+	private volatile Selector selector;
+	
+	/**
+	 * Creates a new <code>NioDatagramTransport</code> instance.
+	 *
+	 * @param port The port to bind to
+	 * @param maximumPacketSize The largest datagram that can be received
+	 */
+	public NioDatagramTransport(final int port, final int maximumPacketSize) {
+		
+		super();
+		
+		Preconditions.checkArgument(port >= 0);
+		Preconditions.checkArgument(port <= 65535);
+		Preconditions.checkArgument(maximumPacketSize > 0);
+		
+		this.port = port;
+		this.maximumPacketSize = maximumPacketSize;
+		
+		receiveBuffer = ByteBuffer.allocateDirect(maximumPacketSize);
+		
+		sendBuffers = new ArrayDeque<>();
+		
+		droppedCount = new AtomicLong(0L);
+		
+		isDropping = false;
+	}
+
+	@Override
+	public void open() throws IOException {
+		
+		channel = DatagramChannel.open();
+		
+		channel.bind(new InetSocketAddress(port));
+		channel.configureBlocking(false);
+		
+		selector = Selector.open();
+		
+		channel.register(selector, SelectionKey.OP_READ);
+	}
+
+	@Override
+	public void send(final NetworkAddress remoteAddress, final byte[] data, final int length) throws IOException {
+		
+		final InetSocketAddress target = new InetSocketAddress(remoteAddress.host(), remoteAddress.port());
+		
+		if (length > maximumPacketSize) {
+			
+			onSent(remoteAddress, channel.send(ByteBuffer.wrap(data, 0, length), target) > 0);
+			
+			return;
+		}
+		
+		final ByteBuffer buffer = acquire();
+		
+		try {
+			
+			buffer.clear();
+			buffer.put(data, 0, length);
+			buffer.flip();
+			
+			onSent(remoteAddress, channel.send(buffer, target) > 0);
+		} finally {
+			
+			release(buffer);
+		}
+	}
+
+	@Override
+	public long droppedCount() {
+		
+		return droppedCount.get();
+	}
+
+	private void onSent(final NetworkAddress remoteAddress, final boolean isSent) {
+		
+		if (isSent) {
+			
+			if (isDropping) {
+				
+				isDropping = false;
+				
+				logger.info("Sending again; " + droppedCount.get() + " datagrams dropped so far");
+			}
+			
+			return;
+		}
+		
+		// The socket's send buffer is full
+		droppedCount.incrementAndGet();
+		
+		if (!isDropping) {
+			
+			isDropping = true;
+			
+			logger.warning("Send buffer full; dropping datagrams, starting with one to " + remoteAddress);
+		}
+	}
+
+	@Override
+	public void receive(final DatagramHandler handler) throws IOException {
+		
+		selector.select();
+		selector.selectedKeys().clear();
+		
+		while (true) {
+			
+			receiveBuffer.clear();
+			
+			final SocketAddress source = channel.receive(receiveBuffer);
+			
+			if (source == null) {
+				
+				return;
+			}
+			
+			receiveBuffer.flip();
+			
+			handler.handle((InetSocketAddress) source, receiveBuffer);
+		}
+	}
+
+	@Override
+	public void wakeup() {
+		
+		final Selector s = selector;
+		
+		if (s != null) {
+			
+			s.wakeup();
+		}
+	}
+
+	@Override
+	public void close() {
+		
+		try {
+			
+			if (selector != null) {
+				
+				selector.close();
+			}
+			
+			if (channel != null) {
+				
+				channel.close();
+			}
+		} catch (final IOException e) {
+			
+			logger.warning(e.getMessage());
+		}
+	}
+
+	private ByteBuffer acquire() {
+		
+		synchronized (lock) {
+			
+			final ByteBuffer buffer = sendBuffers.pollFirst();
+			
+			if (buffer != null) {
+				
+				return buffer;
+			}
+		}
+		
+		return ByteBuffer.allocateDirect(maximumPacketSize);
+	}
+
+	private void release(final ByteBuffer buffer) {
+		
+		synchronized (lock) {
+			
+			if (sendBuffers.size() < maximumPooledBuffers) {
+				
+				sendBuffers.addFirst(buffer);
+			}
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package io.njlr.lockstep.network.session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.lockstep.network.Channel;
+import io.njlr.lockstep.network.NetworkAddress;
+
+/**
+ * Maps the source of a datagram frame to the <code>Channel</code> it is for in constant time.
+ *
+ * Peers are found by hashing their address; each peer then has a slot for every possible channel code, 
+ * holding the channel and the serial lane that its inbound messages are processed on. 
+ *
+ * Lookups are safe from any thread and never block, so that the send and receive paths need no lock. 
+ * Changes (adding peers and binding channels) should be serialized by the caller. 
+ *
+ */
+public final class RoutingTable {
+	
+	/**
+	 * The number of distinct channel codes.
+	 */
+	public static final int channelCount = 256;
+	
+	private final Map<NetworkAddress, PeerRoute> peers;
+	
+	public RoutingTable() {
+		
+		super();
+		
+		peers = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Finds the route to a peer.
+	 *
+	 * @param remoteAddress The address of the peer
+	 * @return The route, or null if there is none
+	 */
+	public PeerRoute peer(final NetworkAddress remoteAddress) {
+		
+		return peers.get(remoteAddress);
+	}
+
+	/**
+	 * Finds the route to a peer, adding one if there is none.
+	 *
+	 * @param remoteAddress The address of the peer
+	 * @param coalescerFactory Creates the coalescer for a new route
+	 * @return The route
+	 */
+	public PeerRoute addPeer(final NetworkAddress remoteAddress, final Function<NetworkAddress, DatagramCoalescer> coalescerFactory) {
+		
+		Preconditions.checkNotNull(remoteAddress);
+		Preconditions.checkNotNull(coalescerFactory);
+		
+		return peers.computeIfAbsent(remoteAddress, x -> new PeerRoute(x, coalescerFactory.apply(x)));
+	}
+
+	/**
+	 * Finds the channel for the given binding.
+	 *
+	 * @param binding The binding to look up
+	 * @return The channel, or null if there is none
+	 */
+	public Channel channel(final ChannelBinding binding) {
+		
+		return channel(binding.remoteAddress(), binding.channelCode());
+	}
+
+	/**
+	 * Finds the channel with the given code to the given peer.
+	 *
+	 * @param remoteAddress The address of the peer
+	 * @param channelCode The channel code
+	 * @return The channel, or null if there is none
+	 */
+	public Channel channel(final NetworkAddress remoteAddress, final byte channelCode) {
+		
+		final PeerRoute peer = peers.get(remoteAddress);
+		
+		return (peer == null) ? null : peer.channel(channelCode);
+	}
+
+	/**
+	 * All of the routes to peers.
+	 *
+	 * @return The routes
+	 */
+	public Collection<PeerRoute> peers() {
+		
+		return peers.values();
+	}
+
+	/**
+	 * All of the current bindings.
+	 *
+	 * @return A new list of bindings
+	 */
+	public List<ChannelBinding> bindings() {
+		
+		final List<ChannelBinding> bindings = new ArrayList<>();
+		
+		for (final PeerRoute peer : peers.values()) {
+			
+			for (int i = 0; i < channelCount; i++) {
+				
+				if (peer.endpoints.get(i) != null) {
+					
+					bindings.add(new ChannelBinding(peer.remoteAddress, (byte) i));
+				}
+			}
+		}
+		
+		return bindings;
+	}
+
+	/**
+	 * All of the bound channels.
+	 *
+	 * @return A new list of channels
+	 */
+	public List<Channel> channels() {
+		
+		final List<Channel> channels = new ArrayList<>();
+		
+		for (final PeerRoute peer : peers.values()) {
+			
+			for (int i = 0; i < channelCount; i++) {
+				
+				final Endpoint endpoint = peer.endpoints.get(i);
+				
+				if (endpoint != null) {
+					
+					channels.add(endpoint.channel);
+				}
+			}
+		}
+		
+		return channels;
+	}
+
+	/**
+	 * Removes every route.
+	 */
+	public void clear() {
+		
+		peers.clear();
+	}
+
+	/**
+	 * Everything a session knows about sending to and receiving from one peer.
+	 *
+	 */
+	public static final class PeerRoute {
+		
+		private final NetworkAddress remoteAddress;
+		private final DatagramCoalescer coalescer;
+		
+		// Indexed by channel code
+		private final AtomicReferenceArray<Endpoint> endpoints;
+		
+		private PeerRoute(final NetworkAddress remoteAddress, final DatagramCoalescer coalescer) {
+			
+			super();
+			
+			this.remoteAddress = remoteAddress;
+			this.coalescer = coalescer;
+			
+			endpoints = new AtomicReferenceArray<>(channelCount);
+		}
+		
+		/**
+		 * The address of the peer
+		 *
+		 * @return The remote address
+		 */
+		public NetworkAddress remoteAddress() {
+			
+			return remoteAddress;
+		}
+		
+		/**
+		 * The coalescer for datagrams to the peer
+		 *
+		 * @return The coalescer
+		 */
+		public DatagramCoalescer coalescer() {
+			
+			return coalescer;
+		}
+		
+		/**
+		 * The channel with the given code
+		 *
+		 * @param channelCode The channel code
+		 * @return The channel, or null if there is none
+		 */
+		public Channel channel(final byte channelCode) {
+			
+			final Endpoint endpoint = endpoints.get(channelCode & 0xFF);
+			
+			return (endpoint == null) ? null : endpoint.channel;
+		}
+		
+		/**
+		 * The lane that messages for the channel with the given code are processed on
+		 * 
+		 * @param channelCode The channel code
+		 * @return The lane, or null if there is no such channel
+		 */
+		public Executor lane(final byte channelCode) {
+			
+			final Endpoint endpoint = endpoints.get(channelCode & 0xFF);
+			
+			return (endpoint == null) ? null : endpoint.lane;
+		}
+		
+		/**
+		 * Binds a channel to a code that is not already taken.
+		 *
+		 * @param channelCode The channel code
+		 * @param channel The channel
+		 * @param lane The executor to process the channel's messages on, in order
+		 */
+		public void bind(final byte channelCode, final Channel channel, final Executor lane) {
+			
+			Preconditions.checkNotNull(channel);
+			Preconditions.checkNotNull(lane);
+			
+			// Prevent "re-bindings" from occurring
+			Preconditions.checkState(endpoints.compareAndSet(channelCode & 0xFF, null, new Endpoint(channel, lane)));
+		}
+	}
+
+	/**
+	 * A bound channel and its lane. 
+	 *
+	 */
+	private static final class Endpoint {
+		
+		private final Channel channel;
+		private final Executor lane;
+		
+		public Endpoint(final Channel channel, final Executor lane) {
+			
+			super();
+			
+			this.channel = channel;
+			this.lane = lane;
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package io.njlr.lockstep.network.session;
 
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
@@ -15,12 +17,43 @@ import io.njlr.lockstep.network.NetworkAddress;
  *
  */
 public final class SessionSettings {
+	
+	/**
+	 * The most other peers a session can have; peer ids are sent as a single byte. 
+	 */
+	public static final int maximumPeerCount = 255;
 
 	private final int sequenceRunAhead;
 	private final int actionScheduleOffset;
 	
 	private final Set<NetworkAddress> peers;
 	
+	private final int peerId;
+	
+	private final Optional<NetworkAddress> localAddress;
+	
+	private final boolean tickBundles;
+	
+	private final int minimumRunAhead;
+	private final int maximumRunAhead;
+	
+	// In nanoseconds; zero if ticks are not paced
+	private final long tickPeriod;
+	private final long maximumTickPeriod;
+	
+	private final boolean rollback;
+	
+	private final int stateHashInterval;
+	
+	private final Set<NetworkAddress> lateJoiners;
+	
+	private final Optional<NetworkAddress> joinHost;
+	
+	private final int catchUpThreshold;
+	private final int catchUpProgressInterval;
+	
+	private final boolean failOnLateAction;
+	
 	/**
 	 * How many ticks the simulation may run ahead of the slowest peer
 	 * 
@@ -51,25 +84,436 @@ public final class SessionSettings {
 		return peers;
 	}
 	
-	public SessionSettings(final int sequenceRunAhead, final int actionScheduleOffset, final Set<NetworkAddress> peers) {
+	/**
+	 * The id of this peer, which orders its actions against those of other peers. 
+	 * 
+	 * Every peer in the session must have a different id, between 0 and the number of other peers. 
+	 * 
+	 * @return The peer id
+	 */
+	public int peerId() {
+		
+		return peerId;
+	}
+
+	/**
+	 * The address the other peers know this peer by, if it was given. 
+	 * 
+	 * A late joiner needs it to recognise the membership changes that are about itself. 
+	 * 
+	 * @return The local address, or empty if it is not known
+	 */
+	public Optional<NetworkAddress> localAddress() {
+		
+		return localAddress;
+	}
+
+	/**
+	 * Whether each tick's progress and actions are sent to peers as one message. 
+	 * 
+	 * Peers understand both formats, so this need not be the same across the session. 
+	 * 
+	 * @return If tick bundles are sent
+	 */
+	public boolean tickBundles() {
+		
+		return tickBundles;
+	}
+
+	/**
+	 * The least the run-ahead may be adapted down to. 
+	 * 
+	 * @return The number of ticks ahead
+	 */
+	public int minimumRunAhead() {
+		
+		return minimumRunAhead;
+	}
+
+	/**
+	 * The most the run-ahead may be adapted up to. 
+	 * 
+	 * @return The number of ticks ahead
+	 */
+	public int maximumRunAhead() {
+		
+		return maximumRunAhead;
+	}
+
+	/**
+	 * Whether the run-ahead, and with it the action schedule offset, adapts to the measured latency. 
+	 * 
+	 * The run-ahead starts at <code>sequenceRunAhead</code>; peers agree on changes to it within 
+	 * <code>minimumRunAhead</code> and <code>maximumRunAhead</code> as the session goes on. 
+	 * Actions are then scheduled 2 * run-ahead + 2 ticks ahead, 
+	 * the least that guarantees they reach every peer in time, instead of <code>actionScheduleOffset</code>. 
+	 * 
+	 * @return If the run-ahead is adaptive
+	 */
+	public boolean isAdaptive() {
+		
+		return minimumRunAhead < maximumRunAhead;
+	}
+
+	/**
+	 * Whether ticks are paced at a fixed rate, rather than run as fast as peers allow. 
+	 * 
+	 * @return If ticks are paced
+	 */
+	public boolean isPaced() {
+		
+		return tickPeriod > 0L;
+	}
+
+	/**
+	 * The time between ticks when they are paced. 
+	 * 
+	 * @param unit The unit to express the result in
+	 * @return The tick period, or zero if ticks are not paced
+	 */
+	public long tickPeriod(final TimeUnit unit) {
+		
+		return unit.convert(tickPeriod, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * The longest the tick period may be adapted up to when the slowest peer cannot keep up. 
+	 * 
+	 * @param unit The unit to express the result in
+	 * @return The maximum tick period
+	 */
+	public long maximumTickPeriod(final TimeUnit unit) {
+		
+		return unit.convert(Math.max(tickPeriod, maximumTickPeriod), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Whether the tick period adapts to the cost of the slowest peer's ticks. 
+	 * 
+	 * Paced ticks start at <code>tickPeriod</code>; peers agree on longer periods, 
+	 * up to <code>maximumTickPeriod</code>, while a peer's ticks take too long for it. 
+	 * 
+	 * @return If the tick period is adaptive
+	 */
+	public boolean isTickPeriodAdaptive() {
+		
+		return isPaced() && (maximumTickPeriod > tickPeriod);
+	}
+
+	/**
+	 * Whether ticks are executed before every peer's actions for them are known, 
+	 * and rolled back and re-executed when a late action arrives. 
+	 * 
+	 * Actions then take effect locally on the next tick, rather than <code>actionScheduleOffset</code> ticks later. 
+	 * The simulation must be a <code>SnapshotSimulation</code>. 
+	 * 
+	 * @return If rollback is enabled
+	 */
+	public boolean rollback() {
+		
+		return rollback;
+	}
+
+	/**
+	 * How many ticks apart state hashes are exchanged with peers to detect desyncs. 
+	 * 
+	 * @return The number of ticks, or zero if state hashes are not exchanged
+	 */
+	public int stateHashInterval() {
+		
+		return stateHashInterval;
+	}
+
+	/**
+	 * The peers that are not in the session from the start, but may join it once it is running. 
+	 * 
+	 * Until they join, they are not waited for. 
+	 * 
+	 * @return The set of late joiners, which are all also peers
+	 */
+	public Set<NetworkAddress> lateJoiners() {
+		
+		return lateJoiners;
+	}
+
+	/**
+	 * The peer to join a running session through, if this peer is a late joiner. 
+	 * 
+	 * @return The host to join through, or empty if this peer is in the session from the start
+	 */
+	public Optional<NetworkAddress> joinHost() {
+		
+		return joinHost;
+	}
+
+	/**
+	 * How many ticks behind another peer a peer must be to catch up in a burst, 
+	 * ticking back-to-back and reporting its progress less often. 
+	 * 
+	 * Peers that wait for each other are at most the run-ahead apart, so this should be below it. 
+	 * 
+	 * @return The number of ticks, or zero if peers never catch up in a burst
+	 */
+	public int catchUpThreshold() {
+		
+		return catchUpThreshold;
+	}
+
+	/**
+	 * How many ticks apart progress is reported while catching up in a burst. 
+	 * 
+	 * Progress is always reported at the end of a burst, and with every state hash. 
+	 * 
+	 * @return The number of ticks
+	 */
+	public int catchUpProgressInterval() {
+		
+		return catchUpProgressInterval;
+	}
+
+	/**
+	 * Whether an action that arrives after its tick was executed (and can no longer be rolled back) stops the session. 
+	 * 
+	 * Either way, it is dropped and reported to the desync listeners. 
+	 * 
+	 * @return If late actions are fatal
+	 */
+	public boolean failOnLateAction() {
+		
+		return failOnLateAction;
+	}
+
+	private SessionSettings(final Builder builder) {
 		
 		super();
 		
-		Preconditions.checkArgument(sequenceRunAhead > 0);
-		Preconditions.checkArgument(actionScheduleOffset > sequenceRunAhead);
+		Preconditions.checkArgument(builder.sequenceRunAhead > 0);
+		Preconditions.checkArgument(builder.actionScheduleOffset > builder.sequenceRunAhead);
+		Preconditions.checkArgument(builder.minimumRunAhead > 0);
+		Preconditions.checkArgument(builder.minimumRunAhead <= builder.sequenceRunAhead);
+		Preconditions.checkArgument(builder.maximumRunAhead >= builder.sequenceRunAhead);
+		Preconditions.checkArgument(builder.tickPeriod >= 0L);
+		Preconditions.checkArgument(builder.maximumTickPeriod >= 0L);
+		Preconditions.checkArgument(builder.stateHashInterval >= 0);
+		Preconditions.checkArgument(builder.catchUpThreshold >= 0);
+		Preconditions.checkArgument(builder.catchUpProgressInterval > 0);
 		
-		Preconditions.checkNotNull(peers);
+		Preconditions.checkNotNull(builder.peers);
+		Preconditions.checkArgument(builder.peers.size() <= maximumPeerCount);
+		Preconditions.checkArgument(builder.peerId >= 0 && builder.peerId <= builder.peers.size());
+		Preconditions.checkArgument(builder.peers.containsAll(builder.lateJoiners));
+		Preconditions.checkArgument(!builder.joinHost.isPresent() || builder.peers.contains(builder.joinHost.get()));
+		Preconditions.checkArgument(!builder.joinHost.isPresent() || builder.localAddress.isPresent());
+		Preconditions.checkArgument(!builder.localAddress.isPresent() || !builder.peers.contains(builder.localAddress.get()));
+		
+		this.sequenceRunAhead = builder.sequenceRunAhead;
+		this.actionScheduleOffset = builder.actionScheduleOffset;
+		
+		this.peers = ImmutableSet.copyOf(builder.peers);
+		
+		this.peerId = builder.peerId;
 		
-		this.sequenceRunAhead = sequenceRunAhead;
-		this.actionScheduleOffset = actionScheduleOffset;
+		this.localAddress = builder.localAddress;
+		
+		this.tickBundles = builder.tickBundles;
+		
+		this.minimumRunAhead = builder.minimumRunAhead;
+		this.maximumRunAhead = builder.maximumRunAhead;
+		
+		this.tickPeriod = builder.tickPeriod;
+		this.maximumTickPeriod = builder.maximumTickPeriod;
+		
+		this.rollback = builder.rollback;
+		
+		this.stateHashInterval = builder.stateHashInterval;
+		
+		this.lateJoiners = ImmutableSet.copyOf(builder.lateJoiners);
+		
+		this.joinHost = builder.joinHost;
+		
+		this.catchUpThreshold = builder.catchUpThreshold;
+		this.catchUpProgressInterval = builder.catchUpProgressInterval;
+		
+		this.failOnLateAction = builder.failOnLateAction;
+	}
+
+	public SessionSettings(final int sequenceRunAhead, final int actionScheduleOffset, final Set<NetworkAddress> peers, final int peerId) {
+		
+		this(new Builder(sequenceRunAhead, actionScheduleOffset, peers, peerId));
+	}
+
+	/**
+	 * Creates a new <code>SessionSettings</code> instance whose peer id is this peer's index in the session. 
+	 * 
+	 * The index is the position of the local address among the addresses of every peer in the session, in sorted order. 
+	 * Every peer must know every other (and itself) by the same address, so that they all sort the same list; 
+	 * they then get the ids 0 to n - 1 between them. 
+	 * 
+	 * @param sequenceRunAhead How many ticks the simulation may run ahead of the slowest peer
+	 * @param actionScheduleOffset How many ticks ahead of the slowest peer actions must be scheduled for
+	 * @param peers The addresses of all other peers in the session
+	 * @param localAddress The address the other peers know this peer by
+	 */
+	public SessionSettings(final int sequenceRunAhead, final int actionScheduleOffset, final Set<NetworkAddress> peers, final NetworkAddress localAddress) {
 		
-		this.peers = ImmutableSet.copyOf(peers);
+		this(new Builder(sequenceRunAhead, actionScheduleOffset, peers, peerIndex(peers, localAddress)).localAddress(localAddress));
 	}
 	
+	/**
+	 * A copy of these settings, but sending tick bundles or not. 
+	 * 
+	 * @param tickBundles Whether to send tick bundles
+	 * @return The new settings
+	 */
+	public SessionSettings withTickBundles(final boolean tickBundles) {
+		
+		return toBuilder().tickBundles(tickBundles).build();
+	}
+
+	/**
+	 * A copy of these settings, but adapting the run-ahead within the given bounds. 
+	 * 
+	 * Pass the same bound twice to fix the run-ahead again. 
+	 * Ticks must also be paced with <code>withTickPeriod</code>: unpaced ticks run as fast as peers allow, 
+	 * so the run-ahead would only ever grow to the maximum. 
+	 * 
+	 * @param minimumRunAhead The least run-ahead
+	 * @param maximumRunAhead The most run-ahead
+	 * @return The new settings
+	 */
+	public SessionSettings withAdaptiveRunAhead(final int minimumRunAhead, final int maximumRunAhead) {
+		
+		return toBuilder().adaptiveRunAhead(minimumRunAhead, maximumRunAhead).build();
+	}
+
+	/**
+	 * A copy of these settings, but pacing ticks at a fixed rate. 
+	 * 
+	 * Pass a period of zero to tick as fast as peers allow again. 
+	 * 
+	 * @param tickPeriod The time between ticks
+	 * @param unit The unit of the period
+	 * @return The new settings
+	 */
+	public SessionSettings withTickPeriod(final long tickPeriod, final TimeUnit unit) {
+		
+		return toBuilder().tickPeriod(tickPeriod, unit).build();
+	}
+
+	/**
+	 * A copy of these settings, but letting the tick period grow up to the given maximum 
+	 * while the slowest peer cannot keep up. Only paced ticks are adapted. 
+	 * 
+	 * @param maximumTickPeriod The longest time between ticks
+	 * @param unit The unit of the period
+	 * @return The new settings
+	 */
+	public SessionSettings withAdaptiveTickPeriod(final long maximumTickPeriod, final TimeUnit unit) {
+		
+		return toBuilder().adaptiveTickPeriod(maximumTickPeriod, unit).build();
+	}
+
+	/**
+	 * A copy of these settings, but with rollback enabled or not. 
+	 * 
+	 * @param rollback Whether to execute ticks before their actions are known
+	 * @return The new settings
+	 */
+	public SessionSettings withRollback(final boolean rollback) {
+		
+		return toBuilder().rollback(rollback).build();
+	}
+
+	/**
+	 * A copy of these settings, but exchanging state hashes with peers every so many ticks. 
+	 * 
+	 * Every peer in the session must use the same interval. 
+	 * 
+	 * @param stateHashInterval The number of ticks between hashes, or zero to not exchange them
+	 * @return The new settings
+	 */
+	public SessionSettings withStateHashInterval(final int stateHashInterval) {
+		
+		return toBuilder().stateHashInterval(stateHashInterval).build();
+	}
+
+	/**
+	 * A copy of these settings, but with seats kept for peers that may join once the session is running. 
+	 * 
+	 * The simulation must be a <code>SerializableSimulation</code>. 
+	 * 
+	 * @param lateJoiners The peers that may join later, which must all also be peers
+	 * @return The new settings
+	 */
+	public SessionSettings withLateJoiners(final Set<NetworkAddress> lateJoiners) {
+		
+		return toBuilder().lateJoiners(lateJoiners).build();
+	}
+
+	/**
+	 * A copy of these settings, but joining a session that is already running through one of its peers. 
+	 * 
+	 * The host sends us the state of the simulation, after which we catch up and take part as normal. 
+	 * The other peers must have us as a late joiner, and the local address must be known. 
+	 * 
+	 * @param joinHost The peer to join through
+	 * @return The new settings
+	 */
+	public SessionSettings withJoinHost(final NetworkAddress joinHost) {
+		
+		return toBuilder().joinHost(joinHost).build();
+	}
+
+	/**
+	 * A copy of these settings, but catching up in a burst when far enough behind. 
+	 * 
+	 * Peers wait for our progress, so the interval should be well within their run-ahead. 
+	 * 
+	 * @param catchUpThreshold How many ticks behind to start catching up, or zero to never
+	 * @param catchUpProgressInterval How many ticks apart to report progress while catching up
+	 * @return The new settings
+	 */
+	public SessionSettings withCatchUp(final int catchUpThreshold, final int catchUpProgressInterval) {
+		
+		return toBuilder().catchUp(catchUpThreshold, catchUpProgressInterval).build();
+	}
+
+	/**
+	 * A copy of these settings, but stopping the session on a late action or not. 
+	 * 
+	 * @param failOnLateAction Whether late actions are fatal
+	 * @return The new settings
+	 */
+	public SessionSettings withFailOnLateAction(final boolean failOnLateAction) {
+		
+		return toBuilder().failOnLateAction(failOnLateAction).build();
+	}
+
+	/**
+	 * A builder that starts from these settings. 
+	 * 
+	 * @return The builder
+	 */
+	public Builder toBuilder() {
+		
+		return new Builder(sequenceRunAhead, actionScheduleOffset, peers, peerId)
+				.localAddress(localAddress)
+				.tickBundles(tickBundles)
+				.adaptiveRunAhead(minimumRunAhead, maximumRunAhead)
+				.tickPeriod(tickPeriod, TimeUnit.NANOSECONDS)
+				.adaptiveTickPeriod(maximumTickPeriod, TimeUnit.NANOSECONDS)
+				.rollback(rollback)
+				.stateHashInterval(stateHashInterval)
+				.lateJoiners(lateJoiners)
+				.joinHost(joinHost)
+				.catchUp(catchUpThreshold, catchUpProgressInterval)
+				.failOnLateAction(failOnLateAction);
+	}
+
 	@Override
 	public int hashCode() {
 		
-		return sequenceRunAhead * 11 + actionScheduleOffset * 31 + peers.hashCode() * 17;
+		return sequenceRunAhead * 11 + actionScheduleOffset * 31 + peers.hashCode() * 17 + peerId * 13 + (tickBundles ? 1 : 0) + minimumRunAhead * 7 + maximumRunAhead * 5 + Long.hashCode(tickPeriod) * 3 + Long.hashCode(maximumTickPeriod) + (rollback ? 2 : 0) + stateHashInterval * 19 + lateJoiners.hashCode() * 23 + joinHost.hashCode() * 29 + catchUpThreshold * 37 + catchUpProgressInterval * 41 + (failOnLateAction ? 4 : 0) + localAddress.hashCode() * 43;
 	}
 	
 	@Override
@@ -86,7 +530,21 @@ public final class SessionSettings {
 			
 			return ((this.sequenceRunAhead == thatSessionSettings.sequenceRunAhead) && 
 					(this.actionScheduleOffset == thatSessionSettings.actionScheduleOffset) && 
-					(this.peers.equals(thatSessionSettings.peers)));
+					(this.peers.equals(thatSessionSettings.peers)) && 
+					(this.peerId == thatSessionSettings.peerId) && 
+					(this.localAddress.equals(thatSessionSettings.localAddress)) && 
+					(this.tickBundles == thatSessionSettings.tickBundles) && 
+					(this.minimumRunAhead == thatSessionSettings.minimumRunAhead) && 
+					(this.maximumRunAhead == thatSessionSettings.maximumRunAhead) && 
+					(this.tickPeriod == thatSessionSettings.tickPeriod) && 
+					(this.maximumTickPeriod == thatSessionSettings.maximumTickPeriod) && 
+					(this.rollback == thatSessionSettings.rollback) && 
+					(this.stateHashInterval == thatSessionSettings.stateHashInterval) && 
+					(this.lateJoiners.equals(thatSessionSettings.lateJoiners)) && 
+					(this.joinHost.equals(thatSessionSettings.joinHost)) && 
+					(this.catchUpThreshold == thatSessionSettings.catchUpThreshold) && 
+					(this.catchUpProgressInterval == thatSessionSettings.catchUpProgressInterval) && 
+					(this.failOnLateAction == thatSessionSettings.failOnLateAction));
 		}
 		
 		return false;
@@ -98,6 +556,279 @@ public final class SessionSettings {
 		return MoreObjects.toStringHelper(this)
 				.add("sequenceRunAhead", sequenceRunAhead)
 				.add("actionScheduleOffset", actionScheduleOffset)
-				.add("peers", peers).toString();
+				.add("peers", peers)
+				.add("peerId", peerId)
+				.add("localAddress", localAddress)
+				.add("tickBundles", tickBundles)
+				.add("minimumRunAhead", minimumRunAhead)
+				.add("maximumRunAhead", maximumRunAhead)
+				.add("tickPeriod", tickPeriod)
+				.add("maximumTickPeriod", maximumTickPeriod)
+				.add("rollback", rollback)
+				.add("stateHashInterval", stateHashInterval)
+				.add("lateJoiners", lateJoiners)
+				.add("joinHost", joinHost)
+				.add("catchUpThreshold", catchUpThreshold)
+				.add("catchUpProgressInterval", catchUpProgressInterval)
+				.add("failOnLateAction", failOnLateAction).toString();
+	}
+	
+	/**
+	 * Finds the position of an address among those of every peer in the session, in sorted order. 
+	 * 
+	 * @param peers The addresses of all other peers in the session
+	 * @param localAddress The address of this peer, which must not be one of the others
+	 * @return The index, between 0 and the number of other peers
+	 */
+	private static int peerIndex(final Set<NetworkAddress> peers, final NetworkAddress localAddress) {
+		
+		Preconditions.checkNotNull(peers);
+		Preconditions.checkNotNull(localAddress);
+		Preconditions.checkArgument(!peers.contains(localAddress));
+		
+		int index = 0;
+		
+		for (final NetworkAddress peer : peers) {
+			
+			if (peer.compareTo(localAddress) < 0) {
+				
+				index++;
+			}
+		}
+		
+		return index;
+	}
+
+	/**
+	 * Collects settings for a <code>SessionSettings</code> instance, which checks them when built. 
+	 * 
+	 * Each setting starts at the default of the <code>SessionSettings(int, int, Set, int)</code> constructor; 
+	 * see the accessor of the same name for its meaning. 
+	 * 
+	 * This class is not thread-safe. 
+	 *
+	 */
+	public static final class Builder {
+		
+		private final int sequenceRunAhead;
+		private final int actionScheduleOffset;
+		private final Set<NetworkAddress> peers;
+		private final int peerId;
+		
+		private Optional<NetworkAddress> localAddress;
+		private boolean tickBundles;
+		private int minimumRunAhead;
+		private int maximumRunAhead;
+		private long tickPeriod;
+		private long maximumTickPeriod;
+		private boolean rollback;
+		private int stateHashInterval;
+		private Set<NetworkAddress> lateJoiners;
+		private Optional<NetworkAddress> joinHost;
+		private int catchUpThreshold;
+		private int catchUpProgressInterval;
+		private boolean failOnLateAction;
+		
+		/**
+		 * Creates a new <code>Builder</code> instance. 
+		 * 
+		 * @param sequenceRunAhead How many ticks the simulation may run ahead of the slowest peer
+		 * @param actionScheduleOffset How many ticks ahead of the slowest peer actions must be scheduled for
+		 * @param peers The addresses of all other peers in the session
+		 * @param peerId The id of this peer
+		 */
+		public Builder(final int sequenceRunAhead, final int actionScheduleOffset, final Set<NetworkAddress> peers, final int peerId) {
+			
+			super();
+			
+			this.sequenceRunAhead = sequenceRunAhead;
+			this.actionScheduleOffset = actionScheduleOffset;
+			this.peers = peers;
+			this.peerId = peerId;
+			
+			localAddress = Optional.empty();
+			tickBundles = false;
+			minimumRunAhead = sequenceRunAhead;
+			maximumRunAhead = sequenceRunAhead;
+			tickPeriod = 0L;
+			maximumTickPeriod = 0L;
+			rollback = false;
+			stateHashInterval = 0;
+			lateJoiners = ImmutableSet.of();
+			joinHost = Optional.empty();
+			catchUpThreshold = 0;
+			catchUpProgressInterval = 1;
+			failOnLateAction = false;
+		}
+		
+		/**
+		 * Sets the address the other peers know this peer by. 
+		 * 
+		 * @param localAddress The local address, which must not be one of the peers
+		 * @return This builder
+		 */
+		public Builder localAddress(final NetworkAddress localAddress) {
+			
+			return localAddress(Optional.of(localAddress));
+		}
+		
+		private Builder localAddress(final Optional<NetworkAddress> localAddress) {
+			
+			this.localAddress = localAddress;
+			
+			return this;
+		}
+		
+		/**
+		 * Sets whether each tick's progress and actions are sent to peers as one message. 
+		 * 
+		 * @param tickBundles Whether to send tick bundles
+		 * @return This builder
+		 */
+		public Builder tickBundles(final boolean tickBundles) {
+			
+			this.tickBundles = tickBundles;
+			
+			return this;
+		}
+		
+		/**
+		 * Sets the bounds the run-ahead adapts within; the same bound twice fixes it. 
+		 * 
+		 * @param minimumRunAhead The least run-ahead
+		 * @param maximumRunAhead The most run-ahead
+		 * @return This builder
+		 */
+		public Builder adaptiveRunAhead(final int minimumRunAhead, final int maximumRunAhead) {
+			
+			this.minimumRunAhead = minimumRunAhead;
+			this.maximumRunAhead = maximumRunAhead;
+			
+			return this;
+		}
+		
+		/**
+		 * Sets the time between paced ticks; zero ticks as fast as peers allow. 
+		 * 
+		 * @param tickPeriod The time between ticks
+		 * @param unit The unit of the period
+		 * @return This builder
+		 */
+		public Builder tickPeriod(final long tickPeriod, final TimeUnit unit) {
+			
+			this.tickPeriod = unit.toNanos(tickPeriod);
+			
+			return this;
+		}
+		
+		/**
+		 * Sets the longest the tick period may grow to while the slowest peer cannot keep up. 
+		 * 
+		 * @param maximumTickPeriod The longest time between ticks
+		 * @param unit The unit of the period
+		 * @return This builder
+		 */
+		public Builder adaptiveTickPeriod(final long maximumTickPeriod, final TimeUnit unit) {
+			
+			this.maximumTickPeriod = unit.toNanos(maximumTickPeriod);
+			
+			return this;
+		}
+		
+		/**
+		 * Sets whether ticks are executed before their actions are known. 
+		 * 
+		 * @param rollback Whether to roll back
+		 * @return This builder
+		 */
+		public Builder rollback(final boolean rollback) {
+			
+			this.rollback = rollback;
+			
+			return this;
+		}
+		
+		/**
+		 * Sets how many ticks apart state hashes are exchanged; zero never exchanges them. 
+		 * 
+		 * @param stateHashInterval The number of ticks between hashes
+		 * @return This builder
+		 */
+		public Builder stateHashInterval(final int stateHashInterval) {
+			
+			this.stateHashInterval = stateHashInterval;
+			
+			return this;
+		}
+		
+		/**
+		 * Sets the peers that may join once the session is running. 
+		 * 
+		 * @param lateJoiners The late joiners, which must all also be peers
+		 * @return This builder
+		 */
+		public Builder lateJoiners(final Set<NetworkAddress> lateJoiners) {
+			
+			this.lateJoiners = Preconditions.checkNotNull(lateJoiners);
+			
+			return this;
+		}
+		
+		/**
+		 * Sets the peer to join a running session through. 
+		 * 
+		 * @param joinHost The peer to join through
+		 * @return This builder
+		 */
+		public Builder joinHost(final NetworkAddress joinHost) {
+			
+			return joinHost(Optional.of(joinHost));
+		}
+		
+		private Builder joinHost(final Optional<NetworkAddress> joinHost) {
+			
+			this.joinHost = joinHost;
+			
+			return this;
+		}
+		
+		/**
+		 * Sets when to catch up in a burst, and how often to report progress meanwhile. 
+		 * 
+		 * @param catchUpThreshold How many ticks behind to start catching up, or zero to never
+		 * @param catchUpProgressInterval How many ticks apart to report progress while catching up
+		 * @return This builder
+		 */
+		public Builder catchUp(final int catchUpThreshold, final int catchUpProgressInterval) {
+			
+			this.catchUpThreshold = catchUpThreshold;
+			this.catchUpProgressInterval = catchUpProgressInterval;
+			
+			return this;
+		}
+		
+		/**
+		 * Sets whether an action that arrives after its tick was executed stops the session. 
+		 * 
+		 * @param failOnLateAction Whether late actions are fatal
+		 * @return This builder
+		 */
+		public Builder failOnLateAction(final boolean failOnLateAction) {
+			
+			this.failOnLateAction = failOnLateAction;
+			
+			return this;
+		}
+		
+		/**
+		 * Creates the settings. 
+		 * 
+		 * @return The settings
+		 * @throws IllegalArgumentException If the settings are inconsistent
+		 */
+		public SessionSettings build() {
+			
+			return new SessionSettings(this);
+		}
 	}
 }
@@ -0,0 +1,171 @@
+package io.njlr.lockstep.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesReader;
+import io.njlr.lockstep.network.Utils;
+
+/**
+ * Actions submitted together by one peer for the same sequence number. 
+ * 
+ * The actions have consecutive submission counters, so the sequence number, origin and first counter 
+ * are sent once for the whole batch, followed by the number of actions and each action prefixed by its length. 
+ * 
+ * This class is immutable. 
+ *
+ * @param <T> The sub-type of <code>Simulation</code>
+ */
+public final class ActionBatch<T extends Simulation> {
+	
+	private final int sequenceNumber;
+	private final int origin;
+	private final int firstCounter;
+	
+	private final List<SimulationAction<T>> actions;
+	
+	/**
+	 * The sequence number at which the actions should be performed
+	 * 
+	 * @return The sequence number
+	 */
+	public int sequenceNumber() {
+		
+		return sequenceNumber;
+	}
+
+	/**
+	 * The id of the peer that submitted the actions
+	 * 
+	 * @return The peer id
+	 */
+	public int origin() {
+		
+		return origin;
+	}
+
+	/**
+	 * The submission counter of the first action
+	 * 
+	 * @return The submission counter
+	 */
+	public int firstCounter() {
+		
+		return firstCounter;
+	}
+
+	/**
+	 * The actions, in submission order
+	 * 
+	 * @return The actions
+	 */
+	public List<SimulationAction<T>> actions() {
+		
+		return actions;
+	}
+
+	public ActionBatch(final int sequenceNumber, final int origin, final int firstCounter, final List<SimulationAction<T>> actions) {
+		
+		super();
+		
+		this.sequenceNumber = sequenceNumber;
+		this.origin = origin;
+		this.firstCounter = firstCounter;
+		this.actions = ImmutableList.copyOf(actions);
+	}
+
+	/**
+	 * The actions, each stamped with its sequence number, origin and counter. 
+	 * 
+	 * @return A new list of sequenced actions
+	 */
+	public List<SequencedAction<T>> sequencedActions() {
+		
+		final List<SequencedAction<T>> sequencedActions = new ArrayList<>(actions.size());
+		
+		for (int i = 0; i < actions.size(); i++) {
+			
+			sequencedActions.add(new SequencedAction<>(sequenceNumber, origin, firstCounter + i, actions.get(i)));
+		}
+		
+		return sequencedActions;
+	}
+
+	@Override
+	public String toString() {
+		
+		return MoreObjects.toStringHelper(this)
+				.addValue(sequenceNumber)
+				.add("origin", origin)
+				.add("firstCounter", firstCounter)
+				.add("actions", actions).toString();
+	}
+
+	/**
+	 * Encodes a batch without building one first. 
+	 * 
+	 * @param leadingByte A byte to put before the batch, marking the message type
+	 * @param sequenceNumber The sequence number at which the actions should be performed
+	 * @param origin The id of the peer that submitted the actions
+	 * @param firstCounter The submission counter of the first action
+	 * @param actions The actions, in submission order
+	 * @return The encoded batch
+	 */
+	public static Bytes encode(final byte leadingByte, final int sequenceNumber, final int origin, final int firstCounter, final List<? extends SimulationAction<?>> actions) {
+		
+		final List<byte[]> encodedActions = ActionListCodec.encodeAll(actions, SimulationAction::encode);
+		
+		// The length is known up front, so the message is written into a single array
+		final byte[] data = new byte[1 + SequencedAction.headerSize + ActionListCodec.length(encodedActions)];
+		
+		data[0] = leadingByte;
+		
+		int position = Utils.writeInt(data, 1, sequenceNumber);
+		
+		// The same narrow fields as a SequencedAction
+		data[position++] = (byte) origin;
+		
+		position = Utils.writeShort(data, position, (short) firstCounter);
+		
+		ActionListCodec.write(data, position, encodedActions);
+		
+		return Bytes.of(data);
+	}
+
+	/**
+	 * Decodes a batch, as written by <code>encode</code> after the leading byte. 
+	 * 
+	 * @param data The encoded batch
+	 * @param decoder The decoder for the actions
+	 * @return The batch, or nothing if it is malformed or an action could not be decoded
+	 */
+	public static <T extends Simulation> Optional<ActionBatch<T>> decode(final Bytes data, final ActionDecoder<T> decoder) {
+		
+		if (data.length() < SequencedAction.headerSize + 4) {
+			
+			// Too short for even the header and the action count
+			return Optional.empty();
+		}
+		
+		final BytesReader reader = data.read();
+		
+		final int sequenceNumber = reader.readInt();
+		final int origin = reader.readByte() & 0xFF;
+		final int firstCounter = Utils.readShort(reader) & 0xFFFF;
+		
+		final List<SimulationAction<T>> actions = new ArrayList<>();
+		
+		if (ActionListCodec.read(data, SequencedAction.headerSize, decoder::tryDecode, actions) < 0) {
+			
+			return Optional.empty();
+		}
+		
+		return Optional.of(new ActionBatch<>(sequenceNumber, origin, firstCounter, actions));
+	}
+}
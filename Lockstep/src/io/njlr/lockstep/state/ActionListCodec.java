@@ -0,0 +1,154 @@
+package io.njlr.lockstep.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesReader;
+import io.njlr.lockstep.network.Utils;
+
+/**
+ * The wire format for a list of actions inside a larger message: 
+ * the number of actions, then each action prefixed by its length. 
+ * 
+ * Used by both <code>ActionBatch</code> and <code>TickBundle</code>. 
+ * 
+ */
+final class ActionListCodec {
+	
+	private ActionListCodec() {
+		
+		super();
+	}
+
+	/**
+	 * Encodes each action, ready to be measured and written. 
+	 * 
+	 * @param actions The actions
+	 * @param encoder Encodes a single action
+	 * @return The encoded actions, in order
+	 */
+	public static <E> List<byte[]> encodeAll(final List<? extends E> actions, final Function<? super E, Bytes> encoder) {
+		
+		Preconditions.checkNotNull(actions);
+		Preconditions.checkNotNull(encoder);
+		
+		final List<byte[]> encodedActions = new ArrayList<>(actions.size());
+		
+		for (int i = 0; i < actions.size(); i++) {
+			
+			encodedActions.add(encoder.apply(actions.get(i)).array());
+		}
+		
+		return encodedActions;
+	}
+
+	/**
+	 * The number of bytes <code>write</code> takes for the given actions. 
+	 * 
+	 * @param encodedActions The encoded actions
+	 * @return The length in bytes
+	 */
+	public static int length(final List<byte[]> encodedActions) {
+		
+		int length = 4;
+		
+		for (final byte[] encodedAction : encodedActions) {
+			
+			length += 4 + encodedAction.length;
+		}
+		
+		return length;
+	}
+
+	/**
+	 * Writes the actions into an array. 
+	 * 
+	 * @param data The array to write to, which must have room for <code>length</code> bytes
+	 * @param position The index to start writing at
+	 * @param encodedActions The encoded actions
+	 * @return The index after the last byte written
+	 */
+	public static int write(final byte[] data, final int position, final List<byte[]> encodedActions) {
+		
+		int i = Utils.writeInt(data, position, encodedActions.size());
+		
+		for (final byte[] encodedAction : encodedActions) {
+			
+			i = Utils.writeInt(data, i, encodedAction.length);
+			
+			System.arraycopy(encodedAction, 0, data, i, encodedAction.length);
+			
+			i += encodedAction.length;
+		}
+		
+		return i;
+	}
+
+	/**
+	 * Reads actions, as written by <code>write</code>. 
+	 * 
+	 * @param data The message
+	 * @param position The index the actions start at
+	 * @param decoder Decodes a single action
+	 * @param actions The list to add the actions to
+	 * @return The index after the actions, or -1 if they are malformed or an action could not be decoded
+	 */
+	public static <E> int read(final Bytes data, final int position, final Function<Bytes, Optional<E>> decoder, final List<E> actions) {
+		
+		Preconditions.checkNotNull(decoder);
+		Preconditions.checkNotNull(actions);
+		
+		if (data.length() < position + 4) {
+			
+			return -1;
+		}
+		
+		final BytesReader reader = data.sub(position).read();
+		
+		final int count = reader.readInt();
+		
+		if (count < 0 || count > reader.remaining() / 4) {
+			
+			return -1;
+		}
+		
+		int i = position + 4;
+		
+		for (int j = 0; j < count; j++) {
+			
+			if (reader.remaining() < 4) {
+				
+				return -1;
+			}
+			
+			final int length = reader.readInt();
+			
+			if (length < 0 || length > reader.remaining()) {
+				
+				return -1;
+			}
+			
+			i += 4;
+			
+			final Optional<E> action = decoder.apply(data.sub(i, i + length));
+			
+			if (!action.isPresent()) {
+				
+				return -1;
+			}
+			
+			actions.add(action.get());
+			
+			reader.skip(length);
+			
+			i += length;
+		}
+		
+		return i;
+	}
+}
@@ -0,0 +1,260 @@
+package io.njlr.lockstep.state;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.lockstep.network.sequence.Sequence32;
+
+/**
+ * The actions waiting to be executed, bucketed by the sequence number they are for. 
+ * 
+ * Buckets form a ring indexed by sequence number, one for each tick in the scheduling window, 
+ * so taking a tick's actions costs only as much as there are actions for that tick. 
+ * The buckets are re-used from tick to tick, and each is kept in execution order as actions arrive; 
+ * since each peer's actions mostly arrive in order, this rarely has to look further than the end of a bucket. 
+ * Actions scheduled beyond the window are held aside until the window reaches them. 
+ * 
+ * This class is not thread-safe. 
+ *
+ * @param <T> The sub-type of <code>Simulation</code>
+ */
+public final class ActionSchedule<T extends Simulation> {
+	
+	private final List<List<SequencedAction<T>>> buckets;
+	private final int mask;
+	
+	// Actions too far ahead for the ring
+	private final List<SequencedAction<T>> overflow;
+	
+	// The sequence number of the current bucket
+	private int sequenceNumber;
+	
+	private int size;
+	
+	/**
+	 * Creates a new <code>ActionSchedule</code> instance. 
+	 * 
+	 * @param window How many ticks ahead actions are normally scheduled; rounded up to a power of two
+	 * @param sequenceNumber The first sequence number to be executed
+	 */
+	public ActionSchedule(final int window, final int sequenceNumber) {
+		
+		super();
+		
+		Preconditions.checkArgument(window > 0);
+		Preconditions.checkArgument(window <= (1 << 30));
+		
+		final int capacity = (window == 1) ? 1 : Integer.highestOneBit(window - 1) << 1;
+		
+		buckets = new ArrayList<>(capacity);
+		
+		for (int i = 0; i < capacity; i++) {
+			
+			buckets.add(new ArrayList<>());
+		}
+		
+		mask = capacity - 1;
+		
+		overflow = new ArrayList<>();
+		
+		this.sequenceNumber = sequenceNumber;
+		
+		size = 0;
+	}
+
+	/**
+	 * The sequence number whose actions are <code>due</code>. 
+	 * 
+	 * @return The sequence number
+	 */
+	public int sequenceNumber() {
+		
+		return sequenceNumber;
+	}
+
+	/**
+	 * The number of actions waiting. 
+	 * 
+	 * @return The number of actions
+	 */
+	public int size() {
+		
+		return size;
+	}
+
+	/**
+	 * Schedules an action. 
+	 * 
+	 * @param action The action to schedule
+	 * @return False if the action is for a sequence number that has already passed
+	 */
+	public boolean add(final SequencedAction<T> action) {
+		
+		Preconditions.checkNotNull(action);
+		
+		if (distance(action.sequenceNumber()) < 0) {
+			
+			return false;
+		}
+		
+		if (isInWindow(action.sequenceNumber())) {
+			
+			insert(buckets.get(action.sequenceNumber() & mask), action);
+		} else {
+			
+			overflow.add(action);
+		}
+		
+		size++;
+		
+		return true;
+	}
+
+	/**
+	 * The actions for the current sequence number, in execution order. 
+	 * 
+	 * The list must not be modified, and is only valid until the next call to <code>advance</code>. 
+	 * 
+	 * @return The actions
+	 */
+	public List<SequencedAction<T>> due() {
+		
+		return buckets.get(sequenceNumber & mask);
+	}
+
+	/**
+	 * Discards the current sequence number's actions and moves on to the next sequence number. 
+	 */
+	public void advance() {
+		
+		final List<SequencedAction<T>> bucket = buckets.get(sequenceNumber & mask);
+		
+		size -= bucket.size();
+		
+		bucket.clear();
+		
+		sequenceNumber = Sequence32.next(sequenceNumber);
+		
+		if (!overflow.isEmpty()) {
+			
+			// The far end of the window has just come into reach
+			for (int i = 0; i < overflow.size(); i++) {
+				
+				final SequencedAction<T> action = overflow.get(i);
+				
+				if (isInWindow(action.sequenceNumber())) {
+					
+					insert(buckets.get(action.sequenceNumber() & mask), action);
+					
+					overflow.set(i, overflow.get(overflow.size() - 1));
+					overflow.remove(overflow.size() - 1);
+					
+					i--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whether an action from the same submission is already scheduled. 
+	 * 
+	 * @param action The action to look for
+	 * @return If it is scheduled
+	 */
+	public boolean contains(final SequencedAction<T> action) {
+		
+		final List<SequencedAction<T>> candidates = isInWindow(action.sequenceNumber()) ? 
+				buckets.get(action.sequenceNumber() & mask) : 
+				overflow;
+		
+		for (int i = 0; i < candidates.size(); i++) {
+			
+			final SequencedAction<T> candidate = candidates.get(i);
+			
+			if (candidate.sequenceNumber() == action.sequenceNumber() && SequencedAction.compareExecutionOrder(candidate, action) == 0) {
+				
+				return true;
+			}
+		}
+		
+		return false;
+	}
+
+	/**
+	 * Every action waiting, in no particular order. 
+	 * 
+	 * @return A new list of actions
+	 */
+	public List<SequencedAction<T>> pending() {
+		
+		final List<SequencedAction<T>> pending = new ArrayList<>(size);
+		
+		for (final List<SequencedAction<T>> bucket : buckets) {
+			
+			pending.addAll(bucket);
+		}
+		
+		pending.addAll(overflow);
+		
+		return pending;
+	}
+
+	/**
+	 * Removes every action and starts again from the given sequence number. 
+	 * 
+	 * @param sequenceNumber The next sequence number to be executed
+	 */
+	public void reset(final int sequenceNumber) {
+		
+		clear();
+		
+		this.sequenceNumber = sequenceNumber;
+	}
+
+	/**
+	 * Removes every action. 
+	 */
+	public void clear() {
+		
+		for (final List<SequencedAction<T>> bucket : buckets) {
+			
+			bucket.clear();
+		}
+		
+		overflow.clear();
+		
+		size = 0;
+	}
+
+	/**
+	 * Adds an action to a bucket after every action that should execute before it. 
+	 */
+	private static <T extends Simulation> void insert(final List<SequencedAction<T>> bucket, final SequencedAction<T> action) {
+		
+		int i = bucket.size();
+		
+		while (i > 0 && SequencedAction.compareExecutionOrder(bucket.get(i - 1), action) > 0) {
+			
+			i--;
+		}
+		
+		bucket.add(i, action);
+	}
+
+	private boolean isInWindow(final int actionSequenceNumber) {
+		
+		final int distance = distance(actionSequenceNumber);
+		
+		return (distance >= 0) && (distance <= mask);
+	}
+
+	/**
+	 * How many ticks after the current one the given sequence number is, taking wrap-around into account. 
+	 */
+	private int distance(final int actionSequenceNumber) {
+		
+		return actionSequenceNumber - sequenceNumber;
+	}
+}
@@ -0,0 +1,164 @@
+package io.njlr.lockstep.state;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.lockstep.network.sequence.Sequence32;
+
+/**
+ * Agrees the run-ahead between peers as their latency changes. 
+ * 
+ * Each peer proposes the run-ahead it would like, scheduled for a tick in the same way as an action, 
+ * so every peer sees every proposal on the same tick. The agreed run-ahead is the largest of the latest 
+ * proposal from each peer; it is reached one change at a time, each taking effect on a known tick: 
+ * 
+ *  - An increase is at most one tick, so that actions scheduled under the old run-ahead are not late. 
+ *  - After a change, no other is made for 2 * run-ahead + 2 ticks, by which time every peer must have passed it. 
+ *  - After a decrease, actions are still scheduled for the old run-ahead until every peer has passed the change. 
+ * 
+ * Every decision is a function of the ticks executed, so peers agree without further messages. 
+ * 
+ * This class is not thread-safe; it belongs to the tick thread. 
+ *
+ */
+public final class AdaptiveRunAhead {
+	
+	private final int minimum;
+	private final int maximum;
+	
+	private final ScheduledProposals proposals;
+	
+	private int runAhead;
+	private int previousRunAhead;
+	
+	// The tick of the latest change
+	private int changedAt;
+	
+	private int nextChangeAt;
+	
+	/**
+	 * Creates a new <code>AdaptiveRunAhead</code> instance. 
+	 * 
+	 * @param initial The run-ahead to start with
+	 * @param minimum The least run-ahead
+	 * @param maximum The most run-ahead
+	 * @param sequenceNumber The first sequence number to be executed
+	 */
+	public AdaptiveRunAhead(final int initial, final int minimum, final int maximum, final int sequenceNumber) {
+		
+		super();
+		
+		Preconditions.checkArgument(minimum > 0);
+		Preconditions.checkArgument(minimum <= initial);
+		Preconditions.checkArgument(initial <= maximum);
+		
+		this.minimum = minimum;
+		this.maximum = maximum;
+		
+		proposals = new ScheduledProposals();
+		
+		runAhead = initial;
+		previousRunAhead = initial;
+		
+		changedAt = sequenceNumber;
+		nextChangeAt = sequenceNumber;
+	}
+
+	/**
+	 * The run-ahead in effect. 
+	 * 
+	 * @return The number of ticks ahead
+	 */
+	public int runAhead() {
+		
+		return runAhead;
+	}
+
+	/**
+	 * How far ahead of the slowest peer actions must be scheduled so that none is late. 
+	 * 
+	 * @param lowestSequenceNumber The lowest sequence number across all peers
+	 * @return The number of ticks ahead
+	 */
+	public int actionScheduleOffset(final int lowestSequenceNumber) {
+		
+		// Until every peer has passed the change, some may still be running with the previous run-ahead
+		final boolean isSettled = !Sequence32.isMoreRecent(Sequence32.add(changedAt, previousRunAhead + 1), lowestSequenceNumber);
+		
+		final int scheduleRunAhead = isSettled ? runAhead : Math.max(runAhead, previousRunAhead);
+		
+		return scheduleRunAhead * 2 + 2;
+	}
+
+	/**
+	 * Holds a proposal until its tick. 
+	 * 
+	 * @param sequenceNumber The tick the proposal is for
+	 * @param origin The id of the peer that made it
+	 * @param proposedRunAhead The run-ahead proposed
+	 */
+	public void schedule(final int sequenceNumber, final int origin, final int proposedRunAhead) {
+		
+		proposals.schedule(sequenceNumber, origin, proposedRunAhead);
+	}
+
+	/**
+	 * Takes the proposals for a tick into account and changes the run-ahead if due. 
+	 * 
+	 * Must be called for each tick, in order, before the tick is executed. 
+	 * 
+	 * @param sequenceNumber The tick about to be executed
+	 */
+	public void tick(final int sequenceNumber) {
+		
+		proposals.tick(sequenceNumber);
+		
+		if (proposals.isEmpty() || Sequence32.isMoreRecent(nextChangeAt, sequenceNumber)) {
+			
+			return;
+		}
+		
+		final int agreed = Math.min(Math.min(proposals.maximum(minimum), maximum), runAhead + 1);
+		
+		if (agreed != runAhead) {
+			
+			previousRunAhead = runAhead;
+			runAhead = agreed;
+			
+			changedAt = sequenceNumber;
+			nextChangeAt = Sequence32.add(sequenceNumber, Math.max(runAhead, previousRunAhead) * 2 + 2);
+		}
+	}
+
+	/**
+	 * Clears every proposal. 
+	 */
+	public void clear() {
+		
+		proposals.clear();
+	}
+
+	/**
+	 * The run-ahead needed to hide the given latency. 
+	 * 
+	 * Progress from the furthest peer takes the one-way latency to arrive; running that many ticks ahead, 
+	 * and one more, means we need not wait for it. 
+	 * 
+	 * @param oneWayLatency The one-way latency to the furthest peer
+	 * @param tickDuration How long a tick takes
+	 * @param unit The unit of the latency and duration
+	 * @param minimum The least run-ahead
+	 * @param maximum The most run-ahead
+	 * @return The run-ahead
+	 */
+	public static int desiredRunAhead(final long oneWayLatency, final long tickDuration, final TimeUnit unit, final int minimum, final int maximum) {
+		
+		final long latency = unit.toNanos(oneWayLatency);
+		final long duration = Math.max(1L, unit.toNanos(tickDuration));
+		
+		final long ticks = (latency + duration - 1) / duration + 1;
+		
+		return (int) Math.max(minimum, Math.min(maximum, ticks));
+	}
+}
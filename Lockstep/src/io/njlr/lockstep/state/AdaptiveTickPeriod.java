@@ -0,0 +1,154 @@
+package io.njlr.lockstep.state;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Agrees the tick period between peers as the cost of their ticks changes. 
+ * 
+ * Each peer reports how long its ticks take and proposes the period it would like, in microseconds, 
+ * scheduled for a tick in the same way as an action. The agreed period is the longest of the latest 
+ * proposal from each peer, so the whole session slows down a little for its slowest machine 
+ * instead of stalling on it, and speeds up again once that machine recovers. 
+ * 
+ * Every peer changes period on the same tick. 
+ * 
+ * This class is not thread-safe; it belongs to the tick thread. 
+ *
+ */
+public final class AdaptiveTickPeriod {
+	
+	/**
+	 * How much longer than the slowest tick the period should be, leaving time for everything else. 
+	 */
+	public static final double headroom = 1.25;
+	
+	// In microseconds
+	private final int minimum;
+	private final int maximum;
+	
+	private final ScheduledProposals proposals;
+	
+	private int period;
+	
+	/**
+	 * Creates a new <code>AdaptiveTickPeriod</code> instance, starting at the minimum period. 
+	 * 
+	 * @param minimum The shortest period, i.e. the fastest tick rate
+	 * @param maximum The longest period, i.e. the slowest tick rate
+	 * @param unit The unit of the periods
+	 */
+	public AdaptiveTickPeriod(final long minimum, final long maximum, final TimeUnit unit) {
+		
+		super();
+		
+		Preconditions.checkNotNull(unit);
+		Preconditions.checkArgument(unit.toMicros(minimum) > 0L);
+		Preconditions.checkArgument(minimum <= maximum);
+		Preconditions.checkArgument(unit.toMicros(maximum) <= Integer.MAX_VALUE);
+		
+		this.minimum = (int) unit.toMicros(minimum);
+		this.maximum = (int) unit.toMicros(maximum);
+		
+		proposals = new ScheduledProposals();
+		
+		period = this.minimum;
+	}
+
+	/**
+	 * The period in effect. 
+	 * 
+	 * @param unit The unit to express the result in
+	 * @return The tick period
+	 */
+	public long period(final TimeUnit unit) {
+		
+		return unit.convert(period, TimeUnit.MICROSECONDS);
+	}
+
+	/**
+	 * Holds a proposal until its tick. 
+	 * 
+	 * @param sequenceNumber The tick the proposal is for
+	 * @param origin The id of the peer that made it
+	 * @param proposedPeriod The period proposed, in microseconds
+	 */
+	public void schedule(final int sequenceNumber, final int origin, final int proposedPeriod) {
+		
+		proposals.schedule(sequenceNumber, origin, proposedPeriod);
+	}
+
+	/**
+	 * Takes the proposals for a tick into account. 
+	 * 
+	 * Must be called for each tick, in order, before the tick is executed. 
+	 * 
+	 * @param sequenceNumber The tick about to be executed
+	 * @return If the period changed
+	 */
+	public boolean tick(final int sequenceNumber) {
+		
+		proposals.tick(sequenceNumber);
+		
+		if (proposals.isEmpty()) {
+			
+			return false;
+		}
+		
+		final int agreed = Math.min(proposals.maximum(minimum), maximum);
+		
+		if (agreed == period) {
+			
+			return false;
+		}
+		
+		period = agreed;
+		
+		return true;
+	}
+
+	/**
+	 * Clears every proposal. 
+	 */
+	public void clear() {
+		
+		proposals.clear();
+	}
+
+	/**
+	 * The period that leaves enough time for the slowest tick. 
+	 * 
+	 * @param slowestTickCost How long the slowest peer's ticks take
+	 * @param unit The unit of the cost
+	 * @param minimum The shortest period, in microseconds
+	 * @param maximum The longest period, in microseconds
+	 * @return The period, in microseconds
+	 */
+	public static int desiredPeriod(final long slowestTickCost, final TimeUnit unit, final int minimum, final int maximum) {
+		
+		final long period = (long) Math.ceil(unit.toMicros(slowestTickCost) * headroom);
+		
+		return (int) Math.max(minimum, Math.min(maximum, period));
+	}
+
+	/**
+	 * Whether a new proposal is worth making. 
+	 * 
+	 * Small changes are ignored so that the period does not churn, except a return to the minimum. 
+	 * 
+	 * @param lastProposal The period last proposed, in microseconds
+	 * @param proposal The period that would now be proposed, in microseconds
+	 * @param minimum The shortest period, in microseconds
+	 * @return If the proposal should be made
+	 */
+	public static boolean isSignificant(final int lastProposal, final int proposal, final int minimum) {
+		
+		if (proposal == lastProposal) {
+			
+			return false;
+		}
+		
+		return (proposal == minimum) || (Math.abs((long) proposal - lastProposal) * 8 > lastProposal);
+	}
+}
@@ -0,0 +1,39 @@
+package io.njlr.lockstep.state;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Parks the consumer until a producer unparks it. 
+ * 
+ * Uses no CPU while idle, at the cost of a wake-up for every stall. This is the default. 
+ *
+ */
+public final class BlockingWaitStrategy implements WaitStrategy {
+	
+	public BlockingWaitStrategy() {
+		
+		super();
+	}
+
+	@Override
+	public void idle(final int idleCount) {
+		
+		LockSupport.park(this);
+	}
+
+	@Override
+	public void idleFor(final long timeout, final TimeUnit unit) {
+		
+		LockSupport.parkNanos(this, unit.toNanos(timeout));
+	}
+
+	@Override
+	public void signal(final Thread consumer) {
+		
+		if (consumer != null) {
+			
+			LockSupport.unpark(consumer);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package io.njlr.lockstep.state;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Spins without giving up the processor, then optionally backs off. 
+ * 
+ * After the given number of idle looks the consumer parks for exponentially longer periods, 
+ * from a microsecond up to the maximum backoff, so that a long stall does not burn a core forever. 
+ * With no backoff this spins indefinitely, which only makes sense on a dedicated core. 
+ * Producers never signal. 
+ *
+ */
+public final class BusySpinWaitStrategy implements WaitStrategy {
+	
+	private static final long initialBackoffNanos = TimeUnit.MICROSECONDS.toNanos(1);
+	
+	private final int spinTries;
+	private final long maximumBackoffNanos;
+	
+	/**
+	 * Creates a new <code>BusySpinWaitStrategy</code> instance. 
+	 * 
+	 * @param spinTries How many idle looks to spin for before backing off
+	 * @param maximumBackoff The longest to park for; zero to never back off
+	 * @param unit The unit of the maximum backoff
+	 */
+	public BusySpinWaitStrategy(final int spinTries, final long maximumBackoff, final TimeUnit unit) {
+		
+		super();
+		
+		Preconditions.checkArgument(spinTries >= 0);
+		Preconditions.checkArgument(maximumBackoff >= 0);
+		Preconditions.checkNotNull(unit);
+		
+		this.spinTries = spinTries;
+		this.maximumBackoffNanos = unit.toNanos(maximumBackoff);
+	}
+
+	/**
+	 * Creates a <code>BusySpinWaitStrategy</code> that never backs off. 
+	 */
+	public BusySpinWaitStrategy() {
+		
+		this(0, 0L, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void idle(final int idleCount) {
+		
+		if (maximumBackoffNanos == 0L || idleCount < spinTries) {
+			
+			return;
+		}
+		
+		// Double the backoff for each further idle look, without overflowing the shift
+		final int doublings = Math.min(idleCount - spinTries, 40);
+		
+		LockSupport.parkNanos(this, Math.min(initialBackoffNanos << doublings, maximumBackoffNanos));
+	}
+
+	@Override
+	public void idleFor(final long timeout, final TimeUnit unit) {
+		
+		// The consumer looks again until the time is up; nothing wakes us, so park no longer than a backoff
+		if (maximumBackoffNanos > 0L) {
+			
+			LockSupport.parkNanos(this, Math.min(unit.toNanos(timeout), maximumBackoffNanos));
+		}
+	}
+
+	@Override
+	public void signal(final Thread consumer) {
+	
+	}
+}
@@ -0,0 +1,48 @@
+package io.njlr.lockstep.state;
+
+import io.njlr.lockstep.network.NetworkAddress;
+
+/**
+ * A function that is told when a peer's simulation has diverged from ours. 
+ * 
+ * It is called on the tick thread, so it should return quickly. 
+ *
+ */
+@FunctionalInterface
+public interface DesyncListener {
+	
+	/**
+	 * Handles a desync. 
+	 * 
+	 * @param sequenceNumber The tick at which the states were compared
+	 * @param peer The peer that disagrees
+	 * @param localHash Our state hash
+	 * @param remoteHash The peer's state hash
+	 */
+	void onDesync(final int sequenceNumber, final NetworkAddress peer, final int localHash, final int remoteHash);
+	
+	/**
+	 * Handles a partition found to differ from a peer's, for a <code>PartitionedSimulation</code>. 
+	 * 
+	 * This follows <code>onDesync</code>, once the peers have compared their Merkle trees. 
+	 * 
+	 * @param sequenceNumber The tick at which the partitions were compared
+	 * @param peer The peer that disagrees
+	 * @param partition The partition
+	 */
+	default void onPartitionDesync(final int sequenceNumber, final NetworkAddress peer, final int partition) {
+	
+	}
+	
+	/**
+	 * Handles an action that arrived after we executed its tick without it, and too late to roll back. 
+	 * 
+	 * The action is dropped, so we have diverged from the peers that executed it in time. 
+	 * 
+	 * @param sequenceNumber The tick the action was for
+	 * @param origin The id of the peer that submitted the action; see <code>SessionSettings.peerId</code>
+	 */
+	default void onLateAction(final int sequenceNumber, final int origin) {
+	
+	}
+}
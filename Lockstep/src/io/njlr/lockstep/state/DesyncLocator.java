@@ -0,0 +1,328 @@
+package io.njlr.lockstep.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.lockstep.network.sequence.Sequence32;
+
+/**
+ * Finds which partitions diverged between us and a peer by comparing their Merkle trees a level at a time. 
+ * 
+ * A probe asks a peer for the hashes of some nodes on reaching a future tick, and takes our own on 
+ * reaching the same tick; the tick is scheduled far enough ahead that the request arrives in time, 
+ * in the same way as an action. The children of every node that differs are probed next, 
+ * until the differing leaves, and so the divergent partitions, are found. 
+ * Only the nodes on the paths to divergent partitions are ever sent. 
+ * 
+ * There is at most one probe to each peer at a time; a probe that is never answered, e.g. because 
+ * the request arrived after the peer had passed its tick, is abandoned after <code>maximumProbeAge</code> ticks. 
+ * 
+ * This class is not thread-safe; it belongs to the tick thread. 
+ *
+ */
+public final class DesyncLocator {
+	
+	/**
+	 * The most nodes asked for by one probe. 
+	 */
+	public static final int maximumProbeSize = 64;
+	
+	/**
+	 * How many ticks past its tick a probe waits for a reply. 
+	 */
+	public static final int maximumProbeAge = 1024;
+	
+	private final MerkleTree tree;
+	private final Handler handler;
+	
+	// Indexed by participant; null if there is no probe to that peer
+	private final Probe[] probes;
+	
+	// Probes from peers, waiting for their tick
+	private final List<Probe> requests;
+	
+	// The latest tick reached
+	private int reached;
+	
+	/**
+	 * Creates a new <code>DesyncLocator</code> instance. 
+	 * 
+	 * @param tree Our Merkle tree, which must be up-to-date whenever a tick is reached
+	 * @param participants The number of participants, including us
+	 * @param sequenceNumber The tick reached so far
+	 * @param handler What to do with the results
+	 */
+	public DesyncLocator(final MerkleTree tree, final int participants, final int sequenceNumber, final Handler handler) {
+		
+		super();
+		
+		Preconditions.checkNotNull(tree);
+		Preconditions.checkArgument(participants > 0);
+		Preconditions.checkNotNull(handler);
+		
+		this.tree = tree;
+		this.handler = handler;
+		
+		probes = new Probe[participants];
+		requests = new ArrayList<>();
+		
+		reached = sequenceNumber;
+	}
+
+	/**
+	 * Whether a probe to a peer is in progress. 
+	 * 
+	 * @param participant The peer
+	 * @return If it is being probed
+	 */
+	public boolean isProbing(final int participant) {
+		
+		return probes[participant] != null;
+	}
+
+	/**
+	 * Starts a probe to a peer; the request must be sent to it separately. 
+	 * 
+	 * @param participant The peer
+	 * @param sequenceNumber The tick to compare on reaching; must not have been reached yet
+	 * @param nodes The nodes to compare
+	 */
+	public void probe(final int participant, final int sequenceNumber, final int[] nodes) {
+		
+		Preconditions.checkArgument(Sequence32.isMoreRecent(sequenceNumber, reached));
+		Preconditions.checkArgument(nodes.length <= maximumProbeSize);
+		
+		probes[participant] = new Probe(sequenceNumber, nodes);
+	}
+
+	/**
+	 * Abandons any probe to a peer, e.g. if it never replied. 
+	 * 
+	 * @param participant The peer
+	 */
+	public void cancel(final int participant) {
+		
+		probes[participant] = null;
+	}
+
+	/**
+	 * Takes a peer's request for our node hashes, answering at once if its tick has just been reached. 
+	 * 
+	 * @param participant The peer
+	 * @param sequenceNumber The tick to compare on reaching
+	 * @param nodes The nodes to compare
+	 * @return False if the tick has already passed
+	 */
+	public boolean request(final int participant, final int sequenceNumber, final int[] nodes) {
+		
+		if (sequenceNumber == reached) {
+			
+			handler.reply(participant, sequenceNumber, nodes, hashes(nodes));
+			
+			return true;
+		}
+		
+		if (!Sequence32.isMoreRecent(sequenceNumber, reached)) {
+			
+			return false;
+		}
+		
+		final Probe request = new Probe(sequenceNumber, nodes);
+		
+		request.participant = participant;
+		
+		requests.add(request);
+		
+		return true;
+	}
+
+	/**
+	 * Takes a peer's reply to our probe. 
+	 * 
+	 * @param participant The peer
+	 * @param sequenceNumber The tick compared
+	 * @param nodes The nodes compared
+	 * @param hashes The peer's hashes of the nodes
+	 */
+	public void reply(final int participant, final int sequenceNumber, final int[] nodes, final int[] hashes) {
+		
+		final Probe probe = probes[participant];
+		
+		if (probe == null || probe.sequenceNumber != sequenceNumber || !Arrays.equals(probe.nodes, nodes)) {
+			
+			return;
+		}
+		
+		probe.remoteHashes = hashes;
+		
+		if (probe.localHashes != null) {
+			
+			compare(participant, probe);
+		}
+	}
+
+	/**
+	 * Takes our node hashes for every probe on a tick, once it has been reached and the tree is up-to-date. 
+	 * 
+	 * @param sequenceNumber The tick reached
+	 */
+	public void reach(final int sequenceNumber) {
+		
+		reached = sequenceNumber;
+		
+		for (int i = 0; i < probes.length; i++) {
+			
+			final Probe probe = probes[i];
+			
+			if (probe == null) {
+				
+				continue;
+			}
+			
+			if (probe.sequenceNumber == sequenceNumber) {
+				
+				probe.localHashes = hashes(probe.nodes);
+				
+				if (probe.remoteHashes != null) {
+					
+					compare(i, probe);
+				}
+			} else if (sequenceNumber - probe.sequenceNumber > maximumProbeAge) {
+				
+				probes[i] = null;
+			}
+		}
+		
+		for (int i = 0; i < requests.size(); i++) {
+			
+			final Probe request = requests.get(i);
+			
+			if (request.sequenceNumber == sequenceNumber) {
+				
+				handler.reply(request.participant, sequenceNumber, request.nodes, hashes(request.nodes));
+				
+				requests.set(i, requests.get(requests.size() - 1));
+				requests.remove(requests.size() - 1);
+				
+				i--;
+			}
+		}
+	}
+
+	/**
+	 * Forgets every probe and request. 
+	 */
+	public void clear() {
+		
+		Arrays.fill(probes, null);
+		
+		requests.clear();
+	}
+
+	private int[] hashes(final int[] nodes) {
+		
+		final int[] hashes = new int[nodes.length];
+		
+		for (int i = 0; i < nodes.length; i++) {
+			
+			hashes[i] = tree.node(nodes[i]);
+		}
+		
+		return hashes;
+	}
+
+	private void compare(final int participant, final Probe probe) {
+		
+		probes[participant] = null;
+		
+		final List<Integer> next = new ArrayList<>();
+		
+		for (int i = 0; i < probe.nodes.length; i++) {
+			
+			final int node = probe.nodes[i];
+			
+			if (probe.localHashes[i] == probe.remoteHashes[i]) {
+				
+				continue;
+			}
+			
+			if (tree.isLeaf(node)) {
+				
+				handler.diverged(participant, probe.sequenceNumber, tree.partition(node));
+			} else if (next.size() + 2 <= maximumProbeSize) {
+				
+				next.add(node * 2);
+				next.add(node * 2 + 1);
+			}
+		}
+		
+		if (!next.isEmpty()) {
+			
+			final int[] nodes = new int[next.size()];
+			
+			for (int i = 0; i < nodes.length; i++) {
+				
+				nodes[i] = next.get(i);
+			}
+			
+			handler.descend(participant, nodes);
+		}
+	}
+
+	/**
+	 * What a <code>DesyncLocator</code> needs done. 
+	 *
+	 */
+	public interface Handler {
+		
+		/**
+		 * Sends our hashes to a peer that asked for them. 
+		 * 
+		 * @param participant The peer
+		 * @param sequenceNumber The tick compared
+		 * @param nodes The nodes asked for
+		 * @param hashes Our hashes of the nodes
+		 */
+		void reply(final int participant, final int sequenceNumber, final int[] nodes, final int[] hashes);
+		
+		/**
+		 * Reports a partition that differs from a peer's. 
+		 * 
+		 * @param participant The peer
+		 * @param sequenceNumber The tick compared
+		 * @param partition The partition
+		 */
+		void diverged(final int participant, final int sequenceNumber, final int partition);
+		
+		/**
+		 * Asks for the next level of a probe to be started, with <code>probe</code>. 
+		 * 
+		 * @param participant The peer
+		 * @param nodes The nodes to compare next
+		 */
+		void descend(final int participant, final int[] nodes);
+	}
+
+	private static final class Probe {
+		
+		private final int sequenceNumber;
+		private final int[] nodes;
+		
+		// Only for requests from peers
+		private int participant;
+		
+		private int[] localHashes;
+		private int[] remoteHashes;
+		
+		public Probe(final int sequenceNumber, final int[] nodes) {
+			
+			super();
+			
+			this.sequenceNumber = sequenceNumber;
+			this.nodes = nodes.clone();
+		}
+	}
+}
@@ -0,0 +1,504 @@
+package io.njlr.lockstep.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import io.njlr.lockstep.network.NetworkAddress;
+import io.njlr.lockstep.network.sequence.Sequence32;
+
+/**
+ * Runs the late-join protocol for one peer: hosting the joins of others, and making our own. 
+ * 
+ * A host admits one joining peer at a time, in the order they asked: it schedules the admission 
+ * for a future tick, forwards the actions it has already sent for later ticks and, on reaching 
+ * the admission, streams the state to the joining peer. Once that peer has caught up, the host 
+ * schedules its activation, and then admits the next. 
+ * 
+ * A joining peer buffers the actions that arrive before the state, restores the state on its arrival 
+ * and carries on from the host's tick, telling the host once it has caught up. 
+ * 
+ * Participants are numbered as in the <code>ProgressTree</code>; the peers are participants 1 onwards. 
+ * 
+ * This class is not thread-safe; it belongs to the tick thread. 
+ *
+ * @param <T> The sub-type of <code>Simulation</code>
+ */
+public final class JoinCoordinator<T extends Simulation> {
+	
+	private final List<NetworkAddress> peers;
+	private final int peerId;
+	private final int runAhead;
+	private final SerializableSimulation simulation;
+	private final ActionSchedule<T> schedule;
+	private final ProgressTree progress;
+	private final Handler<T> handler;
+	
+	private final Membership membership;
+	
+	// The participant we join through, or zero if we are in the session from the start
+	private final int host;
+	
+	// While joining, the actions that arrived before our snapshot
+	private final List<SequencedAction<T>> buffer;
+	
+	// Whether each peer has reported its progress since our snapshot
+	private final boolean[] hasReported;
+	
+	// While joining, whether we are still waiting for the state and whether we have told the host that we caught up
+	private boolean isWaitingForSnapshot;
+	private boolean hasCaughtUp;
+	
+	// The latest tick reached
+	private int reached;
+	
+	/**
+	 * Creates a new <code>JoinCoordinator</code> instance. 
+	 * 
+	 * @param peers The peers, in the order of their participants
+	 * @param lateJoiners The peers that are not in the session from the start
+	 * @param host The peer we join through, or null if we are in the session from the start
+	 * @param peerId Our peer id, which our actions carry
+	 * @param runAhead How many ticks a peer may run ahead of the slowest
+	 * @param simulation The simulation, whose state is sent to joining peers
+	 * @param schedule Our action schedule
+	 * @param progress Our view of every participant's progress; late joiners are deactivated until they join
+	 * @param handler What to send, and to whom
+	 */
+	public JoinCoordinator(final List<NetworkAddress> peers, final Set<NetworkAddress> lateJoiners, final NetworkAddress host, final int peerId, 
+			final int runAhead, final SerializableSimulation simulation, final ActionSchedule<T> schedule, final ProgressTree progress, final Handler<T> handler) {
+		
+		super();
+		
+		Preconditions.checkNotNull(lateJoiners);
+		Preconditions.checkArgument(host == null || peers.contains(host));
+		Preconditions.checkArgument(runAhead >= 0);
+		Preconditions.checkNotNull(simulation);
+		Preconditions.checkNotNull(schedule);
+		Preconditions.checkArgument(progress.size() == peers.size() + 1);
+		Preconditions.checkNotNull(handler);
+		
+		this.peers = ImmutableList.copyOf(peers);
+		this.peerId = peerId;
+		this.runAhead = runAhead;
+		this.simulation = simulation;
+		this.schedule = schedule;
+		this.progress = progress;
+		this.handler = handler;
+		
+		final boolean isJoining = (host != null);
+		
+		membership = new Membership(peers.size() + 1);
+		
+		for (int i = 0; i < peers.size(); i++) {
+			
+			// While joining, we only find out who is in the session from the host
+			if (isJoining || lateJoiners.contains(peers.get(i))) {
+				
+				membership.set(i + 1, Membership.Stage.Absent);
+				
+				progress.deactivate(i + 1);
+			}
+		}
+		
+		if (isJoining) {
+			
+			membership.set(0, Membership.Stage.Absent);
+		}
+		
+		this.host = isJoining ? peers.indexOf(host) + 1 : 0;
+		
+		buffer = new ArrayList<>();
+		hasReported = new boolean[peers.size() + 1];
+		
+		isWaitingForSnapshot = isJoining;
+		hasCaughtUp = false;
+		
+		reached = 0;
+	}
+
+	/**
+	 * The participant we join through. 
+	 * 
+	 * This is safe to call from any thread. 
+	 * 
+	 * @return The participant, or zero if we are in the session from the start
+	 */
+	public int host() {
+		
+		return host;
+	}
+
+	/**
+	 * How far a participant has got in joining. 
+	 * 
+	 * @param participant The participant
+	 * @return The stage
+	 */
+	public Membership.Stage stage(final int participant) {
+		
+		return membership.stage(participant);
+	}
+
+	/**
+	 * Whether we are joining and have yet to receive the state. 
+	 * 
+	 * @return If we are waiting for the state
+	 */
+	public boolean isWaitingForSnapshot() {
+		
+		return isWaitingForSnapshot;
+	}
+
+	/**
+	 * Notes that a peer has reported its progress, which is then more than a lower bound. 
+	 * 
+	 * @param participant The peer
+	 */
+	public void reported(final int participant) {
+		
+		hasReported[participant] = true;
+	}
+
+	/**
+	 * Holds on to an action until the state arrives, if we are still waiting for it. 
+	 * 
+	 * @param action The action
+	 * @return False if the action should be scheduled as normal
+	 */
+	public boolean buffer(final SequencedAction<T> action) {
+		
+		if (!isWaitingForSnapshot) {
+			
+			return false;
+		}
+		
+		// Scheduled once we know which tick we start from
+		buffer.add(action);
+		
+		return true;
+	}
+
+	/**
+	 * Takes a peer's request to join through us, admitting it as soon as no other join is in progress. 
+	 * 
+	 * @param participant The peer
+	 * @return False if we are not active, or the peer is not absent or has already asked
+	 */
+	public boolean request(final int participant) {
+		
+		if (membership.stage(0) != Membership.Stage.Active || !membership.request(participant)) {
+			
+			return false;
+		}
+		
+		admitNext();
+		
+		return true;
+	}
+
+	/**
+	 * Schedules the activation of a peer whose join we are hosting, now that it has caught up. 
+	 * 
+	 * @param participant The joining peer
+	 * @return False if we are not hosting its join, or it has yet to be admitted
+	 */
+	public boolean onCaughtUp(final int participant) {
+		
+		if (membership.admitting() != participant || membership.stage(participant) != Membership.Stage.Admitted) {
+			
+			return false;
+		}
+		
+		final int activationSequenceNumber = handler.changeSequenceNumber();
+		
+		membership.schedule(activationSequenceNumber, participant, Membership.Stage.Active);
+		
+		handler.announce(activationSequenceNumber, participant, Membership.Stage.Active);
+		
+		return true;
+	}
+
+	/**
+	 * Schedules a membership change announced by the host. 
+	 * 
+	 * @param sequenceNumber The tick to make the change on reaching; must not have been reached yet
+	 * @param participant The participant
+	 * @param stage The stage the participant moves to
+	 */
+	public void schedule(final int sequenceNumber, final int participant, final Membership.Stage stage) {
+		
+		Preconditions.checkArgument(!Sequence32.isMoreRecent(reached, sequenceNumber));
+		
+		membership.schedule(sequenceNumber, participant, stage);
+	}
+
+	/**
+	 * Makes the membership changes for a tick. 
+	 * 
+	 * @param sequenceNumber The tick reached, which has not been executed yet
+	 */
+	public void reach(final int sequenceNumber) {
+		
+		reached = sequenceNumber;
+		
+		membership.reach(sequenceNumber, this::onChange);
+	}
+
+	/**
+	 * Tells the host that we have caught up, once, when there are no more ticks to run 
+	 * and every peer we wait for has reported its progress since our snapshot. 
+	 * 
+	 * Until then, our view of their progress is only a lower bound. 
+	 */
+	public void onIdle() {
+		
+		if (host == 0 || isWaitingForSnapshot || hasCaughtUp || membership.stage(0) == Membership.Stage.Active) {
+			
+			return;
+		}
+		
+		for (int i = 1; i <= peers.size(); i++) {
+			
+			if (progress.isActive(i) && !hasReported[i]) {
+				
+				return;
+			}
+		}
+		
+		hasCaughtUp = true;
+		
+		handler.caughtUp(host);
+	}
+
+	/**
+	 * Takes on the state from the host, with the actions that arrived meanwhile. 
+	 * 
+	 * Peers in the snapshot that are not ours are left out. 
+	 * 
+	 * @param snapshot The snapshot
+	 * @throws IllegalStateException If we are not waiting for the state
+	 */
+	public void restore(final StateSnapshot snapshot) {
+		
+		Preconditions.checkState(isWaitingForSnapshot);
+		
+		simulation.deserialize(snapshot.state());
+		
+		reached = snapshot.sequenceNumber();
+		
+		schedule.reset(reached);
+		
+		progress.update(0, reached);
+		
+		// Until a peer reports, it is at least this far, or it could not have admitted us
+		final int floor = Sequence32.add(reached, -runAhead);
+		
+		final List<NetworkAddress> members = new ArrayList<>(snapshot.members());
+		
+		members.add(peers.get(host - 1));
+		
+		for (final NetworkAddress member : members) {
+			
+			final int participant = peers.indexOf(member) + 1;
+			
+			if (participant > 0) {
+				
+				membership.set(participant, Membership.Stage.Active);
+				
+				progress.activate(participant, hasReported[participant] ? progress.get(participant) : floor);
+			}
+		}
+		
+		membership.set(0, Membership.Stage.Admitted);
+		
+		// Those for earlier ticks are already part of the state
+		for (final SequencedAction<T> action : buffer) {
+			
+			if (!Sequence32.isMoreRecent(reached, action.sequenceNumber()) && !schedule.contains(action)) {
+				
+				schedule.add(action);
+			}
+		}
+		
+		buffer.clear();
+		
+		isWaitingForSnapshot = false;
+	}
+
+	/**
+	 * Forgets every scheduled change, join request and buffered action. 
+	 */
+	public void clear() {
+		
+		membership.clear();
+		
+		buffer.clear();
+	}
+
+	/**
+	 * Applies a membership change on reaching its tick. 
+	 * 
+	 * @param stage The stage the participant has moved to
+	 * @param participant The participant
+	 */
+	private void onChange(final Membership.Stage stage, final int participant) {
+		
+		if (participant == 0) {
+			
+			// We are only told of our own activation
+			if (stage == Membership.Stage.Active) {
+				
+				handler.activated(0);
+			}
+			
+			return;
+		}
+		
+		if (stage == Membership.Stage.Admitted) {
+			
+			handler.admit(participant);
+			
+			forwardActions(participant);
+			
+			if (membership.admitting() == participant) {
+				
+				sendSnapshot(participant);
+			}
+		} else if (stage == Membership.Stage.Active) {
+			
+			// From now on we wait for it
+			progress.activate(participant, progress.get(participant));
+			
+			handler.activated(participant);
+			
+			admitNext();
+		}
+	}
+
+	/**
+	 * Sends a new recipient the actions we have already submitted for ticks it has yet to execute. 
+	 * 
+	 * Our later actions are broadcast to it as normal. 
+	 * 
+	 * @param participant The new recipient
+	 */
+	private void forwardActions(final int participant) {
+		
+		for (final SequencedAction<T> action : schedule.pending()) {
+			
+			if (action.origin() == peerId) {
+				
+				handler.forward(participant, action);
+			}
+		}
+	}
+
+	/**
+	 * Sends the state on reaching this tick to a peer whose join we are hosting. 
+	 * 
+	 * @param participant The joining peer
+	 */
+	private void sendSnapshot(final int participant) {
+		
+		final List<NetworkAddress> members = new ArrayList<>();
+		
+		for (int i = 1; i <= peers.size(); i++) {
+			
+			if (i != participant && membership.stage(i) == Membership.Stage.Active) {
+				
+				members.add(peers.get(i - 1));
+			}
+		}
+		
+		handler.sendSnapshot(participant, new StateSnapshot(reached, members, simulation.serialize()));
+	}
+
+	/**
+	 * Starts hosting the next join, if there is one and we are not hosting another. 
+	 */
+	private void admitNext() {
+		
+		final OptionalInt next = membership.admitNext();
+		
+		if (!next.isPresent()) {
+			
+			return;
+		}
+		
+		final int participant = next.getAsInt();
+		final int admissionSequenceNumber = handler.changeSequenceNumber();
+		
+		membership.schedule(admissionSequenceNumber, participant, Membership.Stage.Admitted);
+		
+		handler.announce(admissionSequenceNumber, participant, Membership.Stage.Admitted);
+	}
+
+	/**
+	 * What a <code>JoinCoordinator</code> needs from the peer it runs for. 
+	 * 
+	 * @param <T> The sub-type of <code>Simulation</code>
+	 */
+	public interface Handler<T extends Simulation> {
+		
+		/**
+		 * The tick to schedule a membership change for now, far enough ahead that every peer hears of it in time. 
+		 * 
+		 * @return The tick
+		 */
+		int changeSequenceNumber();
+		
+		/**
+		 * Tells the peers taking part in the session about a membership change, in the same way as an action. 
+		 * 
+		 * @param sequenceNumber The tick to make the change on reaching
+		 * @param participant The peer that the change is for
+		 * @param stage The stage it moves to
+		 */
+		void announce(final int sequenceNumber, final int participant, final Membership.Stage stage);
+		
+		/**
+		 * Starts broadcasting to a peer being admitted. 
+		 * 
+		 * On return, any action we submitted before must either be in our schedule or be waiting to be broadcast. 
+		 * 
+		 * @param participant The peer
+		 */
+		void admit(final int participant);
+		
+		/**
+		 * Sends a new recipient one of our actions for a tick it has yet to execute, 
+		 * unless the action is still waiting to be broadcast. 
+		 * 
+		 * @param participant The new recipient
+		 * @param action The action
+		 */
+		void forward(final int participant, final SequencedAction<T> action);
+		
+		/**
+		 * Streams the state to a peer whose join we are hosting. 
+		 * 
+		 * @param participant The joining peer
+		 * @param snapshot The state
+		 */
+		void sendSnapshot(final int participant, final StateSnapshot snapshot);
+		
+		/**
+		 * Reports that a participant is now waited for, and may submit actions. 
+		 * 
+		 * @param participant The participant; zero if it is us
+		 */
+		void activated(final int participant);
+		
+		/**
+		 * Tells the host that we have caught up with the session and are ready to be waited for. 
+		 * 
+		 * @param host The host
+		 */
+		void caughtUp(final int host);
+	}
+}
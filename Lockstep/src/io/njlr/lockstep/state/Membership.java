@@ -0,0 +1,223 @@
+package io.njlr.lockstep.state;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.function.ObjIntConsumer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Which participants take part in the session, and the changes to that scheduled for future ticks. 
+ * 
+ * A peer joins a running session in two steps, each scheduled for a tick in the same way as an action, 
+ * so that every peer takes it on reaching the same tick: 
+ *  - On admission, peers start sending it their progress and actions, and it is sent the state on reaching that tick
+ *  - On activation, once it has caught up, peers start waiting for it and it may submit actions
+ * 
+ * Joins are hosted by a peer that is already active, one at a time, in the order they were requested. 
+ * 
+ * Participants are numbered as in the <code>ProgressTree</code>. 
+ * 
+ * This class is not thread-safe; it belongs to the tick thread. 
+ *
+ */
+public final class Membership {
+	
+	/**
+	 * How far a participant has got in joining. 
+	 *
+	 */
+	public enum Stage { Absent, Admitted, Active }
+	
+	private final Stage[] stages;
+	
+	// Changes waiting for their tick
+	private final List<Change> pending;
+	
+	// Join requests that we are to host, in order
+	private final Deque<Integer> requests;
+	
+	// The participant whose join we are hosting, or -1
+	private int admitting;
+	
+	/**
+	 * Creates a new <code>Membership</code> instance with every participant active. 
+	 * 
+	 * @param participants The number of participants
+	 */
+	public Membership(final int participants) {
+		
+		super();
+		
+		Preconditions.checkArgument(participants > 0);
+		
+		stages = new Stage[participants];
+		
+		Arrays.fill(stages, Stage.Active);
+		
+		pending = new ArrayList<>();
+		requests = new ArrayDeque<>();
+		
+		admitting = -1;
+	}
+
+	/**
+	 * How far a participant has got in joining. 
+	 * 
+	 * @param participant The participant
+	 * @return The stage
+	 */
+	public Stage stage(final int participant) {
+		
+		return stages[participant];
+	}
+
+	/**
+	 * Moves a participant to a stage at once, e.g. when setting up. 
+	 * 
+	 * @param participant The participant
+	 * @param stage The stage
+	 */
+	public void set(final int participant, final Stage stage) {
+		
+		Preconditions.checkNotNull(stage);
+		
+		stages[participant] = stage;
+	}
+
+	/**
+	 * Holds a change until its tick. 
+	 * 
+	 * @param sequenceNumber The tick to make the change on reaching
+	 * @param participant The participant
+	 * @param stage The stage it moves to
+	 */
+	public void schedule(final int sequenceNumber, final int participant, final Stage stage) {
+		
+		Preconditions.checkElementIndex(participant, stages.length);
+		Preconditions.checkNotNull(stage);
+		
+		pending.add(new Change(sequenceNumber, participant, stage));
+	}
+
+	/**
+	 * Makes the changes for a tick, passing each to the consumer afterwards. 
+	 * 
+	 * The consumer may schedule further changes. 
+	 * 
+	 * @param sequenceNumber The tick reached
+	 * @param consumer The callback for each change
+	 */
+	public void reach(final int sequenceNumber, final ObjIntConsumer<Stage> consumer) {
+		
+		if (pending.isEmpty()) {
+			
+			return;
+		}
+		
+		final List<Change> due = new ArrayList<>();
+		
+		for (int i = 0; i < pending.size(); i++) {
+			
+			final Change change = pending.get(i);
+			
+			if (change.sequenceNumber == sequenceNumber) {
+				
+				due.add(change);
+				
+				pending.remove(i);
+				
+				i--;
+			}
+		}
+		
+		for (final Change change : due) {
+			
+			stages[change.participant] = change.stage;
+			
+			if (change.stage == Stage.Active && change.participant == admitting) {
+				
+				// Ready to host the next join
+				admitting = -1;
+			}
+			
+			consumer.accept(change.stage, change.participant);
+		}
+	}
+
+	/**
+	 * Queues a request to join that we are to host. 
+	 * 
+	 * @param participant The participant asking to join
+	 * @return False if it is not absent, or has already asked
+	 */
+	public boolean request(final int participant) {
+		
+		if (stages[participant] != Stage.Absent || participant == admitting || requests.contains(participant)) {
+			
+			return false;
+		}
+		
+		requests.add(participant);
+		
+		return true;
+	}
+
+	/**
+	 * Takes the next join to host, unless one is still in progress. 
+	 * 
+	 * @return The participant to admit, if any
+	 */
+	public OptionalInt admitNext() {
+		
+		if (admitting >= 0 || requests.isEmpty()) {
+			
+			return OptionalInt.empty();
+		}
+		
+		admitting = requests.remove();
+		
+		return OptionalInt.of(admitting);
+	}
+
+	/**
+	 * The participant whose join we are hosting. 
+	 * 
+	 * @return The participant, or -1 if there is none
+	 */
+	public int admitting() {
+		
+		return admitting;
+	}
+
+	/**
+	 * Forgets every scheduled change and join request. 
+	 */
+	public void clear() {
+		
+		pending.clear();
+		requests.clear();
+		
+		admitting = -1;
+	}
+
+	private static final class Change {
+		
+		private final int sequenceNumber;
+		private final int participant;
+		private final Stage stage;
+		
+		public Change(final int sequenceNumber, final int participant, final Stage stage) {
+			
+			super();
+			
+			this.sequenceNumber = sequenceNumber;
+			this.participant = participant;
+			this.stage = stage;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package io.njlr.lockstep.state;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A binary hash tree over the partitions of a simulation. 
+ * 
+ * Nodes are numbered from one at the root, with the children of node i at 2i and 2i + 1, 
+ * so the leaves are the last <code>leafCount</code> nodes, one per partition (and some padding). 
+ * Updating a leaf only marks its ancestors as stale; they are re-hashed when next read, 
+ * so updating k partitions costs at most k * log(n) hashes. 
+ * 
+ * This class is not thread-safe. 
+ *
+ */
+public final class MerkleTree {
+	
+	private final int partitionCount;
+	private final int leafCount;
+	
+	private final int[] nodes;
+	private final boolean[] isStale;
+	
+	/**
+	 * Creates a new <code>MerkleTree</code> instance with every partition hash zero. 
+	 * 
+	 * @param partitionCount The number of partitions
+	 */
+	public MerkleTree(final int partitionCount) {
+		
+		super();
+		
+		Preconditions.checkArgument(partitionCount > 0);
+		Preconditions.checkArgument(partitionCount <= (1 << 28));
+		
+		this.partitionCount = partitionCount;
+		
+		leafCount = (partitionCount == 1) ? 1 : Integer.highestOneBit(partitionCount - 1) << 1;
+		
+		nodes = new int[leafCount * 2];
+		isStale = new boolean[leafCount];
+		
+		for (int i = leafCount - 1; i > 0; i--) {
+			
+			nodes[i] = combine(nodes[i * 2], nodes[i * 2 + 1]);
+		}
+	}
+
+	/**
+	 * The number of partitions
+	 * 
+	 * @return The number of partitions
+	 */
+	public int partitionCount() {
+		
+		return partitionCount;
+	}
+
+	/**
+	 * The number of leaves, which is the number of partitions rounded up to a power of two
+	 * 
+	 * @return The number of leaves
+	 */
+	public int leafCount() {
+		
+		return leafCount;
+	}
+
+	/**
+	 * Sets the hash of a partition. 
+	 * 
+	 * @param partition The partition
+	 * @param hash The partition's hash
+	 */
+	public void update(final int partition, final int hash) {
+		
+		Preconditions.checkElementIndex(partition, partitionCount);
+		
+		nodes[leafCount + partition] = hash;
+		
+		// Stop at the first ancestor that is already stale, since all of its ancestors are too
+		for (int i = (leafCount + partition) / 2; i > 0 && !isStale[i]; i /= 2) {
+			
+			isStale[i] = true;
+		}
+	}
+
+	/**
+	 * The hash of the whole tree. 
+	 * 
+	 * @return The root hash
+	 */
+	public int root() {
+		
+		return node(1);
+	}
+
+	/**
+	 * The hash of a node. 
+	 * 
+	 * @param index The node
+	 * @return The node's hash
+	 */
+	public int node(final int index) {
+		
+		Preconditions.checkElementIndex(index - 1, nodes.length - 1);
+		
+		if (index < leafCount && isStale[index]) {
+			
+			nodes[index] = combine(node(index * 2), node(index * 2 + 1));
+			
+			isStale[index] = false;
+		}
+		
+		return nodes[index];
+	}
+
+	/**
+	 * Whether a node is a leaf. 
+	 * 
+	 * @param index The node
+	 * @return If the node is a leaf
+	 */
+	public boolean isLeaf(final int index) {
+		
+		return index >= leafCount;
+	}
+
+	/**
+	 * The partition a leaf is for. 
+	 * 
+	 * @param index The leaf
+	 * @return The partition, which may be past the last for padding leaves
+	 */
+	public int partition(final int index) {
+		
+		Preconditions.checkArgument(isLeaf(index));
+		
+		return index - leafCount;
+	}
+
+	/**
+	 * Hashes two child hashes into their parent's hash. 
+	 * 
+	 * @param left The left child's hash
+	 * @param right The right child's hash
+	 * @return The parent's hash
+	 */
+	public static int combine(final int left, final int right) {
+		
+		// The finalizer of MurmurHash3, so that a change to either child changes every bit
+		int hash = left * 0x9E3779B9 + right;
+		
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		hash ^= hash >>> 16;
+		
+		return hash;
+	}
+}
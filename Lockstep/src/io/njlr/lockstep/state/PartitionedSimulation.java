@@ -0,0 +1,39 @@
+package io.njlr.lockstep.state;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A <code>Simulation</code> whose state is divided into partitions that can be hashed separately. 
+ * 
+ * The <code>SimulationManager</code> keeps a Merkle tree over the partition hashes, re-hashing only 
+ * the partitions that changed, and uses its root as the state hash. When peers disagree, they compare 
+ * subtrees to find which partitions diverged. 
+ *
+ */
+public interface PartitionedSimulation extends Simulation {
+	
+	/**
+	 * The number of partitions, which must never change. 
+	 * 
+	 * @return The number of partitions
+	 */
+	int partitionCount();
+	
+	/**
+	 * The hash of all state in one partition. 
+	 * 
+	 * @param partition The partition
+	 * @return The partition's hash
+	 */
+	int partitionHash(final int partition);
+	
+	/**
+	 * Passes each partition changed since the last call to the consumer, then forgets them. 
+	 * 
+	 * Changes made by actions, ticks and, with rollback, by restoring a snapshot must all be included. 
+	 * A partition may be passed more than once. 
+	 * 
+	 * @param consumer The callback for each changed partition
+	 */
+	void drainDirtyPartitions(final IntConsumer consumer);
+}
@@ -0,0 +1,183 @@
+package io.njlr.lockstep.state;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.lockstep.network.sequence.Sequence32;
+
+/**
+ * Tracks the sequence number reached by each participant and the lowest among them. 
+ * 
+ * A tournament tree over a primitive array: each inner node holds the lower of its two children, 
+ * so an update only replays the matches on the path from its leaf to the root, 
+ * and the lowest sequence number is always at the root. 
+ * 
+ * Participants may be inactive, e.g. a peer that has not yet joined; their sequence numbers are still 
+ * recorded, but are left out of the lowest until they are activated. 
+ * 
+ * This class is not thread-safe. 
+ *
+ */
+public final class ProgressTree {
+	
+	private final int size;
+	
+	// Leaves are at [size, 2 * size); the parent of node i is i / 2
+	private final int[] nodes;
+	
+	// Whether any participant beneath each node is active
+	private final boolean[] isActive;
+	
+	/**
+	 * Creates a new <code>ProgressTree</code> instance. 
+	 * 
+	 * @param size The number of participants
+	 * @param sequenceNumber The sequence number every participant starts at
+	 */
+	public ProgressTree(final int size, final int sequenceNumber) {
+		
+		super();
+		
+		Preconditions.checkArgument(size > 0);
+		
+		this.size = size;
+		
+		nodes = new int[size * 2];
+		isActive = new boolean[size * 2];
+		
+		for (int i = 1; i < nodes.length; i++) {
+			
+			nodes[i] = sequenceNumber;
+			isActive[i] = true;
+		}
+	}
+
+	/**
+	 * The number of participants. 
+	 * 
+	 * @return The size
+	 */
+	public int size() {
+		
+		return size;
+	}
+
+	/**
+	 * The sequence number a participant has reached. 
+	 * 
+	 * @param index The participant
+	 * @return The sequence number
+	 */
+	public int get(final int index) {
+		
+		Preconditions.checkElementIndex(index, size);
+		
+		return nodes[size + index];
+	}
+
+	/**
+	 * Records the sequence number a participant has reached. 
+	 * 
+	 * @param index The participant
+	 * @param sequenceNumber The sequence number
+	 */
+	public void update(final int index, final int sequenceNumber) {
+		
+		Preconditions.checkElementIndex(index, size);
+		
+		nodes[size + index] = sequenceNumber;
+		
+		if (isActive[size + index]) {
+			
+			replay(size + index);
+		}
+	}
+
+	/**
+	 * Whether a participant counts towards the lowest sequence number. 
+	 * 
+	 * @param index The participant
+	 * @return If the participant is active
+	 */
+	public boolean isActive(final int index) {
+		
+		Preconditions.checkElementIndex(index, size);
+		
+		return isActive[size + index];
+	}
+
+	/**
+	 * Makes a participant count towards the lowest sequence number from now on. 
+	 * 
+	 * @param index The participant
+	 * @param sequenceNumber The sequence number it has reached
+	 */
+	public void activate(final int index, final int sequenceNumber) {
+		
+		Preconditions.checkElementIndex(index, size);
+		
+		nodes[size + index] = sequenceNumber;
+		isActive[size + index] = true;
+		
+		replay(size + index);
+	}
+
+	/**
+	 * Leaves a participant out of the lowest sequence number until it is activated. 
+	 * 
+	 * @param index The participant
+	 */
+	public void deactivate(final int index) {
+		
+		Preconditions.checkElementIndex(index, size);
+		
+		isActive[size + index] = false;
+		
+		replay(size + index);
+	}
+
+	/**
+	 * The lowest sequence number reached by any active participant. 
+	 * 
+	 * @return The lowest sequence number
+	 */
+	public int lowest() {
+		
+		// With one participant the root is the leaf
+		return nodes[1];
+	}
+
+	/**
+	 * Replays the matches on the path from a node to the root. 
+	 */
+	private void replay(final int node) {
+		
+		int i = node;
+		
+		while (i > 1) {
+			
+			final int sibling = i ^ 1;
+			
+			final boolean isWinnerActive = isActive[i] || isActive[sibling];
+			
+			final int winner = !isActive[sibling] ? nodes[i] : 
+				!isActive[i] ? nodes[sibling] : 
+				lower(nodes[i], nodes[sibling]);
+			
+			i >>>= 1;
+			
+			if (nodes[i] == winner && isActive[i] == isWinnerActive) {
+				
+				// Nothing above here can change
+				break;
+			}
+			
+			nodes[i] = winner;
+			isActive[i] = isWinnerActive;
+		}
+	}
+
+	private static int lower(final int x, final int y) {
+		
+		return Sequence32.isMoreRecent(x, y) ? y : x;
+	}
+}
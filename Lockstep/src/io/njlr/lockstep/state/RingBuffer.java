@@ -0,0 +1,151 @@
+package io.njlr.lockstep.state;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded, pre-allocated queue of events from many producer threads to a single consumer thread.
+ *
+ * In the style of the LMAX Disruptor: producers claim a sequence, fill in the event in that slot and publish it;
+ * the consumer drains published events in order. No locks are taken and no events are allocated.
+ * When the ring is full, producers wait for the consumer to catch up.
+ *
+ * @see <a href="https://lmax-exchange.github.io/disruptor/files/Disruptor-1.0.pdf">Disruptor</a>
+ *
+ * @param <E> The type of event
+ */
+public final class RingBuffer<E> {
+	
+	private static final long producerWait = TimeUnit.MICROSECONDS.toNanos(50);
+	
+	private final Object[] events;
+	private final int mask;
+	
+	// The next sequence to hand to a producer
+	private final AtomicLong claimed;
+	
+	// The sequence most recently published in each slot
+	private final AtomicLongArray published;
+	
+	// The next sequence the consumer will read; everything before it may be overwritten
+	private volatile long consumed;
+	
+	/**
+	 * Creates a new <code>RingBuffer</code> instance.
+	 *
+	 * @param capacity The number of slots; must be a power of two
+	 * @param factory Creates the event held in each slot
+	 */
+	public RingBuffer(final int capacity, final Supplier<E> factory) {
+		
+		super();
+		
+		Preconditions.checkArgument(capacity > 0);
+		Preconditions.checkArgument(Integer.bitCount(capacity) == 1);
+		Preconditions.checkNotNull(factory);
+		
+		events = new Object[capacity];
+		mask = capacity - 1;
+		
+		published = new AtomicLongArray(capacity);
+		
+		for (int i = 0; i < capacity; i++) {
+			
+			events[i] = factory.get();
+			
+			published.set(i, -1L);
+		}
+		
+		claimed = new AtomicLong(0L);
+		
+		consumed = 0L;
+	}
+
+	/**
+	 * Claims the next slot, waiting for the consumer if the ring is full.
+	 *
+	 * The event in the slot must then be filled in and the sequence passed to <code>publish</code>.
+	 * The consumer thread must not call this, since a full ring would never drain.
+	 *
+	 * @return The claimed sequence
+	 */
+	public long claim() {
+		
+		final long sequence = claimed.getAndIncrement();
+		
+		while (sequence - consumed >= events.length) {
+			
+			LockSupport.parkNanos(this, producerWait);
+		}
+		
+		return sequence;
+	}
+
+	/**
+	 * The event held in the slot for a sequence.
+	 *
+	 * @param sequence The sequence
+	 * @return The event
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(final long sequence) {
+		
+		return (E) events[(int) (sequence & mask)];
+	}
+
+	/**
+	 * Makes a claimed event visible to the consumer.
+	 *
+	 * @param sequence The claimed sequence
+	 */
+	public void publish(final long sequence) {
+		
+		published.set((int) (sequence & mask), sequence);
+	}
+
+	/**
+	 * Passes every event that is published and in order to the handler.
+	 *
+	 * Must only ever be called from the one consumer thread. The events are re-used once this returns.
+	 *
+	 * @param handler The callback for each event
+	 * @return The number of events handled
+	 */
+	public int drain(final Consumer<? super E> handler) {
+		
+		long next = consumed;
+		
+		final long limit = next + events.length;
+		
+		while (next < limit && published.get((int) (next & mask)) == next) {
+			
+			handler.accept(get(next));
+			
+			next++;
+		}
+		
+		final int count = (int) (next - consumed);
+		
+		consumed = next;
+		
+		return count;
+	}
+
+	/**
+	 * Whether there is an event waiting for the consumer.
+	 *
+	 * @return If an event is available
+	 */
+	public boolean isAvailable() {
+		
+		final long next = consumed;
+		
+		return published.get((int) (next & mask)) == next;
+	}
+}
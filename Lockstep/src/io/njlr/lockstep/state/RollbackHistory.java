@@ -0,0 +1,218 @@
+package io.njlr.lockstep.state;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+import io.njlr.lockstep.network.sequence.Sequence32;
+
+/**
+ * The ticks that have been executed but might still have to be executed again. 
+ * 
+ * For each tick this holds a snapshot of the simulation from before it and the actions executed on it. 
+ * When an action arrives for one of these ticks, it is added here, and the simulation can be restored 
+ * to that tick and every tick since re-executed with the actions now known. 
+ * 
+ * Ticks are forgotten once every peer has passed them, since no more actions can arrive for them. 
+ * The history is a ring, so the number of unconfirmed ticks must never exceed its capacity. 
+ * 
+ * This class is not thread-safe. 
+ *
+ * @param <S> The type of snapshot
+ * @param <T> The sub-type of <code>Simulation</code>
+ */
+public final class RollbackHistory<S, T extends Simulation> {
+	
+	private final SnapshotSimulation<S> simulation;
+	
+	private final List<S> snapshots;
+	private final List<List<SequencedAction<T>>> actions;
+	private final int mask;
+	
+	// The oldest tick held
+	private int first;
+	
+	// The tick after the newest tick held
+	private int next;
+	
+	/**
+	 * Creates a new <code>RollbackHistory</code> instance. 
+	 * 
+	 * @param simulation The simulation to take snapshots of
+	 * @param capacity The most unconfirmed ticks; rounded up to a power of two
+	 * @param sequenceNumber The first sequence number to be executed
+	 */
+	public RollbackHistory(final SnapshotSimulation<S> simulation, final int capacity, final int sequenceNumber) {
+		
+		super();
+		
+		Preconditions.checkNotNull(simulation);
+		Preconditions.checkArgument(capacity > 0);
+		Preconditions.checkArgument(capacity <= (1 << 30));
+		
+		this.simulation = simulation;
+		
+		final int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		
+		snapshots = new ArrayList<>(size);
+		actions = new ArrayList<>(size);
+		
+		for (int i = 0; i < size; i++) {
+			
+			snapshots.add(null);
+			actions.add(new ArrayList<>());
+		}
+		
+		mask = size - 1;
+		
+		first = sequenceNumber;
+		next = sequenceNumber;
+	}
+
+	/**
+	 * The oldest tick held. 
+	 * 
+	 * @return The sequence number
+	 */
+	public int oldest() {
+		
+		return first;
+	}
+
+	/**
+	 * The number of ticks held. 
+	 * 
+	 * @return The number of unconfirmed ticks
+	 */
+	public int size() {
+		
+		return next - first;
+	}
+
+	/**
+	 * Whether a tick is held, i.e. has been executed but not confirmed. 
+	 * 
+	 * @param sequenceNumber The tick
+	 * @return If the tick is held
+	 */
+	public boolean contains(final int sequenceNumber) {
+		
+		return (sequenceNumber - first >= 0) && (next - sequenceNumber > 0);
+	}
+
+	/**
+	 * Records a tick that is about to be executed for the first time: takes a snapshot and copies its actions. 
+	 * 
+	 * @param sequenceNumber The tick; must follow the newest tick held
+	 * @param due The actions about to be executed, in execution order
+	 */
+	public void record(final int sequenceNumber, final List<SequencedAction<T>> due) {
+		
+		Preconditions.checkArgument(sequenceNumber == next);
+		Preconditions.checkState(size() <= mask, "Too many unconfirmed ticks");
+		
+		final int slot = sequenceNumber & mask;
+		
+		snapshots.set(slot, simulation.snapshot());
+		
+		final List<SequencedAction<T>> tickActions = actions.get(slot);
+		
+		tickActions.clear();
+		tickActions.addAll(due);
+		
+		next = Sequence32.next(next);
+	}
+
+	/**
+	 * Re-takes the snapshot for a tick that is about to be re-executed. 
+	 * 
+	 * @param sequenceNumber The tick
+	 */
+	public void resnapshot(final int sequenceNumber) {
+		
+		Preconditions.checkArgument(contains(sequenceNumber));
+		
+		snapshots.set(sequenceNumber & mask, simulation.snapshot());
+	}
+
+	/**
+	 * Adds a late action to the tick it is for. 
+	 * 
+	 * @param action The action
+	 * @return False if its tick is not held
+	 */
+	public boolean add(final SequencedAction<T> action) {
+		
+		Preconditions.checkNotNull(action);
+		
+		if (!contains(action.sequenceNumber())) {
+			
+			return false;
+		}
+		
+		final List<SequencedAction<T>> tickActions = actions.get(action.sequenceNumber() & mask);
+		
+		int i = tickActions.size();
+		
+		while (i > 0 && SequencedAction.compareExecutionOrder(tickActions.get(i - 1), action) > 0) {
+			
+			i--;
+		}
+		
+		tickActions.add(i, action);
+		
+		return true;
+	}
+
+	/**
+	 * The actions executed on a tick, in execution order. 
+	 * 
+	 * @param sequenceNumber The tick
+	 * @return The actions; must not be modified
+	 */
+	public List<SequencedAction<T>> actions(final int sequenceNumber) {
+		
+		Preconditions.checkArgument(contains(sequenceNumber));
+		
+		return actions.get(sequenceNumber & mask);
+	}
+
+	/**
+	 * Returns the simulation to its state before a tick. 
+	 * 
+	 * @param sequenceNumber The tick
+	 */
+	public void restore(final int sequenceNumber) {
+		
+		Preconditions.checkArgument(contains(sequenceNumber));
+		
+		simulation.restore(snapshots.get(sequenceNumber & mask));
+	}
+
+	/**
+	 * Forgets every tick before the given one. 
+	 * 
+	 * @param sequenceNumber The oldest tick that might still change
+	 */
+	public void confirm(final int sequenceNumber) {
+		
+		while (first != next && sequenceNumber - first > 0) {
+			
+			final int slot = first & mask;
+			
+			snapshots.set(slot, null);
+			actions.get(slot).clear();
+			
+			first = Sequence32.next(first);
+		}
+	}
+
+	/**
+	 * Forgets every tick. 
+	 */
+	public void clear() {
+		
+		confirm(next);
+	}
+}
@@ -0,0 +1,104 @@
+package io.njlr.lockstep.state;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The latest value proposed by each peer for some session-wide setting. 
+ * 
+ * Proposals are scheduled for a tick in the same way as actions, and only count from that tick, 
+ * so every peer sees the same proposals on every tick. 
+ * 
+ * This class is not thread-safe; it belongs to the tick thread. 
+ *
+ */
+final class ScheduledProposals {
+	
+	// Proposals waiting for their tick, as { sequence number, origin, value }
+	private final List<int[]> pending;
+	
+	// The latest proposal from each origin
+	private final Map<Integer, Integer> latest;
+	
+	public ScheduledProposals() {
+		
+		super();
+		
+		pending = new ArrayList<>();
+		latest = new HashMap<>();
+	}
+
+	/**
+	 * Holds a proposal until its tick. 
+	 * 
+	 * @param sequenceNumber The tick the proposal is for
+	 * @param origin The id of the peer that made it
+	 * @param value The value proposed
+	 */
+	public void schedule(final int sequenceNumber, final int origin, final int value) {
+		
+		pending.add(new int[] { sequenceNumber, origin, value });
+	}
+
+	/**
+	 * Takes the proposals for a tick into account. 
+	 * 
+	 * @param sequenceNumber The tick about to be executed
+	 */
+	public void tick(final int sequenceNumber) {
+		
+		for (int i = 0; i < pending.size(); i++) {
+			
+			final int[] proposal = pending.get(i);
+			
+			if (proposal[0] == sequenceNumber) {
+				
+				latest.put(proposal[1], proposal[2]);
+				
+				pending.set(i, pending.get(pending.size() - 1));
+				pending.remove(pending.size() - 1);
+				
+				i--;
+			}
+		}
+	}
+
+	/**
+	 * Whether any proposal has been taken into account yet. 
+	 * 
+	 * @return If there are no proposals
+	 */
+	public boolean isEmpty() {
+		
+		return latest.isEmpty();
+	}
+
+	/**
+	 * The largest of the latest proposals. 
+	 * 
+	 * @param floor The least value to return
+	 * @return The largest proposal, or the floor
+	 */
+	public int maximum(final int floor) {
+		
+		int maximum = floor;
+		
+		for (final int i : latest.values()) {
+			
+			maximum = Math.max(maximum, i);
+		}
+		
+		return maximum;
+	}
+
+	/**
+	 * Clears every proposal. 
+	 */
+	public void clear() {
+		
+		pending.clear();
+		latest.clear();
+	}
+}
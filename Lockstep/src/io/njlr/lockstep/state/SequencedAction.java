@@ -3,18 +3,36 @@ package io.njlr.lockstep.state;
 import java.util.Optional;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
 
 import io.njlr.bytes.Bytes;
 import io.njlr.bytes.BytesBuilder;
+import io.njlr.bytes.BytesReader;
+import io.njlr.lockstep.network.Utils;
 
 /**
  * An action to be executed at a specific sequence number. 
+ * 
+ * Each action is stamped with the id of the peer that submitted it and that peer's count of submissions, 
+ * which together give the order in which the actions for a tick are executed on every peer. 
+ * 
+ * On the wire the origin takes a single byte and the counter two, so the counter wraps around at 16 bits. 
  *
  * @param <T>
  */
 public final class SequencedAction<T extends Simulation> {
+	
+	/**
+	 * The largest peer id that fits in an encoded action. 
+	 */
+	public static final int maximumOrigin = 0xFF;
+	
+	// The sequence number, origin and counter
+	static final int headerSize = 4 + 1 + 2;
 
 	private final int sequenceNumber;
+	private final int origin;
+	private final int counter;
 	
 	private final SimulationAction<T> action;
 	
@@ -28,6 +46,26 @@ public final class SequencedAction<T extends Simulation> {
 		return sequenceNumber;
 	}
 	
+	/**
+	 * The id of the peer that submitted the action
+	 * 
+	 * @return The peer id
+	 */
+	public int origin() {
+		
+		return origin;
+	}
+
+	/**
+	 * How many actions the origin peer had submitted before this one, modulo 2^16
+	 * 
+	 * @return The submission counter
+	 */
+	public int counter() {
+		
+		return counter;
+	}
+
 	/**
 	 * The action to be performed
 	 * 
@@ -38,23 +76,32 @@ public final class SequencedAction<T extends Simulation> {
 		return action;
 	}
 	
-	public SequencedAction(final int sequenceNumber, final SimulationAction<T> action) {
+	public SequencedAction(final int sequenceNumber, final int origin, final int counter, final SimulationAction<T> action) {
 		
 		super();
 		
+		Preconditions.checkArgument(origin >= 0 && origin <= maximumOrigin);
+		
 		this.sequenceNumber = sequenceNumber;
+		this.origin = origin;
+		this.counter = counter & 0xFFFF;
 		this.action = action;
 	}
 	
 	public Bytes encode() {
 		
-		return new BytesBuilder().appendInt(sequenceNumber).append(action.encode()).toBytes();
+		return new BytesBuilder()
+				.appendInt(sequenceNumber)
+				.append((byte) origin)
+				.appendShort((short) counter)
+				.append(action.encode())
+				.toBytes();
 	}
 	
 	@Override
 	public int hashCode() {
 		
-		return sequenceNumber * 11 + action.hashCode() * 17;
+		return sequenceNumber * 11 + origin * 13 + counter * 7 + action.hashCode() * 17;
 	}
 	
 	@Override
@@ -70,7 +117,9 @@ public final class SequencedAction<T extends Simulation> {
 			final SequencedAction<?> thatSequencedAction = (SequencedAction<?>) that;
 			
 			return ((this.action.equals(thatSequencedAction.action)) && 
-					(this.sequenceNumber == thatSequencedAction.sequenceNumber));
+					(this.sequenceNumber == thatSequencedAction.sequenceNumber) && 
+					(this.origin == thatSequencedAction.origin) && 
+					(this.counter == thatSequencedAction.counter));
 		}
 		
 		return false;
@@ -79,23 +128,57 @@ public final class SequencedAction<T extends Simulation> {
 	@Override
 	public String toString() {
 		
-		return MoreObjects.toStringHelper(this).addValue(sequenceNumber).addValue(action).toString();
+		return MoreObjects.toStringHelper(this)
+				.addValue(sequenceNumber)
+				.add("origin", origin)
+				.add("counter", counter)
+				.addValue(action).toString();
 	}
 	
-	public static <T extends Simulation> SequencedAction<T> of(final int sequenceNumber, final SimulationAction<T> action) {
+	/**
+	 * Compares two actions by the order they should be executed in. 
+	 * 
+	 * Actions are ordered by origin, then by counter. This is a total order between 
+	 * the actions for one tick, and needs nothing from the actions themselves. 
+	 * 
+	 * @param x The first action
+	 * @param y The second action
+	 * @return Negative if x goes first, positive if y goes first, zero if they are from the same submission
+	 */
+	public static int compareExecutionOrder(final SequencedAction<?> x, final SequencedAction<?> y) {
 		
-		return new SequencedAction<>(sequenceNumber, action);
+		if (x.origin != y.origin) {
+			
+			return Integer.compare(x.origin, y.origin);
+		}
+		
+		// Counters may wrap-around, but those within one tick are always close together
+		return Integer.signum((short) (x.counter - y.counter));
+	}
+
+	public static <T extends Simulation> SequencedAction<T> of(final int sequenceNumber, final int origin, final int counter, final SimulationAction<T> action) {
+		
+		return new SequencedAction<>(sequenceNumber, origin, counter, action);
 	}
 	
 	public static <T extends Simulation> Optional<SequencedAction<T>> decode(final Bytes data, final ActionDecoder<T> decoder) {
 		
-		final Optional<SimulationAction<T>> action = decoder.tryDecode(data);
+		if (data.length() < headerSize) {
+			
+			return Optional.empty();
+		}
+		
+		final BytesReader reader = data.read();
+		
+		final int sequenceNumber = reader.readInt();
+		final int origin = reader.readByte() & 0xFF;
+		final int counter = Utils.readShort(reader);
+		
+		final Optional<SimulationAction<T>> action = decoder.tryDecode(reader.readRemaining());
 		
 		if (action.isPresent()) {
 			
-			final int sequenceNumber = data.read().readInt();
-			
-			return Optional.of(new SequencedAction<T>(sequenceNumber, action.get()));
+			return Optional.of(new SequencedAction<T>(sequenceNumber, origin, counter, action.get()));
 		} else {
 			
 			return Optional.empty();
@@ -0,0 +1,29 @@
+package io.njlr.lockstep.state;
+
+import io.njlr.bytes.Bytes;
+
+/**
+ * A <code>Simulation</code> whose whole state can be written out and read back in, e.g. on another machine. 
+ * 
+ * This is required for peers to join a session that is already running: 
+ * a peer in the session serializes its state, and the joining peer deserializes it and carries on from there. 
+ *
+ */
+public interface SerializableSimulation extends Simulation {
+	
+	/**
+	 * Writes out all state in the simulation. 
+	 * 
+	 * @return The serialized state
+	 */
+	Bytes serialize();
+	
+	/**
+	 * Replaces all state in the simulation with serialized state. 
+	 * 
+	 * Afterwards, the simulation must behave exactly as the one that was serialized did. 
+	 * 
+	 * @param state State written by <code>serialize</code>, possibly by another peer
+	 */
+	void deserialize(final Bytes state);
+}
@@ -5,8 +5,6 @@ import io.njlr.bytes.Bytes;
 /**
  * An action that can be performed on a simulation of type T. 
  * 
- * It is important that implementers be immutable and implement hashCode. 
- * 
  * Implementations should be immutable and thread-safe. 
  *
  * @param <T>
@@ -1,13 +1,20 @@
 package io.njlr.lockstep.state;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
 import java.util.logging.Logger;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 
 import io.njlr.bytes.Bytes;
@@ -15,7 +22,9 @@ import io.njlr.bytes.BytesBuilder;
 import io.njlr.bytes.BytesReader;
 import io.njlr.lockstep.network.ChannelListener;
 import io.njlr.lockstep.network.NetworkAddress;
-import io.njlr.lockstep.network.channels.StopAndWaitChannel;
+import io.njlr.lockstep.network.RoundTripEstimate;
+import io.njlr.lockstep.network.channels.FragmentationChannelDecorator;
+import io.njlr.lockstep.network.channels.SelectiveRepeatChannel;
 import io.njlr.lockstep.network.sequence.Sequence32;
 import io.njlr.lockstep.network.session.ChannelBinding;
 import io.njlr.lockstep.network.session.ChannelCodes;
@@ -31,6 +40,10 @@ import io.njlr.lockstep.network.session.SessionSettings;
  *  - The execution of ticks
  *
  * All methods are non-blocking. 
+ * 
+ * Progress updates and actions from the network are handed to the tick thread through a <code>RingBuffer</code>, 
+ * so the tick thread never contends with the I/O threads for a lock. 
+ * When it has nothing to do, the tick thread waits according to a <code>WaitStrategy</code>. 
  *
  * @param <T> The sub-type of <code>Simulation</code>
  */
@@ -40,23 +53,149 @@ public final class SimulationManager<T extends Simulation> extends AbstractExecu
 	
 	public static final byte sequenceNumberUpdateMessageLeadingByte = (byte) 17;
 	public static final byte sequencedActionMessageLeadingByte = (byte) 98; 
+	public static final byte tickBundleMessageLeadingByte = (byte) 61; 
+	public static final byte actionBatchMessageLeadingByte = (byte) 29; 
+	public static final byte runAheadProposalMessageLeadingByte = (byte) 83; 
+	public static final byte tickPeriodProposalMessageLeadingByte = (byte) 47; 
+	public static final byte merkleProbeMessageLeadingByte = (byte) 71; 
+	public static final byte merkleReplyMessageLeadingByte = (byte) 72; 
+	public static final byte joinRequestMessageLeadingByte = (byte) 53; 
+	public static final byte admissionMessageLeadingByte = (byte) 54; 
+	public static final byte activationMessageLeadingByte = (byte) 55; 
+	public static final byte caughtUpMessageLeadingByte = (byte) 56; 
+	
+	/**
+	 * The channel that snapshots for late joiners are streamed on, so that they do not hold up the lockstep messages. 
+	 */
+	public static final byte snapshotChannelCode = ChannelCodes.ReliableOrdered2;
 	
-	private final Object lock = new Object();
+	/**
+	 * How many ticks apart an adaptive session reconsiders its run-ahead and tick period. 
+	 */
+	public static final int adaptationPeriod = 32;
+	
+	/**
+	 * How many inbound events may be waiting for the tick thread before their producers must wait. 
+	 */
+	public static final int inboundBufferSize = 1024;
 	
 	private final NetworkSession session;
 	private final SessionSettings settings;
 	private final ActionDecoder<T> decoder;
 	private final T simulation;
+	private final WaitStrategy waitStrategy;
+	
+	// The channel to each peer, in the same order as the peers
+	private final List<ChannelBinding> bindings;
+	
+	// The channels to the peers that take part in the session, which everything is broadcast to
+	private final List<ChannelBinding> recipients;
+	
+	// The snapshot channel to each peer, in the same order as the peers; empty unless peers may join late
+	private final List<ChannelBinding> snapshotBindings;
+	
+	// Peer i is participant i + 1 of the progress tree; we are participant 0
+	private final List<NetworkAddress> peers;
+	
+	// Events for the tick thread from the network and from submitAction
+	private final RingBuffer<InboundEvent<T>> inbound;
+	
+	// Only touched by the tick thread
+	private final ProgressTree progress;
+	private final ActionSchedule<T> schedule;
+	private final AdaptiveRunAhead runAhead;
+	
+	// Null if ticks are not paced
+	private final TickPacer pacer;
 	
-	private final Map<NetworkAddress, ChannelBinding> peerBindings;
-	private final Map<NetworkAddress, Integer> peerProgress;
+	// Null unless the tick period is adaptive
+	private final AdaptiveTickPeriod tickPeriod;
 	
-	private final List<SequencedAction<T>> actions;
+	// Null unless rolling back
+	private final RollbackHistory<?, T> history;
+	
+	// Submitted actions wait here for the tick thread to schedule them
+	private final Queue<SimulationAction<T>> submissions;
+	
+	// Null unless state hashes are exchanged
+	private final StateHashHistory stateHashes;
+	
+	private final List<DesyncListener> desyncListeners;
+	
+	// Null unless the simulation is a PartitionedSimulation; only touched by the tick thread
+	private final MerkleTree merkleTree;
+	private final IntConsumer partitionUpdater;
+	
+	// Null unless Merkle trees are compared with peers on a desync
+	private final DesyncLocator locator;
+	
+	// Null unless peers may join once the session is running; only touched by the tick thread
+	private final JoinCoordinator<T> join;
+	
+	// Only touched by the snapshot channel's lane
+	private final StateSnapshot.Assembler assembler;
+	
+	// The latest tick cost of each participant, in microseconds; only touched by the tick thread
+	private final int[] tickCosts;
+	
+	// Submitted actions waiting to go out in the next tick bundle
+	private final Queue<SequencedAction<T>> outbound;
+	
+	// Only touched by the tick thread
+	private final List<SequencedAction<T>> bundled;
+	
+	// How many actions we have submitted; orders our actions within a tick
+	private final AtomicInteger submissionCounter;
+	
+	private volatile Thread thread;
 	
 	private volatile boolean keepRunning;
 	
 	private volatile int sequenceNumber;
 	
+	// Maintained by the tick thread so that submitAction can read it without a lock
+	private volatile int lowestSequenceNumber;
+	private volatile int actionScheduleOffset;
+	
+	// Only touched by the tick thread; for adapting the run-ahead and tick period
+	private long tickCost;
+	private int ticksSinceAdaptation;
+	private int lastRunAheadProposal;
+	private int lastRunAheadProposalSequenceNumber;
+	private int lastTickPeriodProposal;
+	private int lastTickPeriodProposalSequenceNumber;
+	
+	// In microseconds
+	private volatile int slowestTickCost;
+	
+	// Only touched by the tick thread; the earliest tick to re-execute from, if any
+	private boolean isRollbackPending;
+	private int rollbackSequenceNumber;
+	
+	private volatile long rollbackCount;
+	private volatile long resimulatedTicks;
+	
+	// Only touched by the tick thread; our latest final state hash, until it is sent
+	private Optional<StateHash> unsentStateHash;
+	private int confirmedSequenceNumber;
+	
+	// Only touched by the tick thread; the start of the current stall, if stalled
+	private boolean isStalled;
+	private long stallStartTime;
+	
+	private volatile long stalledTime;
+	private volatile long stallCount;
+	
+	// Only touched by the tick thread; whether we are in a catch-up burst, and how many ticks since we reported progress
+	private boolean isCatchingUp;
+	private int unreportedTicks;
+	
+	private volatile long catchUpTime;
+	private volatile long catchUpCount;
+	
+	// Whether we may submit actions; not until we have joined
+	private volatile boolean isMember;
+	
 	/**
 	 * Creates a new <code>SimulationManager</code> instance. 
 	 * 
@@ -64,292 +203,2108 @@ public final class SimulationManager<T extends Simulation> extends AbstractExecu
 	 * @param settings The settings to use
 	 * @param decoder The decoder for received simulation actions
 	 * @param simulation The simulation to manage 
+	 * @param waitStrategy How the tick thread waits for peers
+	 */
+	public SimulationManager(final NetworkSession session, final SessionSettings settings, final ActionDecoder<T> decoder, final T simulation, final WaitStrategy waitStrategy) {
+		
+		super();
+		
+		Preconditions.checkNotNull(waitStrategy);
+		
+		this.session = session;
+		this.settings = settings;
+		this.decoder = decoder;
+		this.simulation = simulation;
+		this.waitStrategy = waitStrategy;
+		
+		bindings = new ArrayList<>();
+		recipients = new CopyOnWriteArrayList<>();
+		snapshotBindings = new ArrayList<>();
+		
+		peers = ImmutableList.copyOf(settings.peers());
+		
+		progress = new ProgressTree(peers.size() + 1, 0);
+		
+		runAhead = new AdaptiveRunAhead(settings.sequenceRunAhead(), settings.minimumRunAhead(), settings.maximumRunAhead(), 0);
+		
+		actionScheduleOffset = settings.isAdaptive() ? runAhead.actionScheduleOffset(0) : settings.actionScheduleOffset();
+		
+		lastRunAheadProposal = settings.sequenceRunAhead();
+		lastRunAheadProposalSequenceNumber = 0;
+		
+		// Actions arrive at most actionScheduleOffset ticks ahead of us
+		schedule = new ActionSchedule<>(
+				(settings.isAdaptive() ? settings.maximumRunAhead() * 2 + 2 : settings.actionScheduleOffset()) + 1, 0);
+		
+		// Unpaced ticks run as fast as peers allow, so any latency is worth the most run-ahead
+		Preconditions.checkArgument(!settings.isAdaptive() || settings.isPaced(), "An adaptive run-ahead requires paced ticks");
+		
+		pacer = settings.isPaced() ? new TickPacer(settings.tickPeriod(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS) : null;
+		
+		tickPeriod = settings.isTickPeriodAdaptive() ? 
+				new AdaptiveTickPeriod(settings.tickPeriod(TimeUnit.NANOSECONDS), settings.maximumTickPeriod(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS) : 
+				null;
+		
+		tickCosts = new int[peers.size() + 1];
+		
+		if (settings.rollback()) {
+			
+			Preconditions.checkArgument(simulation instanceof SnapshotSimulation, "Rollback requires a SnapshotSimulation");
+			
+			// We are never more than the run-ahead past the last confirmed tick
+			history = new RollbackHistory<>((SnapshotSimulation<?>) simulation, settings.maximumRunAhead() + 1, 0);
+		} else {
+			
+			history = null;
+		}
+		
+		submissions = new ConcurrentLinkedQueue<>();
+		
+		stateHashes = (settings.stateHashInterval() > 0) ? new StateHashHistory(peers.size() + 1) : null;
+		
+		desyncListeners = new CopyOnWriteArrayList<>();
+		
+		if (simulation instanceof PartitionedSimulation) {
+			
+			final PartitionedSimulation partitioned = (PartitionedSimulation) simulation;
+			
+			merkleTree = new MerkleTree(partitioned.partitionCount());
+			
+			partitionUpdater = x -> merkleTree.update(x, partitioned.partitionHash(x));
+			
+			rehashPartitions();
+		} else {
+			
+			merkleTree = null;
+			partitionUpdater = null;
+		}
+		
+		// With rollback, the tree is only up-to-date at confirmed ticks, so a desync is found but not localised
+		if (merkleTree != null && stateHashes != null && history == null) {
+			
+			locator = new DesyncLocator(merkleTree, peers.size() + 1, 0, new DesyncLocator.Handler() {
+				
+				@Override
+				public void reply(final int participant, final int sequenceNumber, final int[] nodes, final int[] hashes) {
+					
+					sendMerkleReply(participant, sequenceNumber, nodes, hashes);
+				}
+				
+				@Override
+				public void diverged(final int participant, final int sequenceNumber, final int partition) {
+					
+					onPartitionDesync(participant, sequenceNumber, partition);
+				}
+				
+				@Override
+				public void descend(final int participant, final int[] nodes) {
+					
+					probe(participant, nodes);
+				}
+			});
+		} else {
+			
+			locator = null;
+		}
+		
+		unsentStateHash = Optional.empty();
+		confirmedSequenceNumber = 0;
+		
+		lastTickPeriodProposal = (int) settings.tickPeriod(TimeUnit.MICROSECONDS);
+		lastTickPeriodProposalSequenceNumber = 0;
+		
+		final boolean isJoining = settings.joinHost().isPresent();
+		
+		if (isJoining || !settings.lateJoiners().isEmpty()) {
+			
+			Preconditions.checkArgument(simulation instanceof SerializableSimulation, "Late join requires a SerializableSimulation");
+			
+			// The run-ahead and tick period would have to be sent with the state, along with any scheduled changes
+			Preconditions.checkArgument(
+					!settings.rollback() && !settings.isAdaptive() && !settings.isTickPeriodAdaptive(), 
+					"Late join requires lockstep execution with a fixed run-ahead and tick period");
+			
+			join = new JoinCoordinator<>(peers, settings.lateJoiners(), settings.joinHost().orElse(null), settings.peerId(), 
+					settings.sequenceRunAhead(), (SerializableSimulation) simulation, schedule, progress, new JoinCoordinator.Handler<T>() {
+				
+				@Override
+				public int changeSequenceNumber() {
+					
+					return actionSequenceNumber();
+				}
+				
+				@Override
+				public void announce(final int changeSequenceNumber, final int participant, final Membership.Stage stage) {
+					
+					broadcastMembershipChange(changeSequenceNumber, participant, stage);
+				}
+				
+				@Override
+				public void admit(final int participant) {
+					
+					onAdmission(participant);
+				}
+				
+				@Override
+				public void forward(final int participant, final SequencedAction<T> action) {
+					
+					forwardAction(participant, action);
+				}
+				
+				@Override
+				public void sendSnapshot(final int participant, final StateSnapshot snapshot) {
+					
+					SimulationManager.this.sendSnapshot(participant, snapshot);
+				}
+				
+				@Override
+				public void activated(final int participant) {
+					
+					onActivation(participant);
+				}
+				
+				@Override
+				public void caughtUp(final int host) {
+					
+					sendCaughtUp(host);
+				}
+			});
+			
+			assembler = new StateSnapshot.Assembler();
+		} else {
+			
+			join = null;
+			assembler = null;
+		}
+		
+		isMember = !isJoining;
+		
+		inbound = new RingBuffer<>(inboundBufferSize, InboundEvent::new);
+		
+		outbound = new ConcurrentLinkedQueue<>();
+		bundled = new ArrayList<>();
+		
+		submissionCounter = new AtomicInteger(0);
+	}
+	
+	/**
+	 * Creates a new <code>SimulationManager</code> instance that blocks while waiting for peers. 
+	 * 
+	 * @param session The network session to communicate via
+	 * @param settings The settings to use
+	 * @param decoder The decoder for received simulation actions
+	 * @param simulation The simulation to manage 
 	 */
 	public SimulationManager(final NetworkSession session, final SessionSettings settings, final ActionDecoder<T> decoder, final T simulation) {
 		
-		super();
+		this(session, settings, decoder, simulation, new BlockingWaitStrategy());
+	}
+
+	/**
+	 * The total time the tick thread has spent with a tick due, but unable to run it until a peer caught up. 
+	 * 
+	 * This is safe to call from any thread. 
+	 * 
+	 * @param unit The unit to express the result in
+	 * @return The time spent stalled on peers
+	 */
+	public long stalledTime(final TimeUnit unit) {
+		
+		return unit.convert(stalledTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * How many times the tick thread has stalled on peers. 
+	 * 
+	 * This is safe to call from any thread. 
+	 * 
+	 * @return The number of stalls
+	 */
+	public long stallCount() {
+		
+		return stallCount;
+	}
+
+	/**
+	 * How long the tick thread has spent catching up in bursts, in total. 
+	 * 
+	 * This is safe to call from any thread. 
+	 * 
+	 * @param unit The unit to express the result in
+	 * @return The time spent catching up
+	 */
+	public long catchUpTime(final TimeUnit unit) {
+		
+		return unit.convert(catchUpTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * How many times the tick thread has caught up in a burst. 
+	 * 
+	 * This is safe to call from any thread. 
+	 * 
+	 * @return The number of bursts
+	 */
+	public long catchUpCount() {
+		
+		return catchUpCount;
+	}
+
+	/**
+	 * How long the slowest peer's ticks take, on average, as last reported. 
+	 * 
+	 * This is safe to call from any thread. 
+	 * 
+	 * @param unit The unit to express the result in
+	 * @return The slowest tick cost
+	 */
+	public long slowestTickCost(final TimeUnit unit) {
+		
+		return unit.convert(slowestTickCost, TimeUnit.MICROSECONDS);
+	}
+
+	/**
+	 * How many times ticks have been rolled back and re-executed because of a late action. 
+	 * 
+	 * This is safe to call from any thread. 
+	 * 
+	 * @return The number of rollbacks
+	 */
+	public long rollbackCount() {
+		
+		return rollbackCount;
+	}
+
+	/**
+	 * How many ticks have been re-executed in total by rollbacks. 
+	 * 
+	 * This is safe to call from any thread. 
+	 * 
+	 * @return The number of ticks
+	 */
+	public long resimulatedTicks() {
+		
+		return resimulatedTicks;
+	}
+
+	/**
+	 * Whether we take part in the session, and so may submit actions. 
+	 * 
+	 * A late joiner is not a member until it has been sent the state and has caught up with its peers. 
+	 * 
+	 * This is safe to call from any thread. 
+	 * 
+	 * @return If we are a member
+	 */
+	public boolean isMember() {
+		
+		return isMember;
+	}
+
+	/**
+	 * Adds a listener to be told when a peer's state hash differs from ours. 
+	 * 
+	 * State hashes are only exchanged if the settings give a state hash interval. 
+	 * 
+	 * @param listener The listener to add
+	 */
+	public void addDesyncListener(final DesyncListener listener) {
+		
+		desyncListeners.add(Preconditions.checkNotNull(listener));
+	}
+
+	/**
+	 * Removes a listener added by <code>addDesyncListener</code>. 
+	 * 
+	 * @param listener The listener to remove
+	 */
+	public void removeDesyncListener(final DesyncListener listener) {
+		
+		desyncListeners.remove(listener);
+	}
+
+	/**
+	 * Submit an action to be performed on the simulation. 
+	 * 
+	 * The action will be automatically scheduled across peers. 
+	 * 
+	 * @param action The action to perform
+	 */
+	public void submitAction(final SimulationAction<T> action) {
+		
+		if (!keepRunning) {
+			
+			return;
+		}
+		
+		if (!isMember) {
+			
+			logger.warning("@" + sequenceNumber + ": Dropping " + action + "; we have not joined the session yet");
+			
+			return;
+		}
+		
+		// The tick thread picks its tick, before it next reports our progress
+		submissions.add(action);
+		
+		waitStrategy.signal(thread);
+	}
+	
+	/**
+	 * Submit a batch of actions to be performed on the simulation, in the order given. 
+	 * 
+	 * The actions are all scheduled for the same sequence number and are sent to peers as one message. 
+	 * 
+	 * @param actions The actions to perform
+	 */
+	public void submitActions(final Collection<? extends SimulationAction<T>> actions) {
+		
+		Preconditions.checkNotNull(actions);
+		
+		if (!keepRunning || actions.isEmpty()) {
+			
+			return;
+		}
+		
+		if (!isMember) {
+			
+			logger.warning("@" + sequenceNumber + ": Dropping " + actions.size() + " actions; we have not joined the session yet");
+			
+			return;
+		}
+		
+		final List<SimulationAction<T>> batch = ImmutableList.copyOf(actions);
+		
+		// The tick thread picks their tick, and keeps them together
+		submissions.addAll(batch);
+		
+		waitStrategy.signal(thread);
+	}
+
+	@Override
+	protected void startUp() throws Exception {
+		
+		super.startUp();
+		
+		thread = Thread.currentThread();
+		
+		// Open a channel to each peer
+		for (int i = 0; i < peers.size(); i++) {
+			
+			final NetworkAddress peer = peers.get(i);
+			final int participant = i + 1;
+			
+			final ChannelBinding binding = new ChannelBinding(peer, ChannelCodes.ReliableOrdered1);
+			final ChannelListener listener = (final Bytes message) -> { onMessageReceived(binding, participant, message); };
+			
+			session.connect(binding, FragmentationChannelDecorator.factory(SelectiveRepeatChannel::create), listener);
+			
+			bindings.add(binding);
+			
+			if (join != null) {
+				
+				// Chunks are already small enough for a datagram
+				final ChannelBinding snapshotBinding = new ChannelBinding(peer, snapshotChannelCode);
+				
+				session.connect(snapshotBinding, SelectiveRepeatChannel::create, (final Bytes message) -> { onSnapshotMessage(participant, message); });
+				
+				snapshotBindings.add(snapshotBinding);
+			}
+			
+			if (join == null || join.stage(participant) == Membership.Stage.Active) {
+				
+				recipients.add(binding);
+			}
+		}
+		
+		// Mark the service as running
+		keepRunning = true;
+		
+		if (join != null && join.host() > 0) {
+			
+			logger.info("Asking " + peers.get(join.host() - 1) + " to join the session");
+			
+			session.send(bindings.get(join.host() - 1), Bytes.of(joinRequestMessageLeadingByte));
+			
+			session.flush();
+		}
+		
+		logger.info("Started");
+	}
+	
+	@Override
+	protected void run() throws Exception {
+		
+		int idleCount = 0;
+		
+		if (pacer != null) {
+			
+			pacer.start(System.nanoTime());
+		}
+		
+		while (keepRunning) {
+			
+			// Take in everything that has arrived since the last tick
+			final int received = inbound.drain(this::onEvent);
+			
+			if (join != null) {
+				
+				// A change for the tick we have reached, but not yet executed, is not too late
+				join.reach(sequenceNumber);
+			}
+			
+			// Before confirming, which would forget the ticks to roll back to
+			if (isRollbackPending) {
+				
+				rollback();
+			}
+			
+			scheduleSubmissions();
+			
+			updateLowestSequenceNumber();
+			
+			if (pacer != null) {
+				
+				pacer.advance(System.nanoTime(), sequenceNumber - lowestSequenceNumber, runAhead.runAhead());
+			}
+			
+			// While joining, catch up as fast as peers allow
+			final boolean isDue = (pacer == null) || !isMember || pacer.isDue();
+			
+			final boolean isWaitingForSnapshot = (join != null) && join.isWaitingForSnapshot();
+			
+			if (isDue && !isWaitingForSnapshot && Sequence32.isMoreRecent(targetSequenceNumber(), sequenceNumber)) {
+				
+				if (isStalled) {
+					
+					endStall();
+				}
+				
+				if (isFarBehind()) {
+					
+					catchUp();
+				} else {
+					
+					tick();
+					
+					if (pacer != null && isMember) {
+						
+						pacer.ticked();
+					}
+				}
+				
+				idleCount = 0;
+			} else if (received > 0 || inbound.isAvailable() || !submissions.isEmpty()) {
+				
+				idleCount = 0;
+			} else if (!outbound.isEmpty()) {
+				
+				// Do not hold submitted actions back while we wait for peers
+				sendBundle();
+				
+				idleCount = 0;
+			} else if (!isDue) {
+				
+				// Wait for the next tick to come due; a producer may wake us sooner
+				waitStrategy.idleFor(pacer.timeUntilDue(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+			} else {
+				
+				if (join != null) {
+					
+					// There are no more ticks to catch up on
+					join.onIdle();
+				}
+				
+				if (!isStalled && !isWaitingForSnapshot) {
+					
+					isStalled = true;
+					stallStartTime = System.nanoTime();
+				}
+				
+				// Wait for a peer to make progress
+				waitStrategy.idle(idleCount);
+				
+				if (idleCount < Integer.MAX_VALUE) {
+					
+					idleCount++;
+				}
+			}
+		}
+	}
+	
+	@Override
+	protected void triggerShutdown() {
+		
+		super.triggerShutdown();
+		
+		logger.info("Shutdown triggered");
+		
+		keepRunning = false;
+		
+		// Whatever the wait strategy, do not leave the tick thread parked
+		final Thread t = thread;
+		
+		if (t != null) {
+			
+			LockSupport.unpark(t);
+		}
+	}
+	
+	@Override
+	protected void shutDown() throws Exception {
+		
+		super.shutDown();
+		
+		schedule.clear();
+		outbound.clear();
+		runAhead.clear();
+		submissions.clear();
+		
+		if (history != null) {
+			
+			history.clear();
+		}
+		
+		if (tickPeriod != null) {
+			
+			tickPeriod.clear();
+		}
+		
+		if (locator != null) {
+			
+			locator.clear();
+		}
+		
+		if (join != null) {
+			
+			join.clear();
+		}
+	}
+
+	private void endStall() {
+		
+		final long stall = System.nanoTime() - stallStartTime;
+		
+		isStalled = false;
+		
+		// Only the tick thread writes these
+		stalledTime += stall;
+		stallCount++;
+		
+		logger.finer("@" + sequenceNumber + ": Stalled on peers for " + stall + "ns");
+	}
+
+	/**
+	 * Whether an active peer has reported progress far enough ahead of ours to catch up in a burst. 
+	 * 
+	 * Peers that wait for us can only get the run-ahead ahead; a late joiner can be much further behind. 
+	 * 
+	 * @return If we should catch up
+	 */
+	private boolean isFarBehind() {
+		
+		final int threshold = settings.catchUpThreshold();
+		
+		if (threshold == 0) {
+			
+			return false;
+		}
+		
+		for (int i = 1; i <= peers.size(); i++) {
+			
+			if (progress.isActive(i) && progress.get(i) - sequenceNumber >= threshold) {
+				
+				return true;
+			}
+		}
+		
+		return false;
+	}
+
+	/**
+	 * Runs ticks back-to-back for as long as peers allow, reporting our progress only every so often. 
+	 * 
+	 * What has arrived is taken in after every tick, as in the main loop, so that peers' progress 
+	 * extends the burst and the inbound buffer does not fill up behind it. 
+	 * Paced ticks still wait until they are due, and a rollback ends the burst. 
+	 */
+	private void catchUp() {
+		
+		final int startSequenceNumber = sequenceNumber;
+		final long startTime = System.nanoTime();
+		
+		isCatchingUp = true;
+		unreportedTicks = 0;
+		
+		do {
+			
+			tick();
+			
+			if (pacer != null && isMember) {
+				
+				pacer.ticked();
+				
+				if (!pacer.isDue()) {
+					
+					break;
+				}
+			}
+			
+			inbound.drain(this::onEvent);
+			
+			if (join != null) {
+				
+				join.reach(sequenceNumber);
+			}
+			
+			if (isRollbackPending) {
+				
+				// Before confirming any further
+				break;
+			}
+			
+			// Our own progress may have been holding back the target
+			updateLowestSequenceNumber();
+		} while (keepRunning && Sequence32.isMoreRecent(targetSequenceNumber(), sequenceNumber));
+		
+		isCatchingUp = false;
+		
+		if (unreportedTicks > 0) {
+			
+			reportProgress();
+		}
+		
+		final long duration = System.nanoTime() - startTime;
+		
+		// Only the tick thread writes these
+		catchUpTime += duration;
+		catchUpCount++;
+		
+		logger.fine("@" + sequenceNumber + ": Caught up " + (sequenceNumber - startSequenceNumber) + " ticks in " + 
+				TimeUnit.NANOSECONDS.toMicros(duration) + "us");
+	}
+
+	/**
+	 * Schedules the actions submitted since the last call and sends them to peers: 
+	 * for the next tick with rollback, or <code>actionScheduleOffset</code> ticks past the slowest peer without. 
+	 * 
+	 * This must happen on the tick thread: peers treat our progress as a promise 
+	 * that we have sent every action for the ticks it lets them execute, 
+	 * so a tick picked on another thread could be overtaken by a progress report before the action is sent. 
+	 */
+	private void scheduleSubmissions() {
+		
+		if (submissions.isEmpty()) {
+			
+			return;
+		}
+		
+		final List<SimulationAction<T>> batch = new ArrayList<>();
+		
+		for (SimulationAction<T> action = submissions.poll(); action != null; action = submissions.poll()) {
+			
+			batch.add(action);
+		}
+		
+		final int actionSequenceNumber = (history != null) ? sequenceNumber : actionSequenceNumber();
+		
+		final int firstCounter = submissionCounter.getAndAdd(batch.size());
+		
+		logger.fine("@" + sequenceNumber + ": Submitting " + batch.size() + " actions for " + actionSequenceNumber);
+		
+		for (int i = 0; i < batch.size(); i++) {
+			
+			final SequencedAction<T> sequencedAction = new SequencedAction<>(
+					actionSequenceNumber, settings.peerId(), firstCounter + i, batch.get(i));
+			
+			schedule.add(sequencedAction);
+			
+			if (settings.tickBundles()) {
+				
+				outbound.add(sequencedAction);
+			}
+		}
+		
+		if (settings.tickBundles()) {
+			
+			// They go out with our progress
+			return;
+		}
+		
+		final Bytes message = ActionBatch.encode(
+				actionBatchMessageLeadingByte, actionSequenceNumber, settings.peerId(), firstCounter, batch);
+		
+		// Flushed along with the next tick's progress
+		broadcast(message);
+	}
+
+	/**
+	 * Restores the simulation to before the earliest tick that a late action was for, 
+	 * then re-executes every tick since with the actions now known. 
+	 */
+	private void rollback() {
+		
+		isRollbackPending = false;
+		
+		logger.fine("@" + sequenceNumber + ": Rolling back to " + rollbackSequenceNumber);
+		
+		history.restore(rollbackSequenceNumber);
+		
+		int count = 0;
+		
+		for (int i = rollbackSequenceNumber; i != sequenceNumber; i = Sequence32.next(i)) {
+			
+			if (i != rollbackSequenceNumber) {
+				
+				// The state before this tick has changed
+				history.resnapshot(i);
+			}
+			
+			execute(history.actions(i));
+			
+			simulation.tick();
+			
+			if (isStateHashTick(Sequence32.next(i))) {
+				
+				stateHashes.recordProvisional(Sequence32.next(i), stateHash());
+			}
+			
+			count++;
+		}
+		
+		// Only the tick thread writes these
+		rollbackCount++;
+		resimulatedTicks += count;
+	}
+
+	/**
+	 * Executes a tick's actions on the simulation. 
+	 * 
+	 * @param tickActions The actions, in execution order
+	 */
+	private void execute(final List<SequencedAction<T>> tickActions) {
+		
+		// Execute each sequentially
+		for (int i = 0; i < tickActions.size(); i++) {
+			
+			final SimulationAction<T> action = tickActions.get(i).action();
+			
+			if (!isCatchingUp) {
+				
+				logger.fine("@" + sequenceNumber + ": Executing" + action);
+			}
+			
+			action.execute(simulation);
+		}
+	}
+
+	/**
+	 * Executes the actions for the current sequence number, ticks the simulation and reports our progress. 
+	 * 
+	 * While catching up, progress is only reported every <code>catchUpProgressInterval</code> ticks. 
+	 */
+	private void tick() {
+		
+		runAhead.tick(sequenceNumber);
+		
+		if (tickPeriod != null && tickPeriod.tick(sequenceNumber)) {
+			
+			logger.fine("@" + sequenceNumber + ": Tick period is now " + tickPeriod.period(TimeUnit.MICROSECONDS) + "us");
+			
+			pacer.setPeriod(tickPeriod.period(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+		}
+		
+		final long startTime = System.nanoTime();
+		
+		// Already in the same order on every peer
+		final List<SequencedAction<T>> tickActions = schedule.due();
+		
+		if (history != null) {
+			
+			// In case an action for this tick arrives after it
+			history.record(sequenceNumber, tickActions);
+		}
+		
+		execute(tickActions);
+		
+		schedule.advance();
+		
+		// Tick the simulation
+		simulation.tick();
+		
+		final long endTime = System.nanoTime();
+		
+		// Update our sequence number
+		sequenceNumber = Sequence32.next(sequenceNumber);
+		
+		progress.update(0, sequenceNumber);
+		
+		if (!isCatchingUp) {
+			
+			logger.finer("@" + sequenceNumber + ": Updated sequence number");
+		}
+		
+		if (join != null) {
+			
+			// Before our progress goes out, so that a new member hears about this tick
+			join.reach(sequenceNumber);
+		}
+		
+		if (locator != null) {
+			
+			updateMerkleTree();
+			
+			// Take our side of any probes for this tick
+			locator.reach(sequenceNumber);
+		}
+		
+		if (isStateHashTick(sequenceNumber)) {
+			
+			if (history == null) {
+				
+				onStateHash(sequenceNumber, stateHash());
+			} else {
+				
+				// Final once every peer has passed this tick
+				stateHashes.recordProvisional(sequenceNumber, stateHash());
+			}
+		}
+		
+		measureTick(startTime, endTime);
+		
+		if (isCatchingUp) {
+			
+			unreportedTicks++;
+			
+			// A state hash must go out before the next replaces it
+			if (unreportedTicks < settings.catchUpProgressInterval() && !unsentStateHash.isPresent()) {
+				
+				return;
+			}
+			
+			unreportedTicks = 0;
+		}
+		
+		reportProgress();
+	}
+
+	/**
+	 * Sends our progress to peers, along with any actions and state hash waiting to go out. 
+	 */
+	private void reportProgress() {
+		
+		if (settings.tickBundles()) {
+			
+			sendBundle();
+			
+			return;
+		}
+		
+		// Notify all peers of our progress
+		final BytesBuilder builder = new BytesBuilder(17)
+				.append(sequenceNumberUpdateMessageLeadingByte)
+				.appendInt(sequenceNumber)
+				.appendInt(tickCosts[0]);
+		
+		if (unsentStateHash.isPresent()) {
+			
+			builder.appendInt(unsentStateHash.get().sequenceNumber()).appendInt(unsentStateHash.get().hash());
+			
+			unsentStateHash = Optional.empty();
+		}
+		
+		final Bytes message = builder.toBytes();
+		
+		broadcast(message);
+		
+		// The whole tick's worth of messages is out; there is nothing left to coalesce with
+		session.flush();
+	}
+	
+	/**
+	 * Whether our state hash is exchanged with peers on reaching a tick. 
+	 * 
+	 * @param reachedSequenceNumber The tick reached
+	 * @return If the state should be hashed
+	 */
+	private boolean isStateHashTick(final int reachedSequenceNumber) {
+		
+		return (stateHashes != null) && (Integer.remainderUnsigned(reachedSequenceNumber, settings.stateHashInterval()) == 0);
+	}
+
+	/**
+	 * Our state hash; the root of the Merkle tree if the simulation is partitioned. 
+	 * 
+	 * @return The state hash
+	 */
+	private int stateHash() {
+		
+		if (merkleTree == null) {
+			
+			return simulation.stateHash();
+		}
+		
+		updateMerkleTree();
+		
+		return merkleTree.root();
+	}
+
+	/**
+	 * Re-hashes every partition, e.g. when the whole state has been replaced. 
+	 */
+	private void rehashPartitions() {
+		
+		final PartitionedSimulation partitioned = (PartitionedSimulation) simulation;
+		
+		for (int i = 0; i < partitioned.partitionCount(); i++) {
+			
+			merkleTree.update(i, partitioned.partitionHash(i));
+		}
+		
+		// Every partition is hashed already
+		partitioned.drainDirtyPartitions(x -> {});
+	}
+
+	/**
+	 * Re-hashes the partitions changed since the last update. 
+	 */
+	private void updateMerkleTree() {
+		
+		((PartitionedSimulation) simulation).drainDirtyPartitions(partitionUpdater);
+	}
+
+	/**
+	 * Compares our final state hash for a tick with those from peers and sends it with our next progress update. 
+	 * 
+	 * @param hashSequenceNumber The tick
+	 * @param hash Our state hash on reaching it
+	 */
+	private void onStateHash(final int hashSequenceNumber, final int hash) {
+		
+		stateHashes.record(0, hashSequenceNumber, hash);
+		
+		for (int i = 1; i <= peers.size(); i++) {
+			
+			checkStateHash(i, hashSequenceNumber);
+		}
+		
+		unsentStateHash = Optional.of(new StateHash(hashSequenceNumber, hash));
+	}
+
+	/**
+	 * Tells the desync listeners if a peer's state hash for a tick is known and differs from ours. 
+	 * 
+	 * @param participant The peer's index in the progress tree
+	 * @param hashSequenceNumber The tick
+	 */
+	private void checkStateHash(final int participant, final int hashSequenceNumber) {
+		
+		if (!stateHashes.isDesynced(participant, hashSequenceNumber)) {
+			
+			return;
+		}
+		
+		final NetworkAddress peer = peers.get(participant - 1);
+		
+		final int localHash = stateHashes.hash(0, hashSequenceNumber);
+		final int remoteHash = stateHashes.hash(participant, hashSequenceNumber);
+		
+		logger.severe("@" + sequenceNumber + ": Desync with " + peer + " at " + hashSequenceNumber + 
+				"; our state hash is " + localHash + ", theirs is " + remoteHash);
+		
+		for (final DesyncListener listener : desyncListeners) {
+			
+			listener.onDesync(hashSequenceNumber, peer, localHash, remoteHash);
+		}
+		
+		if (locator != null && !locator.isProbing(participant)) {
+			
+			// The states are compared again at a later tick, by which time the divergence has usually persisted
+			probe(participant, new int[] { 1 });
+		}
+	}
+
+	/**
+	 * Asks a peer for its hashes of some Merkle tree nodes, to be compared with ours on reaching the action tick. 
+	 * 
+	 * @param participant The peer's index in the progress tree
+	 * @param nodes The nodes to compare
+	 */
+	private void probe(final int participant, final int[] nodes) {
+		
+		final int probeSequenceNumber = actionSequenceNumber();
+		
+		locator.probe(participant, probeSequenceNumber, nodes);
+		
+		final BytesBuilder builder = new BytesBuilder(9 + nodes.length * 4)
+				.append(merkleProbeMessageLeadingByte)
+				.appendInt(probeSequenceNumber)
+				.appendInt(nodes.length);
+		
+		for (final int node : nodes) {
+			
+			builder.appendInt(node);
+		}
+		
+		session.send(bindings.get(participant - 1), builder.toBytes());
+		
+		session.flush();
+	}
+
+	/**
+	 * Sends a peer our hashes of the Merkle tree nodes it asked for. 
+	 * 
+	 * @param participant The peer's index in the progress tree
+	 * @param probeSequenceNumber The tick the hashes are for
+	 * @param nodes The nodes
+	 * @param hashes Our hashes of the nodes
+	 */
+	private void sendMerkleReply(final int participant, final int probeSequenceNumber, final int[] nodes, final int[] hashes) {
+		
+		final BytesBuilder builder = new BytesBuilder(9 + nodes.length * 8)
+				.append(merkleReplyMessageLeadingByte)
+				.appendInt(probeSequenceNumber)
+				.appendInt(nodes.length);
+		
+		for (int i = 0; i < nodes.length; i++) {
+			
+			builder.appendInt(nodes[i]).appendInt(hashes[i]);
+		}
+		
+		session.send(bindings.get(participant - 1), builder.toBytes());
+		
+		session.flush();
+	}
+
+	/**
+	 * Tells the desync listeners which partition differs from a peer's. 
+	 * 
+	 * @param participant The peer's index in the progress tree
+	 * @param probeSequenceNumber The tick the partitions were compared at
+	 * @param partition The partition
+	 */
+	private void onPartitionDesync(final int participant, final int probeSequenceNumber, final int partition) {
+		
+		final NetworkAddress peer = peers.get(participant - 1);
+		
+		logger.severe("@" + sequenceNumber + ": Partition " + partition + " differs from " + peer + "'s at " + probeSequenceNumber);
+		
+		for (final DesyncListener listener : desyncListeners) {
+			
+			listener.onPartitionDesync(probeSequenceNumber, peer, partition);
+		}
+	}
+
+	/**
+	 * Starts broadcasting to a peer that is being admitted to the session. 
+	 * 
+	 * @param participant The peer
+	 */
+	private void onAdmission(final int participant) {
+		
+		logger.info("@" + sequenceNumber + ": Admitting " + peers.get(participant - 1));
+		
+		// Submissions still queued are scheduled later on this thread, and so are broadcast to it too
+		recipients.add(bindings.get(participant - 1));
+	}
+
+	/**
+	 * Sends a new recipient one of our actions for a tick it has yet to execute. 
+	 * 
+	 * @param participant The new recipient
+	 * @param action The action
+	 */
+	private void forwardAction(final int participant, final SequencedAction<T> action) {
+		
+		// Those still waiting for a tick bundle go out with it
+		if (outbound.contains(action)) {
+			
+			return;
+		}
+		
+		final ChannelBinding binding = bindings.get(participant - 1);
+		
+		logger.finer("@" + sequenceNumber + ": Forwarding " + action + " to " + binding.remoteAddress());
+		
+		final Bytes message = new BytesBuilder()
+				.append(sequencedActionMessageLeadingByte)
+				.append(action.encode())
+				.toBytes();
+		
+		session.send(binding, message);
+	}
+
+	/**
+	 * Streams the state to a peer whose join we are hosting. 
+	 * 
+	 * The chunks are queued on the snapshot channel, which sends them a window at a time while we carry on ticking. 
+	 * 
+	 * @param participant The joining peer
+	 * @param snapshot The state
+	 */
+	private void sendSnapshot(final int participant, final StateSnapshot snapshot) {
+		
+		final List<Bytes> messages = snapshot.encode();
+		
+		for (final Bytes message : messages) {
+			
+			session.send(snapshotBindings.get(participant - 1), message);
+		}
+		
+		session.flush();
+		
+		logger.info("@" + sequenceNumber + ": Sending " + peers.get(participant - 1) + " " + 
+				snapshot.state().length() + " bytes of state in " + (messages.size() - 1) + " chunks");
+	}
+
+	/**
+	 * Takes a participant's activation, on reaching its tick. 
+	 * 
+	 * @param participant The participant; zero if it is us
+	 */
+	private void onActivation(final int participant) {
+		
+		if (participant > 0) {
+			
+			logger.info("@" + sequenceNumber + ": " + peers.get(participant - 1) + " has joined the session");
+			
+			return;
+		}
+		
+		isMember = true;
+		
+		if (pacer != null) {
+			
+			// Paced from here on
+			pacer.start(System.nanoTime());
+		}
+		
+		logger.info("@" + sequenceNumber + ": Joined the session");
+	}
+
+	/**
+	 * Tells the peers taking part in the session about a membership change, in the same way as an action. 
+	 * 
+	 * @param changeSequenceNumber The tick to make the change on reaching
+	 * @param participant The peer that the change is for
+	 * @param stage The stage it moves to
+	 */
+	private void broadcastMembershipChange(final int changeSequenceNumber, final int participant, final Membership.Stage stage) {
+		
+		final boolean isAdmission = (stage == Membership.Stage.Admitted);
+		
+		logger.info("@" + sequenceNumber + ": " + peers.get(participant - 1) + " will be " + 
+				(isAdmission ? "admitted" : "activated") + " at " + changeSequenceNumber);
+		
+		final Bytes message = new BytesBuilder()
+				.append(isAdmission ? admissionMessageLeadingByte : activationMessageLeadingByte)
+				.appendInt(changeSequenceNumber)
+				.append(peers.get(participant - 1).encode())
+				.toBytes();
+		
+		broadcast(message);
+		
+		session.flush();
+	}
+
+	/**
+	 * Tells the host that we have caught up with the session and are ready to be waited for. 
+	 * 
+	 * @param host The host
+	 */
+	private void sendCaughtUp(final int host) {
+		
+		logger.info("@" + sequenceNumber + ": Caught up with the session");
+		
+		session.send(bindings.get(host - 1), Bytes.of(caughtUpMessageLeadingByte));
+		
+		session.flush();
+	}
+
+	/**
+	 * Takes on the state from the host and carries on from its tick, with the actions that arrived meanwhile. 
+	 * 
+	 * @param snapshot The snapshot
+	 */
+	private void restore(final StateSnapshot snapshot) {
+		
+		if (join == null || !join.isWaitingForSnapshot()) {
+			
+			logger.warning("@" + sequenceNumber + ": Ignoring an unexpected snapshot");
+			
+			return;
+		}
+		
+		for (final NetworkAddress member : snapshot.members()) {
+			
+			if (!peers.contains(member)) {
+				
+				logger.warning("@" + sequenceNumber + ": " + member + " is in the session, but is not one of our peers");
+			}
+		}
+		
+		join.restore(snapshot);
+		
+		sequenceNumber = snapshot.sequenceNumber();
+		
+		for (int i = 1; i <= peers.size(); i++) {
+			
+			if (join.stage(i) == Membership.Stage.Active) {
+				
+				recipients.add(bindings.get(i - 1));
+			}
+		}
+		
+		if (merkleTree != null) {
+			
+			rehashPartitions();
+		}
+		
+		if (pacer != null) {
+			
+			pacer.start(System.nanoTime());
+		}
+		
+		logger.info("@" + sequenceNumber + ": Restored " + snapshot.state().length() + " bytes of state with " + schedule.size() + " actions pending");
+	}
+
+	/**
+	 * Tracks how long ticks take and, every <code>adaptationPeriod</code> ticks, proposes changes to the session. 
+	 * 
+	 * @param startTime When the tick started
+	 * @param now When the tick finished
+	 */
+	private void measureTick(final long startTime, final long now) {
+		
+		// Smoothed in the same way as the round-trip time
+		tickCost = (tickCost == 0L) ? now - startTime : tickCost + (now - startTime - tickCost) / 8;
+		
+		tickCosts[0] = (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMicros(tickCost));
+		
+		ticksSinceAdaptation++;
+		
+		if (ticksSinceAdaptation >= adaptationPeriod) {
+			
+			ticksSinceAdaptation = 0;
+			
+			int slowest = 0;
+			
+			for (final int i : tickCosts) {
+				
+				slowest = Math.max(slowest, i);
+			}
+			
+			slowestTickCost = slowest;
+			
+			if (settings.isAdaptive()) {
+				
+				proposeRunAhead();
+			}
+			
+			if (tickPeriod != null) {
+				
+				proposeTickPeriod(slowest);
+			}
+		}
+	}
+
+	/**
+	 * Proposes the run-ahead that would hide the latency to the furthest peer, if it has changed. 
+	 */
+	private void proposeRunAhead() {
+		
+		long oneWayLatency = 0L;
+		
+		for (final ChannelBinding binding : bindings) {
+			
+			final Optional<RoundTripEstimate> estimate = session.roundTripEstimate(binding);
+			
+			if (estimate.isPresent()) {
+				
+				final long roundTripTime = estimate.get().smoothedRoundTripTime(TimeUnit.NANOSECONDS) + 
+						estimate.get().roundTripTimeVariation(TimeUnit.NANOSECONDS) * 4;
+				
+				oneWayLatency = Math.max(oneWayLatency, roundTripTime / 2);
+			}
+		}
+		
+		// Paced ticks take the period, however fast the simulation is
+		final int proposal = AdaptiveRunAhead.desiredRunAhead(
+				oneWayLatency, pacer.period(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS, settings.minimumRunAhead(), settings.maximumRunAhead());
+		
+		if (proposal == lastRunAheadProposal) {
+			
+			return;
+		}
+		
+		final int proposalSequenceNumber = proposalSequenceNumber(lastRunAheadProposalSequenceNumber);
+		
+		lastRunAheadProposal = proposal;
+		lastRunAheadProposalSequenceNumber = proposalSequenceNumber;
+		
+		logger.fine("@" + sequenceNumber + ": Proposing a run-ahead of " + proposal + " for " + proposalSequenceNumber);
+		
+		runAhead.schedule(proposalSequenceNumber, settings.peerId(), proposal);
+		
+		final Bytes message = new BytesBuilder(13)
+				.append(runAheadProposalMessageLeadingByte)
+				.appendInt(proposalSequenceNumber)
+				.appendInt(settings.peerId())
+				.appendInt(proposal)
+				.toBytes();
+		
+		broadcast(message);
+	}
+
+	/**
+	 * Proposes the tick period that leaves enough time for the slowest peer's ticks, if it has changed enough. 
+	 * 
+	 * @param slowest The slowest tick cost, in microseconds
+	 */
+	private void proposeTickPeriod(final int slowest) {
+		
+		final int minimum = (int) settings.tickPeriod(TimeUnit.MICROSECONDS);
+		
+		final int proposal = AdaptiveTickPeriod.desiredPeriod(
+				slowest, TimeUnit.MICROSECONDS, minimum, (int) settings.maximumTickPeriod(TimeUnit.MICROSECONDS));
+		
+		if (!AdaptiveTickPeriod.isSignificant(lastTickPeriodProposal, proposal, minimum)) {
+			
+			return;
+		}
+		
+		final int proposalSequenceNumber = proposalSequenceNumber(lastTickPeriodProposalSequenceNumber);
+		
+		lastTickPeriodProposal = proposal;
+		lastTickPeriodProposalSequenceNumber = proposalSequenceNumber;
+		
+		logger.fine("@" + sequenceNumber + ": Proposing a tick period of " + proposal + "us for " + proposalSequenceNumber);
+		
+		tickPeriod.schedule(proposalSequenceNumber, settings.peerId(), proposal);
+		
+		final Bytes message = new BytesBuilder(13)
+				.append(tickPeriodProposalMessageLeadingByte)
+				.appendInt(proposalSequenceNumber)
+				.appendInt(settings.peerId())
+				.appendInt(proposal)
+				.toBytes();
+		
+		broadcast(message);
+	}
+
+	/**
+	 * The tick to schedule a proposal for, so that it reaches every peer in time. 
+	 * 
+	 * @param lastProposalSequenceNumber The tick of our previous proposal of the same kind
+	 * @return The sequence number
+	 */
+	private int proposalSequenceNumber(final int lastProposalSequenceNumber) {
+		
+		final int proposalSequenceNumber = actionSequenceNumber();
+		
+		// Our proposals must take effect in the order they were made
+		return Sequence32.isMoreRecent(proposalSequenceNumber, lastProposalSequenceNumber) ? 
+				proposalSequenceNumber : 
+				Sequence32.next(lastProposalSequenceNumber);
+	}
+
+	/**
+	 * Sends our progress and every action submitted since the last bundle to all peers as one message. 
+	 */
+	private void sendBundle() {
+		
+		for (SequencedAction<T> action = outbound.poll(); action != null; action = outbound.poll()) {
+			
+			bundled.add(action);
+		}
+		
+		final Bytes message = TickBundle.encode(tickBundleMessageLeadingByte, sequenceNumber, tickCosts[0], bundled, unsentStateHash);
+		
+		unsentStateHash = Optional.empty();
+		
+		bundled.clear();
+		
+		broadcast(message);
+		
+		session.flush();
+	}
+	
+	/**
+	 * Sends a message to every peer that takes part in the session. 
+	 * 
+	 * Each peer's channel keeps a reference to the same encoded message; its bytes are only copied into that peer's datagram. 
+	 * 
+	 * @param message The message to send
+	 */
+	private void broadcast(final Bytes message) {
+		
+		for (final ChannelBinding recipient : recipients) {
+			
+			session.send(recipient, message);
+		}
+	}
+
+	private void onMessageReceived(final ChannelBinding binding, final int participant, final Bytes content) {
+		
+		if (!keepRunning) {
+			
+			return;
+		}
+		
+		if (content.length() == 0) {
+			
+			logger.warning("@" + sequenceNumber + ": Received an empty message. ");
+			
+			return;
+		}
+		
+		final BytesReader reader = content.read();
+		
+		final byte leadingByte = reader.readByte();
+		
+		if (leadingByte == sequenceNumberUpdateMessageLeadingByte) {
+			
+			if (reader.remaining() < 8) {
+				
+				logger.warning("@" + sequenceNumber + ": Could not parse progress. ");
+				
+				return;
+			}
+			
+			final int reportedSequenceNumber = reader.readInt();
+			
+			publishProgress(participant, reportedSequenceNumber, reader.readInt());
+			
+			if (reader.remaining() >= 8) {
+				
+				final int hashSequenceNumber = reader.readInt();
+				
+				publishStateHash(participant, hashSequenceNumber, reader.readInt());
+			}
+		} else if (leadingByte == sequencedActionMessageLeadingByte) {
+			
+			final Optional<SequencedAction<T>> action = SequencedAction.decode(reader.readRemaining(), decoder);
+			
+			if (action.isPresent()) {
+				
+				onActionReceived(binding, action.get());
+			} else {
+				
+				logger.warning("@" + sequenceNumber + ": Could not decode action. ");
+			}
+		} else if (leadingByte == actionBatchMessageLeadingByte) {
+			
+			final Optional<ActionBatch<T>> batch = ActionBatch.decode(reader.readRemaining(), decoder);
+			
+			if (batch.isPresent()) {
+				
+				onActionsReceived(binding, batch.get().sequencedActions());
+			} else {
+				
+				logger.warning("@" + sequenceNumber + ": Could not decode action batch. ");
+			}
+		} else if (leadingByte == runAheadProposalMessageLeadingByte || leadingByte == tickPeriodProposalMessageLeadingByte) {
+			
+			if (reader.remaining() < 12) {
+				
+				logger.warning("@" + sequenceNumber + ": Could not parse proposal. ");
+				
+				return;
+			}
+			
+			final int proposalSequenceNumber = reader.readInt();
+			final int origin = reader.readInt();
+			
+			final InboundEvent.Kind kind = (leadingByte == runAheadProposalMessageLeadingByte) ? 
+					InboundEvent.Kind.RunAheadProposal : 
+					InboundEvent.Kind.TickPeriodProposal;
+			
+			publishProposal(kind, proposalSequenceNumber, origin, reader.readInt());
+		} else if (leadingByte == merkleProbeMessageLeadingByte || leadingByte == merkleReplyMessageLeadingByte) {
+			
+			if (reader.remaining() < 8) {
+				
+				logger.warning("@" + sequenceNumber + ": Could not parse Merkle tree nodes. ");
+				
+				return;
+			}
+			
+			final int probeSequenceNumber = reader.readInt();
+			final int count = reader.readInt();
+			
+			final boolean isReply = (leadingByte == merkleReplyMessageLeadingByte);
+			
+			if (count < 0 || count > DesyncLocator.maximumProbeSize || reader.remaining() != count * (isReply ? 8 : 4)) {
+				
+				logger.warning("@" + sequenceNumber + ": Could not parse Merkle tree nodes. ");
+				
+				return;
+			}
+			
+			final int[] nodes = new int[count];
+			final int[] hashes = isReply ? new int[count] : null;
+			
+			for (int i = 0; i < count; i++) {
+				
+				nodes[i] = reader.readInt();
+				
+				if (isReply) {
+					
+					hashes[i] = reader.readInt();
+				}
+			}
+			
+			publishMerkleNodes(participant, probeSequenceNumber, nodes, hashes);
+		} else if (leadingByte == joinRequestMessageLeadingByte || leadingByte == caughtUpMessageLeadingByte) {
+			
+			final InboundEvent.Kind kind = (leadingByte == joinRequestMessageLeadingByte) ? 
+					InboundEvent.Kind.JoinRequest : 
+					InboundEvent.Kind.CaughtUp;
+			
+			publishMembershipEvent(kind, participant, 0);
+		} else if (leadingByte == admissionMessageLeadingByte || leadingByte == activationMessageLeadingByte) {
+			
+			if (reader.remaining() < 4) {
+				
+				logger.warning("@" + sequenceNumber + ": Could not decode membership change. ");
+				
+				return;
+			}
+			
+			final int changeSequenceNumber = reader.readInt();
+			
+			final Optional<NetworkAddress> address = NetworkAddress.decode(reader);
+			
+			if (!address.isPresent()) {
+				
+				logger.warning("@" + sequenceNumber + ": Could not decode membership change. ");
+				
+				return;
+			}
+			
+			final InboundEvent.Kind kind = (leadingByte == admissionMessageLeadingByte) ? 
+					InboundEvent.Kind.Admission : 
+					InboundEvent.Kind.Activation;
+			
+			final int subject;
+			
+			if (address.equals(settings.localAddress())) {
+				
+				subject = 0;
+			} else {
+				
+				final int index = peers.indexOf(address.get());
+				
+				if (index < 0) {
+					
+					logger.warning("@" + sequenceNumber + ": Dropping membership change for unknown peer " + address.get());
+					
+					return;
+				}
+				
+				subject = index + 1;
+			}
+			
+			publishMembershipEvent(kind, subject, changeSequenceNumber);
+		} else if (leadingByte == tickBundleMessageLeadingByte) {
+			
+			final Optional<TickBundle<T>> bundle = TickBundle.decode(reader.readRemaining(), decoder);
+			
+			if (bundle.isPresent()) {
+				
+				// The actions first, so that none can be late for the progress that follows them
+				if (!bundle.get().actions().isEmpty()) {
+					
+					onActionsReceived(binding, bundle.get().actions());
+				}
+				
+				publishProgress(participant, bundle.get().sequenceNumber(), bundle.get().tickCost());
+				
+				if (bundle.get().stateHash().isPresent()) {
+					
+					publishStateHash(participant, bundle.get().stateHash().get().sequenceNumber(), bundle.get().stateHash().get().hash());
+				}
+			} else {
+				
+				logger.warning("@" + sequenceNumber + ": Could not decode tick bundle. ");
+			}
+		} else {
+			
+			logger.warning("@" + sequenceNumber + ": Could not parse data. ");
+		}
+	}
+
+	private void onActionReceived(final ChannelBinding binding, final SequencedAction<T> action) {
+		
+		checkReceived(binding, action);
+		
+		publishAction(action);
+	}
+
+	private void onActionsReceived(final ChannelBinding binding, final List<SequencedAction<T>> actions) {
 		
-		this.session = session;
-		this.settings = settings;
-		this.decoder = decoder;
-		this.simulation = simulation;
+		for (int i = 0; i < actions.size(); i++) {
+			
+			checkReceived(binding, actions.get(i));
+		}
+		
+		publishActions(actions);
+	}
+
+	private void checkReceived(final ChannelBinding binding, final SequencedAction<T> action) {
 		
-		peerBindings = new HashMap<>();
-		peerProgress = new HashMap<>();
+		logger.finer("@" + sequenceNumber + ": Received " + action);
 		
-		for (final NetworkAddress peer : settings.peers()) {
+		if (history == null && isMember && !Sequence32.isMoreRecent(action.sequenceNumber(), sequenceNumber)) {
 			
-			peerProgress.put(peer, 0);
+			logger.warning("@" + sequenceNumber + ": Received an action for " + action.sequenceNumber());
 		}
 		
-		actions = new ArrayList<>();
+		if (action.origin() == settings.peerId()) {
+			
+			logger.warning(binding.remoteAddress() + " has the same peer id as us; actions may be ordered differently between peers");
+		}
 	}
 	
 	/**
-	 * Submit an action to be performed on the simulation. 
-	 * 
-	 * The action will be automatically scheduled across peers. 
+	 * Takes the next message of a snapshot from the host, handing the snapshot to the tick thread once it is complete. 
 	 * 
-	 * @param action The action to perform
+	 * @param participant The sender's index in the progress tree
+	 * @param message The message
 	 */
-	public void submitAction(final SimulationAction<T> action) {
+	private void onSnapshotMessage(final int participant, final Bytes message) {
 		
 		if (!keepRunning) {
 			
 			return;
 		}
 		
-		// Which sequence number should this action be executed on? 
-		final int actionSequenceNumber = actionSequenceNumber();
-		
-		logger.fine("@" + sequenceNumber + ": Submitting " + new SequencedAction<>(actionSequenceNumber, action));
-		
-		// Queue the action for local execution
-		queue(new SequencedAction<>(actionSequenceNumber, action));
+		if (participant != join.host()) {
+			
+			logger.warning("@" + sequenceNumber + ": Ignoring a snapshot from " + peers.get(participant - 1) + ", which is not our host");
+			
+			return;
+		}
 		
-		// Notify all peers... 
-		final Bytes message = new BytesBuilder()
-				.append(sequencedActionMessageLeadingByte)
-				.appendInt(actionSequenceNumber)
-				.append(action.encode())
-				.toBytes();
+		final Optional<StateSnapshot> snapshot = assembler.add(message);
 		
-		for (final NetworkAddress peer : settings.peers()) {
+		if (snapshot.isPresent()) {
+			
+			final long sequence = inbound.claim();
+			final InboundEvent<T> event = inbound.get(sequence);
+			
+			event.kind = InboundEvent.Kind.Snapshot;
+			event.snapshot = snapshot.get();
+			
+			inbound.publish(sequence);
 			
-			session.send(peerBindings.get(peer), message);
+			waitStrategy.signal(thread);
 		}
 	}
-	
-	@Override
-	protected void startUp() throws Exception {
+
+	/**
+	 * Hands a peer's reported progress to the tick thread. 
+	 * 
+	 * @param participant The peer's index in the progress tree
+	 * @param reportedSequenceNumber The peer's reported sequence number
+	 * @param reportedTickCost The peer's reported tick cost, in microseconds
+	 */
+	private void publishProgress(final int participant, final int reportedSequenceNumber, final int reportedTickCost) {
 		
-		super.startUp();
+		final long sequence = inbound.claim();
+		final InboundEvent<T> event = inbound.get(sequence);
 		
-		synchronized (lock) {
+		event.kind = InboundEvent.Kind.Progress;
+		event.participant = participant;
+		event.sequenceNumber = reportedSequenceNumber;
+		event.value = reportedTickCost;
 		
-			// Open a channel to each peer
-			for (final NetworkAddress peer : settings.peers()) {
-				
-				final ChannelBinding binding = new ChannelBinding(peer, ChannelCodes.ReliableOrdered1);
-				final ChannelListener listener = (final Bytes message) -> { onMessageReceived(binding, message); };
-				
-				session.connect(binding, StopAndWaitChannel::create, listener);
-				
-				peerBindings.put(peer, binding);
-				peerProgress.put(peer, 0);
-			}
-			
-			// Mark the service as running
-			keepRunning = true;
-		}
+		inbound.publish(sequence);
 		
-		logger.info("Started");
+		waitStrategy.signal(thread);
 	}
-	
-	@Override
-	protected void run() throws Exception {
+
+	/**
+	 * Hands a peer's state hash to the tick thread. 
+	 * 
+	 * @param participant The peer's index in the progress tree
+	 * @param hashSequenceNumber The tick the state was hashed on reaching
+	 * @param hash The state hash
+	 */
+	private void publishStateHash(final int participant, final int hashSequenceNumber, final int hash) {
 		
-		while (keepRunning) {
+		final long sequence = inbound.claim();
+		final InboundEvent<T> event = inbound.get(sequence);
+		
+		event.kind = InboundEvent.Kind.StateHash;
+		event.participant = participant;
+		event.sequenceNumber = hashSequenceNumber;
+		event.value = hash;
+		
+		inbound.publish(sequence);
+		
+		waitStrategy.signal(thread);
+	}
+
+	/**
+	 * Hands a peer's Merkle tree probe, or its reply to ours, to the tick thread. 
+	 * 
+	 * @param participant The peer's index in the progress tree
+	 * @param probeSequenceNumber The tick the nodes are compared at
+	 * @param nodes The nodes
+	 * @param hashes The peer's hashes of the nodes, or null for a probe
+	 */
+	private void publishMerkleNodes(final int participant, final int probeSequenceNumber, final int[] nodes, final int[] hashes) {
+		
+		final long sequence = inbound.claim();
+		final InboundEvent<T> event = inbound.get(sequence);
+		
+		event.kind = (hashes == null) ? InboundEvent.Kind.MerkleProbe : InboundEvent.Kind.MerkleReply;
+		event.participant = participant;
+		event.sequenceNumber = probeSequenceNumber;
+		event.nodes = nodes;
+		event.hashes = hashes;
+		
+		inbound.publish(sequence);
+		
+		waitStrategy.signal(thread);
+	}
+
+	/**
+	 * Hands a join request, a catch-up or a scheduled membership change to the tick thread. 
+	 * 
+	 * @param kind What the event is
+	 * @param participant The peer that asked to join or caught up, or that the change is for
+	 * @param changeSequenceNumber The tick of a change
+	 */
+	private void publishMembershipEvent(final InboundEvent.Kind kind, final int participant, final int changeSequenceNumber) {
+		
+		final long sequence = inbound.claim();
+		final InboundEvent<T> event = inbound.get(sequence);
+		
+		event.kind = kind;
+		event.participant = participant;
+		event.sequenceNumber = changeSequenceNumber;
+		
+		inbound.publish(sequence);
+		
+		waitStrategy.signal(thread);
+	}
+
+	/**
+	 * Hands an action to the tick thread for later execution. 
+	 * 
+	 * @param action The action to queue
+	 */
+	private void publishAction(final SequencedAction<T> action) {
+		
+		Preconditions.checkNotNull(action);
+		
+		final long sequence = inbound.claim();
+		final InboundEvent<T> event = inbound.get(sequence);
+		
+		event.kind = InboundEvent.Kind.Action;
+		event.action = action;
+		
+		inbound.publish(sequence);
+		
+		waitStrategy.signal(thread);
+	}
+
+	/**
+	 * Hands actions submitted together to the tick thread as one event, so that they are queued together. 
+	 * 
+	 * @param actions The actions
+	 */
+	private void publishActions(final List<SequencedAction<T>> actions) {
+		
+		Preconditions.checkNotNull(actions);
+		
+		final long sequence = inbound.claim();
+		final InboundEvent<T> event = inbound.get(sequence);
+		
+		event.kind = InboundEvent.Kind.Actions;
+		event.actions = actions;
+		
+		inbound.publish(sequence);
+		
+		waitStrategy.signal(thread);
+	}
+
+	/**
+	 * Hands a peer's proposal to the tick thread. 
+	 * 
+	 * @param kind What the proposal is for
+	 * @param proposalSequenceNumber The tick the proposal is for
+	 * @param origin The id of the peer that made it
+	 * @param proposal The value proposed
+	 */
+	private void publishProposal(final InboundEvent.Kind kind, final int proposalSequenceNumber, final int origin, final int proposal) {
+		
+		final long sequence = inbound.claim();
+		final InboundEvent<T> event = inbound.get(sequence);
+		
+		event.kind = kind;
+		event.sequenceNumber = proposalSequenceNumber;
+		event.participant = origin;
+		event.value = proposal;
+		
+		inbound.publish(sequence);
+		
+		waitStrategy.signal(thread);
+	}
+
+	/**
+	 * Applies an inbound event on the tick thread. 
+	 * 
+	 * @param event The event to apply
+	 */
+	private void onEvent(final InboundEvent<T> event) {
+		
+		switch (event.kind) {
+		
+		case Progress: 
+			
+			logger.finer("@" + sequenceNumber + ": " + peers.get(event.participant - 1) + " has reportedly reached " + event.sequenceNumber);
 			
-			while (Sequence32.isMoreRecent(targetSequenceNumber(), sequenceNumber) && keepRunning) {
+			progress.update(event.participant, event.sequenceNumber);
+			
+			tickCosts[event.participant] = event.value;
+			
+			if (join != null) {
 				
-				synchronized (lock) {
-					
-					final List<SimulationAction<T>> tickActions = new ArrayList<>();
-					
-					for (int i = 0; i < actions.size(); i++) {
-						
-						final SequencedAction<T> action = actions.get(i);
-						
-						if (action.sequenceNumber() == sequenceNumber) {
-							
-							tickActions.add(action.action());
-							
-							actions.remove(i);
-							
-							i--;
-						} else {
-							
-							logger.finest("@" + sequenceNumber + ": Skipping" + action);
-						}
-					}
-					
-					
-					// Sort by hashCode so that they are in uniform order between peers
-					tickActions.sort((x, y) -> { return x.hashCode() - y.hashCode(); });
-					
-					// Execute each sequentially
-					for (final SimulationAction<T> action : tickActions) {
-					
-						logger.fine("@" + sequenceNumber + ": Executing" + action);
-						
-						action.execute(simulation);
-					}
-				}
+				join.reported(event.participant);
+			}
+			
+			break;
+		
+		case JoinRequest: 
+			
+			if (join == null || !join.request(event.participant)) {
 				
-				// Tick the simulation
-				simulation.tick();
+				logger.warning("@" + sequenceNumber + ": Ignoring a request to join from " + peers.get(event.participant - 1));
+			}
+			
+			break;
+		
+		case CaughtUp: 
+			
+			if (join == null || !join.onCaughtUp(event.participant)) {
 				
-				synchronized (lock) {
-					
-					// Update our sequence number
-					sequenceNumber = Sequence32.next(sequenceNumber);
-					
-					logger.finer("@" + sequenceNumber + ": Updated sequence number");
-				}
+				logger.warning("@" + sequenceNumber + ": Ignoring an unexpected catch-up from " + peers.get(event.participant - 1));
+			}
+			
+			break;
+		
+		case Admission: 
+		case Activation: 
+			
+			if (join == null || (event.participant == 0 && isMember)) {
 				
-				// Notify all peers of our progress
-				final Bytes message = new BytesBuilder(5)
-						.append(sequenceNumberUpdateMessageLeadingByte)
-						.appendInt(sequenceNumber)
-						.toBytes();
+				logger.warning("@" + sequenceNumber + ": Ignoring an unexpected membership change");
+			} else if (Sequence32.isMoreRecent(sequenceNumber, event.sequenceNumber)) {
 				
-				for (final NetworkAddress peer : settings.peers()) {
+				logger.severe("@" + sequenceNumber + ": Membership change for " + event.sequenceNumber + " arrived too late");
+			} else {
 				
-					session.send(peerBindings.get(peer), message);
-				}
+				join.schedule(event.sequenceNumber, event.participant, 
+						(event.kind == InboundEvent.Kind.Admission) ? Membership.Stage.Admitted : Membership.Stage.Active);
 			}
 			
-			if (keepRunning) {
-			
-				synchronized (lock) {
-					
-					lock.wait();
-				}
-			}
-		}
-	}
-	
-	@Override
-	protected void triggerShutdown() {
-		
-		super.triggerShutdown();
-		
-		logger.info("Shutdown triggered");
+			break;
 		
-		synchronized (lock) {
+		case Snapshot: 
 			
-			keepRunning = false;
+			restore(event.snapshot);
 			
-			lock.notifyAll();
-		}
-	}
-	
-	@Override
-	protected void shutDown() throws Exception {
-		
-		super.shutDown();
+			break;
 		
-		synchronized (lock) {
+		case StateHash: 
 			
-			actions.clear();
-		}
-	}
-	
-	private void onMessageReceived(final ChannelBinding binding, final Bytes content) {
-		
-		if (!keepRunning) {
+			if (stateHashes != null) {
+				
+				stateHashes.record(event.participant, event.sequenceNumber, event.value);
+				
+				checkStateHash(event.participant, event.sequenceNumber);
+			}
 			
-			return;
-		}
+			break;
 		
-		final BytesReader reader = content.read();
+		case MerkleProbe: 
+			
+			if (locator == null) {
+				
+				logger.warning("@" + sequenceNumber + ": Ignoring a Merkle tree probe; our simulation is not partitioned");
+			} else if (!locator.request(event.participant, event.sequenceNumber, event.nodes)) {
+				
+				logger.warning("@" + sequenceNumber + ": Dropping late Merkle tree probe for " + event.sequenceNumber);
+			}
+			
+			break;
 		
-		final byte leadingByte = reader.readByte();
+		case MerkleReply: 
+			
+			if (locator != null) {
+				
+				locator.reply(event.participant, event.sequenceNumber, event.nodes, event.hashes);
+			}
+			
+			break;
 		
-		if (leadingByte == sequenceNumberUpdateMessageLeadingByte) {
+		case Action: 
 			
-			reportPeerProgress(binding.remoteAddress(), reader.readInt());
-		} else if (leadingByte == sequencedActionMessageLeadingByte) {
+			queue(event.action);
 			
-			final int actionSequenceNumber = reader.readInt();
+			break;
+		
+		case Actions: 
 			
-			if (!Sequence32.isMoreRecent(actionSequenceNumber, sequenceNumber)) {
+			for (int i = 0; i < event.actions.size(); i++) {
 				
-				logger.warning("@" + sequenceNumber + ": Received an action for " + actionSequenceNumber);
+				queue(event.actions.get(i));
 			}
 			
-			final Bytes actionData = reader.readRemaining();
-			
-			final Optional<SimulationAction<T>> action = decoder.tryDecode(actionData);
+			break;
+		
+		case RunAheadProposal: 
+		case TickPeriodProposal: 
 			
-			if (action.isPresent()) {
+			if (Sequence32.isMoreRecent(targetSequenceNumber(), event.sequenceNumber)) {
 				
-				logger.finer("@" + sequenceNumber + ": Received " + new SequencedAction<>(actionSequenceNumber, action.get()));
+				logger.warning("@" + sequenceNumber + ": Dropping late proposal for " + event.sequenceNumber);
+			} else if (event.kind == InboundEvent.Kind.RunAheadProposal) {
 				
-				queue(new SequencedAction<>(actionSequenceNumber, action.get()));
+				runAhead.schedule(event.sequenceNumber, event.participant, event.value);
+			} else if (tickPeriod != null) {
+				
+				tickPeriod.schedule(event.sequenceNumber, event.participant, event.value);
 			} else {
 				
-				logger.warning("@" + sequenceNumber + ": Could not decode action. ");
+				logger.warning("@" + sequenceNumber + ": Ignoring a tick period proposal; our tick period is not adaptive");
 			}
-		} else {
 			
-			logger.warning("@" + sequenceNumber + ": Could not parse data. ");
+			break;
 		}
+		
+		// Do not keep the actions, nodes or snapshot alive while the slot is idle
+		event.action = null;
+		event.actions = null;
+		event.snapshot = null;
+		event.nodes = null;
+		event.hashes = null;
 	}
 	
 	/**
-	 * Updates the known progress of a peer
+	 * Queues an action for later execution. 
 	 * 
-	 * @param peer The peer to update
-	 * @param reportedSequenceNumber The peer's reported sequence number
+	 * @param action The action to queue
 	 */
-	private void reportPeerProgress(final NetworkAddress peer, final int reportedSequenceNumber) {
+	private void queue(final SequencedAction<T> action) {
+		
+		logger.finer("@" + sequenceNumber + ": Adding " + action + " to the action queue");
+		
+		if (join != null && join.buffer(action)) {
+			
+			// Scheduled once we know which tick we start from
+			return;
+		}
 		
-		Preconditions.checkNotNull(peer);
-		Preconditions.checkArgument(settings.peers().contains(peer));
+		if (!isMember && schedule.contains(action)) {
+			
+			// While joining, an action may be both forwarded and broadcast to us
+			return;
+		}
 		
-		synchronized (lock) {
+		if (history != null && Sequence32.isMoreRecent(sequenceNumber, action.sequenceNumber())) {
 			
-			logger.finer("@" + sequenceNumber + ": " + peer.toString() + " has reportedly reached " + reportedSequenceNumber);
+			// We have already executed its tick without it
+			if (history.add(action)) {
+				
+				if (!isRollbackPending || Sequence32.isMoreRecent(rollbackSequenceNumber, action.sequenceNumber())) {
+					
+					rollbackSequenceNumber = action.sequenceNumber();
+				}
+				
+				isRollbackPending = true;
+			} else {
+				
+				onLateAction(action);
+			}
 			
-			peerProgress.put(peer, reportedSequenceNumber);
+			return;
+		}
+		
+		if (!schedule.add(action)) {
 			
-			lock.notifyAll();
+			onLateAction(action);
 		}
 	}
-	
+
 	/**
-	 * Queues an action for later execution. 
+	 * Handles an action whose tick we have already executed (and can no longer roll back). 
 	 * 
-	 * @param action The action to queue
+	 * Peers that executed it have diverged from us, which a member reports to the desync listeners. 
+	 * 
+	 * @param action The action
+	 * @throws IllegalStateException If we are a member of the session and late actions are fatal
 	 */
-	private void queue(final SequencedAction<T> action) {
+	private void onLateAction(final SequencedAction<T> action) {
 		
-		Preconditions.checkNotNull(action);
+		if (!isMember) {
+			
+			// Its effects are part of the snapshot we restored
+			logger.warning("@" + sequenceNumber + ": Dropping late " + action);
+			
+			return;
+		}
 		
-		synchronized (lock) {
+		logger.warning("@" + sequenceNumber + ": Dropping " + action + "; it arrived after its tick was executed");
+		
+		for (final DesyncListener listener : desyncListeners) {
 			
-			logger.finer("@" + sequenceNumber + ": Adding " + action + " to the action queue");
+			listener.onLateAction(action.sequenceNumber(), action.origin());
+		}
 		
-			Preconditions.checkArgument(!Sequence32.isMoreRecent(targetSequenceNumber(), action.sequenceNumber()));
+		if (settings.failOnLateAction()) {
 			
-			actions.add(action);
+			throw new IllegalStateException("@" + sequenceNumber + ": " + action + " arrived after its tick was executed");
 		}
 	}
 	
 	/**
-	 * The lowest sequence across all peers. 
+	 * Publishes the lowest sequence across all peers (and us). 
 	 * 
 	 * This is used to determine how many ticks we can run. 
-	 * 
-	 * @return The lowest sequence number
 	 */
-	private int lowestSequenceNumber() {
+	private void updateLowestSequenceNumber() {
+		
+		final int lowest = progress.lowest();
 		
-		synchronized (lock) {
+		lowestSequenceNumber = lowest;
+		
+		if (history != null) {
 			
-			int lowestSequenceNumber = this.sequenceNumber;
+			// No more actions can arrive for the ticks before the slowest peer
+			history.confirm(lowest);
 			
-			for (final int i : peerProgress.values()) {
+			if (stateHashes != null) {
 				
-				if (Sequence32.isMoreRecent(lowestSequenceNumber, i)) {
+				// Our hashes on reaching those ticks are now final
+				while (Sequence32.isMoreRecent(lowest, confirmedSequenceNumber)) {
+					
+					confirmedSequenceNumber = Sequence32.next(confirmedSequenceNumber);
 					
-					lowestSequenceNumber = i;
+					if (stateHashes.confirm(confirmedSequenceNumber)) {
+						
+						onStateHash(confirmedSequenceNumber, stateHashes.hash(0, confirmedSequenceNumber));
+					}
 				}
 			}
+		}
+		
+		if (settings.isAdaptive()) {
 			
-			return lowestSequenceNumber;
+			actionScheduleOffset = runAhead.actionScheduleOffset(lowest);
 		}
 	}
 	
@@ -360,7 +2315,7 @@ public final class SimulationManager<T extends Simulation> extends AbstractExecu
 	 */
 	private int targetSequenceNumber() {
 		
-		return Sequence32.add(lowestSequenceNumber(), settings.sequenceRunAhead());
+		return Sequence32.add(lowestSequenceNumber, runAhead.runAhead());
 	} 
 	
 	/**
@@ -370,6 +2325,41 @@ public final class SimulationManager<T extends Simulation> extends AbstractExecu
 	 */
 	private int actionSequenceNumber() {
 		
-		return Sequence32.add(lowestSequenceNumber(), settings.actionScheduleOffset());
+		return Sequence32.add(lowestSequenceNumber, actionScheduleOffset);
+	}
+
+	/**
+	 * A progress update, an action, a proposal, a state hash, some Merkle tree nodes or a membership event on its way to the tick thread. 
+	 * 
+	 * Instances are re-used by the <code>RingBuffer</code>. 
+	 *
+	 * @param <T> The sub-type of <code>Simulation</code>
+	 */
+	private static final class InboundEvent<T extends Simulation> {
+		
+		private enum Kind { Progress, Action, Actions, RunAheadProposal, TickPeriodProposal, StateHash, MerkleProbe, MerkleReply, JoinRequest, CaughtUp, Admission, Activation, Snapshot }
+		
+		private Kind kind;
+		
+		// The index of the peer reporting progress, a hash or nodes, or the origin of a proposal, 
+		// or the peer that a membership event is for
+		private int participant;
+		
+		// The peer's progress, or the tick of a proposal, hash, probe or membership change
+		private int sequenceNumber;
+		
+		private SequencedAction<T> action;
+		
+		// Actions submitted together, in order
+		private List<SequencedAction<T>> actions;
+		
+		// The peer's tick cost, the value proposed or the hash
+		private int value;
+		
+		// The Merkle tree nodes probed and, for a reply, the peer's hashes of them
+		private int[] nodes;
+		private int[] hashes;
+		
+		private StateSnapshot snapshot;
 	}
 }
@@ -0,0 +1,30 @@
+package io.njlr.lockstep.state;
+
+/**
+ * A <code>Simulation</code> whose state can be captured and later returned to. 
+ * 
+ * This is required for rollback, where ticks are executed before every peer's actions for them are known 
+ * and are re-executed from a snapshot when an action arrives late. 
+ *
+ * @param <S> The type of snapshot
+ */
+public interface SnapshotSimulation<S> extends Simulation {
+	
+	/**
+	 * Captures all state in the simulation. 
+	 * 
+	 * The snapshot must not be affected by later ticks or actions. 
+	 * 
+	 * @return The snapshot
+	 */
+	S snapshot();
+	
+	/**
+	 * Returns the simulation to exactly the state in a snapshot. 
+	 * 
+	 * The snapshot may be restored from more than once. 
+	 * 
+	 * @param snapshot A snapshot taken by this simulation
+	 */
+	void restore(final S snapshot);
+}
@@ -0,0 +1,73 @@
+package io.njlr.lockstep.state;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * The hash of a simulation's state on reaching a given tick. 
+ * 
+ * This class is immutable. 
+ *
+ */
+public final class StateHash {
+	
+	private final int sequenceNumber;
+	private final int hash;
+	
+	/**
+	 * The tick the state was hashed on reaching
+	 * 
+	 * @return The sequence number
+	 */
+	public int sequenceNumber() {
+		
+		return sequenceNumber;
+	}
+
+	/**
+	 * The hash of the state, as given by <code>Simulation.stateHash</code>
+	 * 
+	 * @return The hash
+	 */
+	public int hash() {
+		
+		return hash;
+	}
+
+	public StateHash(final int sequenceNumber, final int hash) {
+		
+		super();
+		
+		this.sequenceNumber = sequenceNumber;
+		this.hash = hash;
+	}
+
+	@Override
+	public int hashCode() {
+		
+		return sequenceNumber * 31 + hash;
+	}
+
+	@Override
+	public boolean equals(final Object that) {
+		
+		if (this == that) {
+			
+			return true;
+		}
+		
+		if (that instanceof StateHash) {
+			
+			final StateHash thatStateHash = (StateHash) that;
+			
+			return (this.sequenceNumber == thatStateHash.sequenceNumber) && (this.hash == thatStateHash.hash);
+		}
+		
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		
+		return MoreObjects.toStringHelper(this).addValue(sequenceNumber).add("hash", hash).toString();
+	}
+}
@@ -0,0 +1,171 @@
+package io.njlr.lockstep.state;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Recent state hashes of every participant, for finding where peers' simulations diverge. 
+ * 
+ * Hashes are held in a ring indexed by tick, with a row for each participant; participant zero is us. 
+ * A peer's hash may arrive before or after our own for the same tick, so whichever is recorded second 
+ * is the one to compare. Hashes older than the ring are forgotten. 
+ * 
+ * With rollback, our hash for a tick is only provisional until the tick is confirmed, 
+ * so it is held aside until then. 
+ * 
+ * Nothing is allocated after construction. This class is not thread-safe. 
+ *
+ */
+public final class StateHashHistory {
+	
+	public static final int defaultCapacity = 256;
+	
+	private final int participants;
+	private final int mask;
+	
+	// Indexed by participant * capacity + slot
+	private final int[] sequenceNumbers;
+	private final int[] hashes;
+	private final boolean[] isKnown;
+	
+	// Our provisional hashes, indexed by slot
+	private final int[] provisionalSequenceNumbers;
+	private final int[] provisionalHashes;
+	private final boolean[] isProvisionalKnown;
+	
+	/**
+	 * Creates a new <code>StateHashHistory</code> instance. 
+	 * 
+	 * @param participants The number of participants, including us
+	 * @param capacity How many ticks back hashes are kept for; rounded up to a power of two
+	 */
+	public StateHashHistory(final int participants, final int capacity) {
+		
+		super();
+		
+		Preconditions.checkArgument(participants > 0);
+		Preconditions.checkArgument(capacity > 0);
+		Preconditions.checkArgument(capacity <= (1 << 20));
+		
+		final int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		
+		this.participants = participants;
+		
+		mask = size - 1;
+		
+		sequenceNumbers = new int[participants * size];
+		hashes = new int[participants * size];
+		isKnown = new boolean[participants * size];
+		
+		provisionalSequenceNumbers = new int[size];
+		provisionalHashes = new int[size];
+		isProvisionalKnown = new boolean[size];
+	}
+
+	public StateHashHistory(final int participants) {
+		
+		this(participants, defaultCapacity);
+	}
+
+	/**
+	 * Records a participant's hash for a tick. 
+	 * 
+	 * @param participant The participant; zero for us
+	 * @param sequenceNumber The tick
+	 * @param hash The state hash on reaching the tick
+	 */
+	public void record(final int participant, final int sequenceNumber, final int hash) {
+		
+		Preconditions.checkElementIndex(participant, participants);
+		
+		final int index = index(participant, sequenceNumber);
+		
+		sequenceNumbers[index] = sequenceNumber;
+		hashes[index] = hash;
+		isKnown[index] = true;
+	}
+
+	/**
+	 * Whether a participant's hash for a tick is known. 
+	 * 
+	 * @param participant The participant; zero for us
+	 * @param sequenceNumber The tick
+	 * @return If the hash is known
+	 */
+	public boolean contains(final int participant, final int sequenceNumber) {
+		
+		Preconditions.checkElementIndex(participant, participants);
+		
+		final int index = index(participant, sequenceNumber);
+		
+		return isKnown[index] && (sequenceNumbers[index] == sequenceNumber);
+	}
+
+	/**
+	 * A participant's hash for a tick. 
+	 * 
+	 * @param participant The participant; zero for us
+	 * @param sequenceNumber The tick
+	 * @return The hash
+	 */
+	public int hash(final int participant, final int sequenceNumber) {
+		
+		Preconditions.checkArgument(contains(participant, sequenceNumber));
+		
+		return hashes[index(participant, sequenceNumber)];
+	}
+
+	/**
+	 * Whether a peer's hash for a tick is known and differs from ours. 
+	 * 
+	 * @param participant The peer
+	 * @param sequenceNumber The tick
+	 * @return If the peer has diverged
+	 */
+	public boolean isDesynced(final int participant, final int sequenceNumber) {
+		
+		return contains(0, sequenceNumber) && contains(participant, sequenceNumber) && 
+				(hash(0, sequenceNumber) != hash(participant, sequenceNumber));
+	}
+
+	/**
+	 * Records our hash for a tick that might yet be re-executed. 
+	 * 
+	 * @param sequenceNumber The tick
+	 * @param hash The state hash on reaching the tick
+	 */
+	public void recordProvisional(final int sequenceNumber, final int hash) {
+		
+		final int slot = sequenceNumber & mask;
+		
+		provisionalSequenceNumbers[slot] = sequenceNumber;
+		provisionalHashes[slot] = hash;
+		isProvisionalKnown[slot] = true;
+	}
+
+	/**
+	 * Makes our provisional hash for a tick final, once the tick is confirmed. 
+	 * 
+	 * @param sequenceNumber The tick
+	 * @return False if there was no provisional hash for the tick
+	 */
+	public boolean confirm(final int sequenceNumber) {
+		
+		final int slot = sequenceNumber & mask;
+		
+		if (!isProvisionalKnown[slot] || provisionalSequenceNumbers[slot] != sequenceNumber) {
+			
+			return false;
+		}
+		
+		isProvisionalKnown[slot] = false;
+		
+		record(0, sequenceNumber, provisionalHashes[slot]);
+		
+		return true;
+	}
+
+	private int index(final int participant, final int sequenceNumber) {
+		
+		return participant * (mask + 1) + (sequenceNumber & mask);
+	}
+}
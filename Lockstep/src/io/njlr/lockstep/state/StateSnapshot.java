@@ -0,0 +1,283 @@
+package io.njlr.lockstep.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesBuilder;
+import io.njlr.bytes.BytesReader;
+import io.njlr.lockstep.network.NetworkAddress;
+
+/**
+ * The serialized state of a simulation on reaching a tick, for a peer joining the session. 
+ * 
+ * It is sent as a header followed by chunks of the state, each small enough for one datagram, 
+ * so that a large state streams through a windowed channel rather than being reassembled in one piece. 
+ * The header is the tick, the length of the state, then the number of members and each member's address. 
+ * 
+ * This class is immutable. 
+ *
+ */
+public final class StateSnapshot {
+	
+	public static final byte headerLeadingByte = (byte) 91;
+	public static final byte chunkLeadingByte = (byte) 92;
+	
+	/**
+	 * The most state carried by one chunk; this leaves room for the channel's headers in a datagram. 
+	 */
+	public static final int chunkSize = 1024;
+	
+	private final int sequenceNumber;
+	
+	private final List<NetworkAddress> members;
+	
+	private final Bytes state;
+	
+	/**
+	 * Creates a new <code>StateSnapshot</code> instance. 
+	 * 
+	 * @param sequenceNumber The tick the state was taken on reaching
+	 * @param members The peers taking part in the session, other than the sender and the joiner
+	 * @param state The serialized state
+	 */
+	public StateSnapshot(final int sequenceNumber, final List<NetworkAddress> members, final Bytes state) {
+		
+		super();
+		
+		Preconditions.checkNotNull(members);
+		Preconditions.checkNotNull(state);
+		
+		this.sequenceNumber = sequenceNumber;
+		this.members = ImmutableList.copyOf(members);
+		this.state = state;
+	}
+
+	/**
+	 * The tick the state was taken on reaching, which is the next tick to execute
+	 * 
+	 * @return The sequence number
+	 */
+	public int sequenceNumber() {
+		
+		return sequenceNumber;
+	}
+
+	/**
+	 * The peers taking part in the session, other than the sender and the joiner
+	 * 
+	 * @return The members
+	 */
+	public List<NetworkAddress> members() {
+		
+		return members;
+	}
+
+	/**
+	 * The serialized state
+	 * 
+	 * @return The state
+	 */
+	public Bytes state() {
+		
+		return state;
+	}
+
+	/**
+	 * Encodes the snapshot as a header message followed by chunk messages, to be sent in order. 
+	 * 
+	 * @return The messages
+	 */
+	public List<Bytes> encode() {
+		
+		final List<Bytes> messages = new ArrayList<>(1 + (state.length() + chunkSize - 1) / chunkSize);
+		
+		final BytesBuilder header = new BytesBuilder()
+				.append(headerLeadingByte)
+				.appendInt(sequenceNumber)
+				.appendInt(state.length())
+				.appendInt(members.size());
+		
+		for (final NetworkAddress member : members) {
+			
+			header.append(member.encode());
+		}
+		
+		messages.add(header.toBytes());
+		
+		final byte[] data = state.array();
+		
+		for (int position = 0; position < data.length; position += chunkSize) {
+			
+			final int length = Math.min(chunkSize, data.length - position);
+			
+			final byte[] chunk = new byte[length + 1];
+			
+			chunk[0] = chunkLeadingByte;
+			
+			System.arraycopy(data, position, chunk, 1, length);
+			
+			messages.add(new Bytes(chunk));
+		}
+		
+		return messages;
+	}
+
+	@Override
+	public String toString() {
+		
+		return MoreObjects.toStringHelper(this)
+				.add("sequenceNumber", sequenceNumber)
+				.add("members", members)
+				.add("length", state.length()).toString();
+	}
+
+	/**
+	 * Puts a snapshot back together from its messages, as they arrive in order. 
+	 * 
+	 * This class is not thread-safe. 
+	 *
+	 */
+	public static final class Assembler {
+		
+		// Null until a header arrives
+		private byte[] data;
+		
+		private int sequenceNumber;
+		private List<NetworkAddress> members;
+		
+		private int position;
+		
+		public Assembler() {
+			
+			super();
+		}
+		
+		/**
+		 * Whether a snapshot has been started and not yet finished. 
+		 * 
+		 * @return If a snapshot is in progress
+		 */
+		public boolean isInProgress() {
+			
+			return data != null;
+		}
+		
+		/**
+		 * How much of the state has arrived so far. 
+		 * 
+		 * @return The number of bytes
+		 */
+		public int received() {
+			
+			return position;
+		}
+		
+		/**
+		 * Takes the next message of a snapshot. 
+		 * 
+		 * A header abandons any snapshot in progress. 
+		 * 
+		 * @param message The message
+		 * @return The snapshot, if the message completed it
+		 */
+		public Optional<StateSnapshot> add(final Bytes message) {
+			
+			Preconditions.checkNotNull(message);
+			
+			if (message.length() == 0) {
+				
+				return Optional.empty();
+			}
+			
+			if (message.get(0) == headerLeadingByte) {
+				
+				return start(message);
+			}
+			
+			if (message.get(0) != chunkLeadingByte || data == null) {
+				
+				return Optional.empty();
+			}
+			
+			final int length = message.length() - 1;
+			
+			if (length > data.length - position) {
+				
+				// More state than the header promised
+				data = null;
+				
+				return Optional.empty();
+			}
+			
+			System.arraycopy(message.array(), 1, data, position, length);
+			
+			position += length;
+			
+			return finish();
+		}
+		
+		private Optional<StateSnapshot> start(final Bytes message) {
+			
+			data = null;
+			position = 0;
+			
+			final BytesReader reader = message.read().skip(1);
+			
+			if (reader.remaining() < 12) {
+				
+				return Optional.empty();
+			}
+			
+			final int startSequenceNumber = reader.readInt();
+			final int length = reader.readInt();
+			final int count = reader.readInt();
+			
+			if (length < 0 || count < 0) {
+				
+				return Optional.empty();
+			}
+			
+			final List<NetworkAddress> startMembers = new ArrayList<>(Math.min(count, 256));
+			
+			for (int i = 0; i < count; i++) {
+				
+				final Optional<NetworkAddress> member = NetworkAddress.decode(reader);
+				
+				if (!member.isPresent()) {
+					
+					return Optional.empty();
+				}
+				
+				startMembers.add(member.get());
+			}
+			
+			data = new byte[length];
+			sequenceNumber = startSequenceNumber;
+			members = startMembers;
+			
+			// An empty state has no chunks
+			return finish();
+		}
+		
+		private Optional<StateSnapshot> finish() {
+			
+			if (position < data.length) {
+				
+				return Optional.empty();
+			}
+			
+			final StateSnapshot snapshot = new StateSnapshot(sequenceNumber, members, new Bytes(data));
+			
+			data = null;
+			members = null;
+			
+			return Optional.of(snapshot);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package io.njlr.lockstep.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesReader;
+import io.njlr.lockstep.network.Utils;
+
+/**
+ * Everything a peer produced since its last tick: its new progress, its tick cost and the actions it submitted. 
+ * 
+ * Sending this as one message replaces a progress message and a message per action. 
+ * The wire format is the progress, the tick cost, the number of actions, then each action prefixed by its length; 
+ * every so often it ends with a state hash. 
+ * 
+ * This class is immutable. 
+ *
+ * @param <T> The sub-type of <code>Simulation</code>
+ */
+public final class TickBundle<T extends Simulation> {
+	
+	private final int sequenceNumber;
+	
+	private final int tickCost;
+	
+	private final List<SequencedAction<T>> actions;
+	
+	private final Optional<StateHash> stateHash;
+	
+	/**
+	 * The sequence number the peer has reached
+	 * 
+	 * @return The sequence number
+	 */
+	public int sequenceNumber() {
+		
+		return sequenceNumber;
+	}
+
+	/**
+	 * How long the peer's ticks take, on average, in microseconds
+	 * 
+	 * @return The tick cost
+	 */
+	public int tickCost() {
+		
+		return tickCost;
+	}
+
+	/**
+	 * The actions the peer submitted
+	 * 
+	 * @return The actions
+	 */
+	public List<SequencedAction<T>> actions() {
+		
+		return actions;
+	}
+
+	/**
+	 * The peer's state hash for a recent tick, if it sent one
+	 * 
+	 * @return The state hash
+	 */
+	public Optional<StateHash> stateHash() {
+		
+		return stateHash;
+	}
+
+	public TickBundle(final int sequenceNumber, final int tickCost, final List<SequencedAction<T>> actions, final Optional<StateHash> stateHash) {
+		
+		super();
+		
+		this.sequenceNumber = sequenceNumber;
+		this.tickCost = tickCost;
+		this.actions = ImmutableList.copyOf(actions);
+		this.stateHash = Preconditions.checkNotNull(stateHash);
+	}
+
+	@Override
+	public String toString() {
+		
+		return MoreObjects.toStringHelper(this).addValue(sequenceNumber).add("tickCost", tickCost).add("actions", actions).add("stateHash", stateHash).toString();
+	}
+
+	/**
+	 * Encodes a bundle without building one first. 
+	 * 
+	 * @param leadingByte A byte to put before the bundle, marking the message type
+	 * @param sequenceNumber The sequence number reached
+	 * @param tickCost How long ticks take, in microseconds
+	 * @param actions The actions submitted
+	 * @param stateHash A state hash to send, if any
+	 * @return The encoded bundle
+	 */
+	public static Bytes encode(final byte leadingByte, final int sequenceNumber, final int tickCost, final List<? extends SequencedAction<?>> actions, final Optional<StateHash> stateHash) {
+		
+		Preconditions.checkNotNull(stateHash);
+		
+		final List<byte[]> encodedActions = ActionListCodec.encodeAll(actions, SequencedAction::encode);
+		
+		int length = 1 + 4 + 4 + ActionListCodec.length(encodedActions);
+		
+		if (stateHash.isPresent()) {
+			
+			length += 4 + 4;
+		}
+		
+		// The length is known up front, so the message is written into a single array
+		final byte[] data = new byte[length];
+		
+		data[0] = leadingByte;
+		
+		int position = Utils.writeInt(data, 1, sequenceNumber);
+		
+		position = Utils.writeInt(data, position, tickCost);
+		
+		position = ActionListCodec.write(data, position, encodedActions);
+		
+		if (stateHash.isPresent()) {
+			
+			position = Utils.writeInt(data, position, stateHash.get().sequenceNumber());
+			
+			Utils.writeInt(data, position, stateHash.get().hash());
+		}
+		
+		return Bytes.of(data);
+	}
+
+	/**
+	 * Decodes a bundle, as written by <code>encode</code> after the leading byte. 
+	 * 
+	 * @param data The encoded bundle
+	 * @param decoder The decoder for the actions
+	 * @return The bundle, or nothing if it is malformed or an action could not be decoded
+	 */
+	public static <T extends Simulation> Optional<TickBundle<T>> decode(final Bytes data, final ActionDecoder<T> decoder) {
+		
+		if (data.length() < 12) {
+			
+			// Too short for even the header and the action count
+			return Optional.empty();
+		}
+		
+		final BytesReader reader = data.read();
+		
+		final int sequenceNumber = reader.readInt();
+		final int tickCost = reader.readInt();
+		
+		final List<SequencedAction<T>> actions = new ArrayList<>();
+		
+		final int position = ActionListCodec.read(data, 8, x -> SequencedAction.decode(x, decoder), actions);
+		
+		if (position < 0) {
+			
+			return Optional.empty();
+		}
+		
+		reader.skip(position - 8);
+		
+		final Optional<StateHash> stateHash = (reader.remaining() >= 8) ? 
+				Optional.of(new StateHash(reader.readInt(), reader.readInt())) : 
+				Optional.empty();
+		
+		return Optional.of(new TickBundle<>(sequenceNumber, tickCost, actions, stateHash));
+	}
+}
@@ -0,0 +1,163 @@
+package io.njlr.lockstep.state;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Paces ticks at a fixed rate using an accumulator. 
+ * 
+ * Elapsed time is added to the accumulator and each tick takes one period from it, 
+ * so a tick that is late (e.g. because a peer stalled us) is made up for by ticking back-to-back afterwards. 
+ * At most <code>maximumCatchUp</code> ticks are owed at once; beyond that the time is lost rather than 
+ * the simulation racing to catch up. 
+ * 
+ * Time passes slightly slower for a peer in the front half of the run-ahead window, so that the peers behind 
+ * it close the gap gently rather than it stalling at the edge of the window and then bursting. 
+ * A peer that has fallen behind catches up through the ticks it is owed. 
+ * 
+ * Times are in nanoseconds, as given by <code>System.nanoTime</code>. 
+ * 
+ * This class is not thread-safe; it belongs to the tick thread. 
+ *
+ */
+public final class TickPacer {
+	
+	public static final int defaultMaximumCatchUp = 5;
+	
+	/**
+	 * The most the rate is slowed down by to stay out of the front of the run-ahead window. 
+	 */
+	public static final double maximumRateAdjustment = 0.1;
+	
+	private long period;
+	private final int maximumCatchUp;
+	
+	private long accumulator;
+	private long lastTime;
+	
+	/**
+	 * Creates a new <code>TickPacer</code> instance. 
+	 * 
+	 * @param period The time between ticks
+	 * @param unit The unit of the period
+	 * @param maximumCatchUp The most ticks that may be owed at once
+	 */
+	public TickPacer(final long period, final TimeUnit unit, final int maximumCatchUp) {
+		
+		super();
+		
+		Preconditions.checkArgument(period > 0L);
+		Preconditions.checkNotNull(unit);
+		Preconditions.checkArgument(maximumCatchUp > 0);
+		
+		this.period = unit.toNanos(period);
+		this.maximumCatchUp = maximumCatchUp;
+	}
+
+	public TickPacer(final long period, final TimeUnit unit) {
+		
+		this(period, unit, defaultMaximumCatchUp);
+	}
+
+	/**
+	 * The time between ticks. 
+	 * 
+	 * @param unit The unit to express the result in
+	 * @return The tick period
+	 */
+	public long period(final TimeUnit unit) {
+		
+		return unit.convert(period, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Changes the time between ticks from the next tick on. 
+	 * 
+	 * @param period The time between ticks
+	 * @param unit The unit of the period
+	 */
+	public void setPeriod(final long period, final TimeUnit unit) {
+		
+		Preconditions.checkArgument(period > 0L);
+		
+		this.period = unit.toNanos(period);
+	}
+
+	/**
+	 * Starts the clock, with the first tick due immediately. 
+	 * 
+	 * @param now The current time
+	 */
+	public void start(final long now) {
+		
+		accumulator = period;
+		lastTime = now;
+	}
+
+	/**
+	 * Accounts for the time passed since the last call. 
+	 * 
+	 * @param now The current time
+	 * @param ticksAhead How many ticks we are ahead of the slowest peer
+	 * @param runAhead How many ticks we may be ahead of the slowest peer
+	 */
+	public void advance(final long now, final int ticksAhead, final int runAhead) {
+		
+		final long elapsed = now - lastTime;
+		
+		lastTime = now;
+		
+		accumulator += (long) (elapsed * rate(ticksAhead, runAhead));
+		
+		accumulator = Math.min(accumulator, period * maximumCatchUp);
+	}
+
+	/**
+	 * Whether a tick is due. 
+	 * 
+	 * @return If at least one tick is owed
+	 */
+	public boolean isDue() {
+		
+		return accumulator >= period;
+	}
+
+	/**
+	 * How long until the next tick is due, ignoring any change in rate. 
+	 * 
+	 * @param unit The unit to express the result in
+	 * @return The time until the next tick, or zero if one is due
+	 */
+	public long timeUntilDue(final TimeUnit unit) {
+		
+		return unit.convert(Math.max(0L, period - accumulator), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Takes one tick from the accumulator. 
+	 */
+	public void ticked() {
+		
+		accumulator -= period;
+	}
+
+	/**
+	 * How fast time should pass, relative to real time, to stay out of the front of the run-ahead window. 
+	 * 
+	 * Only slowing down is safe: every peer sees the others as behind by their latency, 
+	 * so speeding up when behind would speed the whole session up. 
+	 * 
+	 * @param ticksAhead How many ticks we are ahead of the slowest peer
+	 * @param runAhead How many ticks we may be ahead of the slowest peer
+	 * @return The rate, between 1 - <code>maximumRateAdjustment</code> and 1
+	 */
+	public static double rate(final int ticksAhead, final int runAhead) {
+		
+		final double centre = runAhead / 2.0;
+		
+		final double offset = Math.max(0.0, Math.min(1.0, (ticksAhead - centre) / centre));
+		
+		return 1.0 - offset * maximumRateAdjustment;
+	}
+}
@@ -0,0 +1,52 @@
+package io.njlr.lockstep.state;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Parks the consumer for a fixed period and then looks again. 
+ * 
+ * Producers never signal, so they pay nothing to publish; 
+ * the price is up to one period of latency per stall. 
+ *
+ */
+public final class TimedParkWaitStrategy implements WaitStrategy {
+	
+	private final long periodNanos;
+	
+	/**
+	 * Creates a new <code>TimedParkWaitStrategy</code> instance. 
+	 * 
+	 * @param period How long to park for
+	 * @param unit The unit of the period
+	 */
+	public TimedParkWaitStrategy(final long period, final TimeUnit unit) {
+		
+		super();
+		
+		Preconditions.checkArgument(period > 0);
+		Preconditions.checkNotNull(unit);
+		
+		periodNanos = unit.toNanos(period);
+	}
+
+	@Override
+	public void idle(final int idleCount) {
+		
+		LockSupport.parkNanos(this, periodNanos);
+	}
+
+	@Override
+	public void idleFor(final long timeout, final TimeUnit unit) {
+		
+		// Never longer than the period, since nothing wakes us early
+		LockSupport.parkNanos(this, Math.min(unit.toNanos(timeout), periodNanos));
+	}
+
+	@Override
+	public void signal(final Thread consumer) {
+	
+	}
+}
@@ -0,0 +1,46 @@
+package io.njlr.lockstep.state;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How the tick thread of a <code>SimulationManager</code> waits when it has nothing to do. 
+ * 
+ * Blocking costs the least CPU but adds the latency of a thread wake-up to every stall; 
+ * spinning reacts fastest but keeps a core busy. 
+ * 
+ * Implementations must be thread-safe. 
+ *
+ */
+public interface WaitStrategy {
+	
+	/**
+	 * Called by the consumer each time it finds no work. Returns once it is worth looking again. 
+	 * 
+	 * May return early at any time. 
+	 * 
+	 * @param idleCount How many times in a row the consumer has been idle, starting from zero
+	 */
+	void idle(final int idleCount);
+	
+	/**
+	 * Called by the consumer when it has nothing to do until a known time, such as the next paced tick. 
+	 * Returns by then; may return early at any time, e.g. when signalled. 
+	 * 
+	 * By default, parks until the time is up or a producer unparks the consumer. 
+	 * 
+	 * @param timeout How long until there is work
+	 * @param unit The unit of the timeout
+	 */
+	default void idleFor(final long timeout, final TimeUnit unit) {
+		
+		LockSupport.parkNanos(this, unit.toNanos(timeout));
+	}
+	
+	/**
+	 * Called by a producer after publishing work for the consumer. 
+	 * 
+	 * @param consumer The consumer's thread, or null if it has not started yet
+	 */
+	void signal(final Thread consumer);
+}
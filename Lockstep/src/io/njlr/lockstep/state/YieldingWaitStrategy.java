@@ -0,0 +1,59 @@
+package io.njlr.lockstep.state;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Spins for a while and then yields the processor between looks. 
+ * 
+ * Reacts quickly while letting other threads on the same core make progress, 
+ * but still uses a core's worth of CPU when there are none. 
+ *
+ */
+public final class YieldingWaitStrategy implements WaitStrategy {
+	
+	public static final int defaultSpinTries = 100;
+	
+	private final int spinTries;
+	
+	/**
+	 * Creates a new <code>YieldingWaitStrategy</code> instance. 
+	 * 
+	 * @param spinTries How many idle looks to spin for before yielding
+	 */
+	public YieldingWaitStrategy(final int spinTries) {
+		
+		super();
+		
+		Preconditions.checkArgument(spinTries >= 0);
+		
+		this.spinTries = spinTries;
+	}
+
+	public YieldingWaitStrategy() {
+		
+		this(defaultSpinTries);
+	}
+
+	@Override
+	public void idle(final int idleCount) {
+		
+		if (idleCount >= spinTries) {
+			
+			Thread.yield();
+		}
+	}
+
+	@Override
+	public void idleFor(final long timeout, final TimeUnit unit) {
+		
+		// The consumer looks again, and so spins, until the time is up
+		Thread.yield();
+	}
+
+	@Override
+	public void signal(final Thread consumer) {
+	
+	}
+}
@@ -0,0 +1,105 @@
+package io.njlr.lockstep.tests.network;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.lockstep.network.ChannelContext;
+import io.njlr.lockstep.network.HashedTimingWheel;
+import io.njlr.lockstep.network.HashedTimingWheel.Timeout;
+
+public final class HashedTimingWheelTests {
+	
+	@Test
+	public void testScheduledTaskRuns() throws Exception {
+		
+		final HashedTimingWheel timingWheel = new HashedTimingWheel();
+		
+		timingWheel.startAsync().awaitRunning();
+		
+		final CountDownLatch latch = new CountDownLatch(1);
+		
+		final long start = System.nanoTime();
+		
+		timingWheel.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+		
+		assert(latch.await(5, TimeUnit.SECONDS));
+		assert(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		
+		timingWheel.stopAsync().awaitTerminated();
+	}
+
+	@Test
+	public void testDefaultContextWheel() throws Exception {
+		
+		// A context written before timing wheels existed
+		final ChannelContext context = new ChannelContext() {
+			
+			@Override
+			public void sendMessage(final Bytes message) {
+			
+			}
+			
+			@Override
+			public void takeMessage(final Bytes message) {
+			
+			}
+		};
+		
+		assert(context.timingWheel() == HashedTimingWheel.shared());
+		assert(context.timingWheel().isRunning());
+		
+		final CountDownLatch latch = new CountDownLatch(1);
+		
+		context.timingWheel().schedule(latch::countDown, 5, TimeUnit.MILLISECONDS);
+		
+		assert(latch.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testCancelledTaskDoesNotRun() throws Exception {
+		
+		final HashedTimingWheel timingWheel = new HashedTimingWheel();
+		
+		timingWheel.startAsync().awaitRunning();
+		
+		final AtomicInteger count = new AtomicInteger();
+		
+		final Timeout timeout = timingWheel.schedule(count::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+		
+		assert(timeout.cancel());
+		assert(!timeout.isPending());
+		
+		Thread.sleep(50);
+		
+		assert(count.get() == 0);
+		
+		timingWheel.stopAsync().awaitTerminated();
+	}
+
+	@Test
+	public void testRescheduleBeyondOneRevolution() throws Exception {
+		
+		// 8 buckets of 1ms, so a 30ms timeout wraps around the wheel several times
+		final HashedTimingWheel timingWheel = new HashedTimingWheel(1, TimeUnit.MILLISECONDS, 8);
+		
+		timingWheel.startAsync().awaitRunning();
+		
+		final CountDownLatch latch = new CountDownLatch(1);
+		
+		final Timeout timeout = timingWheel.newTimeout(latch::countDown);
+		
+		final long start = System.nanoTime();
+		
+		timeout.schedule(5, TimeUnit.MILLISECONDS);
+		timeout.schedule(30, TimeUnit.MILLISECONDS);
+		
+		assert(latch.await(5, TimeUnit.SECONDS));
+		assert(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+		
+		timingWheel.stopAsync().awaitTerminated();
+	}
+}
@@ -0,0 +1,50 @@
+package io.njlr.lockstep.tests.network;
+
+import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.network.NetworkAddress;
+
+public final class NetworkAddressTests {
+	
+	@Test
+	public void testEquality() throws Exception {
+		
+		final NetworkAddress a = NetworkAddress.of(InetAddress.getByName("10.0.0.1"), 1234);
+		final NetworkAddress b = NetworkAddress.of(InetAddress.getByName("10.0.0.1"), 1234);
+		
+		assert(a.equals(b));
+		assert(a.hashCode() == b.hashCode());
+		
+		assert(!a.equals(NetworkAddress.of(InetAddress.getByName("10.0.0.1"), 1235)));
+	}
+
+	@Test
+	public void testHashDistribution() throws Exception {
+		
+		// Many hosts on a few consecutive ports, as on a LAN
+		final Set<Integer> buckets = new HashSet<>();
+		
+		final int hosts = 64;
+		final int ports = 8;
+		
+		for (int i = 0; i < hosts; i++) {
+			
+			for (int j = 0; j < ports; j++) {
+				
+				final NetworkAddress address = NetworkAddress.of(InetAddress.getByAddress(new byte[] { 10, 0, 0, (byte) i }), 1234 + j);
+				
+				// The bucket that a HashMap of 1024 entries would use
+				final int h = address.hashCode();
+				
+				buckets.add((h ^ (h >>> 16)) & 1023);
+			}
+		}
+		
+		// 512 addresses in 1024 buckets should rarely collide
+		assert(buckets.size() > 350);
+	}
+}
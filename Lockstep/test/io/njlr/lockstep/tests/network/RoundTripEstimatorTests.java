@@ -0,0 +1,65 @@
+package io.njlr.lockstep.tests.network;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.network.RoundTripEstimator;
+
+public final class RoundTripEstimatorTests {
+	
+	@Test
+	public void testInitialTimeout() {
+		
+		final RoundTripEstimator estimator = new RoundTripEstimator(1000, TimeUnit.MILLISECONDS);
+		
+		assert(estimator.retransmissionTimeout(0) == TimeUnit.MILLISECONDS.toNanos(1000));
+	}
+
+	@Test
+	public void testConvergesOnSteadyRoundTrip() {
+		
+		final RoundTripEstimator estimator = new RoundTripEstimator(1000, TimeUnit.MILLISECONDS);
+		
+		for (int i = 0; i < 100; i++) {
+			
+			estimator.sample(TimeUnit.MILLISECONDS.toNanos(20));
+		}
+		
+		final long smoothed = estimator.estimate().smoothedRoundTripTime(TimeUnit.MILLISECONDS);
+		final long timeout = estimator.estimate().retransmissionTimeout(TimeUnit.MILLISECONDS);
+		
+		assert(smoothed >= 19 && smoothed <= 20);
+		assert(timeout >= 20 && timeout < 30);
+	}
+
+	@Test
+	public void testBackOffDoubles() {
+		
+		final RoundTripEstimator estimator = new RoundTripEstimator(100, TimeUnit.MILLISECONDS);
+		
+		assert(estimator.retransmissionTimeout(1) == 2 * estimator.retransmissionTimeout(0));
+		assert(estimator.retransmissionTimeout(3) == 8 * estimator.retransmissionTimeout(0));
+		
+		// The back-off is bounded
+		assert(estimator.retransmissionTimeout(1000) == estimator.retransmissionTimeout(RoundTripEstimator.maximumBackOff));
+	}
+
+	@Test
+	public void testMaximumTimeout() {
+		
+		final RoundTripEstimator estimator = new RoundTripEstimator(4, TimeUnit.SECONDS);
+		
+		assert(estimator.retransmissionTimeout(1000) == RoundTripEstimator.maximumTimeout);
+	}
+
+	@Test
+	public void testMinimumTimeout() {
+		
+		final RoundTripEstimator estimator = new RoundTripEstimator(1000, TimeUnit.MILLISECONDS);
+		
+		estimator.sample(0);
+		
+		assert(estimator.retransmissionTimeout(0) == RoundTripEstimator.minimumTimeout);
+	}
+}
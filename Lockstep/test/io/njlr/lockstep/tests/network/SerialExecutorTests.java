@@ -0,0 +1,141 @@
+package io.njlr.lockstep.tests.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.network.SerialExecutor;
+
+public final class SerialExecutorTests {
+	
+	@Test
+	public void testOrderIsPreserved() throws Exception {
+		
+		final int limit = 100000;
+		
+		final ExecutorService executorService = Executors.newFixedThreadPool(4);
+		
+		final SerialExecutor serialExecutor = new SerialExecutor(executorService, 16);
+		
+		// Deliberately unsynchronized; the executor must provide the happens-before edges
+		final List<Integer> results = new ArrayList<>();
+		
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maximumRunning = new AtomicInteger();
+		
+		final CountDownLatch latch = new CountDownLatch(limit);
+		
+		for (int i = 0; i < limit; i++) {
+			
+			final int x = i;
+			
+			serialExecutor.execute(() -> {
+				
+				maximumRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				
+				results.add(x);
+				
+				running.decrementAndGet();
+				
+				latch.countDown();
+			});
+		}
+		
+		assert(latch.await(10, TimeUnit.SECONDS));
+		
+		executorService.shutdown();
+		
+		assert(maximumRunning.get() == 1);
+		assert(results.size() == limit);
+		
+		for (int i = 0; i < limit; i++) {
+			
+			assert(results.get(i) == i);
+		}
+	}
+
+	@Test
+	public void testFailingTaskDoesNotStall() throws Exception {
+		
+		final ExecutorService executorService = Executors.newSingleThreadExecutor();
+		
+		final SerialExecutor serialExecutor = new SerialExecutor(executorService);
+		
+		final CountDownLatch latch = new CountDownLatch(1);
+		
+		serialExecutor.execute(() -> { throw new RuntimeException("Expected"); });
+		serialExecutor.execute(latch::countDown);
+		
+		assert(latch.await(5, TimeUnit.SECONDS));
+		
+		executorService.shutdown();
+	}
+
+	@Test
+	public void testShutdownDropsRemainingTasks() throws Exception {
+		
+		final AtomicReference<Throwable> uncaught = new AtomicReference<>();
+		
+		final ExecutorService executorService = Executors.newSingleThreadExecutor(task -> {
+			
+			final Thread thread = new Thread(task);
+			
+			thread.setUncaughtExceptionHandler((t, e) -> { uncaught.set(e); });
+			
+			return thread;
+		});
+		
+		// One task per drain, so that the second needs another drain
+		final SerialExecutor serialExecutor = new SerialExecutor(executorService, 1);
+		
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger ran = new AtomicInteger();
+		
+		serialExecutor.execute(() -> {
+			
+			started.countDown();
+			
+			try {
+				
+				release.await();
+			} catch (final InterruptedException e) {
+				
+				Thread.currentThread().interrupt();
+			}
+			
+			ran.incrementAndGet();
+		});
+		
+		serialExecutor.execute(ran::incrementAndGet);
+		
+		assert(started.await(5, TimeUnit.SECONDS));
+		
+		executorService.shutdown();
+		
+		release.countDown();
+		
+		assert(executorService.awaitTermination(5, TimeUnit.SECONDS));
+		
+		assert(ran.get() == 1);
+		assert(uncaught.get() == null);
+		
+		try {
+			
+			// Callers are still told
+			serialExecutor.execute(ran::incrementAndGet);
+			
+			assert(false);
+		} catch (final RejectedExecutionException e) {
+		
+		}
+	}
+}
@@ -2,6 +2,8 @@ package io.njlr.lockstep.tests.network;
 
 import org.junit.Test;
 
+import io.njlr.bytes.Bytes;
+
 import io.njlr.lockstep.network.Utils;
 
 public final class UtilsTests {
@@ -19,4 +21,12 @@ public final class UtilsTests {
 		
 		assert(messageIn.equals(messageOut));
 	}
+
+	@Test
+	public void testConcat() {
+		
+		final Bytes joined = Utils.concat(Bytes.of((byte) 1), Bytes.of(new byte[] { 2, 3 }));
+		
+		assert(joined.equals(Bytes.of(new byte[] { 1, 2, 3 })));
+	}
 }
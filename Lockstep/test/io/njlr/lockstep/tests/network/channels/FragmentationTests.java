@@ -0,0 +1,216 @@
+package io.njlr.lockstep.tests.network.channels;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.lockstep.network.ChannelContext;
+import io.njlr.lockstep.network.HashedTimingWheel;
+import io.njlr.lockstep.network.Utils;
+import io.njlr.lockstep.network.channels.FragmentationChannelDecorator;
+import io.njlr.lockstep.network.channels.SelectiveRepeatChannel;
+import io.njlr.lockstep.network.channels.UnreliableUnorderedChannel;
+
+public final class FragmentationTests {
+	
+	@Test
+	public void testSmallMessageIsSentWhole() throws Exception {
+		
+		final RecordingContext senderContext = new RecordingContext(new HashedTimingWheel());
+		final RecordingContext receiverContext = new RecordingContext(new HashedTimingWheel());
+		
+		final FragmentationChannelDecorator sender = new FragmentationChannelDecorator(senderContext, UnreliableUnorderedChannel::create);
+		final FragmentationChannelDecorator receiver = new FragmentationChannelDecorator(receiverContext, UnreliableUnorderedChannel::create);
+		
+		final Bytes message = randomBytes(100);
+		
+		sender.send(message);
+		
+		assert(senderContext.sent.size() == 1);
+		
+		receiver.handle(senderContext.sent.get(0));
+		
+		assert(receiverContext.taken.size() == 1);
+		assert(receiverContext.taken.get(0).equals(message));
+	}
+
+	@Test
+	public void testWholeMessageIsNotJoined() throws Exception {
+		
+		final RecordingContext senderContext = new RecordingContext(new HashedTimingWheel());
+		
+		final FragmentationChannelDecorator sender = new FragmentationChannelDecorator(senderContext, SelectiveRepeatChannel::create);
+		
+		final Bytes message = randomBytes(100);
+		
+		sender.send(message);
+		
+		// The headers of both layers go down in front of the very same content
+		assert(senderContext.contents.size() == 1);
+		assert(senderContext.contents.get(0) == message);
+		
+		sender.close();
+	}
+
+	@Test
+	public void testOutOfOrderReassembly() throws Exception {
+		
+		final RecordingContext senderContext = new RecordingContext(new HashedTimingWheel());
+		final RecordingContext receiverContext = new RecordingContext(new HashedTimingWheel());
+		
+		final FragmentationChannelDecorator sender = new FragmentationChannelDecorator(senderContext, UnreliableUnorderedChannel::create, 100, 1 << 16, 5000);
+		final FragmentationChannelDecorator receiver = new FragmentationChannelDecorator(receiverContext, UnreliableUnorderedChannel::create, 100, 1 << 16, 5000);
+		
+		final Bytes message = randomBytes(5000);
+		
+		sender.send(message);
+		
+		assert(senderContext.sent.size() > 1);
+		
+		for (final Bytes i : senderContext.sent) {
+			
+			assert(i.length() <= 100);
+		}
+		
+		Collections.reverse(senderContext.sent);
+		
+		// Duplicates should be ignored
+		receiver.handle(senderContext.sent.get(0));
+		
+		for (final Bytes i : senderContext.sent) {
+			
+			receiver.handle(i);
+		}
+		
+		assert(receiverContext.taken.size() == 1);
+		assert(receiverContext.taken.get(0).equals(message));
+	}
+
+	@Test
+	public void testOldestIncompleteMessageIsEvicted() throws Exception {
+		
+		final RecordingContext senderContext = new RecordingContext(new HashedTimingWheel());
+		final RecordingContext receiverContext = new RecordingContext(new HashedTimingWheel());
+		
+		final FragmentationChannelDecorator sender = new FragmentationChannelDecorator(senderContext, UnreliableUnorderedChannel::create, 100, 1 << 16, 5000);
+		final FragmentationChannelDecorator receiver = new FragmentationChannelDecorator(receiverContext, UnreliableUnorderedChannel::create, 100, 300, 5000);
+		
+		final Bytes first = randomBytes(250);
+		final Bytes second = randomBytes(250);
+		
+		sender.send(first);
+		
+		final List<Bytes> firstFragments = new ArrayList<>(senderContext.sent);
+		
+		senderContext.sent.clear();
+		
+		sender.send(second);
+		
+		final List<Bytes> secondFragments = new ArrayList<>(senderContext.sent);
+		
+		// Start the first message, then complete the second, which requires evicting the first
+		receiver.handle(firstFragments.get(0));
+		receiver.handle(firstFragments.get(1));
+		
+		for (final Bytes i : secondFragments) {
+			
+			receiver.handle(i);
+		}
+		
+		assert(receiverContext.taken.size() == 1);
+		assert(receiverContext.taken.get(0).equals(second));
+		
+		// The remainder of the first message is not enough to complete it
+		receiver.handle(firstFragments.get(2));
+		
+		assert(receiverContext.taken.size() == 1);
+	}
+
+	@Test
+	public void testIncompleteMessageTimesOut() throws Exception {
+		
+		final HashedTimingWheel timingWheel = new HashedTimingWheel();
+		
+		timingWheel.startAsync().awaitRunning();
+		
+		final RecordingContext senderContext = new RecordingContext(timingWheel);
+		final RecordingContext receiverContext = new RecordingContext(timingWheel);
+		
+		final FragmentationChannelDecorator sender = new FragmentationChannelDecorator(senderContext, UnreliableUnorderedChannel::create, 100, 1 << 16, 5000);
+		final FragmentationChannelDecorator receiver = new FragmentationChannelDecorator(receiverContext, UnreliableUnorderedChannel::create, 100, 1 << 16, 10);
+		
+		sender.send(randomBytes(250));
+		
+		receiver.handle(senderContext.sent.get(0));
+		receiver.handle(senderContext.sent.get(1));
+		
+		Thread.sleep(100);
+		
+		receiver.handle(senderContext.sent.get(2));
+		
+		assert(receiverContext.taken.isEmpty());
+		
+		timingWheel.stopAsync().awaitTerminated();
+	}
+
+	private static Bytes randomBytes(final int length) {
+		
+		final byte[] data = new byte[length];
+		
+		new Random().nextBytes(data);
+		
+		return Bytes.of(data);
+	}
+
+	private static final class RecordingContext implements ChannelContext {
+		
+		private final HashedTimingWheel timingWheel;
+		
+		public final List<Bytes> sent;
+		public final List<Bytes> taken;
+		
+		// The content part of each message sent as a header and content
+		public final List<Bytes> contents;
+		
+		public RecordingContext(final HashedTimingWheel timingWheel) {
+			
+			super();
+			
+			this.timingWheel = timingWheel;
+			
+			sent = Collections.synchronizedList(new ArrayList<>());
+			taken = Collections.synchronizedList(new ArrayList<>());
+			contents = Collections.synchronizedList(new ArrayList<>());
+		}
+		
+		@Override
+		public void sendMessage(final Bytes message) {
+			
+			sent.add(message);
+		}
+		
+		@Override
+		public void sendMessage(final Bytes header, final Bytes message) {
+			
+			contents.add(message);
+			
+			sent.add(Utils.concat(header, message));
+		}
+		
+		@Override
+		public void takeMessage(final Bytes message) {
+			
+			taken.add(message);
+		}
+		
+		@Override
+		public HashedTimingWheel timingWheel() {
+			
+			return timingWheel;
+		}
+	}
+}
@@ -42,7 +42,9 @@ public final class OneWayReliability {
 		
 		assert(result == null);
 		
-		// No need to tidy-up; JUnit does it for us
+		// Free the ports for the next test
+		senderTask.networkSession().stopAsync().awaitTerminated();
+		receiverTask.networkSession().stopAsync().awaitTerminated();
 	}
 	
 	public static final class SenderTask implements Runnable {
@@ -53,6 +55,13 @@ public final class OneWayReliability {
 		private final float packetLossChance;
 		private final Bytes[] sequence;
 		
+		private final NetworkSession networkSession;
+		
+		public NetworkSession networkSession() {
+			
+			return networkSession;
+		}
+		
 		public SenderTask(final int port, final NetworkAddress remoteAddress, final ChannelFactory channelFactory, final float packetLossChance, final Bytes[] sequence) {
 			
 			this.port = port;
@@ -60,13 +69,13 @@ public final class OneWayReliability {
 			this.channelFactory = channelFactory;
 			this.packetLossChance = packetLossChance;
 			this.sequence = sequence;
+			
+			networkSession = new NetworkSession(port);
 		}
 
 		@Override
 		public void run() {
 			
-			final NetworkSession networkSession = new NetworkSession(port);
-			
 			networkSession.startAsync();
 			
 			final ChannelBinding binding = new ChannelBinding(remoteAddress, ChannelCodes.ReliableOrdered1);
@@ -104,11 +113,18 @@ public final class OneWayReliability {
 		private volatile int index;
 		private final SettableFuture<?> future;
 		
+		private final NetworkSession networkSession;
+		
 		public ListenableFuture<?> future() {
 			
 			return this.future;
 		}
 		
+		public NetworkSession networkSession() {
+			
+			return networkSession;
+		}
+		
 		public ReceiverTask(final int port, final NetworkAddress remoteAddress, final ChannelFactory channelFactory, final float packetLossChance, final Bytes[] expectedSequence) {
 			
 			this.port = port;
@@ -118,6 +134,8 @@ public final class OneWayReliability {
 			this.expectedSequence = expectedSequence;
 			
 			future = SettableFuture.create();
+			
+			networkSession = new NetworkSession(port);
 		}
 
 		@Override
@@ -125,8 +143,6 @@ public final class OneWayReliability {
 			
 			index = 0;
 			
-			final NetworkSession networkSession = new NetworkSession(port);
-			
 			final ChannelBinding binding = new ChannelBinding(remoteAddress, ChannelCodes.ReliableOrdered1);
 			
 			networkSession.startAsync();
@@ -0,0 +1,175 @@
+package io.njlr.lockstep.tests.network.channels;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesBuilder;
+import io.njlr.lockstep.network.Channel;
+import io.njlr.lockstep.network.ChannelContext;
+import io.njlr.lockstep.network.HashedTimingWheel;
+import io.njlr.lockstep.network.channels.SelectiveRepeatChannel;
+
+public final class SelectiveRepeatTests {
+	
+	@Test
+	public void testOneWayReliability() throws Exception {
+		
+		final Bytes[] sequence = new Bytes[] { 
+				encode("This"), 
+				encode("is"), 
+				encode("a"), 
+				encode("test"), 
+				encode("message"),
+				encode("message"),
+				encode("message"),
+				encode("1"),
+				encode("2"),
+				encode("3"), 
+				encode("testing... "), 
+				encode("Fin")
+			};
+		
+		OneWayReliability.test(SelectiveRepeatChannel::create, 0.6f, sequence);
+	}
+
+	@Test
+	public void testTwoWayReliability() throws Exception {
+		
+		final Bytes messageA = encode("Hello");
+		final Bytes messageB = encode("Howdy");
+		
+		TwoWayReliability.test(SelectiveRepeatChannel::create, 0.9f, messageA, messageB);
+	}
+
+	@Test
+	public void testTwoWayReliability2() throws Exception {
+		
+		TwoWayReliability2.test(SelectiveRepeatChannel::create, 0.1f, 100);
+	}
+
+	@Test
+	public void testBurstReliability() throws Exception {
+		
+		final int limit = 2000;
+		final float packetLossChance = 0.3f;
+		
+		final Random random = new Random();
+		final List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+		
+		final HashedTimingWheel timingWheel = new HashedTimingWheel();
+		
+		timingWheel.startAsync().awaitRunning();
+		
+		final AtomicReference<Channel> a = new AtomicReference<>();
+		final AtomicReference<Channel> b = new AtomicReference<>();
+		
+		// Wire two channels back-to-back, dropping and re-ordering packets along the way
+		a.set(new SelectiveRepeatChannel(new LossyContext(b, timingWheel, random, packetLossChance, (final Bytes message) -> { }), 16, 20));
+		b.set(new SelectiveRepeatChannel(new LossyContext(a, timingWheel, random, packetLossChance, (final Bytes message) -> { received.add(message.read().readInt()); }), 16, 20));
+		
+		for (int i = 0; i < limit; i++) {
+			
+			a.get().send(new BytesBuilder(4).appendInt(i).toBytes());
+		}
+		
+		for (int i = 0; i < 500 && received.size() < limit; i++) {
+			
+			Thread.sleep(20);
+		}
+		
+		a.get().close();
+		b.get().close();
+		
+		timingWheel.stopAsync();
+		
+		assert(received.size() == limit);
+		
+		for (int i = 0; i < limit; i++) {
+			
+			assert(received.get(i) == i);
+		}
+	}
+
+	private static final class LossyContext implements ChannelContext {
+		
+		private final AtomicReference<Channel> remote;
+		private final HashedTimingWheel timingWheel;
+		private final Random random;
+		private final float packetLossChance;
+		private final Consumer<Bytes> listener;
+		
+		// Delivery happens on another thread, as it would with a real network
+		private final ExecutorService executorService;
+		
+		private Bytes delayed;
+		
+		public LossyContext(final AtomicReference<Channel> remote, final HashedTimingWheel timingWheel, final Random random, final float packetLossChance, final Consumer<Bytes> listener) {
+			
+			super();
+			
+			this.remote = remote;
+			this.timingWheel = timingWheel;
+			this.random = random;
+			this.packetLossChance = packetLossChance;
+			this.listener = listener;
+			
+			executorService = Executors.newSingleThreadExecutor();
+		}
+		
+		@Override
+		public synchronized void sendMessage(final Bytes message) {
+			
+			if (random.nextFloat() < packetLossChance) {
+				
+				return;
+			}
+			
+			// Hold back the occasional packet so that it arrives after its successor
+			if (delayed == null && random.nextFloat() < 0.2f) {
+				
+				delayed = message;
+				
+				return;
+			}
+			
+			executorService.submit(() -> { remote.get().handle(message); });
+			
+			if (delayed != null) {
+				
+				final Bytes d = delayed;
+				
+				delayed = null;
+				
+				executorService.submit(() -> { remote.get().handle(d); });
+			}
+		}
+		
+		@Override
+		public void takeMessage(final Bytes message) {
+			
+			listener.accept(message);
+		}
+		
+		@Override
+		public HashedTimingWheel timingWheel() {
+			
+			return timingWheel;
+		}
+	}
+
+	private static Bytes encode(final String message) {
+		
+		return new Bytes(Charsets.US_ASCII.encode(message).array());
+	}
+}
@@ -38,13 +38,15 @@ public final class TwoWayReliability {
 		executorService.submit(taskA);
 		executorService.submit(taskB);
 		
-		final Bytes resultA = taskB.future().get(); // Calling get inside an assert does not block! 
+		final Bytes resultA = taskA.future().get(); // Calling get inside an assert does not block! 
 		final Bytes resultB = taskB.future().get();
 		
 		assert(resultA.equals(messageB));
 		assert(resultB.equals(messageA));
 		
-		// No need to tidy-up; JUnit does it for us
+		// Free the ports for the next test
+		taskA.networkSession().stopAsync().awaitTerminated();
+		taskB.networkSession().stopAsync().awaitTerminated();
 	}
 	
 	private static final class Task implements Runnable {
@@ -58,11 +60,18 @@ public final class TwoWayReliability {
 		
 		private final SettableFuture<Bytes> future;
 		
+		private final NetworkSession networkSession;
+		
 		public ListenableFuture<Bytes> future() {
 			
 			return this.future;
 		}
 		
+		public NetworkSession networkSession() {
+			
+			return networkSession;
+		}
+		
 		public Task(final int port, final NetworkAddress remoteAddress, final ChannelFactory channelFactory, final float packetLossChance, final Bytes message) {
 			
 			this.port = port;
@@ -72,13 +81,13 @@ public final class TwoWayReliability {
 			this.message = message;
 			
 			future = SettableFuture.create();
+			
+			networkSession = new NetworkSession(port);
 		}
 
 		@Override
 		public void run() {
 			
-			final NetworkSession networkSession = new NetworkSession(port);
-			
 			final ChannelBinding binding = new ChannelBinding(remoteAddress, ChannelCodes.ReliableOrdered1);
 			
 			networkSession.startAsync();
@@ -46,7 +46,9 @@ public final class TwoWayReliability2 {
 		taskA.future().get();
 		taskB.future().get();
 		
-		// No need to tidy-up; JUnit does it for us
+		// Free the ports for the next test
+		taskA.networkSession().stopAsync().awaitTerminated();
+		taskB.networkSession().stopAsync().awaitTerminated();
 	}
 	
 	private static final class Task implements Runnable {
@@ -61,11 +63,18 @@ public final class TwoWayReliability2 {
 		
 		private final SettableFuture<?> future;
 		
+		private final NetworkSession networkSession;
+		
 		public ListenableFuture<?> future() {
 			
 			return future;
 		}
 		
+		public NetworkSession networkSession() {
+			
+			return networkSession;
+		}
+		
 		public Task(final int port, final NetworkAddress remoteAddress, final ChannelFactory channelFactory, final float packetLossChance, final int limit) {
 			
 			Preconditions.checkArgument(limit > 0);
@@ -77,6 +86,8 @@ public final class TwoWayReliability2 {
 			this.limit = limit;
 			
 			future = SettableFuture.create();
+			
+			networkSession = new NetworkSession(port);
 		}
 
 		@Override
@@ -84,8 +95,6 @@ public final class TwoWayReliability2 {
 			
 			i = 0;
 			
-			final NetworkSession networkSession = new NetworkSession(port);
-			
 			final ChannelBinding binding = new ChannelBinding(remoteAddress, ChannelCodes.ReliableOrdered1);
 			
 			networkSession.startAsync();
@@ -111,12 +120,17 @@ public final class TwoWayReliability2 {
 				};
 			};
 			
-			networkSession.connect(
-					binding, 
-					(final ChannelContext context) -> { return new PacketLossChannelDecorator(channelFactory.create(context), packetLossChance); }, 
-					listener);
-			
-			networkSession.send(binding, new BytesBuilder(4).appendInt(i).toBytes());
+			// The remote's first message may arrive as soon as we connect; 
+			// it must not be handled (and answered) before our own first message is sent
+			synchronized (listener) {
+				
+				networkSession.connect(
+						binding, 
+						(final ChannelContext context) -> { return new PacketLossChannelDecorator(channelFactory.create(context), packetLossChance); }, 
+						listener);
+				
+				networkSession.send(binding, new BytesBuilder(4).appendInt(i).toBytes());
+			}
 		}
 	}
 }
@@ -0,0 +1,139 @@
+package io.njlr.lockstep.tests.network.session;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.lockstep.network.HashedTimingWheel;
+import io.njlr.lockstep.network.NetworkAddress;
+import io.njlr.lockstep.network.session.DatagramCoalescer;
+
+public final class DatagramCoalescerTests {
+	
+	@Test
+	public void testFramesShareDatagram() throws Exception {
+		
+		final HashedTimingWheel timingWheel = new HashedTimingWheel();
+		
+		final List<byte[]> datagrams = new ArrayList<>();
+		
+		final DatagramCoalescer coalescer = new DatagramCoalescer(
+				new NetworkAddress(InetAddress.getLoopbackAddress(), 1234), 
+				(address, data, length) -> { datagrams.add(Arrays.copyOf(data, length)); }, 
+				64, 
+				timingWheel, 
+				TimeUnit.SECONDS.toNanos(1));
+		
+		coalescer.append((byte) 1, Bytes.of(new byte[] { 7, 8 }));
+		coalescer.append((byte) 2, Bytes.of((byte) 9));
+		
+		assert(datagrams.isEmpty());
+		
+		coalescer.flush();
+		
+		assert(datagrams.size() == 1);
+		assert(Arrays.equals(datagrams.get(0), new byte[] { 1, 0, 2, 7, 8, 2, 0, 1, 9 }));
+	}
+
+	@Test
+	public void testHeaderAndContent() throws Exception {
+		
+		final HashedTimingWheel timingWheel = new HashedTimingWheel();
+		
+		final List<byte[]> datagrams = new ArrayList<>();
+		
+		final DatagramCoalescer coalescer = new DatagramCoalescer(
+				new NetworkAddress(InetAddress.getLoopbackAddress(), 1234), 
+				(address, data, length) -> { datagrams.add(Arrays.copyOf(data, length)); }, 
+				64, 
+				timingWheel, 
+				0);
+		
+		coalescer.append((byte) 3, Bytes.of(new byte[] { 4, 5 }), Bytes.of(new byte[] { 6, 7, 8 }));
+		
+		assert(datagrams.size() == 1);
+		assert(Arrays.equals(datagrams.get(0), new byte[] { 3, 0, 5, 4, 5, 6, 7, 8 }));
+	}
+
+	@Test
+	public void testFullDatagramIsSent() throws Exception {
+		
+		final HashedTimingWheel timingWheel = new HashedTimingWheel();
+		
+		final List<byte[]> datagrams = new ArrayList<>();
+		
+		final DatagramCoalescer coalescer = new DatagramCoalescer(
+				new NetworkAddress(InetAddress.getLoopbackAddress(), 1234), 
+				(address, data, length) -> { datagrams.add(Arrays.copyOf(data, length)); }, 
+				16, 
+				timingWheel, 
+				TimeUnit.SECONDS.toNanos(1));
+		
+		// Two 10-byte frames cannot fit in 16 bytes
+		coalescer.append((byte) 1, Bytes.of(new byte[7]));
+		coalescer.append((byte) 1, Bytes.of(new byte[7]));
+		
+		assert(datagrams.size() == 1);
+		assert(datagrams.get(0).length == 10);
+	}
+
+	@Test
+	public void testOversizedFrameIsRejected() throws Exception {
+		
+		final List<byte[]> datagrams = new ArrayList<>();
+		
+		final DatagramCoalescer coalescer = new DatagramCoalescer(
+				new NetworkAddress(InetAddress.getLoopbackAddress(), 1234), 
+				(address, data, length) -> { datagrams.add(Arrays.copyOf(data, length)); }, 
+				16, 
+				new HashedTimingWheel(), 
+				0);
+		
+		// Exactly fills a datagram
+		coalescer.append((byte) 1, Bytes.of(new byte[13]));
+		
+		try {
+			
+			coalescer.append((byte) 1, Bytes.of(new byte[14]));
+			
+			assert(false);
+		} catch (final IllegalArgumentException e) {
+		
+		}
+		
+		assert(datagrams.size() == 1);
+	}
+
+	@Test
+	public void testDelayedFlush() throws Exception {
+		
+		final HashedTimingWheel timingWheel = new HashedTimingWheel();
+		
+		timingWheel.startAsync().awaitRunning();
+		
+		final List<byte[]> datagrams = new ArrayList<>();
+		
+		final DatagramCoalescer coalescer = new DatagramCoalescer(
+				new NetworkAddress(InetAddress.getLoopbackAddress(), 1234), 
+				(address, data, length) -> { synchronized (datagrams) { datagrams.add(Arrays.copyOf(data, length)); } }, 
+				64, 
+				timingWheel, 
+				TimeUnit.MILLISECONDS.toNanos(5));
+		
+		coalescer.append((byte) 1, Bytes.of((byte) 7));
+		
+		Thread.sleep(100);
+		
+		synchronized (datagrams) {
+			
+			assert(datagrams.size() == 1);
+		}
+		
+		timingWheel.stopAsync().awaitTerminated();
+	}
+}
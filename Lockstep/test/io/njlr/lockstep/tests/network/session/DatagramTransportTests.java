@@ -0,0 +1,94 @@
+package io.njlr.lockstep.tests.network.session;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.network.NetworkAddress;
+import io.njlr.lockstep.network.session.DatagramSocketTransport;
+import io.njlr.lockstep.network.session.DatagramTransport;
+import io.njlr.lockstep.network.session.NioDatagramTransport;
+
+public final class DatagramTransportTests {
+	
+	@Test
+	public void testNioTransport() throws Exception {
+		
+		test(new NioDatagramTransport(24561, 1400), new NioDatagramTransport(24562, 1400), 24562);
+	}
+
+	@Test
+	public void testSocketTransport() throws Exception {
+		
+		test(new DatagramSocketTransport(24563, 1400), new DatagramSocketTransport(24564, 1400), 24564);
+	}
+
+	private static void test(final DatagramTransport sender, final DatagramTransport receiver, final int receiverPort) throws Exception {
+		
+		sender.open();
+		receiver.open();
+		
+		final byte[] data = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+		
+		// Only the given length should be sent
+		sender.send(NetworkAddress.of(InetAddress.getLoopbackAddress(), receiverPort), data, 5);
+		sender.send(NetworkAddress.of(InetAddress.getLoopbackAddress(), receiverPort), data, 3);
+		
+		final byte[][] received = new byte[2][];
+		final int[] count = new int[1];
+		
+		for (int i = 0; i < 50 && count[0] < 2; i++) {
+			
+			receiver.receive((source, datagram) -> {
+				
+				assert(source.getPort() != receiverPort);
+				
+				final byte[] copy = new byte[datagram.remaining()];
+				
+				datagram.get(copy);
+				
+				received[count[0]++] = copy;
+			});
+		}
+		
+		sender.close();
+		receiver.close();
+		
+		assert(count[0] == 2);
+		assert(sender.droppedCount() == 0);
+		assert(Arrays.equals(received[0], Arrays.copyOf(data, 5)));
+		assert(Arrays.equals(received[1], Arrays.copyOf(data, 3)));
+	}
+
+	@Test
+	public void testWakeup() throws Exception {
+		
+		final NioDatagramTransport transport = new NioDatagramTransport(24565, 1400);
+		
+		transport.open();
+		
+		final Thread thread = new Thread(() -> {
+			
+			try {
+				
+				transport.receive((source, datagram) -> { });
+			} catch (final Exception e) {
+				
+				e.printStackTrace();
+			}
+		});
+		
+		thread.start();
+		
+		Thread.sleep(50);
+		
+		transport.wakeup();
+		
+		thread.join(5000);
+		
+		assert(!thread.isAlive());
+		
+		transport.close();
+	}
+}
@@ -0,0 +1,92 @@
+package io.njlr.lockstep.tests.network.session;
+
+import java.net.InetAddress;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.lockstep.network.Channel;
+import io.njlr.lockstep.network.ChannelContext;
+import io.njlr.lockstep.network.HashedTimingWheel;
+import io.njlr.lockstep.network.NetworkAddress;
+import io.njlr.lockstep.network.channels.UnreliableUnorderedChannel;
+import io.njlr.lockstep.network.session.ChannelBinding;
+import io.njlr.lockstep.network.session.DatagramCoalescer;
+import io.njlr.lockstep.network.session.RoutingTable;
+
+public final class RoutingTableTests {
+	
+	@Test
+	public void testRouting() throws Exception {
+		
+		final HashedTimingWheel timingWheel = new HashedTimingWheel();
+		
+		final RoutingTable routingTable = new RoutingTable();
+		
+		final NetworkAddress a = NetworkAddress.of(InetAddress.getLoopbackAddress(), 1234);
+		final NetworkAddress b = NetworkAddress.of(InetAddress.getLoopbackAddress(), 1235);
+		
+		final Channel channelA = new UnreliableUnorderedChannel(new NullContext(timingWheel));
+		final Channel channelB = new UnreliableUnorderedChannel(new NullContext(timingWheel));
+		
+		routingTable.addPeer(a, x -> new DatagramCoalescer(x, (address, data, length) -> { }, 1400, timingWheel, 0)).bind((byte) 6, channelA, MoreExecutors.directExecutor());
+		routingTable.addPeer(b, x -> new DatagramCoalescer(x, (address, data, length) -> { }, 1400, timingWheel, 0)).bind((byte) -1, channelB, MoreExecutors.directExecutor());
+		
+		assert(routingTable.channel(NetworkAddress.of(InetAddress.getLoopbackAddress(), 1234), (byte) 6) == channelA);
+		assert(routingTable.channel(new ChannelBinding(b, (byte) -1)) == channelB);
+		
+		assert(routingTable.channel(a, (byte) 7) == null);
+		assert(routingTable.channel(NetworkAddress.of(InetAddress.getLoopbackAddress(), 1236), (byte) 6) == null);
+		
+		assert(routingTable.bindings().size() == 2);
+		assert(routingTable.bindings().contains(new ChannelBinding(b, (byte) -1)));
+		
+		// The same route is shared by all bindings to a peer
+		assert(routingTable.addPeer(a, x -> { throw new AssertionError(); }) == routingTable.peer(a));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRebinding() throws Exception {
+		
+		final HashedTimingWheel timingWheel = new HashedTimingWheel();
+		
+		final RoutingTable routingTable = new RoutingTable();
+		
+		final NetworkAddress a = NetworkAddress.of(InetAddress.getLoopbackAddress(), 1234);
+		
+		final RoutingTable.PeerRoute peer = routingTable.addPeer(a, x -> new DatagramCoalescer(x, (address, data, length) -> { }, 1400, timingWheel, 0));
+		
+		peer.bind((byte) 6, new UnreliableUnorderedChannel(new NullContext(timingWheel)), MoreExecutors.directExecutor());
+		peer.bind((byte) 6, new UnreliableUnorderedChannel(new NullContext(timingWheel)), MoreExecutors.directExecutor());
+	}
+
+	private static final class NullContext implements ChannelContext {
+		
+		private final HashedTimingWheel timingWheel;
+		
+		public NullContext(final HashedTimingWheel timingWheel) {
+			
+			super();
+			
+			this.timingWheel = timingWheel;
+		}
+		
+		@Override
+		public void sendMessage(final Bytes message) {
+		
+		}
+		
+		@Override
+		public void takeMessage(final Bytes message) {
+		
+		}
+		
+		@Override
+		public HashedTimingWheel timingWheel() {
+			
+			return timingWheel;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package io.njlr.lockstep.tests.network.session;
+
+import java.net.InetAddress;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import io.njlr.lockstep.network.NetworkAddress;
+import io.njlr.lockstep.network.session.SessionSettings;
+
+public final class SessionSettingsTests {
+	
+	@Test
+	public void testDerivedPeerId() throws Exception {
+		
+		final NetworkAddress a = NetworkAddress.of(InetAddress.getLoopbackAddress(), 1234);
+		final NetworkAddress b = NetworkAddress.of(InetAddress.getLoopbackAddress(), 1235);
+		final NetworkAddress c = NetworkAddress.of(InetAddress.getByName("10.0.0.1"), 80);
+		
+		final SessionSettings settingsA = new SessionSettings(2, 4, ImmutableSet.of(b, c), a);
+		final SessionSettings settingsB = new SessionSettings(2, 4, ImmutableSet.of(c, a), b);
+		final SessionSettings settingsC = new SessionSettings(2, 4, ImmutableSet.of(a, b), c);
+		
+		assert(settingsA.equals(new SessionSettings(2, 4, ImmutableSet.of(c, b), a)));
+		
+		// 10.0.0.1 sorts before 127.0.0.1, whatever the ports
+		assert(settingsC.peerId() == 0);
+		assert(settingsA.peerId() == 1);
+		assert(settingsB.peerId() == 2);
+		
+		assert(settingsA.localAddress().equals(Optional.of(a)));
+		assert(!new SessionSettings(2, 4, ImmutableSet.of(b, c), 1).localAddress().isPresent());
+		
+		try {
+			
+			// We are not one of the other peers
+			new SessionSettings(2, 4, ImmutableSet.of(a, b), a);
+			
+			assert(false);
+		} catch (final IllegalArgumentException e) {
+		
+		}
+		
+		try {
+			
+			// A late joiner must know its own address
+			new SessionSettings(2, 4, ImmutableSet.of(b, c), 1).withJoinHost(b);
+			
+			assert(false);
+		} catch (final IllegalArgumentException e) {
+		
+		}
+	}
+
+	@Test
+	public void testBuilder() {
+		
+		final NetworkAddress a = NetworkAddress.of(InetAddress.getLoopbackAddress(), 1234);
+		final NetworkAddress b = NetworkAddress.of(InetAddress.getLoopbackAddress(), 1235);
+		
+		final SessionSettings settings = new SessionSettings(2, 4, ImmutableSet.of(a, b), 2)
+				.withTickBundles(true)
+				.withTickPeriod(16, TimeUnit.MILLISECONDS)
+				.withStateHashInterval(8)
+				.withLateJoiners(ImmutableSet.of(b))
+				.withCatchUp(1, 2)
+				.withFailOnLateAction(true);
+		
+		final SessionSettings built = new SessionSettings.Builder(2, 4, ImmutableSet.of(a, b), 2)
+				.tickBundles(true)
+				.tickPeriod(16, TimeUnit.MILLISECONDS)
+				.stateHashInterval(8)
+				.lateJoiners(ImmutableSet.of(b))
+				.catchUp(1, 2)
+				.failOnLateAction(true)
+				.build();
+		
+		assert(settings.equals(built));
+		assert(settings.toBuilder().build().equals(settings));
+		assert(new SessionSettings(2, 4, ImmutableSet.of(a, b), 2).equals(new SessionSettings.Builder(2, 4, ImmutableSet.of(a, b), 2).build()));
+		
+		try {
+			
+			// Ids run from 0 to the number of other peers
+			new SessionSettings(2, 4, ImmutableSet.of(a, b), 3);
+			
+			assert(false);
+		} catch (final IllegalArgumentException e) {
+		
+		}
+		
+		try {
+			
+			// The run-ahead must be within its bounds
+			settings.toBuilder().adaptiveRunAhead(3, 4).build();
+			
+			assert(false);
+		} catch (final IllegalArgumentException e) {
+		
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.lockstep.state.ActionBatch;
+import io.njlr.lockstep.state.ActionDecoder;
+import io.njlr.lockstep.state.SequencedAction;
+
+public final class ActionBatchTests {
+	
+	private static final ActionDecoder<Counter> decoder = Increment::tryDecode;
+	
+	@Test
+	public void testRoundTrip() {
+		
+		final List<Increment> actions = new ArrayList<>();
+		
+		for (int i = 0; i < 50; i++) {
+			
+			actions.add(new Increment(i * 7));
+		}
+		
+		final Bytes encoded = ActionBatch.encode((byte) 29, 40, 2, 65530, actions);
+		
+		assert(encoded.get(0) == 29);
+		
+		final Optional<ActionBatch<Counter>> decoded = ActionBatch.decode(encoded.sub(1), decoder);
+		
+		assert(decoded.isPresent());
+		assert(decoded.get().actions().equals(actions));
+		
+		final List<SequencedAction<Counter>> sequencedActions = decoded.get().sequencedActions();
+		
+		for (int i = 0; i < actions.size(); i++) {
+			
+			// The counters wrap around part way through
+			assert(sequencedActions.get(i).equals(SequencedAction.of(40, 2, 65530 + i, actions.get(i))));
+			
+			if (i > 0) {
+				
+				assert(SequencedAction.compareExecutionOrder(sequencedActions.get(i - 1), sequencedActions.get(i)) < 0);
+			}
+		}
+	}
+
+	@Test
+	public void testMalformed() {
+		
+		final byte[] negativeCount = { 0, 0, 0, 40, 2, 0, 0, (byte) 0x80, 0, 0, 0 };
+		final byte[] hugeCount = { 0, 0, 0, 40, 2, 0, 0, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF };
+		final byte[] negativeLength = { 0, 0, 0, 40, 2, 0, 0, 0, 0, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFC };
+		
+		assert(!ActionBatch.decode(Bytes.of(negativeCount), decoder).isPresent());
+		assert(!ActionBatch.decode(Bytes.of(hugeCount), decoder).isPresent());
+		assert(!ActionBatch.decode(Bytes.of(negativeLength), decoder).isPresent());
+		
+		// Every truncation of the header
+		for (int i = 0; i < negativeCount.length; i++) {
+			
+			assert(!ActionBatch.decode(Bytes.of(negativeCount).sub(0, i), decoder).isPresent());
+		}
+		
+		final byte[] missingLength = { 0, 0, 0, 40, 2, 0, 0, 0, 0, 0, 2, 0, 0, 0, 4, 0, 0, 0, 1 };
+		
+		assert(!ActionBatch.decode(Bytes.of(missingLength), decoder).isPresent());
+	}
+}
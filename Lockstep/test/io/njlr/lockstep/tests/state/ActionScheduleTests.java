@@ -0,0 +1,132 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.state.ActionSchedule;
+import io.njlr.lockstep.state.SequencedAction;
+
+public final class ActionScheduleTests {
+	
+	@Test
+	public void testDue() {
+		
+		final ActionSchedule<Counter> schedule = new ActionSchedule<>(4, 0);
+		
+		assert(schedule.add(SequencedAction.of(2, 1, 1, new Increment(1))));
+		assert(schedule.add(SequencedAction.of(2, 1, 2, new Increment(2))));
+		assert(schedule.add(SequencedAction.of(3, 1, 3, new Increment(3))));
+		
+		assert(schedule.size() == 3);
+		
+		assert(schedule.due().isEmpty());
+		
+		schedule.advance();
+		schedule.advance();
+		
+		assert(schedule.sequenceNumber() == 2);
+		assert(schedule.due().size() == 2);
+		
+		schedule.advance();
+		
+		assert(schedule.due().size() == 1);
+		assert(schedule.size() == 1);
+		
+		schedule.advance();
+		
+		assert(schedule.size() == 0);
+	}
+
+	@Test
+	public void testExecutionOrder() {
+		
+		final ActionSchedule<Counter> schedule = new ActionSchedule<>(4, 0);
+		
+		// Interleaved between peers, and out of order from one
+		schedule.add(SequencedAction.of(1, 7, 1, new Increment(1)));
+		schedule.add(SequencedAction.of(1, 3, 5, new Increment(2)));
+		schedule.add(SequencedAction.of(1, 7, 0, new Increment(3)));
+		schedule.add(SequencedAction.of(1, 3, 6, new Increment(4)));
+		
+		schedule.advance();
+		
+		final List<SequencedAction<Counter>> due = schedule.due();
+		
+		assert(due.size() == 4);
+		
+		assert(due.get(0).origin() == 3 && due.get(0).counter() == 5);
+		assert(due.get(1).origin() == 3 && due.get(1).counter() == 6);
+		assert(due.get(2).origin() == 7 && due.get(2).counter() == 0);
+		assert(due.get(3).origin() == 7 && due.get(3).counter() == 1);
+	}
+
+	@Test
+	public void testLate() {
+		
+		final ActionSchedule<Counter> schedule = new ActionSchedule<>(4, 10);
+		
+		assert(!schedule.add(SequencedAction.of(9, 1, 1, new Increment(1))));
+		assert(schedule.add(SequencedAction.of(10, 1, 1, new Increment(1))));
+	}
+
+	@Test
+	public void testOverflow() {
+		
+		final ActionSchedule<Counter> schedule = new ActionSchedule<>(4, 0);
+		
+		// Well beyond the window
+		assert(schedule.add(SequencedAction.of(100, 1, 1, new Increment(1))));
+		assert(schedule.add(SequencedAction.of(100, 1, 2, new Increment(2))));
+		
+		for (int i = 0; i < 100; i++) {
+			
+			assert(schedule.due().isEmpty());
+			
+			schedule.advance();
+		}
+		
+		assert(schedule.due().size() == 2);
+	}
+
+	@Test
+	public void testWrapAround() {
+		
+		final ActionSchedule<Counter> schedule = new ActionSchedule<>(8, Integer.MAX_VALUE - 1);
+		
+		assert(schedule.add(SequencedAction.of(Integer.MIN_VALUE + 1, 1, 1, new Increment(1))));
+		
+		for (int i = 0; i < 3; i++) {
+			
+			assert(schedule.due().isEmpty());
+			
+			schedule.advance();
+		}
+		
+		assert(schedule.sequenceNumber() == Integer.MIN_VALUE + 1);
+		assert(schedule.due().size() == 1);
+	}
+
+	@Test
+	public void testPending() {
+		
+		final ActionSchedule<Counter> schedule = new ActionSchedule<>(4, 0);
+		
+		// One in the window and one beyond it
+		schedule.add(SequencedAction.of(2, 1, 1, new Increment(1)));
+		schedule.add(SequencedAction.of(9, 1, 2, new Increment(2)));
+		
+		assert(schedule.pending().size() == 2);
+		
+		assert(schedule.contains(SequencedAction.of(2, 1, 1, new Increment(5))));
+		assert(schedule.contains(SequencedAction.of(9, 1, 2, new Increment(5))));
+		assert(!schedule.contains(SequencedAction.of(2, 1, 2, new Increment(1))));
+		assert(!schedule.contains(SequencedAction.of(3, 1, 1, new Increment(1))));
+		
+		schedule.reset(20);
+		
+		assert(schedule.sequenceNumber() == 20);
+		assert(schedule.size() == 0);
+		assert(schedule.pending().isEmpty());
+	}
+}
@@ -0,0 +1,174 @@
+package io.njlr.lockstep.tests.state;
+
+import java.net.InetAddress;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.njlr.lockstep.network.NetworkAddress;
+import io.njlr.lockstep.network.session.NetworkSession;
+import io.njlr.lockstep.network.session.SessionSettings;
+import io.njlr.lockstep.state.ActionDecoder;
+import io.njlr.lockstep.state.AdaptiveRunAhead;
+import io.njlr.lockstep.state.Simulation;
+import io.njlr.lockstep.state.SimulationManager;
+
+public final class AdaptiveRunAheadTests {
+	
+	@Test
+	public void testIncrease() {
+		
+		final AdaptiveRunAhead runAhead = new AdaptiveRunAhead(2, 1, 8, 0);
+		
+		runAhead.schedule(3, 1, 5);
+		runAhead.schedule(3, 2, 3);
+		
+		for (int i = 0; i < 3; i++) {
+			
+			runAhead.tick(i);
+			
+			assert(runAhead.runAhead() == 2);
+		}
+		
+		// The largest proposal wins, but only one tick at a time
+		runAhead.tick(3);
+		
+		assert(runAhead.runAhead() == 3);
+		
+		// No further change until 3 + 2 * 3 + 2
+		for (int i = 4; i < 11; i++) {
+			
+			runAhead.tick(i);
+			
+			assert(runAhead.runAhead() == 3);
+		}
+		
+		runAhead.tick(11);
+		
+		assert(runAhead.runAhead() == 4);
+		
+		for (int i = 12; i < 30; i++) {
+			
+			runAhead.tick(i);
+		}
+		
+		assert(runAhead.runAhead() == 5);
+	}
+
+	@Test
+	public void testMaximum() {
+		
+		final AdaptiveRunAhead runAhead = new AdaptiveRunAhead(3, 1, 3, 0);
+		
+		runAhead.schedule(0, 1, 10);
+		
+		for (int i = 0; i < 100; i++) {
+			
+			runAhead.tick(i);
+			
+			assert(runAhead.runAhead() == 3);
+		}
+	}
+
+	@Test
+	public void testDecrease() {
+		
+		final AdaptiveRunAhead runAhead = new AdaptiveRunAhead(5, 1, 8, 0);
+		
+		runAhead.schedule(10, 1, 2);
+		runAhead.schedule(10, 2, 1);
+		
+		for (int i = 0; i < 10; i++) {
+			
+			runAhead.tick(i);
+		}
+		
+		assert(runAhead.actionScheduleOffset(10) == 12);
+		
+		runAhead.tick(10);
+		
+		// A decrease may be any size
+		assert(runAhead.runAhead() == 2);
+		
+		// Until every peer is past the change, actions are scheduled for the old run-ahead
+		assert(runAhead.actionScheduleOffset(10) == 12);
+		assert(runAhead.actionScheduleOffset(15) == 12);
+		assert(runAhead.actionScheduleOffset(16) == 6);
+	}
+
+	@Test
+	public void testLatestProposal() {
+		
+		final AdaptiveRunAhead runAhead = new AdaptiveRunAhead(4, 1, 8, 0);
+		
+		runAhead.schedule(1, 1, 6);
+		runAhead.schedule(2, 1, 2);
+		
+		for (int i = 0; i < 3; i++) {
+			
+			runAhead.tick(i);
+		}
+		
+		// The first proposal was replaced before it could take effect
+		assert(runAhead.runAhead() == 5);
+		
+		for (int i = 3; i < 20; i++) {
+			
+			runAhead.tick(i);
+		}
+		
+		assert(runAhead.runAhead() == 2);
+	}
+
+	@Test
+	public void testDesiredRunAhead() {
+		
+		assert(AdaptiveRunAhead.desiredRunAhead(50, 16, TimeUnit.MILLISECONDS, 1, 8) == 5);
+		assert(AdaptiveRunAhead.desiredRunAhead(48, 16, TimeUnit.MILLISECONDS, 1, 8) == 4);
+		assert(AdaptiveRunAhead.desiredRunAhead(0, 16, TimeUnit.MILLISECONDS, 2, 8) == 2);
+		assert(AdaptiveRunAhead.desiredRunAhead(1, 0, TimeUnit.SECONDS, 1, 8) == 8);
+	}
+
+	@Test
+	public void testRequiresPacedTicks() {
+		
+		final NetworkSession session = new NetworkSession(0, MoreExecutors.newDirectExecutorService());
+		
+		final SessionSettings settings = new SessionSettings(2, 6, ImmutableSet.of(NetworkAddress.of(InetAddress.getLoopbackAddress(), 1234)), 0)
+				.withAdaptiveRunAhead(1, 8);
+		
+		final ActionDecoder<Idle> decoder = data -> Optional.empty();
+		
+		boolean isRejected = false;
+		
+		try {
+			
+			new SimulationManager<>(session, settings, decoder, new Idle());
+		} catch (final IllegalArgumentException e) {
+			
+			isRejected = true;
+		}
+		
+		assert(isRejected);
+		
+		new SimulationManager<>(session, settings.withTickPeriod(16, TimeUnit.MILLISECONDS), decoder, new Idle());
+	}
+
+	private static final class Idle implements Simulation {
+		
+		@Override
+		public void tick() {
+		
+		}
+		
+		@Override
+		public int stateHash() {
+			
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.state.AdaptiveTickPeriod;
+
+public final class AdaptiveTickPeriodTests {
+	
+	@Test
+	public void testAgreement() {
+		
+		final AdaptiveTickPeriod tickPeriod = new AdaptiveTickPeriod(10, 40, TimeUnit.MILLISECONDS);
+		
+		assert(tickPeriod.period(TimeUnit.MILLISECONDS) == 10L);
+		
+		tickPeriod.schedule(5, 1, 12000);
+		tickPeriod.schedule(5, 2, 25000);
+		tickPeriod.schedule(8, 3, 100000);
+		
+		for (int i = 0; i < 5; i++) {
+			
+			assert(!tickPeriod.tick(i));
+		}
+		
+		// The slowest peer sets the pace
+		assert(tickPeriod.tick(5));
+		assert(tickPeriod.period(TimeUnit.MILLISECONDS) == 25L);
+		
+		assert(!tickPeriod.tick(6));
+		assert(!tickPeriod.tick(7));
+		
+		// But no slower than the maximum
+		assert(tickPeriod.tick(8));
+		assert(tickPeriod.period(TimeUnit.MILLISECONDS) == 40L);
+	}
+
+	@Test
+	public void testRecovery() {
+		
+		final AdaptiveTickPeriod tickPeriod = new AdaptiveTickPeriod(10, 40, TimeUnit.MILLISECONDS);
+		
+		tickPeriod.schedule(1, 1, 20000);
+		tickPeriod.schedule(3, 1, 10000);
+		
+		tickPeriod.tick(0);
+		tickPeriod.tick(1);
+		
+		assert(tickPeriod.period(TimeUnit.MILLISECONDS) == 20L);
+		
+		tickPeriod.tick(2);
+		tickPeriod.tick(3);
+		
+		assert(tickPeriod.period(TimeUnit.MILLISECONDS) == 10L);
+	}
+
+	@Test
+	public void testDesiredPeriod() {
+		
+		assert(AdaptiveTickPeriod.desiredPeriod(8, TimeUnit.MILLISECONDS, 16000, 50000) == 16000);
+		assert(AdaptiveTickPeriod.desiredPeriod(20, TimeUnit.MILLISECONDS, 16000, 50000) == 25000);
+		assert(AdaptiveTickPeriod.desiredPeriod(1, TimeUnit.SECONDS, 16000, 50000) == 50000);
+	}
+
+	@Test
+	public void testIsSignificant() {
+		
+		assert(!AdaptiveTickPeriod.isSignificant(16000, 16000, 16000));
+		assert(!AdaptiveTickPeriod.isSignificant(20000, 21000, 16000));
+		assert(AdaptiveTickPeriod.isSignificant(20000, 25000, 16000));
+		
+		// A return to full speed is always worth proposing
+		assert(AdaptiveTickPeriod.isSignificant(17000, 16000, 16000));
+	}
+}
@@ -0,0 +1,81 @@
+package io.njlr.lockstep.tests.state;
+
+import java.net.InetAddress;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import io.njlr.lockstep.network.NetworkAddress;
+import io.njlr.lockstep.network.session.NetworkSession;
+import io.njlr.lockstep.network.session.SessionSettings;
+import io.njlr.lockstep.state.ActionDecoder;
+import io.njlr.lockstep.state.SimulationManager;
+
+public final class CatchUpTests {
+	
+	private static final int portA = 25201;
+	private static final int portB = 25202;
+	
+	@Test
+	public void testCatchUp() throws Exception {
+		
+		final InetAddress loopback = InetAddress.getLoopbackAddress();
+		
+		final NetworkSession sessionA = new NetworkSession(portA);
+		final NetworkSession sessionB = new NetworkSession(portB);
+		
+		final NetworkAddress addressA = NetworkAddress.of(loopback, portA);
+		final NetworkAddress addressB = NetworkAddress.of(loopback, portB);
+		
+		// Far enough apart for the peer that stalls to fall past the threshold
+		final SessionSettings settingsA = new SessionSettings(8, 20, ImmutableSet.of(addressB), addressA).withCatchUp(4, 2);
+		final SessionSettings settingsB = new SessionSettings(8, 20, ImmutableSet.of(addressA), addressB).withCatchUp(4, 2);
+		
+		final ActionDecoder<Counter> decoder = Increment::tryDecode;
+		
+		final Counter a = new Counter(100);
+		final Counter b = new Counter(-1);
+		
+		final SimulationManager<Counter> managerA = new SimulationManager<>(sessionA, settingsA, decoder, a);
+		final SimulationManager<Counter> managerB = new SimulationManager<>(sessionB, settingsB, decoder, b);
+		
+		sessionA.startAsync().awaitRunning();
+		sessionB.startAsync().awaitRunning();
+		
+		managerA.startAsync().awaitRunning();
+		managerB.startAsync().awaitRunning();
+		
+		final long deadline = System.currentTimeMillis() + 20000L;
+		
+		int i = 0;
+		
+		while ((a.ticks() < 400 || b.ticks() < 400) && System.currentTimeMillis() < deadline) {
+			
+			// Some actions arrive while the stalled peer is catching up
+			managerA.submitAction(new Increment(i));
+			managerB.submitAction(new Increment(-i));
+			
+			i++;
+			
+			Thread.sleep(2);
+		}
+		
+		managerA.stopAsync();
+		managerB.stopAsync();
+		
+		managerA.awaitTerminated();
+		managerB.awaitTerminated();
+		
+		sessionA.stopAsync().awaitTerminated();
+		sessionB.stopAsync().awaitTerminated();
+		
+		assert(a.ticks() >= 400 && b.ticks() >= 400);
+		
+		assert(managerA.catchUpCount() > 0);
+		
+		final int common = Math.min(a.ticks(), b.ticks());
+		
+		assert(a.history().subList(0, common).equals(b.history().subList(0, common)));
+	}
+}
@@ -0,0 +1,130 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesBuilder;
+import io.njlr.lockstep.state.SerializableSimulation;
+import io.njlr.lockstep.state.SnapshotSimulation;
+
+/**
+ * A simulation for tests whose state is a count, which every tick and every <code>Increment</code> adds to. 
+ * 
+ * It can be snapshotted and serialized, so it suits every execution mode, 
+ * and it records the count after each tick so that peers can be compared. 
+ *
+ */
+public final class Counter implements SnapshotSimulation<Integer>, SerializableSimulation {
+	
+	// The tick to stall on for a while, or -1
+	private final int pause;
+	
+	private final List<Integer> history;
+	
+	private int count;
+	
+	/**
+	 * The current count
+	 * 
+	 * @return The count
+	 */
+	public int count() {
+		
+		return count;
+	}
+	
+	/**
+	 * The count after each tick so far. Restoring a snapshot does not rewind this. 
+	 * 
+	 * @return The counts, oldest first
+	 */
+	public List<Integer> history() {
+		
+		return history;
+	}
+	
+	/**
+	 * How many ticks have been executed
+	 * 
+	 * @return The number of ticks
+	 */
+	public int ticks() {
+		
+		return history.size();
+	}
+	
+	/**
+	 * Creates a new <code>Counter</code> that stalls for 100 milliseconds when it reaches the given tick. 
+	 * 
+	 * @param pause The tick to stall on, or -1 to never stall
+	 */
+	public Counter(final int pause) {
+		
+		super();
+		
+		this.pause = pause;
+		
+		history = Collections.synchronizedList(new ArrayList<>());
+	}
+	
+	public Counter() {
+		
+		this(-1);
+	}
+	
+	void add(final int amount) {
+		
+		count += amount;
+	}
+	
+	@Override
+	public void tick() {
+		
+		count++;
+		
+		history.add(count);
+		
+		if (history.size() == pause) {
+			
+			try {
+				
+				Thread.sleep(100);
+			} catch (final InterruptedException e) {
+				
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	@Override
+	public int stateHash() {
+		
+		return count;
+	}
+	
+	@Override
+	public Integer snapshot() {
+		
+		return count;
+	}
+	
+	@Override
+	public void restore(final Integer snapshot) {
+		
+		count = snapshot;
+	}
+	
+	@Override
+	public Bytes serialize() {
+		
+		return new BytesBuilder(4).appendInt(count).toBytes();
+	}
+	
+	@Override
+	public void deserialize(final Bytes state) {
+		
+		count = state.read().readInt();
+	}
+}
@@ -0,0 +1,154 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import io.njlr.lockstep.state.DesyncLocator;
+import io.njlr.lockstep.state.MerkleTree;
+
+public final class DesyncLocatorTests {
+	
+	private static final class Peer implements DesyncLocator.Handler {
+		
+		private final MerkleTree tree;
+		private final DesyncLocator locator;
+		
+		private final Set<Integer> diverged;
+		
+		private Peer other;
+		private int sequenceNumber;
+		private int probes;
+		
+		public Peer(final int partitionCount) {
+			
+			super();
+			
+			tree = new MerkleTree(partitionCount);
+			locator = new DesyncLocator(tree, 2, 0, this);
+			
+			diverged = new TreeSet<>();
+		}
+		
+		public void probe(final int[] nodes) {
+			
+			// Far enough ahead for the request to arrive in time
+			final int probeSequenceNumber = sequenceNumber + 2;
+			
+			locator.probe(1, probeSequenceNumber, nodes);
+			
+			assert(other.locator.request(1, probeSequenceNumber, nodes));
+			
+			probes++;
+		}
+		
+		public void reach(final int reached) {
+			
+			sequenceNumber = reached;
+			
+			locator.reach(reached);
+		}
+		
+		@Override
+		public void reply(final int participant, final int sequenceNumber, final int[] nodes, final int[] hashes) {
+			
+			other.locator.reply(1, sequenceNumber, nodes, hashes);
+		}
+		
+		@Override
+		public void diverged(final int participant, final int sequenceNumber, final int partition) {
+			
+			diverged.add(partition);
+		}
+		
+		@Override
+		public void descend(final int participant, final int[] nodes) {
+			
+			probe(nodes);
+		}
+	}
+
+	private static void run(final Peer a, final Peer b) {
+		
+		for (int i = 1; i < 64; i++) {
+			
+			a.reach(i);
+			b.reach(i);
+		}
+	}
+
+	@Test
+	public void testLocate() {
+		
+		final Peer a = new Peer(1000);
+		final Peer b = new Peer(1000);
+		
+		a.other = b;
+		b.other = a;
+		
+		for (int i = 0; i < 1000; i++) {
+			
+			a.tree.update(i, i);
+			b.tree.update(i, (i == 42 || i == 777) ? -i : i);
+		}
+		
+		assert(a.tree.root() != b.tree.root());
+		
+		a.probe(new int[] { 1 });
+		
+		run(a, b);
+		
+		assert(a.diverged.equals(ImmutableSet.of(42, 777)));
+		assert(b.diverged.isEmpty());
+		
+		// One probe per level; far fewer than one per partition
+		assert(a.probes == 11);
+		
+		assert(!a.locator.isProbing(1));
+	}
+
+	@Test
+	public void testInSync() {
+		
+		final Peer a = new Peer(10);
+		final Peer b = new Peer(10);
+		
+		a.other = b;
+		b.other = a;
+		
+		a.probe(new int[] { 1 });
+		
+		run(a, b);
+		
+		assert(a.diverged.isEmpty());
+		assert(a.probes == 1);
+		assert(!a.locator.isProbing(1));
+	}
+
+	@Test
+	public void testLateRequest() {
+		
+		final Peer a = new Peer(10);
+		final Peer b = new Peer(10);
+		
+		a.other = b;
+		b.other = a;
+		
+		b.reach(5);
+		
+		assert(!b.locator.request(1, 3, new int[] { 1 }));
+		
+		a.locator.probe(1, 3, new int[] { 1 });
+		
+		for (int i = 1; i < DesyncLocator.maximumProbeAge + 8; i++) {
+			
+			a.reach(i);
+		}
+		
+		// Abandoned, since no reply will come
+		assert(!a.locator.isProbing(1));
+	}
+}
@@ -0,0 +1,69 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.Optional;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.bytes.BytesBuilder;
+import io.njlr.lockstep.state.SimulationAction;
+
+/**
+ * Action that adds the specified amount to a <code>Counter</code>
+ *
+ */
+public final class Increment implements SimulationAction<Counter> {
+	
+	private final int amount;
+	
+	public Increment(final int amount) {
+		
+		super();
+		
+		this.amount = amount;
+	}
+	
+	@Override
+	public void execute(final Counter simulation) {
+		
+		simulation.add(amount);
+	}
+	
+	@Override
+	public Bytes encode() {
+		
+		return new BytesBuilder(4).appendInt(amount).toBytes();
+	}
+	
+	@Override
+	public int hashCode() {
+		
+		return amount;
+	}
+	
+	@Override
+	public boolean equals(final Object that) {
+		
+		return (that instanceof Increment) && ((Increment) that).amount == amount;
+	}
+	
+	@Override
+	public String toString() {
+		
+		return new StringBuilder().append("Increment{").append(amount).append("}").toString();
+	}
+	
+	/**
+	 * Decodes an action written by <code>encode</code>; usable as an <code>ActionDecoder</code>. 
+	 * 
+	 * @param content The encoded action
+	 * @return The action, or empty if it could not be decoded
+	 */
+	public static Optional<SimulationAction<Counter>> tryDecode(final Bytes content) {
+		
+		if (content.length() != 4) {
+			
+			return Optional.empty();
+		}
+		
+		return Optional.of(new Increment(content.read().readInt()));
+	}
+}
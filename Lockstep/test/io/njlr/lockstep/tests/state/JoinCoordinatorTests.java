@@ -0,0 +1,197 @@
+package io.njlr.lockstep.tests.state;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import io.njlr.lockstep.network.NetworkAddress;
+import io.njlr.lockstep.state.ActionSchedule;
+import io.njlr.lockstep.state.JoinCoordinator;
+import io.njlr.lockstep.state.Membership;
+import io.njlr.lockstep.state.ProgressTree;
+import io.njlr.lockstep.state.SequencedAction;
+import io.njlr.lockstep.state.StateSnapshot;
+
+public final class JoinCoordinatorTests {
+	
+	private static final NetworkAddress a = NetworkAddress.of(InetAddress.getLoopbackAddress(), 1234);
+	private static final NetworkAddress b = NetworkAddress.of(InetAddress.getLoopbackAddress(), 1235);
+	
+	private static final class Peer implements JoinCoordinator.Handler<Counter> {
+		
+		private final Counter simulation;
+		private final ActionSchedule<Counter> schedule;
+		private final ProgressTree progress;
+		private final JoinCoordinator<Counter> join;
+		
+		private final List<SequencedAction<Counter>> forwarded;
+		private final List<Integer> activated;
+		
+		private Peer other;
+		private int sequenceNumber;
+		private int caughtUp;
+		
+		public Peer(final int peerId, final NetworkAddress other, final boolean isJoining) {
+			
+			super();
+			
+			simulation = new Counter();
+			schedule = new ActionSchedule<>(8, 0);
+			progress = new ProgressTree(2, 0);
+			
+			join = new JoinCoordinator<>(ImmutableList.of(other), isJoining ? ImmutableSet.of() : ImmutableSet.of(other), 
+					isJoining ? other : null, peerId, 2, simulation, schedule, progress, this);
+			
+			forwarded = new ArrayList<>();
+			activated = new ArrayList<>();
+		}
+		
+		public void reach(final int reached) {
+			
+			sequenceNumber = reached;
+			
+			join.reach(reached);
+		}
+		
+		@Override
+		public int changeSequenceNumber() {
+			
+			return sequenceNumber + 2;
+		}
+		
+		@Override
+		public void announce(final int sequenceNumber, final int participant, final Membership.Stage stage) {
+			
+			// Only the joining peer's activation reaches it
+			if (stage == Membership.Stage.Active) {
+				
+				other.join.schedule(sequenceNumber, 0, stage);
+			}
+		}
+		
+		@Override
+		public void admit(final int participant) {
+		
+		}
+		
+		@Override
+		public void forward(final int participant, final SequencedAction<Counter> action) {
+			
+			forwarded.add(action);
+		}
+		
+		@Override
+		public void sendSnapshot(final int participant, final StateSnapshot snapshot) {
+			
+			other.sequenceNumber = snapshot.sequenceNumber();
+			other.join.restore(snapshot);
+		}
+		
+		@Override
+		public void activated(final int participant) {
+			
+			activated.add(participant);
+		}
+		
+		@Override
+		public void caughtUp(final int host) {
+			
+			caughtUp++;
+		}
+	}
+
+	@Test
+	public void testJoin() {
+		
+		final Peer host = new Peer(1, b, false);
+		final Peer joiner = new Peer(2, a, true);
+		
+		host.other = joiner;
+		joiner.other = host;
+		
+		assert(host.join.stage(1) == Membership.Stage.Absent);
+		assert(!host.progress.isActive(1));
+		assert(joiner.join.host() == 1);
+		assert(joiner.join.isWaitingForSnapshot());
+		
+		new Increment(42).execute(host.simulation);
+		
+		// Ours is forwarded, but not one from another peer
+		host.schedule.add(SequencedAction.of(4, 1, 0, new Increment(1)));
+		host.schedule.add(SequencedAction.of(4, 3, 0, new Increment(2)));
+		
+		// Already part of the state, and still to come
+		assert(joiner.join.buffer(SequencedAction.of(1, 1, 1, new Increment(3))));
+		assert(joiner.join.buffer(SequencedAction.of(5, 1, 2, new Increment(4))));
+		
+		host.reach(1);
+		
+		assert(host.join.request(1));
+		assert(!host.join.request(1));
+		
+		host.reach(2);
+		
+		assert(joiner.join.isWaitingForSnapshot());
+		
+		// Admitted, and sent the state
+		host.reach(3);
+		
+		assert(host.join.stage(1) == Membership.Stage.Admitted);
+		assert(host.forwarded.size() == 1);
+		assert(host.forwarded.get(0).origin() == 1);
+		
+		assert(!joiner.join.isWaitingForSnapshot());
+		assert(!joiner.join.buffer(SequencedAction.of(6, 1, 3, new Increment(5))));
+		assert(joiner.simulation.count() == 42);
+		assert(joiner.schedule.sequenceNumber() == 3);
+		assert(joiner.schedule.size() == 1);
+		assert(joiner.join.stage(1) == Membership.Stage.Active);
+		assert(joiner.join.stage(0) == Membership.Stage.Admitted);
+		assert(joiner.progress.isActive(1));
+		
+		// Not until the host has reported
+		joiner.join.onIdle();
+		
+		assert(joiner.caughtUp == 0);
+		
+		joiner.join.reported(1);
+		joiner.join.onIdle();
+		joiner.join.onIdle();
+		
+		assert(joiner.caughtUp == 1);
+		
+		assert(host.join.onCaughtUp(1));
+		
+		host.reach(4);
+		host.reach(5);
+		joiner.reach(4);
+		joiner.reach(5);
+		
+		assert(host.activated.equals(ImmutableList.of(1)));
+		assert(host.progress.isActive(1));
+		assert(host.join.stage(1) == Membership.Stage.Active);
+		
+		assert(joiner.activated.equals(ImmutableList.of(0)));
+		assert(joiner.join.stage(0) == Membership.Stage.Active);
+	}
+
+	@Test
+	public void testUnexpectedCatchUp() {
+		
+		final Peer host = new Peer(1, b, false);
+		
+		assert(!host.join.onCaughtUp(1));
+		
+		host.reach(1);
+		
+		assert(host.join.request(1));
+		
+		// Not admitted yet
+		assert(!host.join.onCaughtUp(1));
+	}
+}
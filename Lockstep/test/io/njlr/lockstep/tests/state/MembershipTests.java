@@ -0,0 +1,84 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.state.Membership;
+
+public final class MembershipTests {
+	
+	@Test
+	public void testReach() {
+		
+		final Membership membership = new Membership(3);
+		
+		membership.set(2, Membership.Stage.Absent);
+		
+		membership.schedule(10, 2, Membership.Stage.Admitted);
+		membership.schedule(20, 2, Membership.Stage.Active);
+		
+		final List<String> changes = new ArrayList<>();
+		
+		membership.reach(9, (stage, participant) -> changes.add(participant + ":" + stage));
+		
+		assert(changes.isEmpty());
+		assert(membership.stage(2) == Membership.Stage.Absent);
+		
+		membership.reach(10, (stage, participant) -> changes.add(participant + ":" + stage));
+		
+		assert(changes.size() == 1);
+		assert(changes.get(0).equals("2:Admitted"));
+		assert(membership.stage(2) == Membership.Stage.Admitted);
+		
+		// Each change is only made once
+		membership.reach(10, (stage, participant) -> changes.add(participant + ":" + stage));
+		
+		assert(changes.size() == 1);
+		
+		membership.reach(20, (stage, participant) -> changes.add(participant + ":" + stage));
+		
+		assert(changes.size() == 2);
+		assert(membership.stage(2) == Membership.Stage.Active);
+	}
+
+	@Test
+	public void testHosting() {
+		
+		final Membership membership = new Membership(4);
+		
+		membership.set(2, Membership.Stage.Absent);
+		membership.set(3, Membership.Stage.Absent);
+		
+		assert(!membership.request(1));
+		
+		assert(membership.request(3));
+		assert(membership.request(2));
+		assert(!membership.request(3));
+		
+		assert(membership.admitNext().getAsInt() == 3);
+		assert(membership.admitting() == 3);
+		
+		// One join at a time
+		assert(!membership.admitNext().isPresent());
+		assert(!membership.request(3));
+		
+		membership.schedule(5, 3, Membership.Stage.Admitted);
+		membership.schedule(9, 3, Membership.Stage.Active);
+		
+		membership.reach(5, (stage, participant) -> {});
+		
+		assert(membership.admitting() == 3);
+		
+		membership.reach(9, (stage, participant) -> {});
+		
+		assert(membership.admitting() == -1);
+		assert(membership.admitNext().getAsInt() == 2);
+		
+		membership.clear();
+		
+		assert(membership.admitting() == -1);
+		assert(!membership.admitNext().isPresent());
+	}
+}
@@ -0,0 +1,78 @@
+package io.njlr.lockstep.tests.state;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.state.MerkleTree;
+
+public final class MerkleTreeTests {
+	
+	@Test
+	public void testUpdate() {
+		
+		final MerkleTree tree = new MerkleTree(5);
+		
+		assert(tree.leafCount() == 8);
+		
+		final int root = tree.root();
+		
+		tree.update(3, 1234);
+		
+		assert(tree.root() != root);
+		
+		tree.update(3, 0);
+		
+		assert(tree.root() == root);
+	}
+
+	@Test
+	public void testIncremental() {
+		
+		final MerkleTree incremental = new MerkleTree(100);
+		
+		for (int i = 0; i < 100; i++) {
+			
+			incremental.update(i, i * 31);
+		}
+		
+		incremental.root();
+		
+		// Only some partitions change between reads of the root
+		incremental.update(17, 5);
+		incremental.update(18, 6);
+		incremental.update(99, 7);
+		
+		final MerkleTree rebuilt = new MerkleTree(100);
+		
+		for (int i = 0; i < 100; i++) {
+			
+			rebuilt.update(i, (i == 17) ? 5 : (i == 18) ? 6 : (i == 99) ? 7 : i * 31);
+		}
+		
+		assert(incremental.root() == rebuilt.root());
+		
+		for (int i = 1; i < incremental.leafCount() * 2; i++) {
+			
+			assert(incremental.node(i) == rebuilt.node(i));
+		}
+	}
+
+	@Test
+	public void testLeaves() {
+		
+		final MerkleTree tree = new MerkleTree(3);
+		
+		assert(!tree.isLeaf(1));
+		assert(tree.isLeaf(4));
+		assert(tree.partition(4) == 0);
+		
+		// Padding
+		assert(tree.partition(7) == 3);
+		
+		final MerkleTree single = new MerkleTree(1);
+		
+		single.update(0, 42);
+		
+		assert(single.isLeaf(1));
+		assert(single.root() == 42);
+	}
+}
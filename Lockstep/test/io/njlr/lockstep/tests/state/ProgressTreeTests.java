@@ -0,0 +1,85 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.state.ProgressTree;
+
+public final class ProgressTreeTests {
+	
+	@Test
+	public void testSingle() {
+		
+		final ProgressTree tree = new ProgressTree(1, 5);
+		
+		assert(tree.lowest() == 5);
+		
+		tree.update(0, 6);
+		
+		assert(tree.lowest() == 6);
+	}
+
+	@Test
+	public void testLowest() {
+		
+		final Random random = new Random(42);
+		
+		for (int size = 1; size <= 40; size++) {
+			
+			final ProgressTree tree = new ProgressTree(size, 0);
+			
+			final int[] progress = new int[size];
+			
+			for (int i = 0; i < 1000; i++) {
+				
+				// Participants only ever move forwards
+				final int participant = random.nextInt(size);
+				
+				progress[participant] += random.nextInt(3);
+				
+				tree.update(participant, progress[participant]);
+				
+				int lowest = Integer.MAX_VALUE;
+				
+				for (final int x : progress) {
+					
+					lowest = Math.min(lowest, x);
+				}
+				
+				assert(tree.lowest() == lowest);
+				assert(tree.get(participant) == progress[participant]);
+			}
+		}
+	}
+
+	@Test
+	public void testActivate() {
+		
+		final ProgressTree tree = new ProgressTree(3, 10);
+		
+		tree.deactivate(2);
+		
+		assert(!tree.isActive(2));
+		
+		tree.update(0, 15);
+		tree.update(1, 14);
+		
+		// Inactive participants are not waited for
+		assert(tree.lowest() == 14);
+		
+		tree.update(2, 12);
+		
+		assert(tree.lowest() == 14);
+		
+		tree.activate(2, 13);
+		
+		assert(tree.isActive(2));
+		assert(tree.get(2) == 13);
+		assert(tree.lowest() == 13);
+		
+		tree.deactivate(2);
+		
+		assert(tree.lowest() == 14);
+	}
+}
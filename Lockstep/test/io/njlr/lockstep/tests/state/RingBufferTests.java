@@ -0,0 +1,73 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.state.RingBuffer;
+
+public final class RingBufferTests {
+	
+	@Test
+	public void testManyProducers() throws Exception {
+		
+		final int producers = 4;
+		final int limit = 100000;
+		
+		// Small, so that producers regularly have to wait for the consumer
+		final RingBuffer<long[]> ringBuffer = new RingBuffer<>(64, () -> new long[2]);
+		
+		final CountDownLatch start = new CountDownLatch(1);
+		
+		for (int p = 0; p < producers; p++) {
+			
+			final int producer = p;
+			
+			new Thread(() -> {
+				
+				try {
+					
+					start.await();
+				} catch (final InterruptedException e) {
+					
+					return;
+				}
+				
+				for (int i = 0; i < limit; i++) {
+					
+					final long sequence = ringBuffer.claim();
+					
+					final long[] event = ringBuffer.get(sequence);
+					
+					event[0] = producer;
+					event[1] = i;
+					
+					ringBuffer.publish(sequence);
+				}
+			}).start();
+		}
+		
+		start.countDown();
+		
+		// Each producer's events must arrive in the order they were published
+		final long[] expected = new long[producers];
+		
+		int received = 0;
+		
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+		
+		while (received < producers * limit && System.nanoTime() < deadline) {
+			
+			received += ringBuffer.drain((final long[] event) -> {
+				
+				assert(event[1] == expected[(int) event[0]]);
+				
+				expected[(int) event[0]]++;
+			});
+		}
+		
+		assert(received == producers * limit);
+		assert(!ringBuffer.isAvailable());
+	}
+}
@@ -0,0 +1,118 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import io.njlr.lockstep.state.RollbackHistory;
+import io.njlr.lockstep.state.SequencedAction;
+
+public final class RollbackHistoryTests {
+	
+	@Test
+	public void testRestore() {
+		
+		final Counter counter = new Counter();
+		final RollbackHistory<Integer, Counter> history = new RollbackHistory<>(counter, 4, 0);
+		
+		for (int i = 0; i < 3; i++) {
+			
+			history.record(i, Collections.<SequencedAction<Counter>>emptyList());
+			
+			counter.tick();
+		}
+		
+		assert(history.size() == 3);
+		assert(counter.count() == 3);
+		
+		history.restore(1);
+		
+		assert(counter.count() == 1);
+		
+		history.restore(0);
+		
+		assert(counter.count() == 0);
+	}
+
+	@Test
+	public void testLateAction() {
+		
+		final Counter counter = new Counter();
+		final RollbackHistory<Integer, Counter> history = new RollbackHistory<>(counter, 4, 0);
+		
+		final SequencedAction<Counter> first = SequencedAction.of(1, 1, 0, new Increment(10));
+		final SequencedAction<Counter> second = SequencedAction.of(1, 2, 0, new Increment(20));
+		
+		history.record(0, Collections.<SequencedAction<Counter>>emptyList());
+		history.record(1, ImmutableList.of(second));
+		
+		// Kept in execution order
+		assert(history.add(first));
+		assert(history.actions(1).equals(ImmutableList.of(first, second)));
+		
+		// Not executed yet, so not for the history
+		assert(!history.add(SequencedAction.of(2, 1, 1, new Increment(1))));
+	}
+
+	@Test
+	public void testConfirm() {
+		
+		final Counter counter = new Counter();
+		final RollbackHistory<Integer, Counter> history = new RollbackHistory<>(counter, 2, 0);
+		
+		history.record(0, Collections.<SequencedAction<Counter>>emptyList());
+		history.record(1, Collections.<SequencedAction<Counter>>emptyList());
+		
+		assert(history.contains(0));
+		
+		history.confirm(1);
+		
+		assert(!history.contains(0));
+		assert(history.contains(1));
+		assert(history.oldest() == 1);
+		
+		assert(!history.add(SequencedAction.of(0, 1, 0, new Increment(1))));
+		
+		// There is room again
+		history.record(2, Collections.<SequencedAction<Counter>>emptyList());
+		
+		assert(history.size() == 2);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFull() {
+		
+		final Counter counter = new Counter();
+		final RollbackHistory<Integer, Counter> history = new RollbackHistory<>(counter, 2, 0);
+		
+		final List<SequencedAction<Counter>> none = Collections.emptyList();
+		
+		history.record(0, none);
+		history.record(1, none);
+		history.record(2, none);
+	}
+
+	@Test
+	public void testWrapAround() {
+		
+		final Counter counter = new Counter();
+		final RollbackHistory<Integer, Counter> history = new RollbackHistory<>(counter, 4, Integer.MAX_VALUE - 1);
+		
+		for (int i = Integer.MAX_VALUE - 1; i != Integer.MIN_VALUE + 2; i++) {
+			
+			history.record(i, Collections.<SequencedAction<Counter>>emptyList());
+			
+			counter.tick();
+		}
+		
+		assert(history.size() == 4);
+		assert(history.contains(Integer.MIN_VALUE));
+		
+		history.restore(Integer.MIN_VALUE);
+		
+		assert(counter.count() == 2);
+	}
+}
@@ -0,0 +1,79 @@
+package io.njlr.lockstep.tests.state;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.state.StateHashHistory;
+
+public final class StateHashHistoryTests {
+	
+	@Test
+	public void testCompare() {
+		
+		final StateHashHistory history = new StateHashHistory(3, 16);
+		
+		// A peer's hash may arrive before ours
+		history.record(1, 32, 1234);
+		
+		assert(!history.isDesynced(1, 32));
+		
+		history.record(0, 32, 1234);
+		history.record(2, 32, 4321);
+		
+		assert(!history.isDesynced(1, 32));
+		assert(history.isDesynced(2, 32));
+	}
+
+	@Test
+	public void testForget() {
+		
+		final StateHashHistory history = new StateHashHistory(2, 16);
+		
+		history.record(0, 5, 1);
+		history.record(1, 5, 2);
+		
+		assert(history.isDesynced(1, 5));
+		
+		// Overwrites the same slot
+		history.record(0, 21, 3);
+		
+		assert(!history.contains(0, 5));
+		assert(!history.isDesynced(1, 5));
+		assert(!history.isDesynced(1, 21));
+	}
+
+	@Test
+	public void testProvisional() {
+		
+		final StateHashHistory history = new StateHashHistory(2, 16);
+		
+		history.record(1, 8, 99);
+		
+		history.recordProvisional(8, 42);
+		
+		// Not compared until final
+		assert(!history.isDesynced(1, 8));
+		
+		// Re-executed with a late action
+		history.recordProvisional(8, 99);
+		
+		assert(history.confirm(8));
+		assert(!history.confirm(8));
+		
+		assert(history.hash(0, 8) == 99);
+		assert(!history.isDesynced(1, 8));
+		
+		assert(!history.confirm(9));
+	}
+
+	@Test
+	public void testWrapAround() {
+		
+		final StateHashHistory history = new StateHashHistory(2, 4);
+		
+		history.record(0, Integer.MIN_VALUE, 7);
+		history.record(1, Integer.MIN_VALUE, 8);
+		
+		assert(history.isDesynced(1, Integer.MIN_VALUE));
+		assert(!history.contains(0, Integer.MAX_VALUE));
+	}
+}
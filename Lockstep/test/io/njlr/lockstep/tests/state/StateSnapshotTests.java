@@ -0,0 +1,99 @@
+package io.njlr.lockstep.tests.state;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.lockstep.network.NetworkAddress;
+import io.njlr.lockstep.state.StateSnapshot;
+
+public final class StateSnapshotTests {
+	
+	private static Optional<StateSnapshot> assemble(final StateSnapshot.Assembler assembler, final List<Bytes> messages) {
+		
+		Optional<StateSnapshot> result = Optional.empty();
+		
+		for (final Bytes message : messages) {
+			
+			assert(!result.isPresent());
+			
+			result = assembler.add(message);
+		}
+		
+		return result;
+	}
+
+	@Test
+	public void testRoundTrip() {
+		
+		final Random random = new Random(42);
+		
+		final byte[] data = new byte[StateSnapshot.chunkSize * 3 + 17];
+		
+		random.nextBytes(data);
+		
+		final List<NetworkAddress> members = ImmutableList.of(
+				NetworkAddress.of(InetAddress.getLoopbackAddress(), 1234), 
+				NetworkAddress.of(InetAddress.getLoopbackAddress(), 5678));
+		
+		final StateSnapshot snapshot = new StateSnapshot(-7, members, new Bytes(data));
+		
+		final List<Bytes> messages = snapshot.encode();
+		
+		assert(messages.size() == 5);
+		
+		final StateSnapshot.Assembler assembler = new StateSnapshot.Assembler();
+		
+		final StateSnapshot result = assemble(assembler, messages).get();
+		
+		assert(!assembler.isInProgress());
+		assert(result.sequenceNumber() == -7);
+		assert(result.members().equals(members));
+		assert(result.state().equals(snapshot.state()));
+	}
+
+	@Test
+	public void testEmpty() {
+		
+		final StateSnapshot snapshot = new StateSnapshot(3, ImmutableList.of(), new Bytes(new byte[0]));
+		
+		final List<Bytes> messages = snapshot.encode();
+		
+		assert(messages.size() == 1);
+		
+		final StateSnapshot result = assemble(new StateSnapshot.Assembler(), messages).get();
+		
+		assert(result.sequenceNumber() == 3);
+		assert(result.members().isEmpty());
+		assert(result.state().length() == 0);
+	}
+
+	@Test
+	public void testRestart() {
+		
+		final StateSnapshot first = new StateSnapshot(1, ImmutableList.of(), new Bytes(new byte[StateSnapshot.chunkSize * 2]));
+		final StateSnapshot second = new StateSnapshot(2, ImmutableList.of(), new Bytes(new byte[] { 1, 2, 3 }));
+		
+		final StateSnapshot.Assembler assembler = new StateSnapshot.Assembler();
+		
+		final List<Bytes> messages = first.encode();
+		
+		assert(!assembler.add(messages.get(0)).isPresent());
+		assert(!assembler.add(messages.get(1)).isPresent());
+		
+		assert(assembler.isInProgress());
+		assert(assembler.received() == StateSnapshot.chunkSize);
+		
+		// A new header abandons the snapshot in progress
+		final StateSnapshot result = assemble(assembler, second.encode()).get();
+		
+		assert(result.sequenceNumber() == 2);
+		assert(result.state().length() == 3);
+	}
+}
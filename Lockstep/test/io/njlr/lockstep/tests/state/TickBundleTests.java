@@ -0,0 +1,86 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import io.njlr.bytes.Bytes;
+import io.njlr.lockstep.state.ActionDecoder;
+import io.njlr.lockstep.state.SequencedAction;
+import io.njlr.lockstep.state.StateHash;
+import io.njlr.lockstep.state.TickBundle;
+
+public final class TickBundleTests {
+	
+	private static final ActionDecoder<Counter> decoder = Increment::tryDecode;
+	
+	@Test
+	public void testRoundTrip() {
+		
+		final List<SequencedAction<Counter>> actions = new ArrayList<>();
+		
+		for (int i = 0; i < 100; i++) {
+			
+			actions.add(SequencedAction.of(12 + i % 3, 5, i, new Increment(i * 1000)));
+		}
+		
+		final Bytes encoded = TickBundle.encode((byte) 61, 9, 1500, actions, Optional.empty());
+		
+		assert(encoded.get(0) == 61);
+		
+		final Optional<TickBundle<Counter>> decoded = TickBundle.decode(encoded.sub(1), decoder);
+		
+		assert(decoded.isPresent());
+		assert(decoded.get().sequenceNumber() == 9);
+		assert(decoded.get().tickCost() == 1500);
+		assert(!decoded.get().stateHash().isPresent());
+		assert(decoded.get().actions().equals(actions));
+	}
+
+	@Test
+	public void testEmpty() {
+		
+		final Bytes encoded = TickBundle.encode((byte) 61, -4, 0, Collections.<SequencedAction<Counter>>emptyList(), Optional.empty());
+		
+		final Optional<TickBundle<Counter>> decoded = TickBundle.decode(encoded.sub(1), decoder);
+		
+		assert(decoded.isPresent());
+		assert(decoded.get().sequenceNumber() == -4);
+		assert(decoded.get().actions().isEmpty());
+	}
+
+	@Test
+	public void testStateHash() {
+		
+		final List<SequencedAction<Counter>> actions = ImmutableList.of(SequencedAction.of(3, 1, 0, new Increment(7)));
+		
+		final Bytes encoded = TickBundle.encode((byte) 61, 2, 100, actions, Optional.of(new StateHash(-8, 0xCAFE)));
+		
+		final Optional<TickBundle<Counter>> decoded = TickBundle.decode(encoded.sub(1), decoder);
+		
+		assert(decoded.isPresent());
+		assert(decoded.get().actions().equals(actions));
+		assert(decoded.get().stateHash().equals(Optional.of(new StateHash(-8, 0xCAFE))));
+	}
+
+	@Test
+	public void testMalformed() {
+		
+		final byte[] negativeCount = { 0, 0, 0, 9, 0, 0, 0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF };
+		final byte[] truncatedAction = { 0, 0, 0, 9, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 40, 1, 2 };
+		
+		assert(!TickBundle.decode(Bytes.of(negativeCount), decoder).isPresent());
+		assert(!TickBundle.decode(Bytes.of(truncatedAction), decoder).isPresent());
+		
+		// Every truncation of the header
+		for (int i = 0; i < negativeCount.length; i++) {
+			
+			assert(!TickBundle.decode(Bytes.of(negativeCount).sub(0, i), decoder).isPresent());
+		}
+	}
+}
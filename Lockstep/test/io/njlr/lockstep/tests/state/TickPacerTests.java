@@ -0,0 +1,86 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.state.TickPacer;
+
+public final class TickPacerTests {
+	
+	@Test
+	public void testFixedRate() {
+		
+		final TickPacer pacer = new TickPacer(10, TimeUnit.NANOSECONDS);
+		
+		pacer.start(0L);
+		
+		// The first tick is due immediately
+		assert(pacer.isDue());
+		
+		pacer.ticked();
+		
+		assert(!pacer.isDue());
+		assert(pacer.timeUntilDue(TimeUnit.NANOSECONDS) == 10L);
+		
+		// Centred in the window, time passes at the real rate
+		pacer.advance(6L, 2, 4);
+		
+		assert(!pacer.isDue());
+		assert(pacer.timeUntilDue(TimeUnit.NANOSECONDS) == 4L);
+		
+		pacer.advance(10L, 2, 4);
+		
+		assert(pacer.isDue());
+		
+		pacer.ticked();
+		
+		assert(!pacer.isDue());
+	}
+
+	@Test
+	public void testCatchUp() {
+		
+		final TickPacer pacer = new TickPacer(10, TimeUnit.NANOSECONDS, 3);
+		
+		pacer.start(0L);
+		pacer.ticked();
+		
+		pacer.advance(25L, 2, 4);
+		
+		// Two ticks are owed
+		for (int i = 0; i < 2; i++) {
+			
+			assert(pacer.isDue());
+			
+			pacer.ticked();
+		}
+		
+		assert(!pacer.isDue());
+		
+		// A long stall is only made up for in part
+		pacer.advance(1000L, 2, 4);
+		
+		for (int i = 0; i < 3; i++) {
+			
+			assert(pacer.isDue());
+			
+			pacer.ticked();
+		}
+		
+		assert(!pacer.isDue());
+	}
+
+	@Test
+	public void testRate() {
+		
+		assert(TickPacer.rate(0, 4) == 1.0);
+		assert(TickPacer.rate(2, 4) == 1.0);
+		
+		// In the front half of the window, slow down
+		assert(TickPacer.rate(3, 4) < 1.0);
+		assert(TickPacer.rate(4, 4) < TickPacer.rate(3, 4));
+		
+		assert(TickPacer.rate(100, 4) == 1.0 - TickPacer.maximumRateAdjustment);
+	}
+}
@@ -0,0 +1,122 @@
+package io.njlr.lockstep.tests.state;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import io.njlr.lockstep.state.BlockingWaitStrategy;
+import io.njlr.lockstep.state.BusySpinWaitStrategy;
+import io.njlr.lockstep.state.RingBuffer;
+import io.njlr.lockstep.state.TimedParkWaitStrategy;
+import io.njlr.lockstep.state.WaitStrategy;
+import io.njlr.lockstep.state.YieldingWaitStrategy;
+
+/**
+ * Measures how long a consumer takes to notice a published event under each <code>WaitStrategy</code>, 
+ * and how much CPU it burns while waiting. 
+ * 
+ * This mirrors the tick thread of a <code>SimulationManager</code> stalled on a peer: 
+ * events arrive far apart, so almost every one of them finds the consumer waiting. 
+ *
+ */
+public final class WaitStrategyBenchmark {
+	
+	private static final int events = 20000;
+	private static final long gapNanos = TimeUnit.MICROSECONDS.toNanos(200);
+	
+	private WaitStrategyBenchmark() {
+		
+		super();
+	}
+
+	public static void main(final String[] args) throws InterruptedException {
+		
+		run("blocking", new BlockingWaitStrategy());
+		run("timed park (100us)", new TimedParkWaitStrategy(100, TimeUnit.MICROSECONDS));
+		run("yielding", new YieldingWaitStrategy());
+		run("busy spin (backoff to 50us)", new BusySpinWaitStrategy(10000, 50, TimeUnit.MICROSECONDS));
+		run("busy spin", new BusySpinWaitStrategy());
+	}
+
+	private static void run(final String name, final WaitStrategy waitStrategy) throws InterruptedException {
+		
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		
+		final RingBuffer<long[]> ringBuffer = new RingBuffer<>(1024, () -> new long[1]);
+		
+		final long[] latencies = new long[events];
+		final long[] consumerCpuNanos = new long[1];
+		
+		final Thread consumer = new Thread(() -> {
+			
+			final int[] count = new int[1];
+			
+			final long startCpu = threads.getCurrentThreadCpuTime();
+			
+			int idleCount = 0;
+			
+			while (count[0] < events) {
+				
+				final int received = ringBuffer.drain(x -> {
+					
+					latencies[count[0]] = System.nanoTime() - x[0];
+					
+					count[0]++;
+				});
+				
+				if (received > 0) {
+					
+					idleCount = 0;
+				} else {
+					
+					waitStrategy.idle(idleCount);
+					
+					if (idleCount < Integer.MAX_VALUE) {
+						
+						idleCount++;
+					}
+				}
+			}
+			
+			consumerCpuNanos[0] = threads.getCurrentThreadCpuTime() - startCpu;
+		});
+		
+		consumer.start();
+		
+		final long start = System.nanoTime();
+		
+		for (int i = 0; i < events; i++) {
+			
+			// Space the events out without sleeping for a whole scheduler quantum
+			final long due = start + i * gapNanos;
+			
+			while (System.nanoTime() < due) {
+				
+				LockSupport.parkNanos(Math.max(1L, (due - System.nanoTime()) / 2));
+			}
+			
+			final long sequence = ringBuffer.claim();
+			
+			ringBuffer.get(sequence)[0] = System.nanoTime();
+			
+			ringBuffer.publish(sequence);
+			
+			waitStrategy.signal(consumer);
+		}
+		
+		consumer.join();
+		
+		final long elapsed = System.nanoTime() - start;
+		
+		Arrays.sort(latencies);
+		
+		System.out.println(String.format(
+				"%-28s median %7.1fus  p99 %8.1fus  consumer CPU %5.1f%%", 
+				name, 
+				latencies[events / 2] / 1000.0, 
+				latencies[events * 99 / 100] / 1000.0, 
+				100.0 * consumerCpuNanos[0] / elapsed));
+	}
+}
@@ -0,0 +1,144 @@
+package io.njlr.lockstep.tests.state;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.njlr.lockstep.state.BlockingWaitStrategy;
+import io.njlr.lockstep.state.BusySpinWaitStrategy;
+import io.njlr.lockstep.state.RingBuffer;
+import io.njlr.lockstep.state.TimedParkWaitStrategy;
+import io.njlr.lockstep.state.WaitStrategy;
+import io.njlr.lockstep.state.YieldingWaitStrategy;
+
+public final class WaitStrategyTests {
+	
+	@Test
+	public void testBlocking() throws Exception {
+		
+		assert(delivers(new BlockingWaitStrategy()));
+	}
+
+	@Test
+	public void testTimedPark() throws Exception {
+		
+		assert(delivers(new TimedParkWaitStrategy(100, TimeUnit.MICROSECONDS)));
+	}
+
+	@Test
+	public void testYielding() throws Exception {
+		
+		assert(delivers(new YieldingWaitStrategy()));
+	}
+
+	@Test
+	public void testBusySpin() throws Exception {
+		
+		assert(delivers(new BusySpinWaitStrategy(1000, 100, TimeUnit.MICROSECONDS)));
+	}
+
+	@Test
+	public void testIdleFor() throws Exception {
+		
+		final WaitStrategy[] waitStrategies = {
+				new BlockingWaitStrategy(), 
+				new TimedParkWaitStrategy(100, TimeUnit.MICROSECONDS), 
+				new YieldingWaitStrategy(), 
+				new BusySpinWaitStrategy(1000, 100, TimeUnit.MICROSECONDS) };
+		
+		for (final WaitStrategy waitStrategy : waitStrategies) {
+			
+			final long startTime = System.nanoTime();
+			
+			waitStrategy.idleFor(2, TimeUnit.MILLISECONDS);
+			
+			assert(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(1));
+		}
+	}
+
+	@Test
+	public void testIdleForIsSignalled() throws Exception {
+		
+		final WaitStrategy waitStrategy = new BlockingWaitStrategy();
+		
+		final CountDownLatch done = new CountDownLatch(1);
+		
+		final Thread consumer = new Thread(() -> {
+			
+			waitStrategy.idleFor(1, TimeUnit.MINUTES);
+			
+			done.countDown();
+		});
+		
+		consumer.setDaemon(true);
+		consumer.start();
+		
+		Thread.sleep(10);
+		
+		waitStrategy.signal(consumer);
+		
+		assert(done.await(5, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Whether a consumer waiting with the given strategy sees every event from a slow producer. 
+	 */
+	private static boolean delivers(final WaitStrategy waitStrategy) throws InterruptedException {
+		
+		final int limit = 200;
+		
+		final RingBuffer<int[]> ringBuffer = new RingBuffer<>(16, () -> new int[1]);
+		
+		final CountDownLatch done = new CountDownLatch(1);
+		
+		final Thread consumer = new Thread(() -> {
+			
+			final int[] expected = new int[1];
+			
+			int idleCount = 0;
+			
+			while (expected[0] < limit) {
+				
+				final int received = ringBuffer.drain(x -> {
+					
+					if (x[0] == expected[0]) {
+						
+						expected[0]++;
+					}
+				});
+				
+				if (received > 0) {
+					
+					idleCount = 0;
+				} else {
+					
+					waitStrategy.idle(idleCount++);
+				}
+			}
+			
+			done.countDown();
+		});
+		
+		consumer.setDaemon(true);
+		consumer.start();
+		
+		for (int i = 0; i < limit; i++) {
+			
+			final long sequence = ringBuffer.claim();
+			
+			ringBuffer.get(sequence)[0] = i;
+			
+			ringBuffer.publish(sequence);
+			
+			waitStrategy.signal(consumer);
+			
+			if (i % 20 == 0) {
+				
+				Thread.sleep(1);
+			}
+		}
+		
+		return done.await(5, TimeUnit.SECONDS);
+	}
+}
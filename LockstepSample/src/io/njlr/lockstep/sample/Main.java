@@ -31,7 +31,8 @@ public final class Main {
 		
 		final NetworkSession networkSession = new NetworkSession(port);
 		
-		final SessionSettings settings = new SessionSettings(1, 3, ImmutableSet.of(new NetworkAddress(InetAddress.getLocalHost(), theirPort)));
+		final SessionSettings settings = new SessionSettings(
+				1, 3, ImmutableSet.of(new NetworkAddress(InetAddress.getLocalHost(), theirPort)), new NetworkAddress(InetAddress.getLocalHost(), port));
 		
 		final SimulationManager<StrangeSimulation> simulationManager = new SimulationManager<StrangeSimulation>(
 				networkSession, settings, StrangeSimulationDecoder::tryDecode, new StrangeSimulation("A"));
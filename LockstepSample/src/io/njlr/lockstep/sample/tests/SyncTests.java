@@ -37,31 +37,34 @@ public final class SyncTests {
 		
 		final ExecutorService executorService = Executors.newFixedThreadPool(2);
 		
-		executorService.submit(new Runner("A", portA, new NetworkAddress(InetAddress.getLocalHost(), portB)));
-		executorService.submit(new Runner("                                                                         B", portB, new NetworkAddress(InetAddress.getLocalHost(), portA)));
+		final NetworkAddress addressA = new NetworkAddress(InetAddress.getLocalHost(), portA);
+		final NetworkAddress addressB = new NetworkAddress(InetAddress.getLocalHost(), portB);
+		
+		executorService.submit(new Runner("A", addressA, addressB));
+		executorService.submit(new Runner("                                                                         B", addressB, addressA));
 	}
 	
 	private final class Runner implements Runnable {
 
 		private final String tag;
-		private final int port;
+		private final NetworkAddress localAddress;
 		private final NetworkAddress remoteAddress;
 		
-		public Runner(final String tag, final int port, final NetworkAddress remoteAddress) {
+		public Runner(final String tag, final NetworkAddress localAddress, final NetworkAddress remoteAddress) {
 			
 			super();
 			
 			this.tag = tag;
-			this.port = port;
+			this.localAddress = localAddress;
 			this.remoteAddress = remoteAddress;
 		}
 		
 		@Override
 		public void run() {
 			
-			final NetworkSession networkSession = new NetworkSession(port);
+			final NetworkSession networkSession = new NetworkSession(localAddress.port());
 			
-			final SessionSettings settings = new SessionSettings(1, 3, ImmutableSet.of(remoteAddress));
+			final SessionSettings settings = new SessionSettings(1, 3, ImmutableSet.of(remoteAddress), localAddress);
 			
 			final SimulationManager<StrangeSimulation> simulationManager = new SimulationManager<StrangeSimulation>(
 					networkSession, settings, StrangeSimulationDecoder::tryDecode, new StrangeSimulation(tag));